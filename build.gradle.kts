@@ -5,6 +5,8 @@ plugins {
   id("java")
   // Gradle IntelliJ Plugin
   id("org.jetbrains.intellij") version "1.6.0"
+  // JMH benchmarks in src/jmh, run with ./gradlew jmh
+  id("me.champeau.jmh") version "0.6.6"
 }
 
 group = properties("pluginGroup")
@@ -65,6 +67,74 @@ tasks {
   }
 }
 
+jmh {
+  jmhVersion.set("1.35")
+  // results are kept per version outside of the build directory (and git), so `clean` doesn't lose them
+  // and `./gradlew jmhCompare -PjmhBaseline=<version>` can compare them across versions
+  resultFormat.set("JSON")
+  resultsFile.set(layout.projectDirectory.file("benchmarks/jmh-${project.version}.json"))
+  // run a subset with eg: ./gradlew jmh -PjmhIncludes=LRUCache
+  project.findProperty("jmhIncludes")?.let { includes.set(it.toString().split(',').map(String::trim)) }
+}
+
+// the benchmarks run the plugin classes outside of the IDE, so they need the platform classes at runtime too
+configurations.named("jmhImplementation") {
+  extendsFrom(configurations.compileOnly.get())
+}
+
+tasks.register("jmhCompare") {
+  group = "benchmark"
+  description = "Compares the JMH results of this version with the ones of -PjmhBaseline=<version>."
+  doLast {
+    val baseline = project.findProperty("jmhBaseline")?.toString()
+      ?: throw GradleException("Set the version to compare with: -PjmhBaseline=<version>")
+    fun readScores(version: String): Map<String, Pair<Double, String>> {
+      val file = project.file("benchmarks/jmh-$version.json")
+      if (!file.exists()) throw GradleException("No JMH results of version $version: $file")
+      @Suppress("UNCHECKED_CAST")
+      val results = groovy.json.JsonSlurper().parse(file) as List<Map<String, Any?>>
+      return results.associate { result ->
+        val params = (result["params"] as Map<*, *>?)?.entries
+          ?.joinToString(", ", " (", ")") { "${it.key}=${it.value}" } ?: ""
+        val metric = result["primaryMetric"] as Map<*, *>
+        "${result["benchmark"]}$params" to ((metric["score"] as Number).toDouble() to metric["scoreUnit"].toString())
+      }
+    }
+    val baselineScores = readScores(baseline)
+    val currentScores = readScores(project.version.toString())
+    for ((benchmark, current) in currentScores.toSortedMap()) {
+      val previous = baselineScores[benchmark]
+      if (previous == null) {
+        println("$benchmark: %.3f %s (new)".format(current.first, current.second))
+      } else {
+        val change = (current.first - previous.first) / previous.first * 100
+        println("$benchmark: %.3f -> %.3f %s (%+.1f%%)".format(previous.first, current.first, current.second, change))
+      }
+    }
+  }
+}
+
+// runs the translation pipeline against a local stub server, eg: ./gradlew throughputHarness -PharnessArgs="--keys=100000 --locales=100"
+tasks.register<JavaExec>("throughputHarness") {
+  group = "verification"
+  description = "Measures the translation throughput against a local stub translation server."
+  classpath = sourceSets.test.get().runtimeClasspath
+  mainClass.set("com.airsaid.localization.task.ThroughputHarness")
+  args = project.findProperty("harnessArgs")?.toString()?.split(' ')?.filter(String::isNotBlank) ?: emptyList()
+  maxHeapSize = project.findProperty("harnessHeap")?.toString() ?: "2g"
+}
+
+// translates the values files of a repository outside of the IDE, eg: on CI, the credentials are read from the environment:
+// ANDROID_LOCALIZE_DEEPL_APP_KEY=... ./gradlew translateResources -PtranslateArgs="--root=/path/to/app --translator=DeepL"
+tasks.register<JavaExec>("translateResources") {
+  group = "localization"
+  description = "Translates the values files of a repository with the plugin's translation engine."
+  // the engine uses some utility classes of the platform, which the plugin only compiles against
+  classpath = sourceSets.main.get().runtimeClasspath + configurations.compileClasspath.get()
+  mainClass.set("com.airsaid.localization.cli.TranslateCommand")
+  args = project.findProperty("translateArgs")?.toString()?.split(' ')?.filter(String::isNotBlank) ?: emptyList()
+}
+
 dependencies {
   implementation("com.google.code.gson:gson:2.9.0")
   implementation("org.apache.poi:poi-ooxml:5.2.2")
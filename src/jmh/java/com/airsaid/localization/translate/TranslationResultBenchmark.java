@@ -0,0 +1,195 @@
+/*
+ * Copyright 2021 Airsaid. https://github.com/airsaid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.airsaid.localization.translate;
+
+import com.airsaid.localization.translate.impl.baidu.BaiduTranslationResult;
+import com.airsaid.localization.translate.impl.deepl.DeeplTranslationResult;
+import com.airsaid.localization.translate.impl.google.GoogleTranslationResult;
+import com.airsaid.localization.translate.impl.googleapi.GoogleApiTranslationResult;
+import com.airsaid.localization.translate.impl.microsoft.MicrosoftTranslationResult;
+import com.airsaid.localization.translate.impl.youdao.YoudaoTranslationResult;
+import com.airsaid.localization.translate.util.GsonUtil;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the Gson parsing of the responses of each translator into its {@link TranslationResult},
+ * with the same types the translators parse them into.
+ *
+ * @author airsaid
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TranslationResultBenchmark {
+
+  private static final String SOURCE = "The quick brown fox jumps over the lazy dog ";
+  private static final String TRANSLATION = "敏捷的棕色狐狸跳过了懒狗 ";
+
+  @Param({"google", "googleApi", "baidu", "deepl", "microsoft", "youdao"})
+  public String translator;
+
+  @Param({"1", "50"})
+  public int textCount;
+
+  private final Gson gson = GsonUtil.getInstance().getGson();
+  private String json;
+  private Class<?> type;
+
+  @Setup
+  public void setUp() {
+    JsonElement response;
+    switch (translator) {
+      case "google":
+        response = google();
+        type = GoogleTranslationResult.class;
+        break;
+      case "googleApi":
+        response = googleApi();
+        type = GoogleApiTranslationResult.class;
+        break;
+      case "baidu":
+        response = baidu();
+        type = BaiduTranslationResult.class;
+        break;
+      case "deepl":
+        response = deepl();
+        type = DeeplTranslationResult.class;
+        break;
+      case "microsoft":
+        response = microsoft();
+        type = MicrosoftTranslationResult[].class;
+        break;
+      case "youdao":
+        response = youdao();
+        type = YoudaoTranslationResult.class;
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown translator: " + translator);
+    }
+    json = gson.toJson(response);
+  }
+
+  @Benchmark
+  public Object parse() {
+    return gson.fromJson(json, type);
+  }
+
+  private JsonObject google() {
+    JsonArray sentences = new JsonArray();
+    for (int i = 0; i < textCount; i++) {
+      JsonObject sentence = new JsonObject();
+      sentence.addProperty("trans", TRANSLATION + i);
+      sentence.addProperty("orig", SOURCE + i);
+      sentence.addProperty("backend", 10);
+      sentences.add(sentence);
+    }
+    JsonObject response = new JsonObject();
+    response.add("sentences", sentences);
+    response.addProperty("src", "en");
+    return response;
+  }
+
+  private JsonObject googleApi() {
+    JsonArray translations = new JsonArray();
+    for (int i = 0; i < textCount; i++) {
+      JsonObject translation = new JsonObject();
+      translation.addProperty("translatedText", TRANSLATION + i);
+      translation.addProperty("detectedSourceLanguage", "en");
+      translations.add(translation);
+    }
+    JsonObject data = new JsonObject();
+    data.add("translations", translations);
+    JsonObject response = new JsonObject();
+    response.add("data", data);
+    return response;
+  }
+
+  private JsonObject baidu() {
+    JsonArray contents = new JsonArray();
+    for (int i = 0; i < textCount; i++) {
+      JsonObject content = new JsonObject();
+      content.addProperty("src", SOURCE + i);
+      content.addProperty("dst", TRANSLATION + i);
+      contents.add(content);
+    }
+    JsonObject response = new JsonObject();
+    response.addProperty("from", "en");
+    response.addProperty("to", "zh");
+    response.add("trans_result", contents);
+    return response;
+  }
+
+  private JsonObject deepl() {
+    JsonArray translations = new JsonArray();
+    for (int i = 0; i < textCount; i++) {
+      JsonObject translation = new JsonObject();
+      translation.addProperty("detected_source_language", "EN");
+      translation.addProperty("text", TRANSLATION + i);
+      translations.add(translation);
+    }
+    JsonObject response = new JsonObject();
+    response.add("translations", translations);
+    return response;
+  }
+
+  private JsonArray microsoft() {
+    JsonArray response = new JsonArray();
+    for (int i = 0; i < textCount; i++) {
+      JsonObject translation = new JsonObject();
+      translation.addProperty("text", TRANSLATION + i);
+      translation.addProperty("to", "zh-Hans");
+      JsonArray translations = new JsonArray();
+      translations.add(translation);
+      JsonObject result = new JsonObject();
+      result.add("translations", translations);
+      response.add(result);
+    }
+    return response;
+  }
+
+  private JsonObject youdao() {
+    JsonObject response = new JsonObject();
+    response.addProperty("errorCode", "0");
+    response.addProperty("requestId", "8c0f6c1e-2c8b-4a4f-9d5e-4f3a2b1c0d9e");
+    if (textCount == 1) {
+      JsonArray translation = new JsonArray();
+      translation.add(TRANSLATION);
+      response.add("translation", translation);
+    } else {
+      // the batch api returns the translations in translateResults
+      JsonArray translateResults = new JsonArray();
+      for (int i = 0; i < textCount; i++) {
+        JsonObject result = new JsonObject();
+        result.addProperty("query", SOURCE + i);
+        result.addProperty("translation", TRANSLATION + i);
+        translateResults.add(result);
+      }
+      response.add("translateResults", translateResults);
+    }
+    return response;
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2021 Airsaid. https://github.com/airsaid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.airsaid.localization.translate.impl.google;
+
+import com.intellij.openapi.util.Pair;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the token generation of {@link GoogleToken} with the previous implementation on
+ * typical strings of a values file, and measures the lookup of the shared TKK from many threads.
+ * <p>
+ * Run with {@code -prof gc} to compare the allocation rates.
+ *
+ * @author airsaid
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GoogleTokenBenchmark {
+
+  private static final long HOUR = 450000L;
+  private static final long KEY = 3293161072L;
+
+  @State(Scope.Benchmark)
+  public static class Texts {
+    @Param({"ascii", "cjk"})
+    String script;
+
+    String text;
+    Pair<Long, Long> tkk;
+
+    @Setup
+    public void setUp() {
+      text = "ascii".equals(script) ?
+          "Are you sure you want to delete %1$s? This can't be undone." :
+          "确定要删除 %1$s 吗？此操作无法撤销。";
+      tkk = Pair.create(HOUR, KEY);
+      // a TKK of the current hour, so the benchmark doesn't trigger a refresh
+      GoogleToken.setTKK(System.currentTimeMillis() / (60 * 60 * 1000), KEY);
+    }
+  }
+
+  @Benchmark
+  public String legacy(Texts texts) {
+    return LegacyGoogleToken.getToken(texts.text, texts.tkk);
+  }
+
+  @Benchmark
+  public String primitive(Texts texts) {
+    return GoogleToken.getToken(texts.text, HOUR, KEY);
+  }
+
+  @Benchmark
+  @Threads(8)
+  public String sharedTKK8Threads(Texts texts) {
+    return GoogleToken.getToken(texts.text);
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2021 Airsaid. https://github.com/airsaid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.airsaid.localization.translate.interceptors;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link EscapeCharactersInterceptor#process(String)}, which runs on every translated text.
+ *
+ * @author airsaid
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EscapeCharactersInterceptorBenchmark {
+
+  private static final int TEXT_COUNT = 1024;
+  private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyz ,.!";
+  private static final String ESCAPED = "@?'\"";
+
+  @Param({"16", "256"})
+  public int textLength;
+
+  /**
+   * The number of characters to escape in every 100 characters.
+   */
+  @Param({"0", "5"})
+  public int escapedPercent;
+
+  private final EscapeCharactersInterceptor interceptor = new EscapeCharactersInterceptor();
+  private String[] texts;
+  private int cursor;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    texts = new String[TEXT_COUNT];
+    for (int i = 0; i < TEXT_COUNT; i++) {
+      StringBuilder builder = new StringBuilder(textLength);
+      while (builder.length() < textLength) {
+        builder.append(random.nextInt(100) < escapedPercent ?
+            ESCAPED.charAt(random.nextInt(ESCAPED.length())) : ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+      }
+      texts[i] = builder.toString();
+    }
+  }
+
+  @Benchmark
+  public String process() {
+    return interceptor.process(texts[cursor++ & (TEXT_COUNT - 1)]);
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2021 Airsaid. https://github.com/airsaid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.airsaid.localization.translate.services;
+
+import com.airsaid.localization.translate.util.LRUCache;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares cache lookups with {@link CacheKey} against the concatenated string keys used before.
+ * <p>
+ * Run with {@code -prof gc} to compare the bytes allocated per lookup.
+ *
+ * @author airsaid
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CacheKeyBenchmark {
+
+  private static final int ENTRY_COUNT = 100_000;
+  private static final int FROM_ID = 17;
+  private static final String FROM_CODE = "en";
+  private static final int TO_ID = 82;
+  private static final String TO_CODE = "zh-CN";
+
+  @Param({"16", "128"})
+  public int textLength;
+
+  private String[] texts;
+  private LRUCache<String, String> stringCache;
+  private LRUCache<CacheKey, String> keyCache;
+  private int cursor;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    texts = new String[ENTRY_COUNT];
+    stringCache = new LRUCache<>(ENTRY_COUNT);
+    keyCache = new LRUCache<>(ENTRY_COUNT);
+    for (int i = 0; i < ENTRY_COUNT; i++) {
+      StringBuilder builder = new StringBuilder(textLength);
+      while (builder.length() < textLength) {
+        builder.append((char) ('a' + random.nextInt(26)));
+      }
+      String text = builder.toString();
+      texts[i] = text;
+      stringCache.put(FROM_CODE + "_" + TO_CODE + "_" + text, text);
+      keyCache.put(new CacheKey(FROM_ID, TO_ID, text), text);
+    }
+  }
+
+  @Benchmark
+  public String stringKey() {
+    String text = texts[cursor++ % ENTRY_COUNT];
+    return stringCache.get(FROM_CODE + "_" + TO_CODE + "_" + text);
+  }
+
+  @Benchmark
+  public String cacheKey() {
+    String text = texts[cursor++ % ENTRY_COUNT];
+    return keyCache.get(new CacheKey(FROM_ID, TO_ID, text));
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2021 Airsaid. https://github.com/airsaid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.airsaid.localization.translate.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link LRUCache} with the previous implementation on the access pattern of the
+ * translation cache: a lookup per string and an insertion on every miss.
+ * <p>
+ * The previous implementation isn't thread-safe, in the multi-threaded benchmarks it is
+ * guarded by a single lock, the way the translation cache service used it.
+ *
+ * @author airsaid
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LRUCacheBenchmark {
+
+  private static final int CAPACITY = 500;
+  private static final int KEY_COUNT = 2000;
+  private static final int ACCESS_COUNT = 1 << 16;
+
+  @State(Scope.Benchmark)
+  public static class Caches {
+    final String[] keys = new String[KEY_COUNT];
+    LRUCache<String, String> cache;
+    LegacyLRUCache<String, String> legacyCache;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+      for (int i = 0; i < KEY_COUNT; i++) {
+        keys[i] = "en_zh-CN_string number " + i;
+      }
+      cache = new LRUCache<>(CAPACITY);
+      legacyCache = new LegacyLRUCache<>(CAPACITY);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Accesses {
+    // 80% of the accesses go to 20% of the keys
+    final int[] indexes = new int[ACCESS_COUNT];
+    int cursor;
+
+    @Setup
+    public void setUp() {
+      Random random = new Random(Thread.currentThread().getId());
+      for (int i = 0; i < ACCESS_COUNT; i++) {
+        indexes[i] = random.nextInt(10) < 8 ? random.nextInt(KEY_COUNT / 5) : random.nextInt(KEY_COUNT);
+      }
+    }
+
+    String next(String[] keys) {
+      return keys[indexes[cursor++ & (ACCESS_COUNT - 1)]];
+    }
+  }
+
+  @Benchmark
+  @Threads(1)
+  public String legacy(Caches caches, Accesses accesses) {
+    return access(caches.legacyCache, accesses.next(caches.keys));
+  }
+
+  @Benchmark
+  @Threads(1)
+  public String concurrent(Caches caches, Accesses accesses) {
+    return access(caches.cache, accesses.next(caches.keys));
+  }
+
+  @Benchmark
+  @Threads(8)
+  public String legacySynchronized8Threads(Caches caches, Accesses accesses) {
+    String key = accesses.next(caches.keys);
+    synchronized (caches.legacyCache) {
+      return access(caches.legacyCache, key);
+    }
+  }
+
+  @Benchmark
+  @Threads(8)
+  public String concurrent8Threads(Caches caches, Accesses accesses) {
+    return access(caches.cache, accesses.next(caches.keys));
+  }
+
+  private static String access(LegacyLRUCache<String, String> cache, String key) {
+    String value = cache.get(key);
+    if (value == null) {
+      value = key;
+      cache.put(key, value);
+    }
+    return value;
+  }
+
+  private static String access(LRUCache<String, String> cache, String key) {
+    String value = cache.get(key);
+    if (value == null) {
+      value = key;
+      cache.put(key, value);
+    }
+    return value;
+  }
+}
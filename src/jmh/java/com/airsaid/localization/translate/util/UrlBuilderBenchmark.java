@@ -0,0 +1,64 @@
+/*
+ * Copyright 2021 Airsaid. https://github.com/airsaid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.airsaid.localization.translate.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building a request url the way the translators do: a few fixed parameters and
+ * one parameter per text of a batch.
+ *
+ * @author airsaid
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UrlBuilderBenchmark {
+
+  private static final String BASE_URL = "https://translate.googleapis.com/translate_a/single";
+
+  @Param({"1", "50"})
+  public int textCount;
+
+  private String[] texts;
+
+  @Setup
+  public void setUp() {
+    texts = new String[textCount];
+    for (int i = 0; i < textCount; i++) {
+      texts[i] = "Hello%20world%20" + i;
+    }
+  }
+
+  @Benchmark
+  public String build() {
+    return new UrlBuilder(BASE_URL)
+        .addQueryParameter("sl", "en")
+        .addQueryParameter("tl", "zh-CN")
+        .addQueryParameter("client", "gtx")
+        .addQueryParameters("dt", "t", "bd")
+        .addQueryParameter("dj", "1")
+        .addQueryParameters("q", texts)
+        .build();
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2021 Airsaid. https://github.com/airsaid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.airsaid.localization.values;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reading and writing a values file with {@link ValuesXmlReader} and {@link ValuesXmlWriter}.
+ *
+ * @author airsaid
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ValuesXmlBenchmark {
+
+  /**
+   * The number of strings in the file, every tenth entry is a plurals and every tenth a string array.
+   */
+  @Param({"100", "5000"})
+  public int entryCount;
+
+  private String text;
+  private ValuesDocument document;
+
+  @Setup
+  public void setUp() throws IOException {
+    StringBuilder builder = new StringBuilder("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n")
+        .append("<resources xmlns:xliff=\"urn:oasis:names:tc:xliff:document:1.2\">\n");
+    for (int i = 0; i < entryCount; i++) {
+      if (i % 10 == 3) {
+        builder.append("    <plurals name=\"songs_").append(i).append("\">\n")
+            .append("        <item quantity=\"one\">%d song</item>\n")
+            .append("        <item quantity=\"other\">%d songs</item>\n")
+            .append("    </plurals>\n");
+      } else if (i % 10 == 7) {
+        builder.append("    <string-array name=\"planets_").append(i).append("\">\n")
+            .append("        <item>Mercury</item>\n")
+            .append("        <item>Venus</item>\n")
+            .append("    </string-array>\n");
+      } else if (i % 10 == 9) {
+        builder.append("    <!-- Greetings -->\n")
+            .append("    <string name=\"hello_").append(i)
+            .append("\">Hello &amp; welcome, <xliff:g id=\"name\">%s</xliff:g>!</string>\n");
+      } else {
+        builder.append("    <string name=\"label_").append(i)
+            .append("\">The quick brown fox jumps over the lazy dog ").append(i).append("</string>\n");
+      }
+    }
+    text = builder.append("</resources>\n").toString();
+    document = ValuesXmlReader.read(text);
+  }
+
+  @Benchmark
+  public ValuesDocument read() throws IOException {
+    return ValuesXmlReader.read(text);
+  }
+
+  @Benchmark
+  public void write() throws IOException {
+    ValuesXmlWriter.write(document, OutputStream.nullOutputStream());
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2021 Airsaid. https://github.com/airsaid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.airsaid.localization.action;
+
+import com.airsaid.localization.task.ImportTask;
+import com.airsaid.localization.utils.ImportExcelOperator;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.CommonDataKeys;
+import com.intellij.openapi.fileChooser.FileChooser;
+import com.intellij.openapi.fileChooser.FileChooserDescriptor;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+
+/**
+ * Import the translations of a spreadsheet exported by a translation run back into the values files,
+ * eg: after reviewers corrected them.
+ *
+ * @author airsaid
+ */
+public class ImportTranslationsAction extends AnAction {
+
+  @Override
+  public void actionPerformed(@NotNull AnActionEvent e) {
+    Project project = e.getRequiredData(CommonDataKeys.PROJECT);
+
+    FileChooserDescriptor descriptor = new FileChooserDescriptor(true, false, false, false, false, false)
+        .withTitle("Import Translations")
+        .withDescription("Select a spreadsheet exported by a translation run, as xlsx or CSV.")
+        .withFileFilter(file -> ImportExcelOperator.isSupportedFile(file.getName()));
+    VirtualFile file = FileChooser.chooseFile(descriptor, project, null);
+    if (file == null) return;
+
+    // save unsaved changes first, the values files are read from and written to disk
+    FileDocumentManager.getInstance().saveAllDocuments();
+    new ImportTask(project, "Importing translations...", new File(file.getPath())).queue();
+  }
+
+  @Override
+  public void update(@NotNull AnActionEvent e) {
+    e.getPresentation().setEnabledAndVisible(e.getData(CommonDataKeys.PROJECT) != null);
+  }
+}
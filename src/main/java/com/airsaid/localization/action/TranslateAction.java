@@ -21,18 +21,17 @@ import com.airsaid.localization.config.SettingsState;
 import com.airsaid.localization.services.AndroidValuesService;
 import com.airsaid.localization.task.TranslateTask;
 import com.airsaid.localization.utils.NotificationUtil;
+import com.airsaid.localization.values.ValuesDocument;
+import com.airsaid.localization.values.ValuesEntry;
 import com.intellij.openapi.actionSystem.AnAction;
 import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.actionSystem.CommonDataKeys;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.vfs.VirtualFile;
-import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
-import com.intellij.psi.xml.XmlTag;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.List;
-
 /**
  * Translate android string value to other languages that can be used to localize your Android APP.
  *
@@ -45,7 +44,7 @@ public class TranslateAction extends AnAction {
   private VirtualFile resourcesDir;
   // the original strings.xml file that stores in res/ directory
   private PsiFile mValueFile;
-  private List<PsiElement> mValues;
+  private ValuesDocument mValues;
   private final AndroidValuesService mValueService = AndroidValuesService.getInstance();
 
   @Override
@@ -55,11 +54,18 @@ public class TranslateAction extends AnAction {
     resourcesDir = e.getRequiredData(CommonDataKeys.VIRTUAL_FILE);
 
     mValueFile = mValueService.getDefaultValuesPsiFile(mProject, resourcesDir);
+    if (mValueFile == null) return;
 
     SettingsState.getInstance().initSetting();
 
-    // load values file from disk
+    // save unsaved changes first, the target values files are read from and written to disk
+    FileDocumentManager.getInstance().saveAllDocuments();
+    // load a snapshot of the values file
     mValueService.loadValuesByAsync(mValueFile, values -> {
+      if (values == null) {
+        NotificationUtil.notifyError(mProject, "Failed to read " + mValueFile.getName() + ".");
+        return;
+      }
       if (!isTranslatable(values)) {
         NotificationUtil.notifyInfo(mProject, "The " + mValueFile.getName() + " has no text to translate.");
         return;
@@ -71,12 +77,10 @@ public class TranslateAction extends AnAction {
   }
 
   // Verify that there is a text in the value file that needs to be translated.
-  private boolean isTranslatable(@NotNull List<PsiElement> values) {
-    for (PsiElement psiElement : values) {
-      if (psiElement instanceof XmlTag) {
-        if (mValueService.isTranslatable((XmlTag) psiElement)) {
-          return true;
-        }
+  private boolean isTranslatable(@NotNull ValuesDocument values) {
+    for (ValuesEntry entry : values.getEntries()) {
+      if (entry.isTranslatable()) {
+        return true;
       }
     }
     return false;
@@ -94,7 +98,7 @@ public class TranslateAction extends AnAction {
   }
 
   private void doTranslate() {
-    TranslateTask translationTask = new TranslateTask(mProject, "Translating...", mValues, mValueFile);
+    TranslateTask translationTask = new TranslateTask(mProject, "Translating...", mValues, mValueFile.getVirtualFile());
     translationTask.setOnTranslateListener(new TranslateTask.OnTranslateListener() {
       @Override
       public void onTranslateSuccess() {
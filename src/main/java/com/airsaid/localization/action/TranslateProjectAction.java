@@ -0,0 +1,93 @@
+/*
+ * Copyright 2021 Airsaid. https://github.com/airsaid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.airsaid.localization.action;
+
+import com.airsaid.localization.config.SettingsState;
+import com.airsaid.localization.services.AndroidValuesService;
+import com.airsaid.localization.task.TranslateTask;
+import com.airsaid.localization.translate.lang.Lang;
+import com.airsaid.localization.ui.SelectLanguagesDialog;
+import com.airsaid.localization.utils.NotificationUtil;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.CommonDataKeys;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Translate the values files of every module and flavour of the project in a single run,
+ * which shares one worker pool, one translation cache and one rate limit. The target languages
+ * and whether existing strings are overwritten are chosen in {@link SelectLanguagesDialog}.
+ *
+ * @author airsaid
+ */
+public class TranslateProjectAction extends AnAction {
+
+  private final AndroidValuesService mValueService = AndroidValuesService.getInstance();
+
+  @Override
+  public void actionPerformed(@NotNull AnActionEvent e) {
+    Project project = e.getRequiredData(CommonDataKeys.PROJECT);
+
+    SettingsState.getInstance().initSetting();
+
+    // save unsaved changes first, the values files are read from and written to disk
+    FileDocumentManager.getInstance().saveAllDocuments();
+    mValueService.findProjectValueFilesByAsync(project, valueFiles -> {
+      if (valueFiles.isEmpty()) {
+        NotificationUtil.notifyInfo(project, "No values files found in " + project.getName() + ".");
+        return;
+      }
+      showSelectLanguageDialog(project, valueFiles);
+    });
+  }
+
+  @Override
+  public void update(@NotNull AnActionEvent e) {
+    e.getPresentation().setEnabledAndVisible(e.getData(CommonDataKeys.PROJECT) != null);
+  }
+
+  private void showSelectLanguageDialog(@NotNull Project project, @NotNull List<VirtualFile> valueFiles) {
+    SelectLanguagesDialog dialog = new SelectLanguagesDialog(project);
+    dialog.setOnClickListener(selectedLanguage -> doTranslate(project, valueFiles, selectedLanguage));
+    dialog.show();
+  }
+
+  private void doTranslate(@NotNull Project project, @NotNull List<VirtualFile> valueFiles,
+                           @NotNull List<Lang> toLanguages) {
+    TranslateTask translationTask = new TranslateTask(project, "Translating project...", valueFiles);
+    // the overwrite option of the dialog is stored in the project properties and read by the task
+    translationTask.setToLanguages(toLanguages);
+    translationTask.setOnTranslateListener(new TranslateTask.OnTranslateListener() {
+      @Override
+      public void onTranslateSuccess() {
+        NotificationUtil.notifyInfo(project, "Translated " + valueFiles.size() + " values files!");
+      }
+
+      @Override
+      public void onTranslateError(Throwable e) {
+        NotificationUtil.notifyError(project, "Translation failure: " + e.getLocalizedMessage());
+      }
+    });
+    translationTask.queue();
+  }
+}
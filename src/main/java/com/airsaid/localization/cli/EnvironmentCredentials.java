@@ -0,0 +1,75 @@
+/*
+ * Copyright 2021 Airsaid. https://github.com/airsaid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.airsaid.localization.cli;
+
+import com.airsaid.localization.translate.TranslatorCredentials;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads the credentials of the translators from environment variables, so build agents can keep them
+ * with their other secrets, eg: {@code ANDROID_LOCALIZE_DEEPL_APP_KEY} is the app key of DeepL.
+ *
+ * @author airsaid
+ */
+public class EnvironmentCredentials implements TranslatorCredentials {
+
+  private static final String PREFIX = "ANDROID_LOCALIZE_";
+  private static final String APP_ID = "APP_ID";
+  private static final String APP_KEY = "APP_KEY";
+
+  private final Map<String, String> environment;
+
+  public EnvironmentCredentials() {
+    this(System.getenv());
+  }
+
+  public EnvironmentCredentials(@NotNull Map<String, String> environment) {
+    this.environment = environment;
+  }
+
+  @Override
+  @Nullable
+  public String getAppId(@NotNull String translatorKey) {
+    return environment.get(getAppIdVariable(translatorKey));
+  }
+
+  @Override
+  @Nullable
+  public String getAppKey(@NotNull String translatorKey) {
+    return environment.get(getAppKeyVariable(translatorKey));
+  }
+
+  @NotNull
+  public static String getAppIdVariable(@NotNull String translatorKey) {
+    return getVariable(translatorKey, APP_ID);
+  }
+
+  @NotNull
+  public static String getAppKeyVariable(@NotNull String translatorKey) {
+    return getVariable(translatorKey, APP_KEY);
+  }
+
+  @NotNull
+  private static String getVariable(@NotNull String translatorKey, @NotNull String name) {
+    return PREFIX + translatorKey.toUpperCase(Locale.ROOT).replaceAll("[^A-Z0-9]", "_") + "_" + name;
+  }
+}
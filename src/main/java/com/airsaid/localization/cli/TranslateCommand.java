@@ -0,0 +1,365 @@
+/*
+ * Copyright 2021 Airsaid. https://github.com/airsaid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.airsaid.localization.cli;
+
+import com.airsaid.localization.services.TranslationManifest;
+import com.airsaid.localization.task.TranslationEngine;
+import com.airsaid.localization.task.TranslationPlan;
+import com.airsaid.localization.translate.AbstractTranslator;
+import com.airsaid.localization.translate.TranslationException;
+import com.airsaid.localization.translate.TranslatorCredentials;
+import com.airsaid.localization.translate.impl.google.GoogleTranslator;
+import com.airsaid.localization.translate.lang.Lang;
+import com.airsaid.localization.translate.lang.Languages;
+import com.airsaid.localization.translate.services.HttpTransportService;
+import com.airsaid.localization.translate.services.TranslationCacheService;
+import com.airsaid.localization.translate.services.TranslationMetricsService;
+import com.airsaid.localization.translate.services.TranslatorService;
+import com.airsaid.localization.values.ValuesResources;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.ProxySelector;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Translates the values files of a whole repository outside of the IDE, eg: on a build agent:
+ * <pre>
+ * ./gradlew translateResources -PtranslateArgs="--root=/path/to/app --translator=DeepL --shard=1/4"
+ * </pre>
+ * Every default values file below the root is translated into the languages that have a values directory
+ * next to it, all of them in one run of the {@link TranslationEngine}. The credentials of the translator are
+ * read from the environment, see {@link EnvironmentCredentials}. The translations and the manifests are kept
+ * in a cache directory, which build agents can cache between runs, so only new and changed strings are sent
+ * to the translator. Large repositories can be split across agents with {@code --shard}.
+ *
+ * @author airsaid
+ */
+public class TranslateCommand {
+
+  static final int EXIT_OK = 0;
+  static final int EXIT_FAILED = 1;
+  static final int EXIT_USAGE = 2;
+
+  private static final String USAGE = "Options:\n"
+      + "  --root=<dir>            the repository to translate, the working directory by default\n"
+      + "  --translator=<key>      Google, GoogleApi, DeepL, Microsoft, Baidu, Youdao or SelfHosted,\n"
+      + "                          Google by default\n"
+      + "  --hedge=<key>           also send the translations the translator is slow to answer to this one\n"
+      + "  --hedge-ratio=<ratio>   the share of the translations that may be hedged, 0.05 by default\n"
+      + "  --languages=<codes>     the comma separated target languages, eg: fr,de,zh-CN,\n"
+      + "                          the languages that have a values directory by default\n"
+      + "  --overwrite             translate the strings that already have a translation again\n"
+      + "  --shard=<index>/<count> translate only the values files of a shard, eg: 1/4\n"
+      + "  --cache-dir=<dir>       the translation cache and manifests, ~/.androidLocalize by default\n"
+      + "  --no-cache              don't look up nor store translations in the cache\n"
+      + "  --max-cache-size=<n>    the number of translations kept in memory\n"
+      + "  --metrics=<file>        write the metrics of the run to a JSON file\n"
+      + "  --export-dir=<dir>      export the strings and translations to a spreadsheet\n"
+      + "  --help                  print these options\n"
+      + "The app id and app key of a translator are read from the ANDROID_LOCALIZE_<TRANSLATOR>_APP_ID\n"
+      + "and ANDROID_LOCALIZE_<TRANSLATOR>_APP_KEY environment variables, eg: ANDROID_LOCALIZE_DEEPL_APP_KEY.";
+
+  private static final String MEMORY_DIRECTORY = "translationMemory";
+  private static final String MANIFEST_DIRECTORY = "manifests";
+
+  /**
+   * The options of a run, parsed from {@code --name=value} arguments.
+   */
+  public static class Options {
+    Path root = Paths.get("");
+    String translator = GoogleTranslator.KEY;
+    @Nullable
+    String hedgeTranslator;
+    double maxHedgeRatio = TranslatorService.DEFAULT_MAX_HEDGE_RATIO;
+    @Nullable
+    List<Lang> languages;
+    boolean isOverwrite;
+    int shardIndex = 0;
+    int shardCount = 1;
+    Path cacheDirectory = Paths.get(System.getProperty("user.home"), ".androidLocalize");
+    boolean isEnableCache = true;
+    int maxCacheSize = 0;
+    @Nullable
+    Path metricsFile;
+    @Nullable
+    Path excelDirectory;
+    boolean isHelp;
+
+    @NotNull
+    static Options parse(@NotNull String[] args) {
+      Options options = new Options();
+      for (String arg : args) {
+        if (!arg.startsWith("--")) {
+          throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+        }
+        int index = arg.indexOf('=');
+        String name = index < 0 ? arg.substring(2) : arg.substring(2, index);
+        String value = index < 0 ? "" : arg.substring(index + 1);
+        switch (name) {
+          case "root": options.root = Paths.get(value); break;
+          case "translator": options.translator = value; break;
+          case "hedge": options.hedgeTranslator = value; break;
+          case "hedge-ratio": options.maxHedgeRatio = parseRatio(value); break;
+          case "languages": options.languages = parseLanguages(value); break;
+          case "overwrite": options.isOverwrite = true; break;
+          case "shard": parseShard(options, value); break;
+          case "cache-dir": options.cacheDirectory = Paths.get(value); break;
+          case "no-cache": options.isEnableCache = false; break;
+          case "max-cache-size": options.maxCacheSize = Integer.parseInt(value); break;
+          case "metrics": options.metricsFile = Paths.get(value); break;
+          case "export-dir": options.excelDirectory = Paths.get(value); break;
+          case "help": options.isHelp = true; break;
+          default: throw new IllegalArgumentException("Unknown option: " + name);
+        }
+      }
+      return options;
+    }
+
+    @NotNull
+    private static List<Lang> parseLanguages(@NotNull String value) {
+      List<Lang> languages = new ArrayList<>();
+      for (String code : value.split(",")) {
+        Lang lang = Languages.getLang(code.trim());
+        if (lang == null) {
+          throw new IllegalArgumentException("Unknown language: " + code);
+        }
+        languages.add(lang);
+      }
+      return languages;
+    }
+
+    private static double parseRatio(@NotNull String value) {
+      double ratio;
+      try {
+        ratio = Double.parseDouble(value);
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Expected --hedge-ratio=<ratio> but got: " + value);
+      }
+      if (ratio < 0 || ratio > 1) {
+        throw new IllegalArgumentException("The hedge ratio must be between 0 and 1: " + value);
+      }
+      return ratio;
+    }
+
+    private static void parseShard(@NotNull Options options, @NotNull String value) {
+      int index = value.indexOf('/');
+      try {
+        options.shardIndex = Integer.parseInt(value.substring(0, index)) - 1;
+        options.shardCount = Integer.parseInt(value.substring(index + 1));
+      } catch (RuntimeException e) {
+        throw new IllegalArgumentException("Expected --shard=<index>/<count> but got: " + value);
+      }
+      if (options.shardCount < 1 || options.shardIndex < 0 || options.shardIndex >= options.shardCount) {
+        throw new IllegalArgumentException("The shard must be between 1/" + options.shardCount
+            + " and " + options.shardCount + "/" + options.shardCount + ": " + value);
+      }
+    }
+  }
+
+  private final Options options;
+  private final TranslatorCredentials credentials;
+  private final PrintStream out;
+  private final PrintStream err;
+
+  public TranslateCommand(@NotNull Options options, @NotNull TranslatorCredentials credentials,
+                          @NotNull PrintStream out, @NotNull PrintStream err) {
+    this.options = options;
+    this.credentials = credentials;
+    this.out = out;
+    this.err = err;
+  }
+
+  public static void main(String[] args) {
+    Options options;
+    try {
+      options = Options.parse(args);
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.err.println(USAGE);
+      System.exit(EXIT_USAGE);
+      return;
+    }
+    if (options.isHelp) {
+      System.out.println(USAGE);
+      return;
+    }
+    System.exit(new TranslateCommand(options, new EnvironmentCredentials(), System.out, System.err).run());
+  }
+
+  /**
+   * Translate the repository with a translator service of its own, whose cache lives in the cache directory.
+   *
+   * @return the exit code.
+   */
+  public int run() {
+    TranslationCacheService cacheService = new TranslationCacheService(options.cacheDirectory.resolve(MEMORY_DIRECTORY));
+    HttpTransportService transport = new HttpTransportService(ProxySelector.getDefault(), null);
+    TranslationMetricsService metricsService = new TranslationMetricsService(cacheService, transport);
+    try {
+      int exitCode = run(new TranslatorService(cacheService, metricsService, transport, credentials));
+      if (options.metricsFile != null) {
+        metricsService.writeJson(options.metricsFile);
+        out.println("Metrics: " + options.metricsFile);
+      }
+      return exitCode;
+    } catch (IOException e) {
+      err.println("Failed to write the metrics: " + e.getMessage());
+      return EXIT_FAILED;
+    } finally {
+      // flushes the translation memory
+      cacheService.dispose();
+    }
+  }
+
+  /**
+   * Translate the repository with the given translator service.
+   *
+   * @return the exit code.
+   */
+  int run(@NotNull TranslatorService translatorService) {
+    AbstractTranslator translator = findTranslator(translatorService, options.translator);
+    if (translator == null || !hasCredentials(translator)) {
+      return EXIT_USAGE;
+    }
+    translatorService.setSelectedTranslator(translator);
+    if (options.hedgeTranslator != null) {
+      AbstractTranslator hedgeTranslator = findTranslator(translatorService, options.hedgeTranslator);
+      if (hedgeTranslator == null || !hasCredentials(hedgeTranslator)) {
+        return EXIT_USAGE;
+      }
+      translatorService.setHedging(hedgeTranslator, options.maxHedgeRatio);
+    }
+    translatorService.setEnableCache(options.isEnableCache);
+    if (options.maxCacheSize > 0) {
+      translatorService.setMaxCacheSize(options.maxCacheSize);
+    }
+
+    Path root = options.root.toAbsolutePath().normalize();
+    List<File> valueFiles;
+    try {
+      valueFiles = ValuesResources.findDefaultValueFiles(root);
+    } catch (IOException e) {
+      err.println("Failed to find the values files of " + root + ": " + e.getMessage());
+      return EXIT_FAILED;
+    }
+
+    TranslationEngine engine = new TranslationEngine(translatorService);
+    for (File valueFile : valueFiles) {
+      if (isInShard(getRelativePath(root, valueFile))) {
+        engine.addSource(valueFile, null);
+      }
+    }
+    out.println("Translating " + engine.getSourceCount() + " of " + valueFiles.size() + " values files in " + root
+        + " with " + translator.getName());
+    engine.setBaseDirectory(root.toFile());
+    engine.setOverwrite(options.isOverwrite);
+    engine.setLanguages(options.languages);
+    Path manifestDirectory = options.cacheDirectory.resolve(MANIFEST_DIRECTORY);
+    // the manifests are named after the path in the repository, so they fit any checkout directory
+    engine.setManifestResolver(valueFile -> manifestDirectory.resolve(
+        TranslationManifest.hash(getRelativePath(root, valueFile)) + ".json"));
+    if (options.excelDirectory != null) {
+      engine.setExportExcel(true, options.excelDirectory.toFile());
+    }
+
+    long startNanos = System.nanoTime();
+    AtomicInteger reportedPercent = new AtomicInteger();
+    TranslationEngine.Result result = engine.run(new TranslationEngine.Callback() {
+      @Override
+      public void onFraction(double fraction) {
+        // report every 10 percent, the fractions come in from several threads
+        int percent = (int) (fraction * 10) * 10;
+        int reported = reportedPercent.get();
+        if (percent > reported && reportedPercent.compareAndSet(reported, percent)) {
+          out.println("Translated " + percent + "%");
+        }
+      }
+
+      @Override
+      public void onPlanned(@NotNull TranslationPlan plan) {
+        out.println(plan.getSummary());
+      }
+
+      @Override
+      public void onWarning(@NotNull String message) {
+        err.println(message);
+      }
+    });
+
+    long seconds = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startNanos);
+    out.println("Wrote " + result.getWrittenFiles().size() + " files in " + seconds + "s");
+    if (result.getFailedCount() > 0) {
+      TranslationException lastError = result.getLastError();
+      err.println(result.getFailedCount() + " strings failed to translate and were skipped"
+          + (lastError != null ? ": " + lastError.getMessage() : "."));
+      return EXIT_FAILED;
+    }
+    return EXIT_OK;
+  }
+
+  @Nullable
+  private AbstractTranslator findTranslator(@NotNull TranslatorService translatorService, @NotNull String key) {
+    for (AbstractTranslator translator : translatorService.getTranslators().values()) {
+      if (translator.getKey().equalsIgnoreCase(key)) {
+        return translator;
+      }
+    }
+    err.println("Unknown translator: " + key + ", expected one of "
+        + String.join(", ", translatorService.getTranslators().keySet()));
+    return null;
+  }
+
+  private boolean hasCredentials(@NotNull AbstractTranslator translator) {
+    String key = translator.getKey();
+    if (translator.isNeedAppId() && isEmpty(translator.getAppId())) {
+      err.println(translator.getName() + " needs an app id, set " + EnvironmentCredentials.getAppIdVariable(key));
+      return false;
+    }
+    if (translator.isNeedAppKey() && !translator.isAppKeyOptional() && isEmpty(translator.getAppKey())) {
+      err.println(translator.getName() + " needs an app key, set " + EnvironmentCredentials.getAppKeyVariable(key));
+      return false;
+    }
+    return true;
+  }
+
+  private static boolean isEmpty(@Nullable String value) {
+    return value == null || value.isEmpty();
+  }
+
+  /**
+   * Returns whether the values file belongs to the shard of this run, a file always falls into the same shard,
+   * whichever files are added or removed.
+   */
+  private boolean isInShard(@NotNull String relativePath) {
+    return Math.floorMod(relativePath.hashCode(), options.shardCount) == options.shardIndex;
+  }
+
+  @NotNull
+  private static String getRelativePath(@NotNull Path root, @NotNull File file) {
+    return root.relativize(file.toPath().toAbsolutePath().normalize()).toString().replace(File.separatorChar, '/');
+  }
+}
@@ -33,6 +33,7 @@ import com.intellij.ui.components.JBLabel;
 import com.intellij.ui.components.JBPasswordField;
 import com.intellij.ui.components.JBTextField;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
 import java.awt.event.ItemEvent;
@@ -58,20 +59,20 @@ public class SettingsComponent {
   private JBCheckBox enableCacheCheckBox;
   private ComboBox<String> maxCacheSizeComboBox;
   private ComboBox<String> translationIntervalComboBox;
+  private JBCheckBox enableHedgeCheckBox;
+  private JLabel hedgeTranslatorLabel;
+  private ComboBox<AbstractTranslator> hedgeTranslatorsComboBox;
+  private JLabel maxHedgeRatioLabel;
+  private JBTextField maxHedgeRatioField;
 
   public SettingsComponent() {
     initTranslatorComponents();
     initCacheComponents();
+    initHedgeComponents();
   }
 
   private void initTranslatorComponents() {
-    translatorsComboBox.setRenderer(new SimpleListCellRenderer<>() {
-      @Override
-      public void customize(@NotNull JList<? extends AbstractTranslator> list, AbstractTranslator value, int index, boolean selected, boolean hasFocus) {
-        setText(value.getName());
-        setIcon(value.getIcon());
-      }
-    });
+    translatorsComboBox.setRenderer(new TranslatorRenderer());
     translatorsComboBox.addItemListener(itemEvent -> {
       if (itemEvent.getStateChange() == ItemEvent.SELECTED) {
         setSelectedTranslator(getSelectedTranslator());
@@ -100,6 +101,17 @@ public class SettingsComponent {
     });
   }
 
+  private void initHedgeComponents() {
+    hedgeTranslatorsComboBox.setRenderer(new TranslatorRenderer());
+    enableHedgeCheckBox.addItemListener(event -> {
+      if (event.getStateChange() == ItemEvent.SELECTED) {
+        setEnableHedge(true);
+      } else if (event.getStateChange() == ItemEvent.DESELECTED) {
+        setEnableHedge(false);
+      }
+    });
+  }
+
   @NotNull
   public AbstractTranslator getSelectedTranslator() {
     return (AbstractTranslator) Objects.requireNonNull(translatorsComboBox.getSelectedItem());
@@ -120,6 +132,7 @@ public class SettingsComponent {
   public void setTranslators(@NotNull Map<String, AbstractTranslator> translators) {
     LOG.info("setTranslators: " + translators.keySet());
     translatorsComboBox.setModel(new CollectionComboBoxModel<>(new ArrayList<>(translators.values())));
+    hedgeTranslatorsComboBox.setModel(new CollectionComboBoxModel<>(new ArrayList<>(translators.values())));
   }
 
   public void setSelectedTranslator(@NotNull AbstractTranslator selected) {
@@ -206,4 +219,50 @@ public class SettingsComponent {
   public void setTranslationInterval(int intervalTime) {
     translationIntervalComboBox.setSelectedItem(String.valueOf(intervalTime));
   }
+
+  private void setEnableHedge(boolean isEnable) {
+    enableHedgeCheckBox.setSelected(isEnable);
+    hedgeTranslatorLabel.setVisible(isEnable);
+    hedgeTranslatorsComboBox.setVisible(isEnable);
+    maxHedgeRatioLabel.setVisible(isEnable);
+    maxHedgeRatioField.setVisible(isEnable);
+  }
+
+  /**
+   * Returns the translator slow translations are also sent to, or null if hedging is disabled.
+   */
+  @Nullable
+  public AbstractTranslator getHedgeTranslator() {
+    return enableHedgeCheckBox.isSelected() ? (AbstractTranslator) hedgeTranslatorsComboBox.getSelectedItem() : null;
+  }
+
+  public void setHedgeTranslator(@Nullable AbstractTranslator hedgeTranslator) {
+    if (hedgeTranslator != null) {
+      hedgeTranslatorsComboBox.setSelectedItem(hedgeTranslator);
+    }
+    setEnableHedge(hedgeTranslator != null);
+  }
+
+  /**
+   * Returns the entered maximum hedge ratio, or NaN if it isn't a number.
+   */
+  public double getMaxHedgeRatio() {
+    try {
+      return Double.parseDouble(maxHedgeRatioField.getText().trim());
+    } catch (NumberFormatException e) {
+      return Double.NaN;
+    }
+  }
+
+  public void setMaxHedgeRatio(double maxHedgeRatio) {
+    maxHedgeRatioField.setText(String.valueOf(maxHedgeRatio));
+  }
+
+  private static class TranslatorRenderer extends SimpleListCellRenderer<AbstractTranslator> {
+    @Override
+    public void customize(@NotNull JList<? extends AbstractTranslator> list, AbstractTranslator value, int index, boolean selected, boolean hasFocus) {
+      setText(value.getName());
+      setIcon(value.getIcon());
+    }
+  }
 }
@@ -63,6 +63,8 @@ public class SettingsConfigurable implements Configurable {
     settingsComponent.setEnableCache(settingsState.isEnableCache());
     settingsComponent.setMaxCacheSize(settingsState.getMaxCacheSize());
     settingsComponent.setTranslationInterval(settingsState.getTranslationInterval());
+    settingsComponent.setHedgeTranslator(settingsState.getHedgeTranslator());
+    settingsComponent.setMaxHedgeRatio(settingsState.getMaxHedgeRatio());
   }
 
   @Override
@@ -75,6 +77,8 @@ public class SettingsConfigurable implements Configurable {
     isChanged |= settingsState.isEnableCache() == settingsComponent.isEnableCache();
     isChanged |= settingsState.getMaxCacheSize() == settingsComponent.getMaxCacheSize();
     isChanged |= settingsState.getTranslationInterval() == settingsComponent.getTranslationInterval();
+    isChanged |= settingsState.getHedgeTranslator() != settingsComponent.getHedgeTranslator();
+    isChanged |= settingsState.getMaxHedgeRatio() != settingsComponent.getMaxHedgeRatio();
     LOG.info("isModified: " + isChanged);
     return isChanged;
   }
@@ -89,9 +93,15 @@ public class SettingsConfigurable implements Configurable {
     if (selectedTranslator.isNeedAppId() && StringUtil.isEmpty(settingsComponent.getAppId())) {
       throw new ConfigurationException(selectedTranslator.getAppIdDisplay() + " not configured");
     }
-    if (selectedTranslator.isNeedAppKey() && StringUtil.isEmpty(settingsComponent.getAppKey())) {
+    if (selectedTranslator.isNeedAppKey() && !selectedTranslator.isAppKeyOptional()
+        && StringUtil.isEmpty(settingsComponent.getAppKey())) {
       throw new ConfigurationException(selectedTranslator.getAppKeyDisplay() + " not configured");
     }
+    AbstractTranslator hedgeTranslator = settingsComponent.getHedgeTranslator();
+    double maxHedgeRatio = settingsComponent.getMaxHedgeRatio();
+    if (hedgeTranslator != null && !SettingsState.isValidHedgeRatio(maxHedgeRatio)) {
+      throw new ConfigurationException("The maximum hedge ratio must be a number from 0 to 1");
+    }
 
     settingsState.setSelectedTranslator(selectedTranslator);
     if (selectedTranslator.isNeedAppId()) {
@@ -103,12 +113,17 @@ public class SettingsConfigurable implements Configurable {
     settingsState.setEnableCache(settingsComponent.isEnableCache());
     settingsState.setMaxCacheSize(settingsComponent.getMaxCacheSize());
     settingsState.setTranslationInterval(settingsComponent.getTranslationInterval());
+    settingsState.setHedgeTranslator(hedgeTranslator);
+    if (SettingsState.isValidHedgeRatio(maxHedgeRatio)) {
+      settingsState.setMaxHedgeRatio(maxHedgeRatio);
+    }
 
     TranslatorService translatorService = TranslatorService.getInstance();
     translatorService.setSelectedTranslator(selectedTranslator);
     translatorService.setEnableCache(settingsComponent.isEnableCache());
     translatorService.setMaxCacheSize(settingsComponent.getMaxCacheSize());
     translatorService.setTranslationInterval(settingsComponent.getTranslationInterval());
+    translatorService.setHedging(settingsState.getHedgeTranslator(), settingsState.getMaxHedgeRatio());
   }
 
   @Override
@@ -122,6 +137,8 @@ public class SettingsConfigurable implements Configurable {
     settingsComponent.setEnableCache(settingsState.isEnableCache());
     settingsComponent.setMaxCacheSize(settingsState.getMaxCacheSize());
     settingsComponent.setTranslationInterval(settingsState.getTranslationInterval());
+    settingsComponent.setHedgeTranslator(settingsState.getHedgeTranslator());
+    settingsComponent.setMaxHedgeRatio(settingsState.getMaxHedgeRatio());
   }
 
   @Override
@@ -18,6 +18,8 @@
 package com.airsaid.localization.config;
 
 import com.airsaid.localization.translate.AbstractTranslator;
+import com.airsaid.localization.translate.TranslatorCredentials;
+import com.airsaid.localization.translate.services.HttpTransportService;
 import com.airsaid.localization.translate.services.TranslatorService;
 import com.airsaid.localization.utils.SecureStorage;
 import com.intellij.openapi.components.*;
@@ -38,7 +40,7 @@ import java.util.Map;
     storages = {@Storage("androidLocalizeSettings.xml")}
 )
 @Service
-public final class SettingsState implements PersistentStateComponent<SettingsState.State> {
+public final class SettingsState implements PersistentStateComponent<SettingsState.State>, TranslatorCredentials {
 
   private static final Logger LOG = Logger.getInstance(SettingsState.class);
 
@@ -70,6 +72,10 @@ public final class SettingsState implements PersistentStateComponent<SettingsSta
       translatorService.setEnableCache(isEnableCache());
       translatorService.setMaxCacheSize(getMaxCacheSize());
       translatorService.setTranslationInterval(getTranslationInterval());
+      HttpTransportService transport = HttpTransportService.getInstance();
+      transport.setTimeouts(getConnectTimeoutMillis(), getReadTimeoutMillis());
+      transport.setHttp2Enabled(isEnableHttp2());
+      translatorService.setHedging(getHedgeTranslator(), getMaxHedgeRatio());
     }
   }
 
@@ -86,8 +92,9 @@ public final class SettingsState implements PersistentStateComponent<SettingsSta
     state.appIds.put(translatorKey, appId);
   }
 
+  @Override
   @NotNull
-  public String getAppId(String translatorKey) {
+  public String getAppId(@NotNull String translatorKey) {
     String appId = state.appIds.get(translatorKey);
     return appId != null ? appId : "";
   }
@@ -99,6 +106,7 @@ public final class SettingsState implements PersistentStateComponent<SettingsSta
     }
   }
 
+  @Override
   @NotNull
   public String getAppKey(@NotNull String translatorKey) {
     SecureStorage secureStorage = appKeyStorage.get(translatorKey);
@@ -129,6 +137,68 @@ public final class SettingsState implements PersistentStateComponent<SettingsSta
     state.translationInterval = intervalTime;
   }
 
+  public int getConnectTimeoutMillis() {
+    return state.connectTimeoutMillis;
+  }
+
+  public void setConnectTimeoutMillis(int connectTimeoutMillis) {
+    if (!isValidTimeout(connectTimeoutMillis)) {
+      throw new IllegalArgumentException("The connect timeout must be positive, but was " + connectTimeoutMillis);
+    }
+    state.connectTimeoutMillis = connectTimeoutMillis;
+  }
+
+  public int getReadTimeoutMillis() {
+    return state.readTimeoutMillis;
+  }
+
+  public void setReadTimeoutMillis(int readTimeoutMillis) {
+    if (!isValidTimeout(readTimeoutMillis)) {
+      throw new IllegalArgumentException("The read timeout must be positive, but was " + readTimeoutMillis);
+    }
+    state.readTimeoutMillis = readTimeoutMillis;
+  }
+
+  static boolean isValidTimeout(int timeoutMillis) {
+    return timeoutMillis > 0;
+  }
+
+  public boolean isEnableHttp2() {
+    return state.isEnableHttp2;
+  }
+
+  public void setEnableHttp2(boolean isEnable) {
+    state.isEnableHttp2 = isEnable;
+  }
+
+  /**
+   * Returns the translator slow translations are also sent to, or null if hedging is disabled.
+   */
+  @Nullable
+  public AbstractTranslator getHedgeTranslator() {
+    return StringUtil.isEmpty(state.hedgeTranslatorKey) ? null :
+        TranslatorService.getInstance().getTranslators().get(state.hedgeTranslatorKey);
+  }
+
+  public void setHedgeTranslator(@Nullable AbstractTranslator translator) {
+    state.hedgeTranslatorKey = translator != null ? translator.getKey() : null;
+  }
+
+  public double getMaxHedgeRatio() {
+    return state.maxHedgeRatio;
+  }
+
+  public void setMaxHedgeRatio(double maxHedgeRatio) {
+    if (!isValidHedgeRatio(maxHedgeRatio)) {
+      throw new IllegalArgumentException("The maximum hedge ratio must be from 0 to 1, but was " + maxHedgeRatio);
+    }
+    state.maxHedgeRatio = maxHedgeRatio;
+  }
+
+  static boolean isValidHedgeRatio(double maxHedgeRatio) {
+    return maxHedgeRatio >= 0 && maxHedgeRatio <= 1;
+  }
+
   @Override
   public @Nullable SettingsState.State getState() {
     return state;
@@ -136,6 +206,20 @@ public final class SettingsState implements PersistentStateComponent<SettingsSta
 
   @Override
   public void loadState(@NotNull State state) {
+    // the settings file may have been edited by hand, and an invalid ratio would fail the hedging
+    if (!isValidHedgeRatio(state.maxHedgeRatio)) {
+      LOG.warn("Invalid maxHedgeRatio: " + state.maxHedgeRatio + ", the default is used");
+      state.maxHedgeRatio = TranslatorService.DEFAULT_MAX_HEDGE_RATIO;
+    }
+    // likewise the transport rejects timeouts that are not positive
+    if (!isValidTimeout(state.connectTimeoutMillis)) {
+      LOG.warn("Invalid connectTimeoutMillis: " + state.connectTimeoutMillis + ", the default is used");
+      state.connectTimeoutMillis = HttpTransportService.DEFAULT_CONNECT_TIMEOUT_MILLIS;
+    }
+    if (!isValidTimeout(state.readTimeoutMillis)) {
+      LOG.warn("Invalid readTimeoutMillis: " + state.readTimeoutMillis + ", the default is used");
+      state.readTimeoutMillis = HttpTransportService.DEFAULT_READ_TIMEOUT_MILLIS;
+    }
     this.state = state;
   }
 
@@ -144,6 +228,11 @@ public final class SettingsState implements PersistentStateComponent<SettingsSta
     public Map<String, String> appIds = new HashMap<>();
     public boolean isEnableCache = true;
     public int maxCacheSize = 500;
-    public int translationInterval = 1; // 1 second
+    public int translationInterval = 0; // no extra interval, requests are limited by the translator's quota
+    public int connectTimeoutMillis = HttpTransportService.DEFAULT_CONNECT_TIMEOUT_MILLIS;
+    public int readTimeoutMillis = HttpTransportService.DEFAULT_READ_TIMEOUT_MILLIS;
+    public boolean isEnableHttp2 = true;
+    public String hedgeTranslatorKey; // no hedging by default, it costs extra requests
+    public double maxHedgeRatio = TranslatorService.DEFAULT_MAX_HEDGE_RATIO;
   }
 }
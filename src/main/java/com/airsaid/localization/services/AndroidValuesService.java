@@ -18,32 +18,36 @@
 package com.airsaid.localization.services;
 
 import com.airsaid.localization.translate.lang.Lang;
-import com.airsaid.localization.translate.lang.Languages;
+import com.airsaid.localization.values.ValuesDocument;
+import com.airsaid.localization.values.ValuesResources;
+import com.airsaid.localization.values.ValuesXmlReader;
+import com.airsaid.localization.values.ValuesXmlWriter;
 import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.components.Service;
 import com.intellij.openapi.components.ServiceManager;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.roots.ProjectRootManager;
 import com.intellij.openapi.util.Computable;
-import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VfsUtilCore;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiDirectory;
-import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiManager;
-import com.intellij.psi.xml.XmlDocument;
-import com.intellij.psi.xml.XmlFile;
-import com.intellij.psi.xml.XmlTag;
 import com.intellij.util.Consumer;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.*;
-import java.nio.charset.StandardCharsets;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Operation service for the android value files. eg: strings.xml or plurals.xml or arrays.xml.
@@ -59,7 +63,9 @@ public final class AndroidValuesService {
   public static final String NAME_PLURALS_FILE = "plurals.xml";
   public static final String NAME_ARRAYS_FILE = "arrays.xml";
 
-  private static final String NAME_DEFAULT_VALUES = "values";
+  private static final String NAME_DEFAULT_VALUES = ValuesResources.NAME_DEFAULT_VALUES;
+  private static final List<String> VALUE_FILE_NAMES = ValuesResources.VALUE_FILE_NAMES;
+  private static final String NAME_BUILD_DIRECTORY = "build";
 
   /**
    * Returns the {@link AndroidValuesService} object instance.
@@ -71,74 +77,64 @@ public final class AndroidValuesService {
   }
 
   /**
-   * Asynchronous loading the value file as the {@link PsiElement} collection.
+   * Asynchronous loading the value file as a {@link ValuesDocument} snapshot.
    *
    * @param valueFile the value file.
-   * @param consumer  load result. called in the event dispatch thread.
+   * @param consumer  load result, null if the file couldn't be read. called in the event dispatch thread.
    */
-  public void loadValuesByAsync(@NotNull PsiFile valueFile, @NotNull Consumer<List<PsiElement>> consumer) {
+  public void loadValuesByAsync(@NotNull PsiFile valueFile, @NotNull Consumer<ValuesDocument> consumer) {
     ApplicationManager.getApplication().executeOnPooledThread(() -> {
-          List<PsiElement> values = loadValues(valueFile);
+          ValuesDocument values;
+          try {
+            values = loadValues(valueFile);
+          } catch (IOException e) {
+            LOG.warn("Failed to load " + valueFile.getName(), e);
+            values = null;
+          }
+          ValuesDocument result = values;
           ApplicationManager.getApplication().invokeLater(() ->
-              consumer.consume(values));
+              consumer.consume(result));
         }
     );
   }
 
   /**
-   * Loading the value file as the {@link PsiElement} collection.
+   * Loading the value file as an immutable {@link ValuesDocument} snapshot, which includes unsaved changes of the file.
+   * <p>
+   * The text of the file is taken in a single non-blocking read action, which gives way to write actions
+   * instead of blocking them and is cancelled with the current progress. The snapshot is built outside
+   * of the read action, so reading, translating and writing the values never touch PSI again.
    *
    * @param valueFile the value file.
-   * @return {@link PsiElement} collection.
+   * @return the values of the file.
    */
-  public List<PsiElement> loadValues(@NotNull PsiFile valueFile) {
-    return ApplicationManager.getApplication().runReadAction((Computable<List<PsiElement>>) () -> {
-      LOG.info("loadValues valueFile: " + valueFile.getName());
-      List<PsiElement> values = parseValuesXml(valueFile);
-      LOG.info("loadValues parsed " + valueFile.getName() + " result: " + values);
-      return values;
-    });
+  @NotNull
+  public ValuesDocument loadValues(@NotNull PsiFile valueFile) throws IOException {
+    String text = ReadAction.nonBlocking(valueFile::getText).executeSynchronously();
+    LOG.info("loadValues valueFile: " + valueFile.getName() + ", length: " + text.length());
+    return ValuesXmlReader.read(text);
   }
 
-  private List<PsiElement> parseValuesXml(@NotNull PsiFile valueFile) {
-    final List<PsiElement> values = new ArrayList<>();
-    final XmlFile xmlFile = (XmlFile) valueFile;
-
-    final XmlDocument document = xmlFile.getDocument();
-    if (document == null) return values;
-
-    final XmlTag rootTag = document.getRootTag();
-    if (rootTag == null) return values;
-
-    PsiElement[] subTags = rootTag.getChildren();
-    values.addAll(Arrays.asList(subTags));
-
-    return values;
+  /**
+   * Loading the value file with the streaming engine, which reads the file from disk without building PSI,
+   * so unsaved changes of the file are not seen.
+   *
+   * @param valueFile the value file.
+   * @return the values of the file.
+   */
+  @NotNull
+  public ValuesDocument loadValuesDocument(@NotNull File valueFile) throws IOException {
+    return ValuesXmlReader.read(valueFile.toPath());
   }
 
   /**
-   * Write {@link PsiElement} collection data to the specified file.
+   * Write the values to the specified file with the streaming engine, the file is replaced at once.
    *
-   * @param values    specified {@link PsiElement} collection data.
+   * @param document  the values.
    * @param valueFile specified file.
    */
-  public void writeValueFile(@NotNull List<PsiElement> values, @NotNull File valueFile) {
-    boolean isCreateSuccess = FileUtil.createIfDoesntExist(valueFile);
-    if (!isCreateSuccess) {
-      LOG.error("Failed to write to " + valueFile.getPath() + " file: create failed!");
-      return;
-    }
-    ApplicationManager.getApplication().invokeLater(() -> ApplicationManager.getApplication().runWriteAction(() -> {
-      try (BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(valueFile, false), StandardCharsets.UTF_8))) {
-        for (PsiElement value : values) {
-          bw.write(value.getText());
-        }
-        bw.flush();
-      } catch (IOException e) {
-        e.printStackTrace();
-        LOG.error("Failed to write to " + valueFile.getPath() + " file.", e);
-      }
-    }));
+  public void writeValuesDocument(@NotNull ValuesDocument document, @NotNull File valueFile) throws IOException {
+    ValuesXmlWriter.write(document, valueFile.toPath());
   }
 
   /**
@@ -226,11 +222,15 @@ public final class AndroidValuesService {
    */
   @NotNull
   public File getValueFile(@NotNull VirtualFile resourceDir, @NotNull Lang lang, String fileName) {
-    return new File(resourceDir.getPath().concat(File.separator).concat(getValuesDirectoryName(lang)), fileName);
+    return ValuesResources.getValueFile(new File(resourceDir.getPath()), lang, fileName);
   }
 
-  private String getValuesDirectoryName(@NotNull Lang lang) {
-    return "values-".concat(lang.getCode());
+  /**
+   * Same as {@link #getValueFile(VirtualFile, Lang, String)}, for a resource directory that is not in the VFS yet.
+   */
+  @NotNull
+  public File getValueFile(@NotNull File resourceDir, @NotNull Lang lang, String fileName) {
+    return ValuesResources.getValueFile(resourceDir, lang, fileName);
   }
 
   /**
@@ -243,19 +243,6 @@ public final class AndroidValuesService {
     return new File(resourceDir.getPath().concat(File.separator).concat("values"), NAME_STRINGS_FILE);
   }
 
-  /**
-   * Returns whether the specified xml tag (string entry) needs to be translated.
-   *
-   * @param xmlTag the specified xml tag of string entry.
-   * @return true: need translation. false: no translation is needed.
-   */
-  public boolean isTranslatable(@NotNull XmlTag xmlTag) {
-    return ApplicationManager.getApplication().runReadAction((Computable<Boolean>) () -> {
-      String translatableStr = xmlTag.getAttributeValue("translatable");
-      return Boolean.parseBoolean(translatableStr == null ? "true" : translatableStr);
-    });
-  }
-
   /**
    * Returns is the given file is correct Android res directory
    *
@@ -293,30 +280,67 @@ public final class AndroidValuesService {
     return stringFile != null;
   }
 
+  /**
+   * Asynchronous finding the default values files of the project, see {@link #findProjectValueFiles(Project)}.
+   *
+   * @param project  current project.
+   * @param consumer the values files. called in the event dispatch thread.
+   */
+  public void findProjectValueFilesByAsync(@NotNull Project project, @NotNull Consumer<List<VirtualFile>> consumer) {
+    ApplicationManager.getApplication().executeOnPooledThread(() -> {
+          List<VirtualFile> valueFiles = ReadAction.nonBlocking(() -> findProjectValueFiles(project))
+              .executeSynchronously();
+          ApplicationManager.getApplication().invokeLater(() ->
+              consumer.consume(valueFiles));
+        }
+    );
+  }
+
+  /**
+   * Find the default values files of every resource directory of the project, that is the strings.xml,
+   * plurals.xml and arrays.xml files of all modules and flavours. Excluded, hidden and build directories
+   * are skipped, and a file reached from nested content roots is returned once. Must be called in a read action.
+   *
+   * @param project current project.
+   * @return the values files in project order.
+   */
+  @NotNull
+  public List<VirtualFile> findProjectValueFiles(@NotNull Project project) {
+    Set<VirtualFile> valueFiles = new LinkedHashSet<>();
+    ProjectFileIndex fileIndex = ProjectFileIndex.getInstance(project);
+    for (VirtualFile contentRoot : ProjectRootManager.getInstance(project).getContentRoots()) {
+      VfsUtilCore.iterateChildrenRecursively(contentRoot,
+          file -> !file.isDirectory() || !isSkippedDirectory(fileIndex, file),
+          file -> {
+            ProgressManager.checkCanceled();
+            if (file.isDirectory() && NAME_DEFAULT_VALUES.equals(file.getName())) {
+              for (String fileName : VALUE_FILE_NAMES) {
+                VirtualFile valueFile = file.findChild(fileName);
+                if (valueFile != null) {
+                  valueFiles.add(valueFile);
+                }
+              }
+            }
+            return true;
+          });
+    }
+    LOG.info("findProjectValueFiles found " + valueFiles.size() + " values files");
+    return new ArrayList<>(valueFiles);
+  }
+
+  private boolean isSkippedDirectory(@NotNull ProjectFileIndex fileIndex, @NotNull VirtualFile directory) {
+    String name = directory.getName();
+    return name.startsWith(".") || NAME_BUILD_DIRECTORY.equals(name) || fileIndex.isExcluded(directory);
+  }
+
   public List<Lang> getExistsLang(@Nullable VirtualFile resourceDir) {
     List<Lang> res = new ArrayList<>();
     if (resourceDir == null) return res;
 
     for (VirtualFile subDirs : resourceDir.getChildren()) {
-      String dirName = subDirs.getName();
-      if (dirName.startsWith(NAME_DEFAULT_VALUES.concat("-"))) {
-        // split dir name to three parts: values; language code; region code
-        String[] destructDirName = dirName.split("-");
-
-        String langCode = destructDirName[1];
-        // if it has region, set it
-        if (destructDirName.length > 2) {
-          String region = destructDirName[2];
-
-          Lang langWithRegion = Languages.getLang(langCode.concat("-").concat(region));
-          if (langWithRegion != null) res.add(langWithRegion);
-          continue;
-        }
-
-        Lang lang = Languages.getLang(langCode);
-        if (lang != null && !res.contains(lang)) {
-          res.add(lang);
-        }
+      Lang lang = ValuesResources.getLang(subDirs.getName());
+      if (lang != null && !res.contains(lang)) {
+        res.add(lang);
       }
     }
 
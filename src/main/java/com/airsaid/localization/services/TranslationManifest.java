@@ -0,0 +1,143 @@
+/*
+ * Copyright 2021 Airsaid. https://github.com/airsaid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.airsaid.localization.services;
+
+import com.airsaid.localization.translate.util.GsonUtil;
+import com.airsaid.localization.translate.util.MurmurHash3;
+import com.google.gson.JsonParseException;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Remembers, for every target locale, the hash of each source string at the time it was translated,
+ * so a run only has to translate the strings whose source changed since then.
+ * <p>
+ * A string of a locale is changed when the locale has a recorded hash for it that differs from the
+ * current one. Strings without a recorded hash are not changed: a missing translation is added anyway,
+ * and an existing one is adopted as up to date, which is what happens on the first run.
+ *
+ * @author airsaid
+ */
+public class TranslationManifest {
+
+  // 2: hashes of the entries read by the streaming values reader
+  private static final int VERSION = 2;
+  // never equal to a hash, marks a string whose translation failed
+  private static final String INVALID_HASH = "";
+
+  private final Path path;
+  private final Map<String, Map<String, String>> locales;
+
+  private TranslationManifest(@NotNull Path path, @NotNull Map<String, Map<String, String>> locales) {
+    this.path = path;
+    this.locales = locales;
+  }
+
+  /**
+   * Load the manifest, an empty manifest is returned if the file doesn't exist.
+   */
+  @NotNull
+  public static TranslationManifest load(@NotNull Path path) throws IOException {
+    Map<String, Map<String, String>> locales = new HashMap<>();
+    if (Files.exists(path)) {
+      try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+        Data data = GsonUtil.getInstance().getGson().fromJson(reader, Data.class);
+        if (data != null && data.version == VERSION && data.locales != null) {
+          locales.putAll(data.locales);
+        }
+      } catch (JsonParseException e) {
+        throw new IOException("Invalid manifest: " + path, e);
+      }
+    }
+    return new TranslationManifest(path, locales);
+  }
+
+  /**
+   * Returns the hash of a source string.
+   */
+  @NotNull
+  public static String hash(@NotNull String source) {
+    long[] hash = MurmurHash3.hash128(source, 0);
+    return Long.toHexString(hash[0]) + Long.toHexString(hash[1]);
+  }
+
+  /**
+   * Returns the keys whose source hash differs from the one recorded for the locale.
+   *
+   * @param locale       the code of the target locale.
+   * @param sourceHashes the current hashes of the source strings by key.
+   */
+  @NotNull
+  public synchronized Set<String> getChangedKeys(@NotNull String locale, @NotNull Map<String, String> sourceHashes) {
+    Set<String> changedKeys = new HashSet<>();
+    Map<String, String> recorded = locales.get(locale);
+    if (recorded == null) return changedKeys;
+    sourceHashes.forEach((key, hash) -> {
+      String recordedHash = recorded.get(key);
+      if (recordedHash != null && !recordedHash.equals(hash)) {
+        changedKeys.add(key);
+      }
+    });
+    return changedKeys;
+  }
+
+  /**
+   * Record that the string of the locale is translated from the source with the hash.
+   */
+  public synchronized void update(@NotNull String locale, @NotNull String key, @NotNull String sourceHash) {
+    locales.computeIfAbsent(locale, l -> new HashMap<>()).put(key, sourceHash);
+  }
+
+  /**
+   * Record that the string of the locale couldn't be translated, it is changed until it is updated.
+   */
+  public synchronized void invalidate(@NotNull String locale, @NotNull String key) {
+    update(locale, key, INVALID_HASH);
+  }
+
+  /**
+   * Write the manifest to its file.
+   */
+  public synchronized void save() throws IOException {
+    Files.createDirectories(path.getParent());
+    Data data = new Data();
+    data.version = VERSION;
+    data.locales = locales;
+    Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+    try (Writer writer = Files.newBufferedWriter(tempPath, StandardCharsets.UTF_8)) {
+      GsonUtil.getInstance().getGson().toJson(data, writer);
+    }
+    Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private static class Data {
+    int version;
+    Map<String, Map<String, String>> locales;
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2021 Airsaid. https://github.com/airsaid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.airsaid.localization.task;
+
+import com.airsaid.localization.services.AndroidValuesService;
+import com.airsaid.localization.translate.services.TranslatorService;
+import com.airsaid.localization.utils.NotificationUtil;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import org.jetbrains.annotations.Nls;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Imports the translations of a spreadsheet exported by {@link TranslateTask} back into the target
+ * language files, eg: after reviewers corrected them, see {@link TranslationImporter}.
+ *
+ * @author airsaid
+ */
+public class ImportTask extends Task.Backgroundable {
+
+  private static final Logger LOG = Logger.getInstance(ImportTask.class);
+
+  private final File mFile;
+  private final AndroidValuesService mValueService;
+  private final TranslatorService mTranslatorService;
+
+  /**
+   * @param file the xlsx or CSV file to import.
+   */
+  public ImportTask(@Nullable Project project, @Nls @NotNull String title, @NotNull File file) {
+    super(project, title);
+    mFile = file;
+    mValueService = AndroidValuesService.getInstance();
+    mTranslatorService = TranslatorService.getInstance();
+  }
+
+  @Override
+  public void run(@NotNull ProgressIndicator progressIndicator) {
+    if (myProject == null) return;
+
+    progressIndicator.setIndeterminate(true);
+    progressIndicator.setText("Importing " + mFile.getName() + "...");
+    String basePath = myProject.getBasePath();
+    TranslationImporter importer = new TranslationImporter(mValueService, mTranslatorService,
+        basePath != null ? new File(basePath) : null);
+    try {
+      importer.importFile(mFile, new TranslationImporter.Callback() {
+        @Override
+        public boolean isCanceled() {
+          return progressIndicator.isCanceled();
+        }
+
+        @Override
+        public void onSheet(@NotNull String sheetName) {
+          progressIndicator.setText2(sheetName);
+        }
+
+        @Override
+        public void onWritten(@NotNull File valueFile) {
+          LocalFileSystem.getInstance().refreshAndFindFileByIoFile(valueFile);
+        }
+
+        @Override
+        public void onWarning(@NotNull String message) {
+          NotificationUtil.notifyWarning(myProject, message);
+        }
+      });
+    } catch (IOException e) {
+      LOG.warn("Failed to import " + mFile, e);
+      NotificationUtil.notifyError(myProject, "Failed to import " + mFile.getName() + ": " + e.getMessage());
+      return;
+    }
+    if (progressIndicator.isCanceled()) return;
+
+    int skippedCount = importer.getSkippedCount();
+    NotificationUtil.notifyInfo(myProject, String.format("Imported %d changed translations into %d files%s.",
+        importer.getUpdatedCount(), importer.getFileCount(),
+        skippedCount > 0 ? ", " + skippedCount + " cells were skipped" : ""));
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2021 Airsaid. https://github.com/airsaid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.airsaid.localization.task;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Groups the source texts of a target language by their normalised form, so a text that shows up
+ * under many names and in many values files, eg: "OK" or "Cancel", is translated once and its
+ * translation is fanned out to every place it came from.
+ * <p>
+ * A text is normalised to NFC without its leading and trailing whitespace, that whitespace is kept
+ * per place and put back around the translation. The case is kept, "ok" and "OK" may translate differently.
+ * <p>
+ * Texts are added on a single thread while the translation is planned, afterwards each unit
+ * is filled in by a single worker.
+ *
+ * @param <T> the type of the places a text came from.
+ * @author airsaid
+ */
+public class TextDeduplicator<T> {
+
+  private final Map<String, Unit<T>> units = new LinkedHashMap<>();
+  private int textCount;
+
+  /**
+   * Add a text and the place it came from.
+   *
+   * @return true if the text is new, false if it is a duplicate of a text added before.
+   */
+  public boolean add(@NotNull String text, @NotNull T target) {
+    textCount++;
+    String normalized = normalize(text);
+    Unit<T> unit = units.get(normalized);
+    boolean isNew = unit == null;
+    if (isNew) {
+      unit = new Unit<>(normalized);
+      units.put(normalized, unit);
+    }
+    int start = 0;
+    while (start < text.length() && Character.isWhitespace(text.charAt(start))) start++;
+    int end = text.length();
+    while (end > start && Character.isWhitespace(text.charAt(end - 1))) end--;
+    unit.slots.add(new Slot<>(target, text.substring(0, start), text.substring(end)));
+    return isNew;
+  }
+
+  /**
+   * Returns the distinct texts in the order they were first added.
+   */
+  @NotNull
+  public List<Unit<T>> getUnits() {
+    return Collections.unmodifiableList(new ArrayList<>(units.values()));
+  }
+
+  /**
+   * Returns the number of texts added, duplicates included.
+   */
+  public int getTextCount() {
+    return textCount;
+  }
+
+  /**
+   * Returns the number of texts that reuse the translation of a text added before.
+   */
+  public int getDuplicateCount() {
+    return textCount - units.size();
+  }
+
+  /**
+   * Returns the text in NFC form without leading and trailing whitespace.
+   */
+  @NotNull
+  public static String normalize(@NotNull String text) {
+    return Normalizer.normalize(text, Normalizer.Form.NFC).strip();
+  }
+
+  /**
+   * A distinct text and all places it came from.
+   */
+  public static final class Unit<T> {
+    private final String text;
+    private final List<Slot<T>> slots = new ArrayList<>(1);
+
+    private Unit(String text) {
+      this.text = text;
+    }
+
+    /**
+     * Returns the normalised text, this is what is looked up in the cache and sent to the translator.
+     */
+    @NotNull
+    public String getText() {
+      return text;
+    }
+
+    /**
+     * Returns the UTF-8 size of the text.
+     */
+    public int getBytes() {
+      return text.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    /**
+     * Returns the places the text came from, in the order they were added.
+     */
+    @NotNull
+    public List<T> getTargets() {
+      List<T> targets = new ArrayList<>(slots.size());
+      for (Slot<T> slot : slots) {
+        targets.add(slot.target);
+      }
+      return targets;
+    }
+
+    /**
+     * Returns the number of places that reuse the translation of the first one.
+     */
+    public int getDuplicateCount() {
+      return slots.size() - 1;
+    }
+
+    /**
+     * Hand the translation to every place the text came from,
+     * with the leading and trailing whitespace of that place.
+     */
+    public void fanOut(@NotNull String translation, @NotNull BiConsumer<T, String> consumer) {
+      for (Slot<T> slot : slots) {
+        consumer.accept(slot.target, slot.leading + translation + slot.trailing);
+      }
+    }
+  }
+
+  private static final class Slot<T> {
+    final T target;
+    final String leading;
+    final String trailing;
+
+    Slot(T target, String leading, String trailing) {
+      this.target = target;
+      this.leading = leading;
+      this.trailing = trailing;
+    }
+  }
+}
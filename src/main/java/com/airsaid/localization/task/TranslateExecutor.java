@@ -0,0 +1,122 @@
+/*
+ * Copyright 2021 Airsaid. https://github.com/airsaid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.airsaid.localization.task;
+
+import com.intellij.openapi.diagnostic.Logger;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Starts and tracks the asynchronous translation requests of {@link TranslationEngine}, so languages and
+ * chunks of strings are translated concurrently.
+ * <p>
+ * The requests don't hold a thread while they wait for the limits of the translator or for the
+ * response, only the task thread blocks when it awaits them, so any number of them can be in flight.
+ *
+ * @author airsaid
+ */
+public class TranslateExecutor implements AutoCloseable {
+
+  private static final Logger LOG = Logger.getInstance(TranslateExecutor.class);
+
+  private static final long POLL_INTERVAL_MILLIS = 100;
+
+  private final BooleanSupplier isCanceled;
+  private final Queue<Future<?>> submittedFutures = new ConcurrentLinkedQueue<>();
+
+  /**
+   * @param isCanceled tells whether the run has been canceled, eg: by the progress indicator of the IDE.
+   */
+  public TranslateExecutor(@NotNull BooleanSupplier isCanceled) {
+    this.isCanceled = isCanceled;
+  }
+
+  /**
+   * Start an asynchronous unit of work, it will be skipped if the task has been canceled.
+   *
+   * @param work starts the work and returns its future, cancelling the future must stop the work.
+   * @return the future of the work.
+   */
+  @NotNull
+  public Future<?> submit(@NotNull Supplier<CompletableFuture<?>> work) {
+    Future<?> future = isCanceled.getAsBoolean() ? CompletableFuture.completedFuture(null) : work.get();
+    submittedFutures.add(future);
+    return future;
+  }
+
+  /**
+   * Wait for all futures to complete, polling the cancellation status so that
+   * a cancellation is honoured while waiting.
+   *
+   * @param futures the futures to wait for.
+   * @return true: all futures are completed. false: the task was canceled.
+   */
+  public boolean awaitAll(@NotNull List<Future<?>> futures) {
+    for (Future<?> future : futures) {
+      while (true) {
+        if (isCanceled.getAsBoolean()) {
+          LOG.info("awaitAll canceled");
+          cancelAll(futures);
+          return false;
+        }
+        try {
+          future.get(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+          break;
+        } catch (TimeoutException ignored) {
+          // check the cancellation status and wait again
+        } catch (CancellationException e) {
+          break;
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          cancelAll(futures);
+          return false;
+        } catch (ExecutionException e) {
+          cancelAll(futures);
+          Throwable cause = e.getCause();
+          if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+          }
+          throw new IllegalStateException(cause);
+        }
+      }
+    }
+    return true;
+  }
+
+  private void cancelAll(@NotNull List<Future<?>> futures) {
+    for (Future<?> future : futures) {
+      future.cancel(false);
+    }
+  }
+
+  /**
+   * Cancel all the work that has not been completed yet, requests that haven't been sent are dropped.
+   */
+  @Override
+  public void close() {
+    Future<?> future;
+    while ((future = submittedFutures.poll()) != null) {
+      future.cancel(false);
+    }
+  }
+}
@@ -18,62 +18,57 @@
 package com.airsaid.localization.task;
 
 import com.airsaid.localization.constant.Constants;
-import com.airsaid.localization.services.AndroidValuesService;
+import com.airsaid.localization.services.TranslationManifest;
+import com.airsaid.localization.translate.TranslationException;
 import com.airsaid.localization.translate.lang.Lang;
-import com.airsaid.localization.translate.lang.Languages;
 import com.airsaid.localization.translate.services.TranslatorService;
-import com.airsaid.localization.utils.ExportExcelOperator;
-import com.airsaid.localization.utils.TextUtil;
+import com.airsaid.localization.utils.NotificationUtil;
+import com.airsaid.localization.values.ValuesDocument;
 import com.intellij.ide.util.PropertiesComponent;
 import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.PathManager;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.fileEditor.FileEditorManager;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.progress.Task;
 import com.intellij.openapi.project.Project;
-import com.intellij.openapi.util.Computable;
 import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
-import com.intellij.psi.PsiElement;
-import com.intellij.psi.PsiFile;
-import com.intellij.psi.xml.XmlTag;
-import com.intellij.psi.xml.XmlTagChild;
-import com.intellij.psi.xml.XmlTagValue;
-import com.intellij.psi.xml.XmlText;
-import git4idea.GitUtil;
-import git4idea.commands.Git;
-import git4idea.commands.GitCommandResult;
-import git4idea.repo.GitRepository;
 import org.jetbrains.annotations.Nls;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
-import java.util.function.Function;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 /**
+ * Translates default values files into the selected languages, by default into all languages
+ * that have a values directory next to them.
+ * <p>
+ * A task translates either a single values file, or all values files of the project: the strings
+ * of every file and language go through one worker pool, one translation cache and one rate limit,
+ * see {@link TranslationEngine}.
+ * <p>
+ * The default values file is passed in as an immutable {@link ValuesDocument} snapshot and the target
+ * files are read and written with the streaming engine, so the whole translation runs without PSI and
+ * without taking the read lock of the IDE.
+ *
  * @author airsaid
  */
 public class TranslateTask extends Task.Backgroundable {
 
-  private static final String NAME_TAG_STRING = "string";
-  private static final String NAME_TAG_PLURALS = "plurals";
-  private static final String NAME_TAG_STRING_ARRAY = "string-array";
-
   private static final Logger LOG = Logger.getInstance(TranslateTask.class);
 
-  private final List<Lang> mToLanguages;
+  private static final String MANIFEST_DIRECTORY = "androidLocalize/manifests";
+
   /**
-   * original strings key set
+   * original strings
    */
-  private final List<PsiElement> mValues;
-  private final VirtualFile mValueFile;
+  private final Map<VirtualFile, ValuesDocument> mSources;
   private final TranslatorService mTranslatorService;
-  private final AndroidValuesService mValueService;
+  private List<Lang> mToLanguages;
 
   private OnTranslateListener mOnTranslateListener;
 
@@ -83,16 +78,51 @@ public class TranslateTask extends Task.Backgroundable {
     void onTranslateError(Throwable e);
   }
 
+  /**
+   * Translate a single values file.
+   *
+   * @param values    the snapshot of the values file.
+   * @param valueFile the values file.
+   */
+  public TranslateTask(@Nullable Project project, @Nls @NotNull String title,
+                       @NotNull ValuesDocument values, @NotNull VirtualFile valueFile) {
+    this(project, title, Collections.singletonMap(valueFile, values));
+  }
+
+  /**
+   * Translate several values files in one run, eg: all values files of the project.
+   * The files are read from disk when the task runs, a file that is listed twice is translated once.
+   *
+   * @param valueFiles the values files.
+   */
   public TranslateTask(@Nullable Project project, @Nls @NotNull String title,
-                       List<PsiElement> values, PsiFile valueFile) {
+                       @NotNull Collection<VirtualFile> valueFiles) {
+    this(project, title, toSources(valueFiles));
+  }
+
+  private TranslateTask(@Nullable Project project, @Nls @NotNull String title,
+                        @NotNull Map<VirtualFile, ValuesDocument> sources) {
     super(project, title);
 
-    mValues = values;
-    mValueFile = valueFile.getVirtualFile();
+    mSources = sources;
     mTranslatorService = TranslatorService.getInstance();
-    mValueService = AndroidValuesService.getInstance();
+  }
 
-    mToLanguages = getExistsLanguages();
+  private static Map<VirtualFile, ValuesDocument> toSources(@NotNull Collection<VirtualFile> valueFiles) {
+    Map<VirtualFile, ValuesDocument> sources = new LinkedHashMap<>();
+    for (VirtualFile valueFile : valueFiles) {
+      sources.put(valueFile, null);
+    }
+    return sources;
+  }
+
+  /**
+   * Set the target languages, eg: the languages selected in {@link com.airsaid.localization.ui.SelectLanguagesDialog}.
+   *
+   * @param toLanguages the target languages, null for the languages that have a values directory.
+   */
+  public void setToLanguages(@Nullable List<Lang> toLanguages) {
+    mToLanguages = toLanguages != null ? new ArrayList<>(toLanguages) : null;
   }
 
   /**
@@ -113,151 +143,61 @@ public class TranslateTask extends Task.Backgroundable {
         .getBoolean(Constants.KEY_IS_OVERWRITE_EXISTING_STRING);
     LOG.info("run isOverwriteExistingString: " + isOverwriteExistingString);
 
-    Set<String> changedValue = getVcsChangedValues(myProject, mValueFile);
-
-    ExportExcelOperator operator = new ExportExcelOperator();
-    operator.fillDefaultStrings(mValues);
-
-    // start to translate to target languages
-    for (int i = 0; i < mToLanguages.size(); i++) {
-      if (progressIndicator.isCanceled()) break;
-
-      Lang toLanguage = mToLanguages.get(i);
-      progressIndicator.setText("Translating in the " + toLanguage.getEnglishName() + " language...");
-
-      // find res dir
-      VirtualFile resourceDir = mValueFile.getParent().getParent();
-      String valueFileName = mValueFile.getName();
-      // find target values file in psi format
-      PsiFile toValuePsiFile = mValueService.getValuePsiFile(myProject, resourceDir, toLanguage, valueFileName);
-      LOG.info("Translating language: " + toLanguage.getEnglishName() + ", toValuePsiFile: " + toValuePsiFile);
-      // when current language's values xml file is exists
-      if (toValuePsiFile != null) {
-        // load target strings EntrySet
-        List<PsiElement> toValues = mValueService.loadValues(toValuePsiFile);
-        Map<String, PsiElement> toValuesMap = toValues.stream().collect(Collectors.toMap(
-            psiElement -> {
-              if (psiElement instanceof XmlTag) {
-                XmlTag xmlTag = (XmlTag) psiElement;
-                // read name attribute in <string/> tag
-                return ApplicationManager.getApplication().runReadAction((Computable<String>) () ->
-                    xmlTag.getAttributeValue("name"));
-              } else {
-                return UUID.randomUUID().toString();
-              }
-            },
-            Function.identity()
-        ));
-        List<PsiElement> translatedValues = doTranslate(progressIndicator, toLanguage, toValuesMap, isOverwriteExistingString, changedValue);
-        writeTranslatedValues(progressIndicator, new File(toValuePsiFile.getVirtualFile().getPath()), translatedValues);
-        // TODO: 7/5/22 select a output store position
-        operator.writeLanguageColumn(i + 2, mValues, translatedValues, toLanguage);
-      } else {
-        List<PsiElement> translatedValues = doTranslate(progressIndicator, toLanguage, null, isOverwriteExistingString, changedValue);
-        File valueFile = mValueService.getValueFile(resourceDir, toLanguage, valueFileName);
-        writeTranslatedValues(progressIndicator, valueFile, translatedValues);
-        operator.writeLanguageColumn(i + 2, mValues, translatedValues, toLanguage);
+    progressIndicator.setIndeterminate(false);
+
+    TranslationEngine engine = new TranslationEngine(mTranslatorService);
+    mSources.forEach((valueFile, values) -> engine.addSource(new File(valueFile.getPath()), values));
+    engine.setOverwrite(isOverwriteExistingString);
+    engine.setLanguages(mToLanguages);
+    String basePath = myProject.getBasePath();
+    engine.setBaseDirectory(basePath != null ? new File(basePath) : null);
+    engine.setManifestResolver(TranslateTask::getManifestPath);
+    engine.setExportExcel(true, mTranslatorService.getOutputExcelPath());
+
+    TranslationEngine.Result result = engine.run(new TranslationEngine.Callback() {
+      @Override
+      public boolean isCanceled() {
+        return progressIndicator.isCanceled();
       }
-    }
 
-    File outputPath = mTranslatorService.getOutputExcelPath();
-    operator.saveToDisk(outputPath);
-  }
-
-  private List<PsiElement> doTranslate(@NotNull ProgressIndicator progressIndicator,
-                                       @NotNull Lang toLanguage,
-                                       @Nullable Map<String, PsiElement> toValues,
-                                       boolean isOverwrite,
-                                       @NotNull Set<String> dirtyValues) {
-    LOG.info("doTranslate toLanguage: " + toLanguage.getEnglishName() + ", toValues: " + toValues + ", isOverwrite: " + isOverwrite);
-
-    // stores translate result values, add it without translate means it has been translated
-    List<PsiElement> translatedValues = new ArrayList<>();
-    // TODO: 7/5/22 passing the new original values
-    for (PsiElement value : mValues) {
-      if (progressIndicator.isCanceled()) break;
-
-      if (value instanceof XmlTag) {
-        XmlTag xmlTag = (XmlTag) value;
-        // add the value that shouldn't be translated
-        if (!mValueService.isTranslatable(xmlTag)) {
-          // TODO: 7/5/22 check if this is proper
-//          translatedValues.add(value);
-          continue;
-        }
-
-        String name = ApplicationManager.getApplication().runReadAction((Computable<String>) () ->
-            xmlTag.getAttributeValue("name")
-        );
-
-        // if it doesn't overwrite and target strings already have the string, add it
-        if (!isOverwrite && !dirtyValues.contains(name) && toValues != null && toValues.containsKey(name)) {
-          translatedValues.add(toValues.get(name));
-          continue;
-        }
-
-        XmlTag translateValue = ApplicationManager.getApplication().runReadAction((Computable<XmlTag>) () ->
-            (XmlTag) xmlTag.copy()
-        );
-        translatedValues.add(translateValue);
-        switch (translateValue.getName()) {
-          case NAME_TAG_STRING:
-            // translate the copy of xmlTag
-            doTranslate(progressIndicator, toLanguage, translateValue);
-          case NAME_TAG_STRING_ARRAY:
-          case NAME_TAG_PLURALS: {
-            XmlTag[] subTags = ApplicationManager.getApplication()
-                .runReadAction((Computable<XmlTag[]>) translateValue::getSubTags);
-            for (XmlTag subTag : subTags) {
-              doTranslate(progressIndicator, toLanguage, subTag);
-            }
-          }
-        }
-      } else {
-        translatedValues.add(value);
+      @Override
+      public void onText(@NotNull String text) {
+        progressIndicator.setText(text);
       }
-    }
-    return translatedValues;
-  }
 
-  private void doTranslate(@NotNull ProgressIndicator progressIndicator,
-                           @NotNull Lang toLanguage,
-                           @NotNull XmlTag xmlTag) {
-    if (progressIndicator.isCanceled()) return;
-
-    XmlTagValue xmlTagValue = ApplicationManager.getApplication()
-        .runReadAction((Computable<XmlTagValue>) xmlTag::getValue);
-    XmlTagChild[] children = xmlTagValue.getChildren();
-    for (XmlTagChild child : children) {
-      if (child instanceof XmlText) {
-        XmlText xmlText = (XmlText) child;
-        String text = ApplicationManager.getApplication().runReadAction((Computable<String>) xmlText::getText);
-        // if target value is blank, continue
-        if (TextUtil.isEmptyOrSpacesLineBreak(text)) {
-          continue;
-        }
-        String translatedText = mTranslatorService.doTranslate(myProject, Languages.ENGLISH, toLanguage, text);
-        ApplicationManager.getApplication().runReadAction(() -> xmlText.setValue(translatedText));
+      @Override
+      public void onFraction(double fraction) {
+        progressIndicator.setFraction(fraction);
       }
-    }
-  }
 
-  private void writeTranslatedValues(@NotNull ProgressIndicator progressIndicator,
-                                     @NotNull File valueFile,
-                                     @NotNull List<PsiElement> translatedValues) {
-    LOG.info("writeTranslatedValues valueFile: " + valueFile + ", translatedValues: " + translatedValues);
+      @Override
+      public void onPlanned(@NotNull TranslationPlan plan) {
+        NotificationUtil.notifyInfo(myProject, plan.getSummary());
+      }
 
-    if (progressIndicator.isCanceled() || translatedValues.isEmpty()) return;
+      @Override
+      public void onWritten(@NotNull File valueFile) {
+        refreshAndOpenFile(valueFile);
+      }
 
-    progressIndicator.setText("Writing to " + valueFile.getParentFile().getName() + " data...");
-    mValueService.writeValueFile(translatedValues, valueFile);
+      @Override
+      public void onWarning(@NotNull String message) {
+        NotificationUtil.notifyWarning(myProject, message);
+      }
+    });
 
-    refreshAndOpenFile(valueFile);
+    int failedCount = result.getFailedCount();
+    if (failedCount > 0) {
+      TranslationException lastError = result.getLastError();
+      NotificationUtil.notifyWarning(myProject, failedCount + " strings failed to translate and were skipped"
+          + (lastError != null ? ": " + lastError.getMessage() : "."));
+    }
   }
 
   private void refreshAndOpenFile(File file) {
     VirtualFile virtualFile = LocalFileSystem.getInstance().refreshAndFindFileByIoFile(file);
-    boolean isOpenTranslatedFile = PropertiesComponent.getInstance(myProject)
+    // never open the files of a project-wide run, that would be one editor per module and language
+    boolean isOpenTranslatedFile = mSources.size() == 1 && PropertiesComponent.getInstance(myProject)
         .getBoolean(Constants.KEY_IS_OPEN_TRANSLATED_FILE);
     if (virtualFile != null && isOpenTranslatedFile) {
       ApplicationManager.getApplication().invokeLater(() ->
@@ -266,47 +206,13 @@ public class TranslateTask extends Task.Backgroundable {
   }
 
   /**
-   * get the string names of local vcs changed value
-   *
-   * @param project    current project
-   * @param valuesFile the default values file
-   * @return set of changed string names
+   * Returns the manifest of the default values file, which lives in the system directory of the IDE,
+   * so it never shows up in the project.
    */
-  private Set<String> getVcsChangedValues(Project project, VirtualFile valuesFile) {
-    Set<String> set = new HashSet<>();
-
-    Git git = Git.getInstance();
-    GitRepository repository = GitUtil.getRepositoryManager(project).getRepositoryForFile(valuesFile);
-    if (repository == null) return set;
-
-    GitCommandResult result = git.diff(repository, List.of("-U0"), valuesFile.getPath());
-    List<String> resultOutput = result.getOutput();
-
-    Pattern pattern = Pattern.compile("name=\"[\\w]*\"");
-
-    for (String line : resultOutput) {
-      // filter out diff output like "+++ b/app/src/main/res/values/strings.xml"
-      if (line.startsWith("+") && line.indexOf(1) != '+') {
-        Matcher matcher = pattern.matcher(line);
-        if (matcher.find()) {
-          String namePattern = "name=\"";
-          int startQuoteIndex = line.indexOf(namePattern) + namePattern.length();
-          int endQuoteIndex = line.indexOf("\"", startQuoteIndex);
-          String name = line.substring(startQuoteIndex, endQuoteIndex);
-          set.add(name);
-        }
-      }
-    }
-
-    return set;
-  }
-
-  private List<Lang> getExistsLanguages() {
-    List<Lang> res = new ArrayList<>();
-    VirtualFile resourceDir = mValueFile.getParent().getParent();
-    if (resourceDir == null) return res;
-
-    return mValueService.getExistsLang(resourceDir);
+  @NotNull
+  private static Path getManifestPath(@NotNull File valueFile) {
+    return Paths.get(PathManager.getSystemPath(), MANIFEST_DIRECTORY,
+        TranslationManifest.hash(valueFile.getPath().replace(File.separatorChar, '/')) + ".json");
   }
 
   @Override
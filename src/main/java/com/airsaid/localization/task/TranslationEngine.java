@@ -0,0 +1,727 @@
+/*
+ * Copyright 2021 Airsaid. https://github.com/airsaid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.airsaid.localization.task;
+
+import com.airsaid.localization.services.TranslationManifest;
+import com.airsaid.localization.translate.TranslationException;
+import com.airsaid.localization.translate.lang.Lang;
+import com.airsaid.localization.translate.lang.Languages;
+import com.airsaid.localization.translate.services.TranslatorService;
+import com.airsaid.localization.translate.util.RetryPolicy;
+import com.airsaid.localization.utils.ExportExcelOperator;
+import com.airsaid.localization.values.ValuesDocument;
+import com.airsaid.localization.values.ValuesEntry;
+import com.airsaid.localization.values.ValuesNode;
+import com.airsaid.localization.values.ValuesResources;
+import com.airsaid.localization.values.ValuesXmlReader;
+import com.airsaid.localization.values.ValuesXmlWriter;
+import com.intellij.openapi.diagnostic.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Translates default values files on disk into all languages that have a values directory next to them,
+ * or into the given languages.
+ * <p>
+ * The strings of every file and language go through one worker pool, one translation cache and one rate limit.
+ * Identical source texts are translated once per target language, whichever strings and values files they
+ * belong to, see {@link TextDeduplicator}.
+ * <p>
+ * The engine only works on files and the {@link TranslatorService} it is given, so it runs the same in the
+ * {@link TranslateTask} of the IDE and on the command line. What the IDE adds, the progress, notifications
+ * and opening the written files, is reported through the {@link Callback}.
+ *
+ * @author airsaid
+ */
+public class TranslationEngine {
+
+  private static final Logger LOG = Logger.getInstance(TranslationEngine.class);
+
+  // number of strings translated by a worker at a time
+  private static final int CHUNK_SIZE = 20;
+
+  private final TranslatorService mTranslatorService;
+  private final Map<File, ValuesSource> mSources = new LinkedHashMap<>();
+
+  private boolean mIsOverwrite;
+  private List<Lang> mLanguages;
+  private File mBaseDirectory;
+  private Function<File, Path> mManifestResolver;
+  private boolean mIsExportExcel;
+  private File mExcelOutputDirectory;
+
+  private final AtomicInteger mTotalCount = new AtomicInteger();
+  private final AtomicInteger mTranslatedCount = new AtomicInteger();
+  private final AtomicInteger mFailedCount = new AtomicInteger();
+  private volatile TranslationException mLastError;
+
+  /**
+   * Receives the progress of a run and tells whether it has been canceled, all methods are optional.
+   */
+  public interface Callback {
+    default boolean isCanceled() {
+      return false;
+    }
+
+    default void onText(@NotNull String text) {
+    }
+
+    default void onFraction(double fraction) {
+    }
+
+    /**
+     * Called once all values files and target languages are planned, before any request is sent.
+     */
+    default void onPlanned(@NotNull TranslationPlan plan) {
+    }
+
+    /**
+     * Called when a target language file is written.
+     */
+    default void onWritten(@NotNull File valueFile) {
+    }
+
+    /**
+     * Called when a file or a language is skipped, the rest of the run goes on.
+     */
+    default void onWarning(@NotNull String message) {
+    }
+  }
+
+  /**
+   * The outcome of a run.
+   */
+  public static class Result {
+    private final TranslationPlan plan;
+    private final List<File> writtenFiles;
+    private final int failedCount;
+    private final TranslationException lastError;
+    private final boolean isCanceled;
+
+    Result(@NotNull TranslationPlan plan, @NotNull List<File> writtenFiles, int failedCount,
+           @Nullable TranslationException lastError, boolean isCanceled) {
+      this.plan = plan;
+      this.writtenFiles = writtenFiles;
+      this.failedCount = failedCount;
+      this.lastError = lastError;
+      this.isCanceled = isCanceled;
+    }
+
+    @NotNull
+    public TranslationPlan getPlan() {
+      return plan;
+    }
+
+    /**
+     * Returns the target language files that have been written, in the order they were written.
+     */
+    @NotNull
+    public List<File> getWrittenFiles() {
+      return writtenFiles;
+    }
+
+    /**
+     * Returns the number of strings that failed to translate and were skipped.
+     */
+    public int getFailedCount() {
+      return failedCount;
+    }
+
+    @Nullable
+    public TranslationException getLastError() {
+      return lastError;
+    }
+
+    public boolean isCanceled() {
+      return isCanceled;
+    }
+  }
+
+  public TranslationEngine(@NotNull TranslatorService translatorService) {
+    mTranslatorService = translatorService;
+  }
+
+  /**
+   * Add a default values file to translate, a file that is added twice is translated once.
+   *
+   * @param values the snapshot of the values file, or null to read it from disk when the engine runs.
+   */
+  public void addSource(@NotNull File valueFile, @Nullable ValuesDocument values) {
+    mSources.putIfAbsent(valueFile, new ValuesSource(valueFile, values));
+  }
+
+  public int getSourceCount() {
+    return mSources.size();
+  }
+
+  /**
+   * Set whether the strings that already have a translation are translated again.
+   */
+  public void setOverwrite(boolean isOverwrite) {
+    mIsOverwrite = isOverwrite;
+  }
+
+  /**
+   * Set the target languages, by default the languages that have a values directory next to each values file.
+   */
+  public void setLanguages(@Nullable List<Lang> languages) {
+    mLanguages = languages;
+  }
+
+  /**
+   * Set the directory the paths of the values files are shown relative to, eg: the project directory.
+   */
+  public void setBaseDirectory(@Nullable File baseDirectory) {
+    mBaseDirectory = baseDirectory;
+  }
+
+  /**
+   * Set where the {@link TranslationManifest} of a values file is kept, without a manifest
+   * only missing strings are translated.
+   */
+  public void setManifestResolver(@Nullable Function<File, Path> manifestResolver) {
+    mManifestResolver = manifestResolver;
+  }
+
+  /**
+   * Set whether the strings and their translations are exported to a spreadsheet.
+   *
+   * @param outputDirectory the directory of the spreadsheet, or null for the working directory.
+   */
+  public void setExportExcel(boolean isExportExcel, @Nullable File outputDirectory) {
+    mIsExportExcel = isExportExcel;
+    mExcelOutputDirectory = outputDirectory;
+  }
+
+  /**
+   * Plan, translate and write all values files, blocks until they are done or the run is canceled.
+   */
+  @NotNull
+  public Result run(@NotNull Callback callback) {
+    LOG.info("run isOverwrite: " + mIsOverwrite + ", sources: " + mSources.size());
+
+    mTotalCount.set(0);
+    mTranslatedCount.set(0);
+    mFailedCount.set(0);
+    mLastError = null;
+
+    // plan all values files and target languages before any request is sent: strings kept from the target
+    // files and cached translations are resolved here, only the rest is dispatched to the translator
+    callback.onText("Planning translation of " + mSources.size() + " values files...");
+    TranslationPlan plan = new TranslationPlan(mTranslatorService.getMaxBatchSize(),
+        mTranslatorService.getMaxBatchBytes(), mTranslatorService.getRequestsPerSecond());
+    List<ValuesSource> preparedSources = new ArrayList<>(mSources.size());
+    List<LanguageJob> jobs = new ArrayList<>();
+    for (ValuesSource source : mSources.values()) {
+      if (callback.isCanceled()) break;
+      if (!prepareSource(source, callback)) continue;
+      preparedSources.add(source);
+
+      for (Lang toLanguage : source.toLanguages) {
+        if (callback.isCanceled()) break;
+        // strings whose source changed since a language was last translated are translated again
+        Set<String> changedValues = source.manifest != null
+            ? source.manifest.getChangedKeys(toLanguage.getCode(), source.sourceHashes) : Collections.emptySet();
+        LanguageJob job = planLanguage(source, toLanguage, changedValues, plan.getLanguagePlan(toLanguage), callback);
+        if (job != null) {
+          jobs.add(job);
+        }
+      }
+    }
+
+    // group the pending texts of all values files by target language, so an identical text
+    // is looked up in the cache and sent to the translator once
+    Map<Lang, List<LanguageJob>> languageJobs = new LinkedHashMap<>();
+    for (LanguageJob job : jobs) {
+      languageJobs.computeIfAbsent(job.toLanguage, lang -> new ArrayList<>()).add(job);
+    }
+    Map<Lang, List<TextDeduplicator.Unit<TextRef>>> languageUnits = new LinkedHashMap<>();
+    languageJobs.forEach((toLanguage, toLanguageJobs) -> languageUnits.put(toLanguage,
+        resolveTexts(toLanguage, toLanguageJobs, plan.getLanguagePlan(toLanguage))));
+    LOG.info("run plan: " + plan);
+    callback.onPlanned(plan);
+    mTotalCount.set(plan.getPendingTextCount());
+
+    callback.onText("Translating in " + languageUnits.size() + " languages...");
+    List<File> writtenFiles = new ArrayList<>();
+    boolean isCanceled = false;
+    ExportExcelOperator operator = mIsExportExcel ? new ExportExcelOperator() : null;
+    try (TranslateExecutor executor = new TranslateExecutor(callback::isCanceled)) {
+      // fan out the pending texts of all target languages, the requests of all of them are in flight at the same time
+      for (Map.Entry<Lang, List<TextDeduplicator.Unit<TextRef>>> entry : languageUnits.entrySet()) {
+        if (callback.isCanceled()) break;
+        submitLanguage(executor, callback, entry.getKey(), entry.getValue());
+      }
+
+      // then write the results in the order of the values files and target languages, so the output is deterministic,
+      // the sheet of a values file is exported in one pass once all its languages are written
+      int jobIndex = 0;
+      for (ValuesSource source : preparedSources) {
+        Map<Lang, List<ValuesNode>> exportValues = new LinkedHashMap<>();
+        for (; !isCanceled && jobIndex < jobs.size() && jobs.get(jobIndex).source == source; jobIndex++) {
+          LanguageJob job = jobs.get(jobIndex);
+          if (!executor.awaitAll(job.futures)) {
+            isCanceled = true;
+            break;
+          }
+
+          List<ValuesNode> translatedValues = job.getTranslatedValues();
+          boolean isWritten = writeTranslatedValues(callback, source, job.valueFile, translatedValues);
+          if (isWritten) {
+            writtenFiles.add(job.valueFile);
+            callback.onWritten(job.valueFile);
+            if (source.manifest != null) {
+              updateManifest(source.manifest, job, source.sourceHashes);
+            }
+          }
+          exportValues.put(job.toLanguage, translatedValues);
+        }
+        if (operator != null) {
+          // TODO: 7/5/22 select a output store position
+          operator.writeSheet(getDisplayPath(source.valueFile), source.values.getEntries(), exportValues);
+        }
+      }
+    }
+
+    for (ValuesSource source : preparedSources) {
+      if (source.manifest == null) continue;
+      try {
+        source.manifest.save();
+      } catch (IOException e) {
+        LOG.warn("Failed to save translation manifest", e);
+      }
+    }
+
+    if (operator != null && !preparedSources.isEmpty()) {
+      operator.saveToDisk(mExcelOutputDirectory);
+    }
+    return new Result(plan, writtenFiles, mFailedCount.get(), mLastError, isCanceled || callback.isCanceled());
+  }
+
+  /**
+   * Load what is needed to plan a values file: its values, its manifest and its target languages.
+   *
+   * @return false if the values file can't be read, then it is skipped.
+   */
+  private boolean prepareSource(@NotNull ValuesSource source, @NotNull Callback callback) {
+    if (source.values == null) {
+      try {
+        source.values = ValuesXmlReader.read(source.valueFile.toPath());
+      } catch (IOException e) {
+        LOG.warn("Failed to read " + source.valueFile.getPath(), e);
+        callback.onWarning("Skipped " + getDisplayPath(source.valueFile) + ": " + e.getMessage());
+        return false;
+      }
+    }
+    source.manifest = loadManifest(source.valueFile);
+    source.sourceHashes = getSourceHashes(source.values);
+    source.toLanguages = mLanguages != null ? mLanguages : getExistsLanguages(source.valueFile);
+    return true;
+  }
+
+  /**
+   * Work out which strings of the target language have to be translated, without sending any request.
+   *
+   * @return the job of the language, or null if the existing target language file can't be read.
+   */
+  @Nullable
+  private LanguageJob planLanguage(@NotNull ValuesSource source,
+                                   @NotNull Lang toLanguage,
+                                   @NotNull Set<String> dirtyValues,
+                                   @NotNull TranslationPlan.LanguagePlan languagePlan,
+                                   @NotNull Callback callback) {
+    File resourceDir = source.valueFile.getAbsoluteFile().getParentFile().getParentFile();
+    File valueFile = ValuesResources.getValueFile(resourceDir, toLanguage, source.valueFile.getName());
+    LOG.info("Translating language: " + toLanguage.getEnglishName() + ", valueFile: " + valueFile);
+
+    Map<String, ValuesEntry> toValuesMap = null;
+    // when current language's values xml file is exists
+    if (valueFile.exists()) {
+      try {
+        // load target strings
+        toValuesMap = new HashMap<>();
+        for (ValuesEntry entry : ValuesXmlReader.read(valueFile.toPath()).getEntries()) {
+          toValuesMap.put(entry.getName(), entry);
+        }
+      } catch (IOException e) {
+        // never overwrite a file that couldn't be read, its translations would be lost
+        LOG.warn("Failed to read " + valueFile, e);
+        callback.onWarning("Skipped " + toLanguage.getEnglishName() + ", failed to read "
+            + valueFile.getPath() + ": " + e.getMessage());
+        return null;
+      }
+    }
+
+    LanguageJob job = new LanguageJob(source, toLanguage, valueFile);
+    collectValues(source.values, toLanguage, toValuesMap, dirtyValues, job, languagePlan);
+    return job;
+  }
+
+  /**
+   * Deduplicate the pending texts of a target language across the strings of all its jobs,
+   * then fill in the cached translations.
+   *
+   * @return the distinct texts that are not cached.
+   */
+  private List<TextDeduplicator.Unit<TextRef>> resolveTexts(@NotNull Lang toLanguage,
+                                                            @NotNull List<LanguageJob> jobs,
+                                                            @NotNull TranslationPlan.LanguagePlan languagePlan) {
+    TextDeduplicator<TextRef> deduplicator = new TextDeduplicator<>();
+    for (LanguageJob job : jobs) {
+      for (PendingEntry pending : job.pendingEntries) {
+        for (int i = 0; i < pending.texts.length; i++) {
+          deduplicator.add(pending.texts[i], new TextRef(pending, i));
+        }
+      }
+    }
+    List<TextDeduplicator.Unit<TextRef>> units = deduplicator.getUnits();
+    List<String> texts = units.stream().map(TextDeduplicator.Unit::getText).collect(Collectors.toList());
+    List<String> cachedTexts = mTranslatorService.getCachedTranslations(Languages.ENGLISH, toLanguage, texts);
+
+    // the texts, bytes and characters of a distinct text are counted for the string it was first seen in
+    Map<PendingEntry, long[]> pendingCounts = new HashMap<>();
+    List<TextDeduplicator.Unit<TextRef>> missingUnits = new ArrayList<>();
+    for (int i = 0; i < units.size(); i++) {
+      TextDeduplicator.Unit<TextRef> unit = units.get(i);
+      String cachedText = cachedTexts.get(i);
+      if (cachedText != null) {
+        unit.fanOut(cachedText, TextRef::set);
+        continue;
+      }
+      missingUnits.add(unit);
+      List<TextRef> targets = unit.getTargets();
+      for (TextRef target : targets) {
+        pendingCounts.computeIfAbsent(target.pending, pending -> new long[3]);
+      }
+      long[] counts = pendingCounts.get(targets.get(0).pending);
+      int bytes = unit.getBytes();
+      counts[0]++;
+      counts[1] += bytes;
+      counts[2] += unit.getText().length();
+      languagePlan.addDuplicates(unit.getDuplicateCount(), (long) unit.getDuplicateCount() * bytes);
+    }
+    for (LanguageJob job : jobs) {
+      for (PendingEntry pending : job.pendingEntries) {
+        long[] counts = pendingCounts.get(pending);
+        if (counts == null) {
+          languagePlan.addCached();
+        } else {
+          languagePlan.addPending((int) counts[0], counts[1], counts[2]);
+        }
+      }
+    }
+    LOG.info("resolveTexts toLanguage: " + toLanguage.getEnglishName() + ", texts: " + deduplicator.getTextCount()
+        + ", distinct: " + units.size() + ", missing: " + missingUnits.size());
+    return missingUnits;
+  }
+
+  private void submitLanguage(@NotNull TranslateExecutor executor,
+                              @NotNull Callback callback,
+                              @NotNull Lang toLanguage,
+                              @NotNull List<TextDeduplicator.Unit<TextRef>> units) {
+    // split the texts of the language into chunks, so the strings of a job can be written once its chunks are done,
+    // a chunk is large enough to fill a batch request of the translator
+    int chunkSize = Math.max(CHUNK_SIZE, mTranslatorService.getMaxBatchSize());
+    for (int from = 0; from < units.size(); from += chunkSize) {
+      List<TextDeduplicator.Unit<TextRef>> chunk = units.subList(from, Math.min(from + chunkSize, units.size()));
+      Future<?> future = executor.submit(() -> doTranslate(callback, toLanguage, chunk));
+      // a job waits for every chunk that holds a text of its strings
+      Set<LanguageJob> chunkJobs = new LinkedHashSet<>();
+      for (TextDeduplicator.Unit<TextRef> unit : chunk) {
+        for (TextRef target : unit.getTargets()) {
+          chunkJobs.add(target.pending.job);
+        }
+      }
+      chunkJobs.forEach(job -> job.futures.add(future));
+    }
+  }
+
+  /**
+   * Collect the values of the target language file in the order of the original values.
+   * The values that still need to be translated are added to the pending entries of the job.
+   *
+   * @param languagePlan counts the values kept from the target language file.
+   */
+  private void collectValues(@NotNull ValuesDocument values,
+                             @NotNull Lang toLanguage,
+                             @Nullable Map<String, ValuesEntry> toValues,
+                             @NotNull Set<String> dirtyValues,
+                             @NotNull LanguageJob job,
+                             @NotNull TranslationPlan.LanguagePlan languagePlan) {
+    LOG.info("collectValues toLanguage: " + toLanguage.getEnglishName() + ", toValues: "
+        + (toValues != null ? toValues.size() : null) + ", isOverwrite: " + mIsOverwrite);
+
+    // TODO: 7/5/22 passing the new original values
+    for (ValuesNode value : values.getNodes()) {
+      if (value instanceof ValuesEntry) {
+        ValuesEntry entry = (ValuesEntry) value;
+        // skip the value that shouldn't be translated
+        if (!entry.isTranslatable()) {
+          continue;
+        }
+
+        String name = entry.getName();
+        ValuesEntry toValue = toValues != null ? toValues.get(name) : null;
+        // if it doesn't overwrite and target strings already have the string, add it
+        if (!mIsOverwrite && !dirtyValues.contains(name) && toValue != null) {
+          job.translatedValues.add(toValue);
+          languagePlan.addKept();
+          continue;
+        }
+
+        // the source entry holds the place of its translation until it is written
+        job.pendingEntries.add(new PendingEntry(job, job.translatedValues.size(), entry, toValue));
+        job.translatedValues.add(entry);
+      } else {
+        job.translatedValues.add(value);
+      }
+    }
+  }
+
+  @NotNull
+  private CompletableFuture<?> doTranslate(@NotNull Callback callback,
+                                          @NotNull Lang toLanguage,
+                                          @NotNull List<TextDeduplicator.Unit<TextRef>> chunk) {
+    // the distinct texts of the chunk are translated with batch requests
+    List<String> texts = chunk.stream().map(TextDeduplicator.Unit::getText).collect(Collectors.toList());
+    CompletableFuture<List<String>> request = mTranslatorService.translateBatchAsync(null, Languages.ENGLISH, toLanguage, texts);
+    CompletableFuture<?> future = request.handle((translatedTexts, error) -> {
+      if (error != null) {
+        Throwable cause = RetryPolicy.unwrap(error);
+        // only a failed translation is handled here, other errors and the cancellation are passed on
+        if (!(cause instanceof TranslationException)) {
+          throw new CompletionException(cause);
+        }
+        // the requests were already retried, skip the strings of the chunk instead of writing untranslated strings
+        LOG.warn("Failed to translate " + chunk.size() + " texts to " + toLanguage.getEnglishName(), cause);
+        for (TextDeduplicator.Unit<TextRef> unit : chunk) {
+          for (TextRef target : unit.getTargets()) {
+            if (target.pending.job.failedEntries.add(target.pending)) {
+              mFailedCount.incrementAndGet();
+            }
+          }
+        }
+        mLastError = (TranslationException) cause;
+      } else {
+        for (int i = 0; i < chunk.size(); i++) {
+          chunk.get(i).fanOut(translatedTexts.get(i), TextRef::set);
+        }
+      }
+      callback.onFraction((double) mTranslatedCount.addAndGet(chunk.size()) / mTotalCount.get());
+      return null;
+    });
+    // cancelling the chunk cancels the requests which haven't been sent yet
+    future.whenComplete((ignored, error) -> {
+      if (future.isCancelled()) request.cancel(false);
+    });
+    return future;
+  }
+
+  /**
+   * @return true if the values were written.
+   */
+  private boolean writeTranslatedValues(@NotNull Callback callback,
+                                        @NotNull ValuesSource source,
+                                        @NotNull File valueFile,
+                                        @NotNull List<ValuesNode> translatedValues) {
+    LOG.info("writeTranslatedValues valueFile: " + valueFile + ", translatedValues: " + translatedValues.size());
+
+    if (callback.isCanceled() || translatedValues.isEmpty()) return false;
+
+    callback.onText("Writing to " + valueFile.getParentFile().getName() + " data...");
+    try {
+      ValuesXmlWriter.write(source.values.withNodes(translatedValues), valueFile.toPath());
+    } catch (IOException e) {
+      LOG.warn("Failed to write to " + valueFile.getPath() + " file.", e);
+      callback.onWarning("Failed to write " + valueFile.getPath() + ": " + e.getMessage());
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Load the manifest of the default values file from where the manifest resolver keeps it.
+   *
+   * @return the manifest, or null if there is no resolver or it can't be read, then only missing strings are translated.
+   */
+  @Nullable
+  private TranslationManifest loadManifest(@NotNull File valueFile) {
+    if (mManifestResolver == null) return null;
+    Path path = mManifestResolver.apply(valueFile);
+    try {
+      return TranslationManifest.load(path);
+    } catch (IOException e) {
+      LOG.warn("Failed to load translation manifest: " + path, e);
+      return null;
+    }
+  }
+
+  /**
+   * Returns the hashes of the translatable source strings by name, the hash covers the whole entry,
+   * so the items of plurals and string arrays are included.
+   */
+  private Map<String, String> getSourceHashes(@NotNull ValuesDocument values) {
+    Map<String, String> sourceHashes = new HashMap<>();
+    for (ValuesEntry entry : values.getEntries()) {
+      if (entry.isTranslatable()) {
+        sourceHashes.put(entry.getName(), TranslationManifest.hash(entry.getText()));
+      }
+    }
+    return sourceHashes;
+  }
+
+  /**
+   * Record the source hashes of the strings written to the target language file,
+   * strings that failed to translate stay changed, so the next run retries them.
+   */
+  private void updateManifest(@NotNull TranslationManifest manifest,
+                              @NotNull LanguageJob job,
+                              @NotNull Map<String, String> sourceHashes) {
+    Set<String> failedNames = new HashSet<>();
+    for (PendingEntry failedEntry : job.failedEntries) {
+      failedNames.add(failedEntry.entry.getName());
+    }
+    String locale = job.toLanguage.getCode();
+    sourceHashes.forEach((name, hash) -> {
+      if (failedNames.contains(name)) {
+        manifest.invalidate(locale, name);
+      } else {
+        manifest.update(locale, name, hash);
+      }
+    });
+  }
+
+  @NotNull
+  private static List<Lang> getExistsLanguages(@NotNull File valueFile) {
+    File resourceDir = valueFile.getAbsoluteFile().getParentFile().getParentFile();
+    if (resourceDir == null) return new ArrayList<>();
+
+    return ValuesResources.getExistsLanguages(resourceDir);
+  }
+
+  /**
+   * Returns the path of the values file relative to the base directory, for messages and sheet titles.
+   */
+  @NotNull
+  private String getDisplayPath(@NotNull File valueFile) {
+    Path path = valueFile.toPath().toAbsolutePath();
+    if (mBaseDirectory != null) {
+      Path basePath = mBaseDirectory.toPath().toAbsolutePath();
+      if (path.startsWith(basePath) && !path.equals(basePath)) {
+        path = basePath.relativize(path);
+      }
+    }
+    return path.toString().replace(File.separatorChar, '/');
+  }
+
+  /**
+   * A default values file to translate, the other fields are filled in when the task runs.
+   */
+  private static class ValuesSource {
+    final File valueFile;
+    ValuesDocument values;
+    TranslationManifest manifest;
+    Map<String, String> sourceHashes;
+    List<Lang> toLanguages;
+
+    ValuesSource(File valueFile, @Nullable ValuesDocument values) {
+      this.valueFile = valueFile;
+      this.values = values;
+    }
+  }
+
+  private static class LanguageJob {
+    final ValuesSource source;
+    final Lang toLanguage;
+    final File valueFile;
+    final List<ValuesNode> translatedValues = new ArrayList<>();
+    final List<PendingEntry> pendingEntries = new ArrayList<>();
+    final Set<PendingEntry> failedEntries = ConcurrentHashMap.newKeySet();
+    final List<Future<?>> futures = new ArrayList<>();
+
+    LanguageJob(ValuesSource source, Lang toLanguage, File valueFile) {
+      this.source = source;
+      this.toLanguage = toLanguage;
+      this.valueFile = valueFile;
+    }
+
+    /**
+     * Returns the values to be written to the target language file, strings that failed
+     * to translate keep their previous translation, or are left out.
+     */
+    List<ValuesNode> getTranslatedValues() {
+      List<ValuesNode> values = new ArrayList<>(translatedValues);
+      for (PendingEntry pending : pendingEntries) {
+        values.set(pending.index, failedEntries.contains(pending)
+            ? pending.previousEntry : pending.entry.withTexts(Arrays.asList(pending.texts)));
+      }
+      values.removeIf(Objects::isNull);
+      return values;
+    }
+  }
+
+  /**
+   * A source entry that has to be translated, its texts are replaced by their translations
+   * as they come in, each text is written by a single worker.
+   */
+  private static class PendingEntry {
+    final LanguageJob job;
+    final int index;
+    final ValuesEntry entry;
+    @Nullable
+    final ValuesEntry previousEntry;
+    final String[] texts;
+
+    PendingEntry(LanguageJob job, int index, ValuesEntry entry, @Nullable ValuesEntry previousEntry) {
+      this.job = job;
+      this.index = index;
+      this.entry = entry;
+      this.previousEntry = previousEntry;
+      this.texts = entry.getTexts().toArray(new String[0]);
+    }
+  }
+
+  /**
+   * A text of a pending entry, the place a translation is fanned out to.
+   */
+  private static class TextRef {
+    final PendingEntry pending;
+    final int index;
+
+    TextRef(PendingEntry pending, int index) {
+      this.pending = pending;
+      this.index = index;
+    }
+
+    void set(String text) {
+      pending.texts[index] = text;
+    }
+  }
+}
@@ -0,0 +1,397 @@
+/*
+ * Copyright 2021 Airsaid. https://github.com/airsaid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.airsaid.localization.task;
+
+import com.airsaid.localization.services.AndroidValuesService;
+import com.airsaid.localization.translate.lang.Lang;
+import com.airsaid.localization.translate.lang.Languages;
+import com.airsaid.localization.translate.services.TranslatorService;
+import com.airsaid.localization.utils.ExportExcelOperator;
+import com.airsaid.localization.utils.ImportExcelOperator;
+import com.airsaid.localization.values.ValuesDocument;
+import com.airsaid.localization.values.ValuesEntry;
+import com.intellij.openapi.diagnostic.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Imports the translations of a spreadsheet exported by {@link TranslationEngine} back into the target
+ * language files, eg: after reviewers corrected them.
+ * <p>
+ * The spreadsheet is read a row at a time and diffed against the target language files, only the entries
+ * whose translation differs are written back. Rows whose default string changed since the export are
+ * skipped, their translations are outdated. The corrected translations of single texts are put into the
+ * translation cache, so the next translation run reuses them.
+ * <p>
+ * The importer only works on files, so it runs the same in the {@link ImportTask} of the IDE and in tests.
+ *
+ * @author airsaid
+ */
+public class TranslationImporter {
+
+  private static final Logger LOG = Logger.getInstance(TranslationImporter.class);
+
+  private final AndroidValuesService mValuesService;
+  private final TranslatorService mTranslatorService;
+  private final File mBaseDirectory;
+
+  private int mUpdatedCount;
+  private int mSkippedCount;
+  private int mFileCount;
+
+  /**
+   * Receives the progress of an import and tells whether it has been canceled, all methods are optional.
+   */
+  public interface Callback {
+    default boolean isCanceled() {
+      return false;
+    }
+
+    default void onSheet(@NotNull String sheetName) {
+    }
+
+    /**
+     * Called when a target language file is written.
+     */
+    default void onWritten(@NotNull File valueFile) {
+    }
+
+    /**
+     * Called when a sheet or a file is skipped, the rest of the import goes on.
+     */
+    default void onWarning(@NotNull String message) {
+    }
+  }
+
+  /**
+   * @param baseDirectory the directory the titles of the sheets are relative to, eg: the project directory.
+   */
+  public TranslationImporter(@NotNull AndroidValuesService valuesService, @NotNull TranslatorService translatorService,
+                             @Nullable File baseDirectory) {
+    mValuesService = valuesService;
+    mTranslatorService = translatorService;
+    mBaseDirectory = baseDirectory;
+  }
+
+  /**
+   * Import a xlsx or CSV file, blocks until it is done or the import is canceled.
+   */
+  public void importFile(@NotNull File file, @NotNull Callback callback) throws IOException {
+    mUpdatedCount = 0;
+    mSkippedCount = 0;
+    mFileCount = 0;
+    ImportExcelOperator.read(file, new SheetImporter(callback));
+    LOG.info("importFile updated: " + mUpdatedCount + ", files: " + mFileCount + ", skipped: " + mSkippedCount);
+  }
+
+  /**
+   * Returns the number of entries and items whose translation was changed.
+   */
+  public int getUpdatedCount() {
+    return mUpdatedCount;
+  }
+
+  /**
+   * Returns the number of rows and cells that were skipped, unknown, outdated or malformed.
+   */
+  public int getSkippedCount() {
+    return mSkippedCount;
+  }
+
+  /**
+   * Returns the number of target language files that were written.
+   */
+  public int getFileCount() {
+    return mFileCount;
+  }
+
+  /**
+   * Resolve the title of a sheet, the path of the default values file relative to the base directory.
+   */
+  @NotNull
+  private File getDefaultValueFile(@NotNull String title) {
+    File file = new File(title);
+    if (file.isAbsolute() || mBaseDirectory == null) {
+      return file;
+    }
+    return new File(mBaseDirectory, title);
+  }
+
+  @NotNull
+  private static String getCell(@NotNull List<String> cells, int column) {
+    String cell = column < cells.size() ? cells.get(column) : null;
+    return cell != null ? cell : "";
+  }
+
+  /**
+   * Imports the sheet of a default values file, the first row holds the title and the language codes.
+   */
+  private class SheetImporter implements ImportExcelOperator.RowHandler {
+    private final Callback callback;
+    private boolean isHeaderRead;
+    @Nullable
+    private Map<String, ValuesEntry> defaultEntries;
+    // the language of each column after the name and default columns, null for the columns that are skipped
+    private final List<LanguageColumn> columns = new ArrayList<>();
+
+    SheetImporter(Callback callback) {
+      this.callback = callback;
+    }
+
+    @Override
+    public void startSheet(@NotNull String sheetName) {
+      isHeaderRead = false;
+      defaultEntries = null;
+      columns.clear();
+      callback.onSheet(sheetName);
+    }
+
+    @Override
+    public void row(int rowNumber, @NotNull List<String> cells) {
+      if (callback.isCanceled()) return;
+      if (!isHeaderRead) {
+        isHeaderRead = true;
+        readHeader(cells);
+        return;
+      }
+      if (defaultEntries == null) return;
+
+      RowName rowName = RowName.parse(getCell(cells, 0));
+      if (rowName == null) return;
+      ValuesEntry defaultEntry = defaultEntries.get(rowName.name);
+      int itemIndex = defaultEntry != null ? rowName.findItem(defaultEntry) : -1;
+      if (defaultEntry == null || !defaultEntry.isTranslatable() || (rowName.isItem() && itemIndex < 0)) {
+        LOG.info("row skipped unknown " + rowName);
+        mSkippedCount++;
+        return;
+      }
+      ValuesEntry.Item defaultItem = rowName.isItem() ? defaultEntry.getItems().get(itemIndex) : null;
+      String defaultText = defaultItem != null ? defaultItem.getValueText() : defaultEntry.getValueText();
+      if (!defaultText.equals(getCell(cells, 1))) {
+        LOG.info("row skipped outdated " + rowName);
+        mSkippedCount++;
+        return;
+      }
+
+      List<String> defaultTexts = defaultItem != null ? defaultItem.getTexts() : defaultEntry.getTexts();
+      for (int i = 0; i < columns.size(); i++) {
+        LanguageColumn column = columns.get(i);
+        String value = getCell(cells, i + 2);
+        if (column != null && !value.isEmpty()) {
+          column.apply(rowName, defaultEntry, defaultTexts, value);
+        }
+      }
+    }
+
+    @Override
+    public void endSheet() {
+      if (callback.isCanceled()) return;
+      for (LanguageColumn column : columns) {
+        if (column != null) {
+          column.write(callback);
+        }
+      }
+    }
+
+    private void readHeader(@NotNull List<String> cells) {
+      File defaultValueFile = getDefaultValueFile(getCell(cells, 0));
+      if (!defaultValueFile.isFile()) {
+        LOG.warn("Skipped sheet of missing values file: " + defaultValueFile);
+        callback.onWarning("Skipped " + getCell(cells, 0) + ", the values file doesn't exist.");
+        return;
+      }
+      try {
+        defaultEntries = indexEntries(mValuesService.loadValuesDocument(defaultValueFile));
+      } catch (IOException e) {
+        LOG.warn("Failed to read " + defaultValueFile, e);
+        callback.onWarning("Skipped " + getCell(cells, 0) + ": " + e.getMessage());
+        return;
+      }
+
+      File resourceDir = defaultValueFile.getParentFile().getParentFile();
+      for (int i = 2; i < cells.size(); i++) {
+        Lang lang = Languages.getLang(getCell(cells, i));
+        File valueFile = lang != null
+            ? mValuesService.getValueFile(resourceDir, lang, defaultValueFile.getName()) : null;
+        if (valueFile == null || !valueFile.isFile()) {
+          LOG.info("readHeader skipped column: " + getCell(cells, i) + ", valueFile: " + valueFile);
+          columns.add(null);
+          continue;
+        }
+        try {
+          columns.add(new LanguageColumn(lang, valueFile, mValuesService.loadValuesDocument(valueFile)));
+        } catch (IOException e) {
+          // never write a file that couldn't be read, its translations would be lost
+          LOG.warn("Failed to read " + valueFile, e);
+          callback.onWarning("Skipped " + valueFile.getPath() + ": " + e.getMessage());
+          columns.add(null);
+        }
+      }
+    }
+  }
+
+  @NotNull
+  private static Map<String, ValuesEntry> indexEntries(@NotNull ValuesDocument values) {
+    Map<String, ValuesEntry> entries = new HashMap<>();
+    for (ValuesEntry entry : values.getEntries()) {
+      entries.put(entry.getName(), entry);
+    }
+    return entries;
+  }
+
+  /**
+   * The target language file of a column, only the changed entries are kept.
+   */
+  private class LanguageColumn {
+    final Lang lang;
+    final File valueFile;
+    final ValuesDocument values;
+    final Map<String, ValuesEntry> entries;
+    final Map<String, ValuesEntry> changedEntries = new LinkedHashMap<>();
+    // corrected translations by source text, for the translation cache
+    final Map<String, String> corrections = new LinkedHashMap<>();
+
+    LanguageColumn(Lang lang, File valueFile, ValuesDocument values) {
+      this.lang = lang;
+      this.valueFile = valueFile;
+      this.values = values;
+      this.entries = indexEntries(values);
+    }
+
+    void apply(@NotNull RowName rowName, @NotNull ValuesEntry defaultEntry,
+               @NotNull List<String> defaultTexts, @NotNull String value) {
+      ValuesEntry entry = changedEntries.getOrDefault(rowName.name, entries.get(rowName.name));
+      try {
+        ValuesEntry updatedEntry;
+        List<String> texts;
+        if (rowName.isItem()) {
+          // the items of plurals and string arrays differ by language, they are never created from a sheet
+          int itemIndex = entry != null ? rowName.findItem(entry) : -1;
+          if (itemIndex < 0) {
+            LOG.info("apply skipped missing " + rowName + " of " + lang.getCode());
+            mSkippedCount++;
+            return;
+          }
+          if (value.equals(entry.getItems().get(itemIndex).getValueText())) return;
+          updatedEntry = entry.withItemValueText(itemIndex, value);
+          texts = updatedEntry.getItems().get(itemIndex).getTexts();
+        } else {
+          if (entry != null && value.equals(entry.getValueText())) return;
+          // a string missing from the target language file is added in the form of the default one
+          updatedEntry = (entry != null ? entry : defaultEntry).withValueText(value);
+          texts = updatedEntry.getTexts();
+        }
+        changedEntries.put(rowName.name, updatedEntry);
+        mUpdatedCount++;
+        if (defaultTexts.size() == 1 && texts.size() == 1) {
+          corrections.put(TextDeduplicator.normalize(defaultTexts.get(0)), texts.get(0).strip());
+        }
+      } catch (IllegalArgumentException e) {
+        LOG.warn("Skipped " + rowName + " of " + lang.getCode() + ": " + e.getMessage());
+        mSkippedCount++;
+      }
+    }
+
+    void write(@NotNull Callback callback) {
+      if (changedEntries.isEmpty()) return;
+      try {
+        mValuesService.writeValuesDocument(values.withEntries(changedEntries.values()), valueFile);
+      } catch (IOException e) {
+        LOG.warn("Failed to write " + valueFile, e);
+        callback.onWarning("Failed to write " + valueFile.getPath() + ": " + e.getMessage());
+        return;
+      }
+      mFileCount++;
+      callback.onWritten(valueFile);
+      corrections.forEach((text, translation) ->
+          mTranslatorService.putCachedTranslation(Languages.ENGLISH, lang, text, translation));
+    }
+  }
+
+  /**
+   * The name of a row, see {@link ExportExcelOperator#getItemName(String, ValuesEntry.Item, int)}.
+   */
+  static final class RowName {
+    final String name;
+    @Nullable
+    final String quantity;
+    final int index;
+
+    private RowName(String name, @Nullable String quantity, int index) {
+      this.name = name;
+      this.quantity = quantity;
+      this.index = index;
+    }
+
+    /**
+     * @return the name, or null if the row has none.
+     */
+    @Nullable
+    static RowName parse(@NotNull String text) {
+      text = text.strip();
+      if (text.isEmpty()) return null;
+      int quantityStart = text.lastIndexOf(':');
+      if (quantityStart > 0) {
+        return new RowName(text.substring(0, quantityStart), text.substring(quantityStart + 1), -1);
+      }
+      int indexStart = text.lastIndexOf('[');
+      if (indexStart > 0 && text.endsWith("]")) {
+        try {
+          return new RowName(text.substring(0, indexStart),
+              null, Integer.parseInt(text.substring(indexStart + 1, text.length() - 1)));
+        } catch (NumberFormatException ignored) {
+          // not an item of a string array
+        }
+      }
+      return new RowName(text, null, -1);
+    }
+
+    boolean isItem() {
+      return quantity != null || index >= 0;
+    }
+
+    /**
+     * Returns the index of the item of the row in the entry, plurals match by quantity and string arrays by index.
+     */
+    int findItem(@NotNull ValuesEntry entry) {
+      List<ValuesEntry.Item> items = entry.getItems();
+      if (quantity == null) {
+        return index >= 0 && index < items.size() && items.get(index).getQuantity() == null ? index : -1;
+      }
+      for (int i = 0; i < items.size(); i++) {
+        if (quantity.equals(items.get(i).getQuantity())) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    @Override
+    public String toString() {
+      return quantity != null ? name + ":" + quantity : index >= 0 ? name + "[" + index + "]" : name;
+    }
+  }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2021 Airsaid. https://github.com/airsaid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.airsaid.localization.task;
+
+import com.airsaid.localization.translate.lang.Lang;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The result of the planning pass of {@link TranslateTask}: for every target language,
+ * how many strings are kept from the existing target file, how many are already known
+ * from the translation cache and how many have to be sent to the translator, along with
+ * the estimated number of requests and time. Texts that repeat an other pending text of the same
+ * language are translated once, the plan counts them and the requests this saves.
+ *
+ * @author airsaid
+ */
+public class TranslationPlan {
+
+  private final int maxBatchSize;
+  private final int maxBatchBytes;
+  private final double requestsPerSecond;
+  private final Map<Lang, LanguagePlan> languagePlans = new LinkedHashMap<>();
+
+  /**
+   * @param maxBatchSize      the maximum number of texts of a request.
+   * @param maxBatchBytes     the maximum UTF-8 size of the texts of a request.
+   * @param requestsPerSecond the rate limit of the translator.
+   */
+  public TranslationPlan(int maxBatchSize, int maxBatchBytes, double requestsPerSecond) {
+    this.maxBatchSize = Math.max(1, maxBatchSize);
+    this.maxBatchBytes = Math.max(1, maxBatchBytes);
+    this.requestsPerSecond = requestsPerSecond;
+  }
+
+  @NotNull
+  public LanguagePlan getLanguagePlan(@NotNull Lang toLanguage) {
+    return languagePlans.computeIfAbsent(toLanguage, lang -> new LanguagePlan());
+  }
+
+  /**
+   * Returns the number of strings kept from the existing target files.
+   */
+  public int getKeptCount() {
+    return languagePlans.values().stream().mapToInt(plan -> plan.keptCount).sum();
+  }
+
+  /**
+   * Returns the number of strings whose translations are all known from the cache.
+   */
+  public int getCachedCount() {
+    return languagePlans.values().stream().mapToInt(plan -> plan.cachedCount).sum();
+  }
+
+  /**
+   * Returns the number of strings that have to be sent to the translator.
+   */
+  public int getPendingCount() {
+    return languagePlans.values().stream().mapToInt(plan -> plan.pendingCount).sum();
+  }
+
+  /**
+   * Returns the number of characters that have to be sent to the translator.
+   */
+  public long getPendingCharacters() {
+    return languagePlans.values().stream().mapToLong(plan -> plan.pendingCharacters).sum();
+  }
+
+  /**
+   * Returns the number of distinct texts that have to be sent to the translator.
+   */
+  public int getPendingTextCount() {
+    return languagePlans.values().stream().mapToInt(plan -> plan.pendingTexts).sum();
+  }
+
+  /**
+   * Returns the number of texts that reuse the translation of an identical pending text.
+   */
+  public int getDuplicateCount() {
+    return languagePlans.values().stream().mapToInt(plan -> plan.duplicateTexts).sum();
+  }
+
+  /**
+   * Returns the estimated number of requests, texts of different languages never share a request.
+   */
+  public long getEstimatedRequests() {
+    long requests = 0;
+    for (LanguagePlan plan : languagePlans.values()) {
+      requests += getRequests(plan.pendingTexts, plan.pendingBytes);
+    }
+    return requests;
+  }
+
+  /**
+   * Returns the estimated number of requests saved by translating identical texts once.
+   */
+  public long getSavedRequests() {
+    long requests = 0;
+    for (LanguagePlan plan : languagePlans.values()) {
+      requests += getRequests(plan.pendingTexts + plan.duplicateTexts, plan.pendingBytes + plan.duplicateBytes);
+    }
+    return requests - getEstimatedRequests();
+  }
+
+  private long getRequests(long texts, long bytes) {
+    if (texts == 0) return 0;
+    long bySize = (texts + maxBatchSize - 1) / maxBatchSize;
+    long byBytes = (bytes + maxBatchBytes - 1) / maxBatchBytes;
+    return Math.max(bySize, byBytes);
+  }
+
+  /**
+   * Returns the estimated time in seconds the requests take under the rate limit of the translator.
+   */
+  public long getEstimatedSeconds() {
+    if (requestsPerSecond <= 0) return 0;
+    return (long) Math.ceil(getEstimatedRequests() / requestsPerSecond);
+  }
+
+  public boolean isEmpty() {
+    return getPendingCount() == 0;
+  }
+
+  @NotNull
+  public String getSummary() {
+    if (isEmpty()) {
+      return String.format("All strings of %d languages are up to date: %d kept, %d from cache.",
+          languagePlans.size(), getKeptCount(), getCachedCount());
+    }
+    String summary = String.format("Translating %d strings in %d languages (%d kept, %d from cache): "
+            + "%d characters, about %d requests, %d seconds.",
+        getPendingCount(), languagePlans.size(), getKeptCount(), getCachedCount(),
+        getPendingCharacters(), getEstimatedRequests(), getEstimatedSeconds());
+    if (getDuplicateCount() > 0) {
+      summary += String.format(" %d duplicate texts are translated once, saving about %d requests.",
+          getDuplicateCount(), getSavedRequests());
+    }
+    return summary;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder("TranslationPlan{");
+    languagePlans.forEach((lang, plan) -> builder.append(lang.getCode()).append('=').append(plan).append(", "));
+    return builder.append(getSummary()).append('}').toString();
+  }
+
+  public static class LanguagePlan {
+    private int keptCount;
+    private int cachedCount;
+    private int pendingCount;
+    private int pendingTexts;
+    private long pendingBytes;
+    private long pendingCharacters;
+    private int duplicateTexts;
+    private long duplicateBytes;
+
+    /**
+     * A string is kept from the existing target file.
+     */
+    public void addKept() {
+      keptCount++;
+    }
+
+    /**
+     * All texts of a string are known from the cache.
+     */
+    public void addCached() {
+      cachedCount++;
+    }
+
+    /**
+     * A string has texts that have to be sent to the translator.
+     *
+     * @param texts      the number of distinct texts without translation first seen in the string.
+     * @param bytes      the UTF-8 size of the texts.
+     * @param characters the number of characters of the texts.
+     */
+    public void addPending(int texts, long bytes, long characters) {
+      pendingCount++;
+      pendingTexts += texts;
+      pendingBytes += bytes;
+      pendingCharacters += characters;
+    }
+
+    /**
+     * Texts reuse the translation of an identical pending text, they are not sent to the translator.
+     *
+     * @param texts the number of duplicate texts.
+     * @param bytes the UTF-8 size of the duplicate texts.
+     */
+    public void addDuplicates(int texts, long bytes) {
+      duplicateTexts += texts;
+      duplicateBytes += bytes;
+    }
+
+    public int getPendingCount() {
+      return pendingCount;
+    }
+
+    @Override
+    public String toString() {
+      return "{kept=" + keptCount + ", cached=" + cachedCount + ", pending=" + pendingCount
+          + ", texts=" + pendingTexts + ", bytes=" + pendingBytes + ", duplicates=" + duplicateTexts + '}';
+    }
+  }
+}
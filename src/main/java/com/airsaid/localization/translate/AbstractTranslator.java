@@ -20,21 +20,24 @@ package com.airsaid.localization.translate;
 import com.airsaid.localization.config.SettingsState;
 import com.airsaid.localization.translate.impl.google.GoogleTranslator;
 import com.airsaid.localization.translate.lang.Lang;
-import com.airsaid.localization.utils.NotificationUtil;
+import com.airsaid.localization.translate.services.HttpTransportService;
+import com.airsaid.localization.translate.util.HttpStatusException;
+import com.airsaid.localization.translate.util.RetryPolicy;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Pair;
-import com.intellij.util.io.HttpRequests;
-import com.intellij.util.io.RequestBuilder;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
+import java.net.http.HttpRequest;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -46,43 +49,235 @@ public abstract class AbstractTranslator implements Translator, TranslatorConfig
 
   private static final String CONTENT_TYPE = "application/x-www-form-urlencoded";
 
+  private static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 4;
+  private static final int DEFAULT_MAX_BATCH_BYTES = 5000;
+  private static final double DEFAULT_REQUESTS_PER_SECOND = 5;
+
+  private volatile HttpTransportService transport;
+  private volatile TranslatorCredentials credentials;
+
   @Override
-  public String doTranslate(@NotNull Project project, @NotNull Lang fromLang, @NotNull Lang toLang, @NotNull String text) throws TranslationException {
+  public String doTranslate(@Nullable Project project, @NotNull Lang fromLang, @NotNull Lang toLang, @NotNull String text) throws TranslationException {
     final Lang toLanguage = checkSupportedLanguages(fromLang, toLang, text);
 
-    String requestUrl = getRequestUrl(fromLang, toLanguage, text);
-    RequestBuilder requestBuilder = HttpRequests.post(requestUrl, CONTENT_TYPE);
-    configureRequestBuilder(requestBuilder);
+    HttpRequest.Builder requestBuilder = newRequest(getRequestUrl(fromLang, toLanguage, text),
+        getRequestParams(fromLang, toLanguage, text), getRequestBody(fromLang, toLanguage, text));
+    return execute(fromLang, toLanguage, text, requestBuilder,
+        resultText -> parsingResult(fromLang, toLanguage, text, resultText));
+  }
+
+  /**
+   * Translate several texts with as few requests as possible.
+   * <p>
+   * Translators that support batch translation return a value greater than 1 from {@link #getMaxBatchSize()}
+   * and implement the batch variants of {@link #getRequestUrl(Lang, Lang, List)},
+   * {@link #getRequestParams(Lang, Lang, List)}, {@link #getRequestBody(Lang, Lang, List)} and
+   * {@link #parsingBatchResult(Lang, Lang, List, String)}. The texts must already fit into
+   * {@link #getMaxBatchSize()} and {@link #getMaxBatchBytes()}, other translators translate them one by one.
+   */
+  @Override
+  public List<String> doTranslateBatch(@Nullable Project project, @NotNull Lang fromLang, @NotNull Lang toLang, @NotNull List<String> texts) throws TranslationException {
+    if (texts.size() <= 1 || !isSupportBatch(texts)) {
+      return Translator.super.doTranslateBatch(project, fromLang, toLang, texts);
+    }
+
+    final Lang toLanguage = checkSupportedLanguages(fromLang, toLang, texts.get(0));
+    String summary = texts.size() + " texts";
+
+    HttpRequest.Builder requestBuilder = newRequest(getRequestUrl(fromLang, toLanguage, texts),
+        getRequestParams(fromLang, toLanguage, texts), getRequestBody(fromLang, toLanguage, texts));
+    ResultStreamParser<List<String>> streamParser = newBatchResultStreamParser(fromLang, toLanguage, texts);
+    if (streamParser != null) {
+      try {
+        return executeStreamAsync(fromLang, toLanguage, texts, summary, requestBuilder, streamParser).join();
+      } catch (CompletionException e) {
+        Throwable cause = RetryPolicy.unwrap(e);
+        throw cause instanceof TranslationException ? (TranslationException) cause
+            : new TranslationException(fromLang, toLanguage, summary, cause);
+      }
+    }
+    return execute(fromLang, toLanguage, summary, requestBuilder,
+        resultText -> checkBatchResult(fromLang, toLanguage, texts, summary, parsingBatchResult(fromLang, toLanguage, texts, resultText)));
+  }
 
+  /**
+   * Send the request with the asynchronous HTTP client, no thread waits for the response.
+   */
+  @Override
+  public CompletableFuture<String> translateAsync(@Nullable Project project, @NotNull Lang fromLang, @NotNull Lang toLang, @NotNull String text) {
+    final Lang toLanguage;
+    final HttpRequest.Builder requestBuilder;
     try {
-      return requestBuilder.connect(request -> {
-        String requestParams = getRequestParams(fromLang, toLanguage, text)
-            .stream()
-            .map(pair -> {
-              try {
-                return pair.first.concat("=").concat(URLEncoder.encode(pair.second, StandardCharsets.UTF_8.name()));
-              } catch (UnsupportedEncodingException e) {
-                throw new TranslationException(fromLang, toLanguage, text, e);
-              }
-            })
-            .collect(Collectors.joining("&"));
-        if (!requestParams.isEmpty()) {
-          request.write(requestParams);
-        }
-        String requestBody = getRequestBody(fromLang, toLanguage, text);
-        if (!requestBody.isEmpty()) {
-          request.write(URLEncoder.encode(requestBody, StandardCharsets.UTF_8.name()));
-        }
-        String resultText = request.readString();
-        return parsingResult(fromLang, toLanguage, text, resultText);
-      });
+      toLanguage = checkSupportedLanguages(fromLang, toLang, text);
+      requestBuilder = newRequest(getRequestUrl(fromLang, toLanguage, text),
+          getRequestParams(fromLang, toLanguage, text), getRequestBody(fromLang, toLanguage, text));
+    } catch (RuntimeException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+    return executeAsync(fromLang, toLanguage, text, requestBuilder,
+        resultText -> parsingResult(fromLang, toLanguage, text, resultText));
+  }
+
+  /**
+   * Send a batch request with the asynchronous HTTP client, translators without batch support
+   * send a request per text, all of them at the same time.
+   */
+  @Override
+  public CompletableFuture<List<String>> translateBatchAsync(@Nullable Project project, @NotNull Lang fromLang, @NotNull Lang toLang, @NotNull List<String> texts) {
+    if (texts.size() <= 1 || !isSupportBatch(texts)) {
+      List<CompletableFuture<String>> futures = texts.stream()
+          .map(text -> translateAsync(project, fromLang, toLang, text))
+          .collect(Collectors.toList());
+      return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+          .thenApply(ignored -> futures.stream().map(CompletableFuture::join).collect(Collectors.toList()));
+    }
+
+    final Lang toLanguage;
+    final HttpRequest.Builder requestBuilder;
+    final ResultStreamParser<List<String>> streamParser;
+    String summary = texts.size() + " texts";
+    try {
+      toLanguage = checkSupportedLanguages(fromLang, toLang, texts.get(0));
+      requestBuilder = newRequest(getRequestUrl(fromLang, toLanguage, texts),
+          getRequestParams(fromLang, toLanguage, texts), getRequestBody(fromLang, toLanguage, texts));
+      streamParser = newBatchResultStreamParser(fromLang, toLanguage, texts);
+    } catch (RuntimeException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+    if (streamParser != null) {
+      return executeStreamAsync(fromLang, toLanguage, texts, summary, requestBuilder, streamParser);
+    }
+    return executeAsync(fromLang, toLanguage, summary, requestBuilder,
+        resultText -> checkBatchResult(fromLang, toLanguage, texts, summary, parsingBatchResult(fromLang, toLanguage, texts, resultText)));
+  }
+
+  @NotNull
+  private List<String> checkBatchResult(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull List<String> texts,
+                                        @NotNull String summary, @NotNull List<String> results) {
+    if (results.size() != texts.size()) {
+      throw new TranslationException(fromLang, toLang, summary,
+          "expected " + texts.size() + " results but got " + results.size());
+    }
+    return results;
+  }
+
+  /**
+   * Create the request of a translation, the params are sent form encoded, followed by the body.
+   */
+  @NotNull
+  private HttpRequest.Builder newRequest(@NotNull String requestUrl,
+                                         @NotNull List<Pair<String, String>> requestParams,
+                                         @NotNull String requestBody) {
+    String params = requestParams
+        .stream()
+        .map(pair -> pair.first.concat("=").concat(URLEncoder.encode(pair.second, StandardCharsets.UTF_8)))
+        .collect(Collectors.joining("&"));
+    // the body has its own content type (e.g. json), so it is written as it is
+    String body = params.concat(requestBody);
+
+    HttpRequest.Builder requestBuilder = getTransport().newRequest(requestUrl)
+        .setHeader("Content-Type", CONTENT_TYPE)
+        .POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8));
+    configureRequest(requestBuilder);
+    return requestBuilder;
+  }
+
+  /**
+   * Send the request and parse the response.
+   *
+   * @return the parsed result.
+   * @throws TranslationException if the request failed, the cause is a {@link HttpStatusException}
+   *                              when the server responded with an error status code.
+   */
+  @NotNull
+  private <T> T execute(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull String text,
+                        @NotNull HttpRequest.Builder requestBuilder,
+                        @NotNull Function<String, T> parser) {
+    try {
+      // error responses throw a HttpStatusException, so the Retry-After header can be read
+      String resultText = getTransport().execute(requestBuilder);
+      return parser.apply(resultText);
     } catch (IOException e) {
-      e.printStackTrace();
-      NotificationUtil.notifyError(project, new TranslationException(fromLang, toLanguage, text, e).toString());
-      return "";
+      LOG.warn(String.format("request failed: %s", e.getMessage()));
+      throw new TranslationException(fromLang, toLang, text, e);
     }
   }
 
+  /**
+   * Send the request and parse the response without blocking.
+   *
+   * @return the future of the parsed result, it completes exceptionally with a {@link TranslationException}.
+   * @see #execute(Lang, Lang, String, HttpRequest.Builder, Function)
+   */
+  @NotNull
+  private <T> CompletableFuture<T> executeAsync(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull String text,
+                                                @NotNull HttpRequest.Builder requestBuilder,
+                                                @NotNull Function<String, T> parser) {
+    return getTransport().executeAsync(requestBuilder)
+        .handle((resultText, error) -> {
+          if (error == null) {
+            return parser.apply(resultText);
+          }
+          Throwable cause = RetryPolicy.unwrap(error);
+          if (cause instanceof TranslationException) {
+            throw (TranslationException) cause;
+          }
+          LOG.warn(String.format("request failed: %s", cause.getMessage()));
+          throw new TranslationException(fromLang, toLang, text, cause);
+        });
+  }
+
+  /**
+   * Send the request and parse the lines of the response as they arrive without blocking.
+   *
+   * @return the future of the parsed results, it completes exceptionally with a {@link TranslationException}.
+   * @see #newBatchResultStreamParser(Lang, Lang, List)
+   */
+  @NotNull
+  private CompletableFuture<List<String>> executeStreamAsync(@NotNull Lang fromLang, @NotNull Lang toLang,
+                                                             @NotNull List<String> texts, @NotNull String summary,
+                                                             @NotNull HttpRequest.Builder requestBuilder,
+                                                             @NotNull ResultStreamParser<List<String>> streamParser) {
+    return getTransport().executeStreamAsync(requestBuilder, streamParser::onLine)
+        .handle((ignored, error) -> {
+          if (error == null) {
+            return checkBatchResult(fromLang, toLang, texts, summary, streamParser.getResult());
+          }
+          Throwable cause = RetryPolicy.unwrap(error);
+          if (cause instanceof TranslationException) {
+            throw (TranslationException) cause;
+          }
+          LOG.warn(String.format("request failed: %s", cause.getMessage()));
+          throw new TranslationException(fromLang, toLang, summary, cause);
+        });
+  }
+
+  /**
+   * Set the transport the requests are sent with, by default the shared {@link HttpTransportService} of the IDE.
+   */
+  public void setTransport(@Nullable HttpTransportService transport) {
+    this.transport = transport;
+  }
+
+  @NotNull
+  public HttpTransportService getTransport() {
+    HttpTransportService transport = this.transport;
+    return transport != null ? transport : HttpTransportService.getInstance();
+  }
+
+  /**
+   * Set where the app id and app key come from, by default the settings of the IDE.
+   */
+  public void setCredentials(@Nullable TranslatorCredentials credentials) {
+    this.credentials = credentials;
+  }
+
+  @NotNull
+  private TranslatorCredentials getCredentials() {
+    TranslatorCredentials credentials = this.credentials;
+    return credentials != null ? credentials : SettingsState.getInstance();
+  }
+
   @Override
   public @Nullable Icon getIcon() {
     return null;
@@ -95,7 +290,7 @@ public abstract class AbstractTranslator implements Translator, TranslatorConfig
 
   @Override
   public @Nullable String getAppId() {
-    return SettingsState.getInstance().getAppId(getKey());
+    return getCredentials().getAppId(getKey());
   }
 
   @Override
@@ -110,7 +305,7 @@ public abstract class AbstractTranslator implements Translator, TranslatorConfig
 
   @Override
   public @Nullable String getAppKey() {
-    return SettingsState.getInstance().getAppKey(getKey());
+    return getCredentials().getAppKey(getKey());
   }
 
   @Override
@@ -118,6 +313,11 @@ public abstract class AbstractTranslator implements Translator, TranslatorConfig
     return "APP KEY";
   }
 
+  @Override
+  public boolean isAppKeyOptional() {
+    return false;
+  }
+
   @Override
   public @Nullable String getApplyAppIdUrl() {
     return null;
@@ -138,7 +338,11 @@ public abstract class AbstractTranslator implements Translator, TranslatorConfig
     return "";
   }
 
-  public void configureRequestBuilder(@NotNull RequestBuilder requestBuilder) {
+  /**
+   * Set the headers of a request, eg: the user agent or the credentials, the request is sent
+   * with the {@link #getTransport() transport} of the translator.
+   */
+  public void configureRequest(@NotNull HttpRequest.Builder requestBuilder) {
 
   }
 
@@ -147,6 +351,65 @@ public abstract class AbstractTranslator implements Translator, TranslatorConfig
     throw new UnsupportedOperationException();
   }
 
+  @NotNull
+  public String getRequestUrl(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull List<String> texts) {
+    throw new UnsupportedOperationException();
+  }
+
+  @NotNull
+  public List<Pair<String, String>> getRequestParams(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull List<String> texts) {
+    throw new UnsupportedOperationException();
+  }
+
+  @NotNull
+  public String getRequestBody(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull List<String> texts) {
+    return "";
+  }
+
+  /**
+   * Parse the result of a batch request.
+   *
+   * @return the translated texts, in the same order as the given texts.
+   */
+  @NotNull
+  public List<String> parsingBatchResult(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull List<String> texts, @NotNull String resultText) {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Returns a parser for the response of a batch request that is streamed, it is then read line by line
+   * as it arrives instead of being passed to {@link #parsingBatchResult(Lang, Lang, List, String)} as a whole.
+   *
+   * @return null if the response is not streamed.
+   */
+  @Nullable
+  public ResultStreamParser<List<String>> newBatchResultStreamParser(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull List<String> texts) {
+    return null;
+  }
+
+  /**
+   * Returns the maximum number of texts that can be sent in a single request.
+   *
+   * @return 1 if the translator doesn't support batch translation.
+   */
+  public int getMaxBatchSize() {
+    return 1;
+  }
+
+  /**
+   * Returns the maximum total UTF-8 size of the texts that can be sent in a single request.
+   */
+  public int getMaxBatchBytes() {
+    return DEFAULT_MAX_BATCH_BYTES;
+  }
+
+  /**
+   * Returns whether the given texts can be translated with a single batch request.
+   */
+  protected boolean isSupportBatch(@NotNull List<String> texts) {
+    return getMaxBatchSize() > 1;
+  }
+
   /**
    * check if current translator supports target language
    *
@@ -175,4 +438,19 @@ public abstract class AbstractTranslator implements Translator, TranslatorConfig
   public @NotNull String getFallbackTranslator() {
     return GoogleTranslator.KEY;
   }
+
+  @Override
+  public int getMaxConcurrentRequests() {
+    return DEFAULT_MAX_CONCURRENT_REQUESTS;
+  }
+
+  @Override
+  public double getRequestsPerSecond() {
+    return DEFAULT_REQUESTS_PER_SECOND;
+  }
+
+  @Override
+  public int getCharactersPerMinute() {
+    return 0;
+  }
 }
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2021 Airsaid. https://github.com/airsaid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.airsaid.localization.translate;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Parses the result of a streamed response line by line as it arrives, eg: the server-sent
+ * events of a chat completion, a new parser is created for every request.
+ *
+ * @author airsaid
+ * @see AbstractTranslator#newBatchResultStreamParser
+ */
+public interface ResultStreamParser<T> {
+
+  /**
+   * Called with every line of the response body, without the line terminator.
+   */
+  void onLine(@NotNull String line);
+
+  /**
+   * Called once the whole body was read.
+   *
+   * @return the parsed result.
+   */
+  @NotNull
+  T getResult();
+}
@@ -20,7 +20,13 @@ package com.airsaid.localization.translate;
 import com.airsaid.localization.translate.impl.google.GoogleTranslator;
 import com.airsaid.localization.translate.lang.Lang;
 import com.intellij.openapi.project.Project;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * The translator interface, the direct implementation class is {@link AbstractTranslator},
@@ -35,12 +41,64 @@ public interface Translator {
   /**
    * Invoke translation operation.
    *
+   * @param project  the project the text belongs to, null when translating outside of the IDE.
    * @param fromLang the language of text.
    * @param toLang   the language to be translated into.
    * @param text     the text to be translated.
    * @return the translated text.
    * @throws TranslationException this exception is thrown if the translation failed.
    */
-  String doTranslate(@NotNull Project project, @NotNull Lang fromLang, @NotNull Lang toLang, @NotNull String text) throws TranslationException;
+  String doTranslate(@Nullable Project project, @NotNull Lang fromLang, @NotNull Lang toLang, @NotNull String text) throws TranslationException;
+
+  /**
+   * Invoke translation operation for several texts.
+   * <p>
+   * The default implementation translates the texts one by one, translators
+   * which can translate several texts with a single request should override it.
+   *
+   * @param fromLang the language of texts.
+   * @param toLang   the language to be translated into.
+   * @param texts    the texts to be translated.
+   * @return the translated texts, in the same order as the given texts.
+   * @throws TranslationException this exception is thrown if the translation failed.
+   */
+  default List<String> doTranslateBatch(@Nullable Project project, @NotNull Lang fromLang, @NotNull Lang toLang, @NotNull List<String> texts) throws TranslationException {
+    List<String> results = new ArrayList<>(texts.size());
+    for (String text : texts) {
+      results.add(doTranslate(project, fromLang, toLang, text));
+    }
+    return results;
+  }
+
+  /**
+   * Invoke translation operation without blocking the calling thread.
+   * <p>
+   * The default implementation runs {@link #doTranslate(Project, Lang, Lang, String)} on a pooled thread,
+   * translators which can send their requests asynchronously should override it.
+   *
+   * @param fromLang the language of text.
+   * @param toLang   the language to be translated into.
+   * @param text     the text to be translated.
+   * @return the future of the translated text, it completes exceptionally with a {@link TranslationException}
+   * if the translation failed.
+   */
+  default CompletableFuture<String> translateAsync(@Nullable Project project, @NotNull Lang fromLang, @NotNull Lang toLang, @NotNull String text) {
+    return CompletableFuture.supplyAsync(() -> doTranslate(project, fromLang, toLang, text),
+        AppExecutorUtil.getAppExecutorService());
+  }
+
+  /**
+   * Invoke translation operation for several texts without blocking the calling thread.
+   *
+   * @param fromLang the language of texts.
+   * @param toLang   the language to be translated into.
+   * @param texts    the texts to be translated.
+   * @return the future of the translated texts, in the same order as the given texts.
+   * @see #translateAsync(Project, Lang, Lang, String)
+   */
+  default CompletableFuture<List<String>> translateBatchAsync(@Nullable Project project, @NotNull Lang fromLang, @NotNull Lang toLang, @NotNull List<String> texts) {
+    return CompletableFuture.supplyAsync(() -> doTranslateBatch(project, fromLang, toLang, texts),
+        AppExecutorUtil.getAppExecutorService());
+  }
 
 }
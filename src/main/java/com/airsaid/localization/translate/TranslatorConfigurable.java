@@ -55,9 +55,35 @@ public interface TranslatorConfigurable {
 
   String getAppKeyDisplay();
 
+  /**
+   * Returns whether the app key can be left empty, eg: a server on the LAN that doesn't check keys.
+   */
+  boolean isAppKeyOptional();
+
   @Nullable
   String getApplyAppIdUrl();
 
   @NotNull
   String getFallbackTranslator();
+
+  /**
+   * Returns the maximum number of requests that can be sent to this translator at the same time.
+   *
+   * @return the maximum number of concurrent requests, at least 1.
+   */
+  int getMaxConcurrentRequests();
+
+  /**
+   * Returns the maximum number of requests per second allowed by the quota of this translator.
+   *
+   * @return the number of requests per second, greater than 0.
+   */
+  double getRequestsPerSecond();
+
+  /**
+   * Returns the maximum number of characters per minute allowed by the quota of this translator.
+   *
+   * @return the number of characters per minute, 0 if unlimited.
+   */
+  int getCharactersPerMinute();
 }
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2021 Airsaid. https://github.com/airsaid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.airsaid.localization.translate;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Supplies the credentials of the translators, in the IDE they come from the settings and the
+ * password safe, outside of it eg: from the environment.
+ *
+ * @author airsaid
+ * @see AbstractTranslator#setCredentials(TranslatorCredentials)
+ */
+public interface TranslatorCredentials {
+
+  @Nullable
+  String getAppId(@NotNull String translatorKey);
+
+  @Nullable
+  String getAppKey(@NotNull String translatorKey);
+}
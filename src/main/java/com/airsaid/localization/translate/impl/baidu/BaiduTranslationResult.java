@@ -24,6 +24,7 @@ import org.jetbrains.annotations.NotNull;
 
 import java.util.List;
 import java.util.Objects;
+import java.util.stream.Collectors;
 
 /**
  * @author airsaid
@@ -107,6 +108,17 @@ public class BaiduTranslationResult implements TranslationResult {
     return dst != null ? dst : "";
   }
 
+  @NotNull
+  public List<String> getTranslationResults() {
+    List<Content> contents = getContents();
+    if (contents == null) {
+      return List.of();
+    }
+    return contents.stream()
+        .map(content -> content.getDst() != null ? content.getDst() : "")
+        .collect(Collectors.toList());
+  }
+
   @Override
   public String toString() {
     return "BaiduTranslationResult{" +
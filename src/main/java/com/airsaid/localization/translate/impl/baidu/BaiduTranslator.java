@@ -24,12 +24,12 @@ import com.airsaid.localization.translate.lang.Languages;
 import com.airsaid.localization.translate.util.GsonUtil;
 import com.airsaid.localization.translate.util.MD5;
 import com.intellij.openapi.util.Pair;
-import com.intellij.util.io.RequestBuilder;
 import icons.PluginIcons;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
+import java.net.http.HttpRequest;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -120,13 +120,56 @@ public class BaiduTranslator extends AbstractTranslator {
   }
 
   @Override
-  public void configureRequestBuilder(@NotNull RequestBuilder requestBuilder) {
-    requestBuilder.tuner(connection -> connection.setRequestProperty("Referer", HOST_URL));
+  public int getMaxBatchSize() {
+    return 100;
+  }
+
+  @Override
+  public int getMaxBatchBytes() {
+    // the query should not exceed 6000 bytes
+    return 6000;
+  }
+
+  @Override
+  protected boolean isSupportBatch(@NotNull List<String> texts) {
+    // texts of a batch are separated by line breaks, so they must not contain line breaks themselves
+    for (String text : texts) {
+      if (text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+        return false;
+      }
+    }
+    return super.isSupportBatch(texts);
+  }
+
+  @Override
+  public @NotNull String getRequestUrl(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull List<String> texts) {
+    return TRANSLATE_URL;
+  }
+
+  @Override
+  public @NotNull List<Pair<String, String>> getRequestParams(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull List<String> texts) {
+    return getRequestParams(fromLang, toLang, String.join("\n", texts));
+  }
+
+  @Override
+  public int getMaxConcurrentRequests() {
+    // the standard edition only allows 1 query per second
+    return 1;
+  }
+
+  @Override
+  public double getRequestsPerSecond() {
+    return 1;
+  }
+
+  @Override
+  public void configureRequest(@NotNull HttpRequest.Builder requestBuilder) {
+    requestBuilder.setHeader("Referer", HOST_URL);
   }
 
   @Override
   public @NotNull String parsingResult(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull String text, @NotNull String resultText) {
-    LOG.info("parsingResult: " + resultText);
+    LOG.debug("parsingResult: " + resultText);
     BaiduTranslationResult baiduTranslationResult = GsonUtil.getInstance().getGson().fromJson(resultText, BaiduTranslationResult.class);
     if (baiduTranslationResult.isSuccess()) {
       return baiduTranslationResult.getTranslationResult();
@@ -135,4 +178,16 @@ public class BaiduTranslator extends AbstractTranslator {
       throw new TranslationException(fromLang, toLang, text, message);
     }
   }
+
+  @Override
+  public @NotNull List<String> parsingBatchResult(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull List<String> texts, @NotNull String resultText) {
+    LOG.debug("parsingBatchResult: " + resultText);
+    BaiduTranslationResult baiduTranslationResult = GsonUtil.getInstance().getGson().fromJson(resultText, BaiduTranslationResult.class);
+    if (baiduTranslationResult.isSuccess()) {
+      return baiduTranslationResult.getTranslationResults();
+    } else {
+      String message = baiduTranslationResult.getErrorMsg().concat("(").concat(baiduTranslationResult.getErrorCode()).concat(")");
+      throw new TranslationException(fromLang, toLang, texts.size() + " texts", message);
+    }
+  }
 }
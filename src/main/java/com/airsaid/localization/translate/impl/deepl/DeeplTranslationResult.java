@@ -4,23 +4,32 @@ import com.airsaid.localization.translate.TranslationResult;
 import com.google.gson.annotations.SerializedName;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.List;
+import java.util.stream.Collectors;
+
 public class DeeplTranslationResult implements TranslationResult {
 
   @SerializedName("translations")
-  public Translations result;
+  public List<Translations> result;
 
-  public DeeplTranslationResult(Translations result) {
+  public DeeplTranslationResult(List<Translations> result) {
     this.result = result;
   }
 
-  public Translations getResult() {
+  public List<Translations> getResult() {
     return result;
   }
 
   @Override
   public @NotNull String getTranslationResult() {
-    if (result == null) return "";
-    return result.getText();
+    if (result == null || result.isEmpty()) return "";
+    return result.get(0).getText();
+  }
+
+  @NotNull
+  public List<String> getTranslationResults() {
+    if (result == null) return List.of();
+    return result.stream().map(Translations::getText).collect(Collectors.toList());
   }
 
   static class Translations {
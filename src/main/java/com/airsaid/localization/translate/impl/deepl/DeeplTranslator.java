@@ -9,9 +9,9 @@ import com.airsaid.localization.translate.util.GsonUtil;
 import com.airsaid.localization.translate.util.UrlBuilder;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.util.Pair;
-import com.intellij.util.io.RequestBuilder;
 import org.jetbrains.annotations.NotNull;
 
+import java.net.http.HttpRequest;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -106,15 +106,47 @@ public class DeeplTranslator extends AbstractTranslator {
   }
 
   @Override
-  public void configureRequestBuilder(@NotNull RequestBuilder requestBuilder) {
-    requestBuilder.userAgent(AgentUtil.getUserAgent())
-        .tuner(connection -> connection.setRequestProperty("Referer", HOST_URL));
+  public int getMaxBatchSize() {
+    // up to 50 texts can be sent in one request
+    return 50;
+  }
+
+  @Override
+  public double getRequestsPerSecond() {
+    return 3;
+  }
+
+  @Override
+  public @NotNull String getRequestUrl(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull List<String> texts) {
+    return getRequestUrl(fromLang, toLang, texts.get(0));
+  }
+
+  @Override
+  public @NotNull List<Pair<String, String>> getRequestParams(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull List<String> texts) {
+    List<Pair<String, String>> list = new ArrayList<>();
+    for (String text : texts) {
+      list.add(Pair.create("text", text));
+    }
+    return list;
+  }
+
+  @Override
+  public void configureRequest(@NotNull HttpRequest.Builder requestBuilder) {
+    requestBuilder.setHeader("User-Agent", AgentUtil.getUserAgent())
+        .setHeader("Referer", HOST_URL);
   }
 
   @Override
   public @NotNull String parsingResult(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull String text, @NotNull String resultText) {
-    LOG.info("parsingResult: " + resultText);
+    LOG.debug("parsingResult: " + resultText);
     TranslationResult result = GsonUtil.getInstance().getGson().fromJson(resultText, DeeplTranslationResult.class);
     return result.getTranslationResult();
   }
+
+  @Override
+  public @NotNull List<String> parsingBatchResult(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull List<String> texts, @NotNull String resultText) {
+    LOG.debug("parsingBatchResult: " + resultText);
+    DeeplTranslationResult result = GsonUtil.getInstance().getGson().fromJson(resultText, DeeplTranslationResult.class);
+    return result.getTranslationResults();
+  }
 }
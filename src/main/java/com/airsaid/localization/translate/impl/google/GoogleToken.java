@@ -17,18 +17,32 @@
 
 package com.airsaid.localization.translate.impl.google;
 
+import com.airsaid.localization.translate.services.HttpTransportService;
 import com.airsaid.localization.translate.util.AgentUtil;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.util.Pair;
-import com.intellij.util.io.HttpRequests;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
+ * Generates the {@code tk} token of the Google translate requests.
+ * <p>
+ * The token is a hash of the UTF-8 bytes of the text, seeded with the TKK of the current hour, it is the
+ * same as the one of the {@code GetToken} script of the Google translate web page. The bytes are hashed
+ * while the text is encoded, so nothing but the returned string is allocated.
+ * <p>
+ * The TKK is fetched from Google and swapped in atomically. It is refreshed in the background an hour after
+ * it was fetched, as Google may serve the same TKK for far longer than the hour it names, and a fetched TKK
+ * is kept until the refresh succeeds. The translate requests never wait for it: until the first TKK arrived,
+ * a generated TKK of the current hour is used instead.
+ *
  * @author airsaid
  */
 public class GoogleToken {
@@ -36,108 +50,187 @@ public class GoogleToken {
   private static final Logger LOG = Logger.getInstance(GoogleToken.class);
 
   private static final int MIM = 60 * 60 * 1000;
-  private static final Random GENERATOR = new Random();
+  private static final long REFRESH_INTERVAL_MILLIS = 60 * 60 * 1000;
+  private static final long RETRY_DELAY_MILLIS = 60 * 1000;
+  private static final long UINT32_MASK = 0xFFFFFFFFL;
   private static final Pattern TKK_PATTERN = Pattern.compile("tkk='(\\d+).(-?\\d+)'");
   private static final String ELEMENT_URL = "%s/translate_a/element.js";
 
-  private static Pair<Long, Long> sInnerValue = Pair.create(0L, 0L);
-  private static boolean sNeedUpdate = true;
+  private static final AtomicReference<TKK> sTKK = new AtomicReference<>(new TKK(0, 0, 0, 0));
+  private static final AtomicBoolean sRefreshing = new AtomicBoolean();
+
+  /**
+   * An immutable TKK: the hour it was issued for, the key of the hour, when to fetch the next one
+   * and until when it may be used.
+   */
+  static final class TKK {
+    final long hour;
+    final long key;
+    final long refreshAtMillis;
+    final long expiresAtMillis;
+
+    TKK(long hour, long key, long refreshAtMillis, long expiresAtMillis) {
+      this.hour = hour;
+      this.key = key;
+      this.refreshAtMillis = refreshAtMillis;
+      this.expiresAtMillis = expiresAtMillis;
+    }
+
+    boolean isExpired(long nowMillis) {
+      return nowMillis >= expiresAtMillis;
+    }
+
+    @Override
+    public String toString() {
+      return hour + "." + key;
+    }
+  }
 
   public static String getToken(String text) {
-    return getToken(text, getDefaultTKK());
+    return getToken(text, HttpTransportService::getInstance);
+  }
+
+  /**
+   * Returns the token of the text, the TKK is refreshed with the given transport.
+   */
+  public static String getToken(@NotNull String text, @NotNull Supplier<HttpTransportService> transport) {
+    TKK tkk = getDefaultTKK(System.currentTimeMillis(), transport);
+    return getToken(text, tkk.hour, tkk.key);
   }
 
   public static String getToken(String text, Pair<Long, Long> tkk) {
+    return getToken(text, tkk.first, tkk.second);
+  }
+
+  /**
+   * Returns the token of the text.
+   *
+   * @param hour the first value of the TKK, the hour it was issued for.
+   * @param key  the second value of the TKK.
+   */
+  public static String getToken(@NotNull String text, long hour, long key) {
+    long a = hour;
     int length = text.length();
-    List<Long> a = new ArrayList<>();
-    int b = 0;
-    char[] ch = text.toCharArray();
-    while (b < length) {
-      int c = ch[b];
+    // hash the UTF-8 encoding of the text byte by byte
+    for (int b = 0; b < length; b++) {
+      int c = text.charAt(b);
       if (128 > c) {
-        a.add((long) c);
+        a = mixByte(a, c);
       } else {
         if (2048 > c) {
-          a.add((long) (c >> 6 | 192));
+          a = mixByte(a, c >> 6 | 192);
         } else {
-          if (55296 == (c & 64512) && b + 1 < length && 56320 == (ch[b + 1] & 64512)) {
-            c = 65536 + ((c & 1023) << 10) + (ch[++b] & 1023);
-            a.add((long) (c >> 18 | 240));
-            a.add((long) (c >> 12 & 63 | 128));
+          if (55296 == (c & 64512) && b + 1 < length && 56320 == (text.charAt(b + 1) & 64512)) {
+            c = 65536 + ((c & 1023) << 10) + (text.charAt(++b) & 1023);
+            a = mixByte(a, c >> 18 | 240);
+            a = mixByte(a, c >> 12 & 63 | 128);
           } else {
-            a.add((long) (c >> 12 | 224));
+            a = mixByte(a, c >> 12 | 224);
           }
-          a.add((long) (c >> 6 & 63 | 128));
+          a = mixByte(a, c >> 6 & 63 | 128);
         }
-        a.add((long) (c & 63 | 128));
+        a = mixByte(a, c & 63 | 128);
       }
-      b++;
     }
 
-    long d = tkk.first;
-    long e = tkk.second;
-    long f = d;
-    for (Long h : a) {
-      f += h;
-      f = fun(f, "+-a^+6");
-    }
+    // the "+-3^+b+-f" operations
+    a = a + (a << 3) & UINT32_MASK;
+    a = a ^ a >>> 11;
+    a = a + (a << 15) & UINT32_MASK;
+    // the script works on 32-bit integers and takes the result unsigned, a negative key included
+    a = (a ^ key) & UINT32_MASK;
+    a = a % 1_000_000;
 
-    f = fun(f, "+-3^+b+-f");
-    f = f ^ e;
-    if (0 > f) {
-      f = (f & Integer.MAX_VALUE) + Integer.MAX_VALUE + 1;
-    }
-    f = (long) (f % 1E6);
+    return a + "." + (a ^ hour);
+  }
 
-    return f + "." + (f ^ d);
+  /**
+   * Adds a byte to the hash with the "+-a^+6" operations.
+   */
+  private static long mixByte(long a, int b) {
+    a = a + b;
+    a = a + (a << 10) & UINT32_MASK;
+    return a ^ a >>> 6;
   }
 
-  private static Long fun(Long a, String b) {
-    long g = a;
-    char[] ch = b.toCharArray();
-    for (int c = 0; c < ch.length - 1; c += 3) {
-      char d = ch[c + 2];
-      int e = 'a' <= d ? (d - 87) : d - '0';
-      long f = '+' == ch[c + 1] ? g >>> e : g << e;
-      g = '+' == ch[c] ? g + f & ((long) Integer.MAX_VALUE * 2 + 1) : g ^ f;
-    }
-    return g;
+  /**
+   * Returns the TKK to use now, starts a background refresh if it's about to expire.
+   */
+  @NotNull
+  static TKK getDefaultTKK(long nowMillis) {
+    return getDefaultTKK(nowMillis, HttpTransportService::getInstance);
   }
 
-  private static Pair<Long, Long> getDefaultTKK() {
-    long now = System.currentTimeMillis() / MIM;
-    long curVal = sInnerValue.first;
-    if (!sNeedUpdate && now == curVal) {
-      return sInnerValue;
+  @NotNull
+  static TKK getDefaultTKK(long nowMillis, @NotNull Supplier<HttpTransportService> transport) {
+    TKK tkk = sTKK.get();
+    if (nowMillis >= tkk.refreshAtMillis) {
+      refreshAsync(transport);
+    }
+    if (tkk.isExpired(nowMillis)) {
+      // no TKK fetched yet, the generated one is replaced as soon as the refresh succeeds
+      long hour = nowMillis / MIM;
+      TKK generated = new TKK(hour, ThreadLocalRandom.current().nextInt() & Integer.MAX_VALUE, nowMillis,
+          (hour + 1) * MIM);
+      tkk = sTKK.compareAndSet(tkk, generated) ? generated : sTKK.get();
     }
+    return tkk;
+  }
 
-    Pair<Long, Long> newTKK = getTKKFromGoogle();
-    sNeedUpdate = newTKK == null;
-    sInnerValue = newTKK != null ? newTKK : Pair.create(now, Math.abs((long) GENERATOR.nextInt()) + (long) GENERATOR.nextInt());
+  /**
+   * Swap in a TKK fetched now.
+   */
+  static void setTKK(long hour, long key) {
+    setTKK(hour, key, System.currentTimeMillis());
+  }
 
-    return sInnerValue;
+  /**
+   * Swap in a fetched TKK, the next one is fetched an hour later. The hour of the TKK can't tell when
+   * it expires, so it is used until another one is fetched.
+   */
+  static void setTKK(long hour, long key, long fetchedAtMillis) {
+    TKK tkk = new TKK(hour, key, fetchedAtMillis + REFRESH_INTERVAL_MILLIS, Long.MAX_VALUE);
+    LOG.info("setTKK: " + tkk);
+    sTKK.set(tkk);
   }
 
-  private static Pair<Long, Long> getTKKFromGoogle() {
+  private static void refreshAsync(@NotNull Supplier<HttpTransportService> transportSupplier) {
+    if (!sRefreshing.compareAndSet(false, true)) return;
     try {
       String url = String.format(ELEMENT_URL, GoogleTranslator.HOST_URL);
-      LOG.info("getTKKFromGoogle url: " + url);
-      String elementJs = HttpRequests.request(url)
-          .userAgent(AgentUtil.getUserAgent())
-          .tuner(connection -> connection.setRequestProperty("Referer", GoogleTranslator.HOST_URL))
-          .readString();
-      Matcher matcher = TKK_PATTERN.matcher(elementJs);
-      if (matcher.find()) {
-        long value1 = Long.parseLong(matcher.group(1));
-        long value2 = Long.parseLong(matcher.group(2));
-        LOG.info(String.format("TKK: %d.%d", value1, value2));
-        return Pair.create(value1, value1);
-      }
-    } catch (Exception e) {
-      e.printStackTrace();
+      LOG.info("refreshAsync url: " + url);
+      HttpTransportService transport = transportSupplier.get();
+      transport.executeAsync(transport.newRequest(url)
+              .setHeader("User-Agent", AgentUtil.getUserAgent())
+              .setHeader("Referer", GoogleTranslator.HOST_URL)
+              .GET())
+          .whenComplete((elementJs, error) -> {
+            try {
+              if (error != null || !parseTKK(elementJs)) {
+                LOG.warn("TKK get failed.", error);
+                retryLater();
+              }
+            } finally {
+              sRefreshing.set(false);
+            }
+          });
+    } catch (RuntimeException e) {
       LOG.warn("TKK get failed.", e);
+      retryLater();
+      sRefreshing.set(false);
     }
-    return null;
   }
 
+  private static boolean parseTKK(@Nullable String elementJs) {
+    if (elementJs == null) return false;
+    Matcher matcher = TKK_PATTERN.matcher(elementJs);
+    if (!matcher.find()) return false;
+    setTKK(Long.parseLong(matcher.group(1)), Long.parseLong(matcher.group(2)));
+    return true;
+  }
+
+  private static void retryLater() {
+    long retryAtMillis = System.currentTimeMillis() + RETRY_DELAY_MILLIS;
+    sTKK.updateAndGet(tkk -> new TKK(tkk.hour, tkk.key, retryAtMillis, tkk.expiresAtMillis));
+  }
 }
@@ -22,9 +22,9 @@ import com.airsaid.localization.translate.util.AgentUtil;
 import com.airsaid.localization.translate.util.GsonUtil;
 import com.airsaid.localization.translate.util.UrlBuilder;
 import com.intellij.openapi.util.Pair;
-import com.intellij.util.io.RequestBuilder;
 import org.jetbrains.annotations.NotNull;
 
+import java.net.http.HttpRequest;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -67,7 +67,7 @@ public class GoogleTranslator extends AbsGoogleTranslator {
         .addQueryParameter("dj", "1") // json response with names
         .addQueryParameter("ie", "UTF-8") // input encoding
         .addQueryParameter("oe", "UTF-8") // output encoding
-        .addQueryParameter("tk", GoogleToken.getToken(text)) // translate token
+        .addQueryParameter("tk", GoogleToken.getToken(text, this::getTransport)) // translate token
         .build();
   }
 
@@ -79,14 +79,25 @@ public class GoogleTranslator extends AbsGoogleTranslator {
   }
 
   @Override
-  public void configureRequestBuilder(@NotNull RequestBuilder requestBuilder) {
-    requestBuilder.userAgent(AgentUtil.getUserAgent())
-        .tuner(connection -> connection.setRequestProperty("Referer", GoogleTranslator.HOST_URL));
+  public int getMaxConcurrentRequests() {
+    // the free endpoint blocks clients that send too many requests at once
+    return 2;
+  }
+
+  @Override
+  public double getRequestsPerSecond() {
+    return 2;
+  }
+
+  @Override
+  public void configureRequest(@NotNull HttpRequest.Builder requestBuilder) {
+    requestBuilder.setHeader("User-Agent", AgentUtil.getUserAgent())
+        .setHeader("Referer", GoogleTranslator.HOST_URL);
   }
 
   @Override
   public @NotNull String parsingResult(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull String text, @NotNull String resultText) {
-    LOG.info("parsingResult: " + resultText);
+    LOG.debug("parsingResult: " + resultText);
     GoogleTranslationResult googleTranslationResult = GsonUtil.getInstance().getGson().fromJson(resultText, GoogleTranslationResult.class);
     return googleTranslationResult.getTranslationResult();
   }
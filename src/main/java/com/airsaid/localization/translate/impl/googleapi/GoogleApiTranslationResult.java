@@ -4,6 +4,8 @@ import com.airsaid.localization.translate.TranslationResult;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * @author airsaid
@@ -21,6 +23,13 @@ public class GoogleApiTranslationResult implements TranslationResult {
     return data.translations[0].translatedText;
   }
 
+  @NotNull
+  public List<String> getTranslationResults() {
+    return Arrays.stream(data.translations)
+        .map(translation -> translation.translatedText)
+        .collect(Collectors.toList());
+  }
+
   @Override
   public String toString() {
     return "GoogleApiTranslationResult{" +
@@ -5,10 +5,10 @@ import com.airsaid.localization.translate.impl.google.AbsGoogleTranslator;
 import com.airsaid.localization.translate.lang.Lang;
 import com.airsaid.localization.translate.util.GsonUtil;
 import com.intellij.openapi.util.Pair;
-import com.intellij.util.io.RequestBuilder;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.net.http.HttpRequest;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -63,16 +63,61 @@ public class GoogleApiTranslator extends AbsGoogleTranslator {
   }
 
   @Override
-  public void configureRequestBuilder(@NotNull RequestBuilder requestBuilder) {
-    requestBuilder.tuner(connection -> connection.setRequestProperty("Referer", HOST_URL));
+  public int getMaxBatchSize() {
+    // the api accepts at most 128 text segments per request
+    return 128;
+  }
+
+  @Override
+  public double getRequestsPerSecond() {
+    return 10;
+  }
+
+  @Override
+  public int getCharactersPerMinute() {
+    // the default quota of a cloud project
+    return 6_000_000;
+  }
+
+  @Override
+  public @NotNull String getRequestUrl(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull List<String> texts) {
+    return TRANSLATE_URL;
+  }
+
+  @Override
+  public @NotNull List<Pair<String, String>> getRequestParams(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull List<String> texts) {
+    List<Pair<String, String>> params = new ArrayList<>();
+    for (String text : texts) {
+      params.add(Pair.create("q", text));
+    }
+    params.add(Pair.create("target", toLang.getTranslationCode()));
+    params.add(Pair.create("key", getAppKey()));
+    params.add(Pair.create("format", "text"));
+    return params;
+  }
+
+  @Override
+  public void configureRequest(@NotNull HttpRequest.Builder requestBuilder) {
+    requestBuilder.setHeader("Referer", HOST_URL);
   }
 
   @Override
   public @NotNull String parsingResult(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull String text, @NotNull String resultText) {
-    LOG.info("parsingResult: " + resultText);
+    LOG.debug("parsingResult: " + resultText);
+    return parseResult(fromLang, toLang, text, resultText).getTranslationResult();
+  }
+
+  @Override
+  public @NotNull List<String> parsingBatchResult(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull List<String> texts, @NotNull String resultText) {
+    LOG.debug("parsingBatchResult: " + resultText);
+    return parseResult(fromLang, toLang, texts.size() + " texts", resultText).getTranslationResults();
+  }
+
+  @NotNull
+  private GoogleApiTranslationResult parseResult(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull String text, @NotNull String resultText) {
     GoogleApiTranslationResult result = GsonUtil.getInstance().getGson().fromJson(resultText, GoogleApiTranslationResult.class);
     if (result.isSuccess()) {
-      return result.getTranslationResult();
+      return result;
     } else {
       String message;
       if (result.error != null) {
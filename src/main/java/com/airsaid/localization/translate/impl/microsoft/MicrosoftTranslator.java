@@ -22,17 +22,21 @@ import com.airsaid.localization.translate.lang.Lang;
 import com.airsaid.localization.translate.lang.Languages;
 import com.airsaid.localization.translate.util.GsonUtil;
 import com.airsaid.localization.translate.util.UrlBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.util.Pair;
-import com.intellij.util.io.RequestBuilder;
 import icons.PluginIcons;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
+import java.net.http.HttpRequest;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * @author airsaid
@@ -186,21 +190,78 @@ public class MicrosoftTranslator extends AbstractTranslator {
   @Override
   @NotNull
   public String getRequestBody(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull String text) {
-    return "[{\"Text\": \"" + text + "\"}]";
+    return toRequestBody(Collections.singletonList(text));
   }
 
   @Override
-  public void configureRequestBuilder(@NotNull RequestBuilder requestBuilder) {
-    requestBuilder.tuner(connection -> {
-      connection.setRequestProperty("Ocp-Apim-Subscription-Key", getAppKey());
-      connection.setRequestProperty("Content-type", "application/json");
-    });
+  public int getMaxBatchSize() {
+    // the array can have at most 1,000 elements
+    return 1000;
+  }
+
+  @Override
+  public int getMaxBatchBytes() {
+    // the entire text included in the request cannot exceed 50,000 characters, and a larger batch than
+    // the characters of a minute could never be sent by the rate limiter
+    return Math.min(50000, getCharactersPerMinute());
+  }
+
+  @Override
+  public double getRequestsPerSecond() {
+    return 10;
+  }
+
+  @Override
+  public int getCharactersPerMinute() {
+    // the free tier allows 2 million characters per hour
+    return 33_000;
+  }
+
+  @Override
+  public @NotNull String getRequestUrl(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull List<String> texts) {
+    return getRequestUrl(fromLang, toLang, texts.get(0));
+  }
+
+  @Override
+  public @NotNull List<Pair<String, String>> getRequestParams(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull List<String> texts) {
+    return Collections.emptyList();
+  }
+
+  @Override
+  public @NotNull String getRequestBody(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull List<String> texts) {
+    return toRequestBody(texts);
+  }
+
+  @NotNull
+  private String toRequestBody(@NotNull List<String> texts) {
+    JsonArray body = new JsonArray();
+    for (String text : texts) {
+      JsonObject item = new JsonObject();
+      item.addProperty("Text", text);
+      body.add(item);
+    }
+    return body.toString();
+  }
+
+  @Override
+  public void configureRequest(@NotNull HttpRequest.Builder requestBuilder) {
+    requestBuilder.setHeader("Ocp-Apim-Subscription-Key", getAppKey());
+    requestBuilder.setHeader("Content-type", "application/json");
   }
 
   @Override
   public @NotNull String parsingResult(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull String text, @NotNull String resultText) {
-    LOG.info("parsingResult: " + resultText);
+    LOG.debug("parsingResult: " + resultText);
     return GsonUtil.getInstance().getGson().fromJson(resultText, MicrosoftTranslationResult[].class)[0].getTranslationResult();
   }
 
+  @Override
+  public @NotNull List<String> parsingBatchResult(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull List<String> texts, @NotNull String resultText) {
+    LOG.debug("parsingBatchResult: " + resultText);
+    MicrosoftTranslationResult[] results = GsonUtil.getInstance().getGson().fromJson(resultText, MicrosoftTranslationResult[].class);
+    return Arrays.stream(results)
+        .map(MicrosoftTranslationResult::getTranslationResult)
+        .collect(Collectors.toList());
+  }
+
 }
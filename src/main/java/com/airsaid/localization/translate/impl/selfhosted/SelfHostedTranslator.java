@@ -0,0 +1,346 @@
+/*
+ * Copyright 2021 Airsaid. https://github.com/airsaid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.airsaid.localization.translate.impl.selfhosted;
+
+import com.airsaid.localization.translate.AbstractTranslator;
+import com.airsaid.localization.translate.ResultStreamParser;
+import com.airsaid.localization.translate.TranslationException;
+import com.airsaid.localization.translate.lang.Lang;
+import com.airsaid.localization.translate.lang.Languages;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.Pair;
+import com.intellij.openapi.util.text.StringUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Translates with a server on localhost or the LAN, the server url tells which API it speaks:
+ * <ul>
+ *   <li>{@code http://localhost:5000} - a LibreTranslate server, all texts of a batch are sent in one request.</li>
+ *   <li>{@code http://localhost:8080/v1/chat/completions?model=qwen2.5} - an OpenAI compatible chat completions
+ *   endpoint, eg: llama.cpp, vLLM or Ollama. The model is taken from the query of the url, the texts of a batch
+ *   are sent as one json message and the answer is streamed.</li>
+ * </ul>
+ * The API key is optional, it is sent as {@code api_key} to LibreTranslate and as bearer token to chat completions.
+ *
+ * @author airsaid
+ */
+public class SelfHostedTranslator extends AbstractTranslator {
+
+  private static final Logger LOG = Logger.getInstance(SelfHostedTranslator.class);
+
+  public static final String KEY = "SelfHosted";
+
+  private static final String TRANSLATE_PATH = "/translate";
+  private static final String CHAT_COMPLETIONS_PATH = "/chat/completions";
+  private static final String MODEL_PARAMETER = "model";
+  private static final String EVENT_DATA = "data:";
+  private static final String EVENT_DONE = "[DONE]";
+
+  private static final String SYSTEM_PROMPT = "You translate the strings of an Android app. "
+      + "The user sends a JSON object with the source language, the target language and the texts. "
+      + "Answer with a JSON array of the translated texts only, in the same order as the texts. "
+      + "Keep placeholders such as %s, %1$d and {name}, XML tags and escape sequences such as \\n unchanged.";
+
+  private List<Lang> supportedLanguages;
+
+  @Override
+  public @NotNull String getKey() {
+    return KEY;
+  }
+
+  @Override
+  public @NotNull String getName() {
+    return "Self-hosted";
+  }
+
+  @Override
+  public @NotNull List<Lang> getSupportedLanguages() {
+    if (supportedLanguages == null) {
+      supportedLanguages = new ArrayList<>();
+      for (Lang lang : Languages.getLanguages()) {
+        if (lang.equals(Languages.AUTO) || lang.equals(Languages.DEFAULT)) continue;
+        supportedLanguages.add(lang.setTranslationCode(getLanguageTag(lang)));
+      }
+    }
+    return supportedLanguages;
+  }
+
+  @NotNull
+  private static String getLanguageTag(@NotNull Lang lang) {
+    if (lang.equals(Languages.INDONESIAN)) return "id";
+    if (lang.equals(Languages.HEBREW)) return "he";
+    if (lang.equals(Languages.CHINESE_SIMPLIFIED)) return "zh-Hans";
+    if (lang.equals(Languages.CHINESE_TRADITIONAL) || lang.equals(Languages.CHINESE_TRADITIONAL_HK)) return "zh-Hant";
+    // the region of a resource qualifier starts with an 'r', eg: pt-rBR
+    return lang.getCode().replace("-r", "-");
+  }
+
+  @Override
+  public String getAppIdDisplay() {
+    return "Server URL";
+  }
+
+  @Override
+  public String getAppKeyDisplay() {
+    return "API Key";
+  }
+
+  @Override
+  public boolean isAppKeyOptional() {
+    return true;
+  }
+
+  @Override
+  public int getMaxBatchSize() {
+    return 50;
+  }
+
+  @Override
+  public double getRequestsPerSecond() {
+    // the server has no quota, it is only limited by the concurrent requests
+    return 50;
+  }
+
+  @Override
+  public @NotNull String getRequestUrl(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull String text) {
+    URI serverUri = getServerUri(fromLang, toLang, text);
+    if (isChatCompletions(serverUri)) {
+      // the query only carries the model
+      String url = serverUri.toString();
+      int queryIndex = url.indexOf('?');
+      return queryIndex < 0 ? url : url.substring(0, queryIndex);
+    }
+    // the endpoint is appended to the path, a query of the server url stays after it
+    String path = serverUri.getRawPath() != null ? trimSlash(serverUri.getRawPath()) : "";
+    String url = serverUri.getScheme() + "://" + serverUri.getRawAuthority()
+        + (path.endsWith(TRANSLATE_PATH) ? path : path.concat(TRANSLATE_PATH));
+    return serverUri.getRawQuery() == null ? url : url + "?" + serverUri.getRawQuery();
+  }
+
+  @Override
+  public @NotNull List<Pair<String, String>> getRequestParams(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull String text) {
+    return Collections.emptyList();
+  }
+
+  @Override
+  public @NotNull String getRequestBody(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull String text) {
+    return toRequestBody(fromLang, toLang, Collections.singletonList(text), false);
+  }
+
+  @Override
+  public @NotNull String getRequestUrl(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull List<String> texts) {
+    return getRequestUrl(fromLang, toLang, texts.get(0));
+  }
+
+  @Override
+  public @NotNull List<Pair<String, String>> getRequestParams(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull List<String> texts) {
+    return Collections.emptyList();
+  }
+
+  @Override
+  public @NotNull String getRequestBody(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull List<String> texts) {
+    return toRequestBody(fromLang, toLang, texts, true);
+  }
+
+  @NotNull
+  private String toRequestBody(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull List<String> texts, boolean isStream) {
+    JsonArray textArray = new JsonArray();
+    for (String text : texts) {
+      textArray.add(text);
+    }
+    URI serverUri = getServerUri(fromLang, toLang, texts.get(0));
+    JsonObject body = new JsonObject();
+    if (isChatCompletions(serverUri)) {
+      JsonObject content = new JsonObject();
+      content.addProperty("source", fromLang.getTranslationCode());
+      content.addProperty("target", toLang.getTranslationCode());
+      content.add("texts", textArray);
+      JsonArray messages = new JsonArray();
+      messages.add(newMessage("system", SYSTEM_PROMPT));
+      messages.add(newMessage("user", content.toString()));
+
+      String model = getModel(serverUri);
+      if (model != null) body.addProperty("model", model);
+      body.add("messages", messages);
+      body.addProperty("temperature", 0);
+      body.addProperty("stream", isStream);
+    } else {
+      body.add("q", textArray);
+      body.addProperty("source", fromLang.getTranslationCode());
+      body.addProperty("target", toLang.getTranslationCode());
+      body.addProperty("format", "text");
+      String appKey = getAppKey();
+      if (!StringUtil.isEmpty(appKey)) body.addProperty("api_key", appKey);
+    }
+    return body.toString();
+  }
+
+  @NotNull
+  private static JsonObject newMessage(@NotNull String role, @NotNull String content) {
+    JsonObject message = new JsonObject();
+    message.addProperty("role", role);
+    message.addProperty("content", content);
+    return message;
+  }
+
+  @Override
+  public void configureRequest(@NotNull HttpRequest.Builder requestBuilder) {
+    requestBuilder.setHeader("Content-Type", "application/json");
+    String appKey = getAppKey();
+    if (!StringUtil.isEmpty(appKey)) {
+      requestBuilder.setHeader("Authorization", "Bearer " + appKey);
+    }
+  }
+
+  @Override
+  public @NotNull String parsingResult(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull String text, @NotNull String resultText) {
+    return parsingBatchResult(fromLang, toLang, Collections.singletonList(text), resultText).get(0);
+  }
+
+  @Override
+  public @NotNull List<String> parsingBatchResult(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull List<String> texts, @NotNull String resultText) {
+    LOG.debug("parsingBatchResult: " + resultText);
+    JsonObject result = JsonParser.parseString(resultText).getAsJsonObject();
+    if (result.has("choices")) {
+      JsonObject message = getFirstChoice(result).getAsJsonObject("message");
+      return parseTranslations(message.get("content").getAsString());
+    }
+    JsonElement translatedText = result.get("translatedText");
+    if (translatedText.isJsonArray()) {
+      return toStrings(translatedText.getAsJsonArray());
+    }
+    return Collections.singletonList(translatedText.getAsString());
+  }
+
+  /**
+   * The answer of chat completions is streamed as server-sent events, the content of their deltas
+   * is joined to the json array of the translations.
+   */
+  @Override
+  public @Nullable ResultStreamParser<List<String>> newBatchResultStreamParser(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull List<String> texts) {
+    if (!isChatCompletions(getServerUri(fromLang, toLang, texts.get(0)))) {
+      return null;
+    }
+    return new ChatCompletionStreamParser();
+  }
+
+  private static class ChatCompletionStreamParser implements ResultStreamParser<List<String>> {
+    private final StringBuilder content = new StringBuilder();
+    // servers that ignore the stream flag answer with a single json object
+    private final StringBuilder body = new StringBuilder();
+    private boolean isEventStream;
+
+    @Override
+    public void onLine(@NotNull String line) {
+      if (line.startsWith(EVENT_DATA)) {
+        isEventStream = true;
+        String data = line.substring(EVENT_DATA.length()).trim();
+        if (data.isEmpty() || EVENT_DONE.equals(data)) return;
+        JsonObject delta = getFirstChoice(JsonParser.parseString(data).getAsJsonObject()).getAsJsonObject("delta");
+        JsonElement deltaContent = delta != null ? delta.get("content") : null;
+        if (deltaContent != null && !deltaContent.isJsonNull()) {
+          content.append(deltaContent.getAsString());
+        }
+      } else if (!isEventStream) {
+        body.append(line).append('\n');
+      }
+    }
+
+    @Override
+    public @NotNull List<String> getResult() {
+      if (isEventStream) {
+        return parseTranslations(content.toString());
+      }
+      JsonObject message = getFirstChoice(JsonParser.parseString(body.toString()).getAsJsonObject()).getAsJsonObject("message");
+      return parseTranslations(message.get("content").getAsString());
+    }
+  }
+
+  @NotNull
+  private static JsonObject getFirstChoice(@NotNull JsonObject completion) {
+    return completion.getAsJsonArray("choices").get(0).getAsJsonObject();
+  }
+
+  /**
+   * Parse the json array of the translations from the content of a completion, models
+   * sometimes put it into a code block.
+   */
+  @NotNull
+  private static List<String> parseTranslations(@NotNull String content) {
+    int start = content.indexOf('[');
+    int end = content.lastIndexOf(']');
+    if (start < 0 || end < start) {
+      throw new IllegalStateException("No translations in: " + content);
+    }
+    return toStrings(JsonParser.parseString(content.substring(start, end + 1)).getAsJsonArray());
+  }
+
+  @NotNull
+  private static List<String> toStrings(@NotNull JsonArray array) {
+    List<String> strings = new ArrayList<>(array.size());
+    for (JsonElement element : array) {
+      strings.add(element.getAsString());
+    }
+    return strings;
+  }
+
+  @NotNull
+  private URI getServerUri(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull String text) {
+    String serverUrl = getAppId();
+    if (StringUtil.isEmpty(serverUrl)) {
+      throw new TranslationException(fromLang, toLang, text, getAppIdDisplay() + " not configured");
+    }
+    return URI.create(serverUrl.trim());
+  }
+
+  private static boolean isChatCompletions(@NotNull URI serverUri) {
+    String path = serverUri.getPath();
+    return path != null && trimSlash(path).endsWith(CHAT_COMPLETIONS_PATH);
+  }
+
+  @NotNull
+  private static String trimSlash(@NotNull String url) {
+    return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+  }
+
+  @Nullable
+  private static String getModel(@NotNull URI serverUri) {
+    String query = serverUri.getRawQuery();
+    if (query == null) return null;
+    for (String parameter : query.split("&")) {
+      String[] pair = parameter.split("=", 2);
+      if (pair.length == 2 && MODEL_PARAMETER.equals(pair[0])) {
+        return URLDecoder.decode(pair[1], StandardCharsets.UTF_8);
+      }
+    }
+    return null;
+  }
+}
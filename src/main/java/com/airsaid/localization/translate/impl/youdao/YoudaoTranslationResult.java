@@ -23,6 +23,7 @@ import org.jetbrains.annotations.NotNull;
 
 import java.util.List;
 import java.util.Objects;
+import java.util.stream.Collectors;
 
 /**
  * @author airsaid
@@ -31,6 +32,8 @@ public class YoudaoTranslationResult implements TranslationResult {
   private String requestId;
   private String errorCode;
   private List<String> translation;
+  // only returned by the batch api
+  private List<TranslateResult> translateResults;
 
   public String getRequestId() {
     return requestId;
@@ -56,6 +59,14 @@ public class YoudaoTranslationResult implements TranslationResult {
     this.translation = translation;
   }
 
+  public List<TranslateResult> getTranslateResults() {
+    return translateResults;
+  }
+
+  public void setTranslateResults(List<TranslateResult> translateResults) {
+    this.translateResults = translateResults;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) return true;
@@ -84,12 +95,53 @@ public class YoudaoTranslationResult implements TranslationResult {
     return "";
   }
 
+  @NotNull
+  public List<String> getTranslationResults() {
+    List<TranslateResult> translateResults = getTranslateResults();
+    if (translateResults == null) {
+      return List.of();
+    }
+    return translateResults.stream()
+        .map(result -> result.getTranslation() != null ? result.getTranslation() : "")
+        .collect(Collectors.toList());
+  }
+
   @Override
   public String toString() {
     return "YoudaoTranslationResult{" +
         "requestId='" + requestId + '\'' +
         ", errorCode='" + errorCode + '\'' +
         ", translation=" + translation +
+        ", translateResults=" + translateResults +
         '}';
   }
+
+  public static class TranslateResult {
+    private String query;
+    private String translation;
+
+    public String getQuery() {
+      return query;
+    }
+
+    public void setQuery(String query) {
+      this.query = query;
+    }
+
+    public String getTranslation() {
+      return translation;
+    }
+
+    public void setTranslation(String translation) {
+      this.translation = translation;
+    }
+
+    @Override
+    public String toString() {
+      return "TranslateResult{" +
+          "query='" + query + '\'' +
+          ", translation='" + translation + '\'' +
+          '}';
+    }
+  }
 }
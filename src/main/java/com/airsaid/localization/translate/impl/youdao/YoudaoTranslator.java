@@ -23,12 +23,12 @@ import com.airsaid.localization.translate.lang.Lang;
 import com.airsaid.localization.translate.lang.Languages;
 import com.airsaid.localization.translate.util.GsonUtil;
 import com.intellij.openapi.util.Pair;
-import com.intellij.util.io.RequestBuilder;
 import icons.PluginIcons;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
+import java.net.http.HttpRequest;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -44,6 +44,7 @@ public class YoudaoTranslator extends AbstractTranslator {
   private static final String KEY = "Youdao";
   private static final String HOST_URL = "https://openapi.youdao.com";
   private static final String TRANSLATE_URL = HOST_URL.concat("/api");
+  private static final String BATCH_TRANSLATE_URL = HOST_URL.concat("/v2/api");
   private static final String APPLY_APP_ID_URL = "https://ai.youdao.com/DOCSIRMA/html/%E8%87%AA%E7%84%B6%E8%AF%AD%E8%A8%80%E7%BF%BB%E8%AF%91/API%E6%96%87%E6%A1%A3/%E6%96%87%E6%9C%AC%E7%BF%BB%E8%AF%91%E6%9C%8D%E5%8A%A1/%E6%96%87%E6%9C%AC%E7%BF%BB%E8%AF%91%E6%9C%8D%E5%8A%A1-API%E6%96%87%E6%A1%A3.html";
 
   private List<Lang> supportedLanguages;
@@ -225,13 +226,45 @@ public class YoudaoTranslator extends AbstractTranslator {
   }
 
   @Override
-  public void configureRequestBuilder(@NotNull RequestBuilder requestBuilder) {
-    requestBuilder.tuner(connection -> connection.setRequestProperty("Referer", HOST_URL));
+  public int getMaxBatchSize() {
+    return 50;
+  }
+
+  @Override
+  public @NotNull String getRequestUrl(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull List<String> texts) {
+    return BATCH_TRANSLATE_URL;
+  }
+
+  @Override
+  public @NotNull List<Pair<String, String>> getRequestParams(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull List<String> texts) {
+    String salt = String.valueOf(System.currentTimeMillis());
+    String curTime = String.valueOf(System.currentTimeMillis() / 1000);
+    String appId = getAppId();
+    String appKey = getAppKey();
+    // the batch api signs the concatenation of all texts
+    String sign = getDigest(appId + truncate(String.join("", texts)) + salt + curTime + appKey);
+    List<Pair<String, String>> params = new ArrayList<>();
+    params.add(Pair.create("from", fromLang.getTranslationCode()));
+    params.add(Pair.create("to", toLang.getTranslationCode()));
+    params.add(Pair.create("signType", "v3"));
+    params.add(Pair.create("curtime", curTime));
+    params.add(Pair.create("appKey", appId));
+    params.add(Pair.create("salt", salt));
+    params.add(Pair.create("sign", sign));
+    for (String text : texts) {
+      params.add(Pair.create("q", text));
+    }
+    return params;
+  }
+
+  @Override
+  public void configureRequest(@NotNull HttpRequest.Builder requestBuilder) {
+    requestBuilder.setHeader("Referer", HOST_URL);
   }
 
   @Override
   public @NotNull String parsingResult(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull String text, @NotNull String resultText) {
-    LOG.info("parsingResult: " + resultText);
+    LOG.debug("parsingResult: " + resultText);
     YoudaoTranslationResult translationResult = GsonUtil.getInstance().getGson().fromJson(resultText, YoudaoTranslationResult.class);
     if (translationResult.isSuccess()) {
       return translationResult.getTranslationResult();
@@ -239,4 +272,15 @@ public class YoudaoTranslator extends AbstractTranslator {
       throw new TranslationException(fromLang, toLang, text, translationResult.getErrorCode());
     }
   }
+
+  @Override
+  public @NotNull List<String> parsingBatchResult(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull List<String> texts, @NotNull String resultText) {
+    LOG.debug("parsingBatchResult: " + resultText);
+    YoudaoTranslationResult translationResult = GsonUtil.getInstance().getGson().fromJson(resultText, YoudaoTranslationResult.class);
+    if (translationResult.isSuccess()) {
+      return translationResult.getTranslationResults();
+    } else {
+      throw new TranslationException(fromLang, toLang, texts.size() + " texts", translationResult.getErrorCode());
+    }
+  }
 }
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2021 Airsaid. https://github.com/airsaid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.airsaid.localization.translate.services;
+
+import com.airsaid.localization.translate.lang.Lang;
+import com.airsaid.localization.translate.util.MurmurHash3;
+import com.airsaid.localization.translate.util.TranslationMemoryStore;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The key of a cached translation: the ids of the language pair and the 128-bit hash of the text.
+ * <p>
+ * The key refers to the source text instead of copying it into a concatenated string, the text
+ * is only compared to verify a match once the ids and the hash are equal. The ids are mixed into
+ * the hash, so the same text of two language pairs has two hashes and the hash alone indexes the
+ * {@link TranslationMemoryStore}.
+ *
+ * @author airsaid
+ */
+public final class CacheKey implements TranslationMemoryStore.Key {
+
+  private final int fromId;
+  private final int toId;
+  private final long hash1;
+  private final long hash2;
+  private final String text;
+
+  public CacheKey(int fromId, int toId, @NotNull String text) {
+    this.fromId = fromId;
+    this.toId = toId;
+    this.text = text;
+    long[] hash = MurmurHash3.hash128(text, 0);
+    // the multiplier is odd, so distinct pairs are mixed into distinct values
+    this.hash1 = hash[0] ^ (((long) fromId << 32 | (toId & 0xFFFFFFFFL)) * 0x9E3779B97F4A7C15L);
+    this.hash2 = hash[1];
+  }
+
+  @NotNull
+  public static CacheKey of(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull String text) {
+    return new CacheKey(fromLang.getId(), toLang.getId(), text);
+  }
+
+  @Override
+  public int getFromId() {
+    return fromId;
+  }
+
+  @Override
+  public int getToId() {
+    return toId;
+  }
+
+  @Override
+  @NotNull
+  public String getText() {
+    return text;
+  }
+
+  @Override
+  public long getHash1() {
+    return hash1;
+  }
+
+  @Override
+  public long getHash2() {
+    return hash2;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof CacheKey)) return false;
+    CacheKey cacheKey = (CacheKey) o;
+    return fromId == cacheKey.fromId && toId == cacheKey.toId
+        && hash1 == cacheKey.hash1 && hash2 == cacheKey.hash2
+        && text.equals(cacheKey.text);
+  }
+
+  @Override
+  public int hashCode() {
+    return (int) (hash1 ^ (hash1 >>> 32)) * 31 + (fromId << 16 ^ toId);
+  }
+
+  @Override
+  public String toString() {
+    return "CacheKey{" +
+        "fromId=" + fromId +
+        ", toId=" + toId +
+        ", text='" + text + '\'' +
+        '}';
+  }
+}
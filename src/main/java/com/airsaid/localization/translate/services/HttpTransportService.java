@@ -0,0 +1,417 @@
+/*
+ * Copyright 2021 Airsaid. https://github.com/airsaid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.airsaid.localization.translate.services;
+
+import com.airsaid.localization.translate.util.HostMetrics;
+import com.airsaid.localization.translate.util.HttpStatusException;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.net.HttpConfigurable;
+import com.intellij.util.net.IdeaWideAuthenticator;
+import com.intellij.util.net.ssl.CertificateManager;
+import com.intellij.util.proxy.CommonProxy;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.net.ssl.SSLContext;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.Authenticator;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The HTTP transport shared by all translators.
+ * <p>
+ * Every host gets its own {@link HttpClient}, which keeps its connections alive between requests, so
+ * the TCP and TLS handshakes are paid once per connection instead of once per string. HTTPS hosts are
+ * asked for HTTP/2 and then multiplex all requests over one connection, servers without HTTP/2 fall back
+ * to HTTP/1.1 during the handshake. Responses are requested with gzip or deflate compression.
+ * <p>
+ * The clients use the proxy, the proxy credentials and the trusted certificates of the IDE. The counters
+ * of each host are available from {@link #getMetrics()}.
+ *
+ * @author airsaid
+ */
+@Service
+public final class HttpTransportService {
+
+  private static final Logger LOG = Logger.getInstance(HttpTransportService.class);
+
+  public static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 10_000;
+  public static final int DEFAULT_READ_TIMEOUT_MILLIS = 30_000;
+
+  private static final String ACCEPT_ENCODING = "gzip, deflate";
+
+  private final ProxySelector proxySelector;
+  private final Authenticator authenticator;
+  private final SSLContext sslContext;
+  private final Map<String, HttpClient> clients = new ConcurrentHashMap<>();
+  private final Map<String, HostMetrics> metrics = new ConcurrentHashMap<>();
+
+  private volatile int connectTimeoutMillis = DEFAULT_CONNECT_TIMEOUT_MILLIS;
+  private volatile int readTimeoutMillis = DEFAULT_READ_TIMEOUT_MILLIS;
+  private volatile boolean isHttp2Enabled = true;
+
+  public HttpTransportService() {
+    this(CommonProxy.getInstance(), new IdeaWideAuthenticator(HttpConfigurable.getInstance()),
+        CertificateManager.getInstance().getSslContext());
+  }
+
+  /**
+   * @param proxySelector the proxies, or null to connect directly.
+   * @param sslContext    the trusted certificates, or null for the ones of the JDK.
+   */
+  public HttpTransportService(@Nullable ProxySelector proxySelector, @Nullable SSLContext sslContext) {
+    this(proxySelector, null, sslContext);
+  }
+
+  /**
+   * @param proxySelector the proxies, or null to connect directly.
+   * @param authenticator the credentials of the proxies, or null if they need none.
+   * @param sslContext    the trusted certificates, or null for the ones of the JDK.
+   */
+  public HttpTransportService(@Nullable ProxySelector proxySelector, @Nullable Authenticator authenticator,
+                              @Nullable SSLContext sslContext) {
+    this.proxySelector = proxySelector;
+    this.authenticator = authenticator;
+    this.sslContext = sslContext;
+  }
+
+  public static HttpTransportService getInstance() {
+    return ServiceManager.getService(HttpTransportService.class);
+  }
+
+  /**
+   * Create a request with the read timeout, the method, body and headers are up to the caller.
+   */
+  @NotNull
+  public HttpRequest.Builder newRequest(@NotNull String url) {
+    return HttpRequest.newBuilder(URI.create(url))
+        .timeout(Duration.ofMillis(readTimeoutMillis));
+  }
+
+  /**
+   * Send the request with the client of its host and read the whole response body as text,
+   * which leaves the connection ready for the next request.
+   *
+   * @throws HttpStatusException if the server responded with an error status code.
+   * @throws IOException         if the request failed or timed out.
+   */
+  @NotNull
+  public String execute(@NotNull HttpRequest.Builder requestBuilder) throws IOException {
+    HttpRequest request = buildRequest(requestBuilder);
+    HostMetrics hostMetrics = getHostMetrics(request);
+    long startTime = System.nanoTime();
+    HttpResponse<byte[]> response;
+    try {
+      response = getClient(request).send(request, HttpResponse.BodyHandlers.ofByteArray());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      hostMetrics.recordFailure(System.nanoTime() - startTime);
+      throw new InterruptedIOException("Request interrupted: " + request.uri());
+    } catch (IOException e) {
+      hostMetrics.recordFailure(System.nanoTime() - startTime);
+      throw e;
+    }
+    return readResponse(response, hostMetrics, startTime);
+  }
+
+  /**
+   * Send the request without blocking the calling thread, the response is read by the
+   * selector thread of the client, so any number of requests can be in flight.
+   *
+   * @return the future of the response body, it completes exceptionally with a {@link HttpStatusException}
+   * if the server responded with an error status code, or another {@link IOException} if the request failed.
+   */
+  @NotNull
+  public CompletableFuture<String> executeAsync(@NotNull HttpRequest.Builder requestBuilder) {
+    HttpRequest request = buildRequest(requestBuilder);
+    HostMetrics hostMetrics = getHostMetrics(request);
+    long startTime = System.nanoTime();
+    return getClient(request).sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+        .handle((response, error) -> {
+          try {
+            if (error != null) {
+              hostMetrics.recordFailure(System.nanoTime() - startTime);
+              Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+              throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+            }
+            return readResponse(response, hostMetrics, startTime);
+          } catch (IOException e) {
+            throw new CompletionException(e);
+          }
+        });
+  }
+
+  /**
+   * Send the request without blocking and hand the lines of the response body to the consumer as they arrive,
+   * eg: the server-sent events of a streaming response, so the body is never held in memory as a whole.
+   * <p>
+   * Streamed responses are requested without compression, the lines are read by the selector thread of
+   * the client, so the consumer must not block. If the consumer throws, the remaining lines are skipped
+   * and the future completes exceptionally with the thrown exception.
+   *
+   * @return the future that completes once the whole body was read, it completes exceptionally with a
+   * {@link HttpStatusException} if the server responded with an error status code, or another
+   * {@link IOException} if the request failed.
+   */
+  @NotNull
+  public CompletableFuture<Void> executeStreamAsync(@NotNull HttpRequest.Builder requestBuilder,
+                                                    @NotNull Consumer<String> lineConsumer) {
+    HttpRequest request = requestBuilder.setHeader("Accept-Encoding", "identity").build();
+    HostMetrics hostMetrics = getHostMetrics(request);
+    long startTime = System.nanoTime();
+    LineSubscriber subscriber = new LineSubscriber(lineConsumer);
+    HttpResponse.BodyHandler<Void> bodyHandler = responseInfo -> {
+      if (responseInfo.statusCode() >= 400) {
+        // the body of an error is read as a whole, it explains the error in the exception
+        return HttpResponse.BodySubscribers.mapping(
+            HttpResponse.BodySubscribers.ofString(getCharset(responseInfo.headers())), body -> {
+              subscriber.errorBody = body;
+              return null;
+            });
+      }
+      subscriber.charset = getCharset(responseInfo.headers());
+      return HttpResponse.BodySubscribers.fromLineSubscriber(subscriber, s -> null, subscriber.charset, null);
+    };
+    return getClient(request).sendAsync(request, bodyHandler)
+        .handle((response, error) -> {
+          try {
+            if (error != null) {
+              hostMetrics.recordFailure(System.nanoTime() - startTime);
+              Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+              throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+            }
+            hostMetrics.recordResponse(response.statusCode(), response.version() == HttpClient.Version.HTTP_2,
+                false, subscriber.bytes, subscriber.bytes, System.nanoTime() - startTime,
+                response.sslSession().orElse(null));
+            HttpStatusException.check(response, subscriber.errorBody);
+          } catch (IOException e) {
+            throw new CompletionException(e);
+          }
+          if (subscriber.error != null) {
+            throw subscriber.error instanceof CompletionException
+                ? (CompletionException) subscriber.error : new CompletionException(subscriber.error);
+          }
+          return null;
+        });
+  }
+
+  /**
+   * Hands the lines of a streamed body to the consumer and counts their bytes.
+   */
+  private static class LineSubscriber implements Flow.Subscriber<String> {
+    private final Consumer<String> lineConsumer;
+    private volatile Charset charset = StandardCharsets.UTF_8;
+    private volatile long bytes;
+    private volatile RuntimeException error;
+    private volatile String errorBody;
+
+    LineSubscriber(@NotNull Consumer<String> lineConsumer) {
+      this.lineConsumer = lineConsumer;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(String line) {
+      // the lines arrive one after another, so the fields are only written by one thread at a time
+      bytes += line.getBytes(charset).length + 1;
+      if (error != null) return;
+      try {
+        lineConsumer.accept(line);
+      } catch (RuntimeException e) {
+        // the body is still read to the end, which leaves the connection ready for the next request
+        error = e;
+      }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      // the error completes the future of the response
+    }
+
+    @Override
+    public void onComplete() {
+    }
+  }
+
+  @NotNull
+  private static HttpRequest buildRequest(@NotNull HttpRequest.Builder requestBuilder) {
+    // the transport decides on the compression, it can only decode gzip and deflate
+    return requestBuilder.setHeader("Accept-Encoding", ACCEPT_ENCODING).build();
+  }
+
+  @NotNull
+  private HttpClient getClient(@NotNull HttpRequest request) {
+    return clients.computeIfAbsent(getHostKey(request.uri()), key -> createClient(request.uri()));
+  }
+
+  @NotNull
+  private HostMetrics getHostMetrics(@NotNull HttpRequest request) {
+    return metrics.computeIfAbsent(getHostKey(request.uri()), HostMetrics::new);
+  }
+
+  @NotNull
+  private static String readResponse(@NotNull HttpResponse<byte[]> response, @NotNull HostMetrics hostMetrics,
+                                     long startTime) throws IOException {
+    byte[] body = response.body();
+    String contentEncoding = response.headers().firstValue("Content-Encoding").orElse("").trim().toLowerCase(Locale.ROOT);
+    byte[] decodedBody = decode(body, contentEncoding);
+    hostMetrics.recordResponse(response.statusCode(), response.version() == HttpClient.Version.HTTP_2,
+        !contentEncoding.isEmpty() && !"identity".equals(contentEncoding), body.length, decodedBody.length,
+        System.nanoTime() - startTime, response.sslSession().orElse(null));
+
+    String text = new String(decodedBody, getCharset(response.headers()));
+    HttpStatusException.check(response, text);
+    return text;
+  }
+
+  /**
+   * Returns the counters of all hosts, sorted by host.
+   */
+  @NotNull
+  public Map<String, HostMetrics> getMetrics() {
+    return new TreeMap<>(metrics);
+  }
+
+  /**
+   * Start counting from scratch, the connections that are kept alive are counted again on their next request.
+   */
+  public void resetMetrics() {
+    metrics.clear();
+  }
+
+  /**
+   * Set the timeouts, the clients of the hosts are created again with the new connect timeout.
+   */
+  public void setTimeouts(int connectTimeoutMillis, int readTimeoutMillis) {
+    if (connectTimeoutMillis <= 0 || readTimeoutMillis <= 0) {
+      throw new IllegalArgumentException("Timeouts must be positive");
+    }
+    if (this.connectTimeoutMillis != connectTimeoutMillis) {
+      this.connectTimeoutMillis = connectTimeoutMillis;
+      clearClients();
+    }
+    this.readTimeoutMillis = readTimeoutMillis;
+  }
+
+  /**
+   * Enable or disable HTTP/2 for HTTPS hosts, the clients of the hosts are created again.
+   */
+  public void setHttp2Enabled(boolean isHttp2Enabled) {
+    if (this.isHttp2Enabled != isHttp2Enabled) {
+      this.isHttp2Enabled = isHttp2Enabled;
+      clearClients();
+    }
+  }
+
+  /**
+   * Drop the clients, the next request of each host creates a new one.
+   * <p>
+   * The dropped clients are left for the GC rather than shut down: a {@link HttpClient} of Java 11 cannot be
+   * closed and requests may still be in flight on them. Their selector threads stop once the clients are
+   * unreachable and the threads of their default executors stop after being idle for a while.
+   */
+  private void clearClients() {
+    clients.clear();
+  }
+
+  @NotNull
+  private HttpClient createClient(@NotNull URI uri) {
+    boolean isSecure = "https".equalsIgnoreCase(uri.getScheme());
+    // plain HTTP stays on HTTP/1.1, the upgrade to cleartext HTTP/2 confuses some servers
+    HttpClient.Version version = isSecure && isHttp2Enabled ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1;
+    LOG.info("createClient host: " + getHostKey(uri) + ", version: " + version);
+    HttpClient.Builder builder = HttpClient.newBuilder()
+        .version(version)
+        .connectTimeout(Duration.ofMillis(connectTimeoutMillis))
+        .followRedirects(HttpClient.Redirect.NORMAL);
+    if (proxySelector != null) builder.proxy(proxySelector);
+    if (authenticator != null) builder.authenticator(authenticator);
+    if (sslContext != null) builder.sslContext(sslContext);
+    return builder.build();
+  }
+
+  @NotNull
+  private static String getHostKey(@NotNull URI uri) {
+    String scheme = uri.getScheme() != null ? uri.getScheme().toLowerCase(Locale.ROOT) : "http";
+    String host = uri.getHost() != null ? uri.getHost().toLowerCase(Locale.ROOT) : "";
+    return uri.getPort() < 0 ? scheme + "://" + host : scheme + "://" + host + ":" + uri.getPort();
+  }
+
+  @NotNull
+  private static byte[] decode(@NotNull byte[] body, @NotNull String contentEncoding) throws IOException {
+    if (body.length == 0) return body;
+    InputStream is;
+    switch (contentEncoding) {
+      case "gzip":
+      case "x-gzip":
+        is = new GZIPInputStream(new ByteArrayInputStream(body));
+        break;
+      case "deflate":
+        is = new InflaterInputStream(new ByteArrayInputStream(body));
+        break;
+      default:
+        return body;
+    }
+    try (InputStream decoded = is) {
+      return decoded.readAllBytes();
+    }
+  }
+
+  @NotNull
+  private static Charset getCharset(@NotNull HttpHeaders headers) {
+    String contentType = headers.firstValue("Content-Type").orElse("");
+    for (String parameter : contentType.split(";")) {
+      String[] pair = parameter.trim().split("=", 2);
+      if (pair.length == 2 && "charset".equalsIgnoreCase(pair[0].trim())) {
+        try {
+          return Charset.forName(pair[1].trim().replace("\"", ""));
+        } catch (IllegalArgumentException e) {
+          LOG.warn("Unsupported charset: " + pair[1]);
+        }
+      }
+    }
+    return StandardCharsets.UTF_8;
+  }
+}
@@ -17,93 +17,201 @@
 
 package com.airsaid.localization.translate.services;
 
-import com.airsaid.localization.translate.util.GsonUtil;
 import com.airsaid.localization.translate.util.LRUCache;
-import com.google.gson.reflect.TypeToken;
+import com.airsaid.localization.translate.util.TranslationMemoryStore;
 import com.intellij.openapi.Disposable;
-import com.intellij.openapi.components.*;
-import com.intellij.util.xmlb.Converter;
-import com.intellij.util.xmlb.XmlSerializerUtil;
-import com.intellij.util.xmlb.annotations.OptionTag;
-import com.intellij.util.xmlb.annotations.Transient;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.diagnostic.Logger;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.lang.reflect.Type;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Cache the translated text to local disk.
  * <p>
- * The maximum number of caches is set by the {@link #setMaxCacheSize(int)} method,
- * if exceed this size, remove old data through the LRU algorithm.
+ * All translations are kept in a {@link TranslationMemoryStore} in the system directory of the IDE,
+ * or in the given directory outside of it. The store is opened on first use and writes every new
+ * translation as it arrives. The most recently used translations are also kept in memory, the maximum
+ * number of them is set by the {@link #setMaxCacheSize(int)} method, if exceed this size, remove old data
+ * through the LRU algorithm.
  *
  * @author airsaid
  */
-@State(
-    name = "com.airsaid.localization.translate.services.TranslationCacheService",
-    storages = {@Storage("androidLocalizeTranslationCaches.xml")}
-)
 @Service
-public final class TranslationCacheService implements PersistentStateComponent<TranslationCacheService>, Disposable {
+public final class TranslationCacheService implements Disposable {
+
+  private static final Logger LOG = Logger.getInstance(TranslationCacheService.class);
 
-  @Transient
   private static final int CACHE_MAX_SIZE = 500;
+  private static final String STORE_DIRECTORY = "androidLocalize/translationMemory";
+
+  private final LRUCache<CacheKey, String> lruCache = new LRUCache<>(CACHE_MAX_SIZE);
+  private final LongAdder memoryHitCount = new LongAdder();
+  private final LongAdder storeHitCount = new LongAdder();
+  private final LongAdder missCount = new LongAdder();
+  private volatile long evictionCountBase;
+
+  private final Path storeDirectory;
+  private volatile TranslationMemoryStore store;
+  private boolean isStoreUnavailable;
+
+  public TranslationCacheService() {
+    this(null);
+  }
 
-  @OptionTag(converter = LruCacheConverter.class)
-  private final LRUCache<String, String> lruCache = new LRUCache<>(CACHE_MAX_SIZE);
+  /**
+   * @param storeDirectory the directory of the translation memory, or null for the system directory of the IDE.
+   */
+  public TranslationCacheService(@Nullable Path storeDirectory) {
+    this.storeDirectory = storeDirectory;
+  }
 
   public static TranslationCacheService getInstance() {
     return ServiceManager.getService(TranslationCacheService.class);
   }
 
-  public void put(@NotNull String key, @NotNull String value) {
+  public void put(@NotNull CacheKey key, @NotNull String value) {
+    if (value.equals(lruCache.get(key))) return;
     lruCache.put(key, value);
+    TranslationMemoryStore store = getStore();
+    if (store != null) {
+      try {
+        store.put(key, value);
+      } catch (IOException e) {
+        LOG.warn("Failed to write translation memory", e);
+      }
+    }
   }
 
   @NotNull
-  public String get(String key) {
-    String value = lruCache.get(key);
-    return value != null ? value : "";
+  public String get(@NotNull CacheKey key) {
+    String cacheValue = lruCache.get(key);
+    if (cacheValue != null) {
+      memoryHitCount.increment();
+      return cacheValue;
+    }
+    TranslationMemoryStore store = getStore();
+    if (store == null) {
+      missCount.increment();
+      return "";
+    }
+    try {
+      String value = store.get(key);
+      if (value == null) {
+        missCount.increment();
+        return "";
+      }
+      storeHitCount.increment();
+      lruCache.put(key, value);
+      return value;
+    } catch (IOException e) {
+      LOG.warn("Failed to read translation memory", e);
+      missCount.increment();
+      return "";
+    }
   }
 
   public void setMaxCacheSize(int maxCacheSize) {
     lruCache.setMaxCapacity(maxCacheSize);
   }
 
-  @Override
-  public @NotNull TranslationCacheService getState() {
-    return this;
+  /**
+   * Returns the number of lookups answered by the translations kept in memory.
+   */
+  public long getMemoryHitCount() {
+    return memoryHitCount.sum();
   }
 
-  @Override
-  public void loadState(@NotNull TranslationCacheService state) {
-    XmlSerializerUtil.copyBean(state, this);
+  /**
+   * Returns the number of lookups answered by the translation memory on disk.
+   */
+  public long getStoreHitCount() {
+    return storeHitCount.sum();
   }
 
-  @Override
-  public void dispose() {
-    lruCache.clear();
+  /**
+   * Returns the number of lookups that found no translation, which are then sent to the translator.
+   */
+  public long getMissCount() {
+    return missCount.sum();
+  }
+
+  /**
+   * Returns the ratio of lookups that found a translation, between 0 and 1.
+   */
+  public double getHitRate() {
+    long hits = getMemoryHitCount() + getStoreHitCount();
+    long lookups = hits + getMissCount();
+    return lookups == 0 ? 0 : (double) hits / lookups;
+  }
+
+  /**
+   * Returns the number of translations removed from memory to make room for new ones,
+   * they are still in the translation memory on disk.
+   */
+  public long getEvictionCount() {
+    return lruCache.getEvictionCount() - evictionCountBase;
+  }
+
+  public int getSize() {
+    return lruCache.size();
+  }
+
+  public int getMaxSize() {
+    return lruCache.getMaxCapacity();
+  }
+
+  /**
+   * Start counting the lookups and evictions from scratch.
+   */
+  public void resetStats() {
+    memoryHitCount.reset();
+    storeHitCount.reset();
+    missCount.reset();
+    evictionCountBase = lruCache.getEvictionCount();
   }
 
-  static class LruCacheConverter extends Converter<LRUCache<String, String>> {
-    @Override
-    public @Nullable LRUCache<String, String> fromString(@NotNull String value) {
-      Type type = new TypeToken<Map<String, String>>() {}.getType();
-      Map<String, String> map = GsonUtil.getInstance().getGson().fromJson(value, type);
-      LRUCache<String, String> lruCache = new LRUCache<>(CACHE_MAX_SIZE);
-      for (Map.Entry<String, String> entry : map.entrySet()) {
-        lruCache.put(entry.getKey(), entry.getValue());
+  /**
+   * Returns the store, which is opened on first use. Returns null if it couldn't be opened,
+   * the translations are then only cached in memory.
+   */
+  @Nullable
+  private TranslationMemoryStore getStore() {
+    TranslationMemoryStore result = store;
+    if (result != null) return result;
+    synchronized (this) {
+      if (store == null && !isStoreUnavailable) {
+        Path directory = storeDirectory != null ? storeDirectory : Paths.get(PathManager.getSystemPath(), STORE_DIRECTORY);
+        try {
+          store = TranslationMemoryStore.open(directory);
+          LOG.info(String.format("open translation memory: %s, size: %d", directory, store.size()));
+        } catch (IOException e) {
+          LOG.warn("Failed to open translation memory: " + directory, e);
+          isStoreUnavailable = true;
+        }
       }
-      return lruCache;
+      return store;
     }
+  }
 
-    @Override
-    public @Nullable String toString(@NotNull LRUCache<String, String> lruCache) {
-      Map<String, String> values = new LinkedHashMap<>();
-      lruCache.forEach(values::put);
-      return GsonUtil.getInstance().getGson().toJson(values);
+  @Override
+  public void dispose() {
+    lruCache.clear();
+    synchronized (this) {
+      if (store != null) {
+        try {
+          store.close();
+        } catch (IOException e) {
+          LOG.warn("Failed to close translation memory", e);
+        }
+        store = null;
+      }
     }
   }
 }
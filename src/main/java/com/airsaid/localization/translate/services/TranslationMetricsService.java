@@ -0,0 +1,195 @@
+/*
+ * Copyright 2021 Airsaid. https://github.com/airsaid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.airsaid.localization.translate.services;
+
+import com.airsaid.localization.translate.util.HostMetrics;
+import com.airsaid.localization.translate.util.LatencyHistogram;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.components.ServiceManager;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collects the metrics of the translations: the requests of each translator with their latencies,
+ * the translation cache and the HTTP connections of each host.
+ * <p>
+ * The metrics are shown in the Translation Metrics tool window and can be dumped to JSON,
+ * eg: to size the quotas of the translators. Outside of the IDE the cache and the transport
+ * are passed in.
+ *
+ * @author airsaid
+ */
+@Service
+public final class TranslationMetricsService {
+
+  private final Map<String, TranslatorMetrics> translatorMetrics = new ConcurrentHashMap<>();
+  private final TranslationCacheService cacheService;
+  private final HttpTransportService transport;
+  private volatile Instant startTime = Instant.now();
+
+  public TranslationMetricsService() {
+    this(null, null);
+  }
+
+  /**
+   * @param cacheService the translation cache, or null for the one of the IDE.
+   * @param transport    the HTTP transport, or null for the one of the IDE.
+   */
+  public TranslationMetricsService(@Nullable TranslationCacheService cacheService, @Nullable HttpTransportService transport) {
+    this.cacheService = cacheService;
+    this.transport = transport;
+  }
+
+  public static TranslationMetricsService getInstance() {
+    return ServiceManager.getService(TranslationMetricsService.class);
+  }
+
+  @NotNull
+  public TranslatorMetrics getTranslatorMetrics(@NotNull String translatorKey) {
+    return translatorMetrics.computeIfAbsent(translatorKey, TranslatorMetrics::new);
+  }
+
+  /**
+   * Returns the metrics of all translators that have been used, sorted by translator.
+   */
+  @NotNull
+  public Map<String, TranslatorMetrics> getAllTranslatorMetrics() {
+    return new TreeMap<>(translatorMetrics);
+  }
+
+  /**
+   * Returns the time the metrics have been collected since.
+   */
+  @NotNull
+  public Instant getStartTime() {
+    return startTime;
+  }
+
+  /**
+   * Start collecting the metrics from scratch, the translations in progress are counted as new.
+   */
+  public void reset() {
+    translatorMetrics.clear();
+    getCacheService().resetStats();
+    getTransport().resetMetrics();
+    startTime = Instant.now();
+  }
+
+  /**
+   * Returns all metrics as a pretty printed JSON document.
+   */
+  @NotNull
+  public String toJson() {
+    JsonObject root = new JsonObject();
+    root.addProperty("since", startTime.toString());
+    root.addProperty("until", Instant.now().toString());
+
+    JsonObject translators = new JsonObject();
+    getAllTranslatorMetrics().forEach((key, metrics) -> translators.add(key, toJson(metrics)));
+    root.add("translators", translators);
+
+    root.add("cache", toJson(getCacheService()));
+
+    JsonObject hosts = new JsonObject();
+    getTransport().getMetrics().forEach((host, metrics) -> hosts.add(host, toJson(metrics)));
+    root.add("hosts", hosts);
+    return new GsonBuilder().setPrettyPrinting().create().toJson(root);
+  }
+
+  /**
+   * Dump all metrics to a JSON file.
+   */
+  public void writeJson(@NotNull Path file) throws IOException {
+    Files.writeString(file, toJson(), StandardCharsets.UTF_8);
+  }
+
+  @NotNull
+  private TranslationCacheService getCacheService() {
+    return cacheService != null ? cacheService : TranslationCacheService.getInstance();
+  }
+
+  @NotNull
+  private HttpTransportService getTransport() {
+    return transport != null ? transport : HttpTransportService.getInstance();
+  }
+
+  @NotNull
+  static JsonObject toJson(@NotNull TranslatorMetrics metrics) {
+    JsonObject json = new JsonObject();
+    json.addProperty("requests", metrics.getRequests());
+    json.addProperty("failedRequests", metrics.getFailedRequests());
+    json.addProperty("retries", metrics.getRetries());
+    json.addProperty("throttledRetries", metrics.getThrottledRetries());
+    json.addProperty("failures", metrics.getFailures());
+    json.addProperty("characters", metrics.getCharacters());
+    json.addProperty("hedges", metrics.getHedges());
+    json.addProperty("hedgeWins", metrics.getHedgeWins());
+    json.addProperty("inFlight", metrics.getInFlight());
+    json.addProperty("queued", metrics.getQueued());
+    LatencyHistogram latency = metrics.getLatency();
+    JsonObject latencyJson = new JsonObject();
+    latencyJson.addProperty("count", latency.getCount());
+    latencyJson.addProperty("mean", latency.getMeanMillis());
+    latencyJson.addProperty("p50", latency.getPercentileMillis(50));
+    latencyJson.addProperty("p95", latency.getPercentileMillis(95));
+    latencyJson.addProperty("p99", latency.getPercentileMillis(99));
+    latencyJson.addProperty("max", latency.getMaxMillis());
+    json.add("latencyMillis", latencyJson);
+    return json;
+  }
+
+  @NotNull
+  private static JsonObject toJson(@NotNull TranslationCacheService cache) {
+    JsonObject json = new JsonObject();
+    json.addProperty("memoryHits", cache.getMemoryHitCount());
+    json.addProperty("storeHits", cache.getStoreHitCount());
+    json.addProperty("misses", cache.getMissCount());
+    json.addProperty("hitRate", cache.getHitRate());
+    json.addProperty("evictions", cache.getEvictionCount());
+    json.addProperty("size", cache.getSize());
+    json.addProperty("maxSize", cache.getMaxSize());
+    return json;
+  }
+
+  @NotNull
+  private static JsonObject toJson(@NotNull HostMetrics metrics) {
+    JsonObject json = new JsonObject();
+    json.addProperty("requests", metrics.getRequests());
+    json.addProperty("failures", metrics.getFailures());
+    json.addProperty("errorResponses", metrics.getErrorResponses());
+    json.addProperty("connections", metrics.getConnections());
+    json.addProperty("reusedConnections", metrics.getReusedConnections());
+    json.addProperty("http2Responses", metrics.getHttp2Responses());
+    json.addProperty("compressedResponses", metrics.getCompressedResponses());
+    json.addProperty("receivedBytes", metrics.getReceivedBytes());
+    json.addProperty("decodedBytes", metrics.getDecodedBytes());
+    json.addProperty("averageMillis", metrics.getAverageMillis());
+    return json;
+  }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2021 Airsaid. https://github.com/airsaid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.airsaid.localization.translate.services;
+
+import com.airsaid.localization.translate.util.LatencyHistogram;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the requests sent to a single translator, recorded by {@link TranslatorService}
+ * from any thread.
+ * <p>
+ * A request is a single attempt: a translation that is retried twice counts three requests and two retries.
+ * A failure is a translation that still failed after all attempts.
+ *
+ * @author airsaid
+ */
+public final class TranslatorMetrics {
+
+  private final String translatorKey;
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder failedRequests = new LongAdder();
+  private final LongAdder retries = new LongAdder();
+  private final LongAdder throttledRetries = new LongAdder();
+  private final LongAdder failures = new LongAdder();
+  private final LongAdder characters = new LongAdder();
+  private final LongAdder hedges = new LongAdder();
+  private final LongAdder hedgeWins = new LongAdder();
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicInteger queued = new AtomicInteger();
+  private final LatencyHistogram latency = new LatencyHistogram();
+
+  TranslatorMetrics(@NotNull String translatorKey) {
+    this.translatorKey = translatorKey;
+  }
+
+  /**
+   * Called when a translation starts to wait for a free slot of the translator.
+   */
+  void onQueued() {
+    queued.incrementAndGet();
+  }
+
+  void onDequeued() {
+    queued.decrementAndGet();
+  }
+
+  /**
+   * Called right before a request is sent.
+   *
+   * @return the start time of the request, to be passed to {@link #onRequestEnd(long, boolean)}.
+   */
+  long onRequestStart(int characters) {
+    requests.increment();
+    this.characters.add(characters);
+    inFlight.incrementAndGet();
+    return System.nanoTime();
+  }
+
+  void onRequestEnd(long startNanos, boolean isSuccess) {
+    inFlight.decrementAndGet();
+    latency.record(System.nanoTime() - startNanos);
+    if (!isSuccess) failedRequests.increment();
+  }
+
+  void onRetry(boolean isThrottled) {
+    retries.increment();
+    if (isThrottled) throttledRetries.increment();
+  }
+
+  void onFailure() {
+    failures.increment();
+  }
+
+  /**
+   * Called when a translation of this translator is also sent to the hedge translator.
+   */
+  void onHedge() {
+    hedges.increment();
+  }
+
+  void onHedgeWin() {
+    hedgeWins.increment();
+  }
+
+  @NotNull
+  public String getTranslatorKey() {
+    return translatorKey;
+  }
+
+  public long getRequests() {
+    return requests.sum();
+  }
+
+  public long getFailedRequests() {
+    return failedRequests.sum();
+  }
+
+  public long getRetries() {
+    return retries.sum();
+  }
+
+  public long getThrottledRetries() {
+    return throttledRetries.sum();
+  }
+
+  public long getFailures() {
+    return failures.sum();
+  }
+
+  public long getCharacters() {
+    return characters.sum();
+  }
+
+  /**
+   * Returns the number of translations that were too slow and also sent to the hedge translator.
+   */
+  public long getHedges() {
+    return hedges.sum();
+  }
+
+  /**
+   * Returns the number of hedged translations the hedge translator answered first.
+   */
+  public long getHedgeWins() {
+    return hedgeWins.sum();
+  }
+
+  /**
+   * Returns the number of requests that have been sent and are waiting for the response.
+   */
+  public int getInFlight() {
+    return inFlight.get();
+  }
+
+  /**
+   * Returns the number of translations waiting for a free slot of the translator.
+   */
+  public int getQueued() {
+    return queued.get();
+  }
+
+  /**
+   * Returns the latencies of the requests, from sending a request to parsing its response.
+   */
+  @NotNull
+  public LatencyHistogram getLatency() {
+    return latency;
+  }
+}
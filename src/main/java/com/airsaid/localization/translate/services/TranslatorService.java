@@ -19,15 +19,22 @@ package com.airsaid.localization.translate.services;
 
 import com.airsaid.localization.translate.AbstractTranslator;
 import com.airsaid.localization.translate.TranslationException;
+import com.airsaid.localization.translate.TranslatorCredentials;
 import com.airsaid.localization.translate.impl.baidu.BaiduTranslator;
 import com.airsaid.localization.translate.impl.customgoogle.CustomGoogleTranslator;
 import com.airsaid.localization.translate.impl.deepl.DeeplTranslator;
 import com.airsaid.localization.translate.impl.google.GoogleTranslator;
 import com.airsaid.localization.translate.impl.googleapi.GoogleApiTranslator;
 import com.airsaid.localization.translate.impl.microsoft.MicrosoftTranslator;
+import com.airsaid.localization.translate.impl.selfhosted.SelfHostedTranslator;
 import com.airsaid.localization.translate.impl.youdao.YoudaoTranslator;
 import com.airsaid.localization.translate.interceptors.EscapeCharactersInterceptor;
 import com.airsaid.localization.translate.lang.Lang;
+import com.airsaid.localization.translate.util.ConcurrencyLimiter;
+import com.airsaid.localization.translate.util.HedgeBudget;
+import com.airsaid.localization.translate.util.LatencyHistogram;
+import com.airsaid.localization.translate.util.RateLimiter;
+import com.airsaid.localization.translate.util.RetryPolicy;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.components.Service;
 import com.intellij.openapi.components.ServiceManager;
@@ -37,11 +44,19 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
-import java.util.ArrayList;
-import java.util.LinkedHashMap;
-import java.util.List;
-import java.util.Map;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 /**
  * @author airsaid
@@ -51,14 +66,28 @@ public final class TranslatorService {
 
   private static final Logger LOG = Logger.getInstance(TranslatorService.class);
 
-  private AbstractTranslator selectedTranslator;
+  public static final double DEFAULT_MAX_HEDGE_RATIO = 0.05;
+
+  // a translation is hedged once it takes longer than this percentile of the latencies of its translator
+  private static final double HEDGE_PERCENTILE = 95;
+  // below this number of requests the percentile says little about the translator
+  private static final int MIN_HEDGE_SAMPLES = 20;
+  private static final int MAX_HEDGE_BURST = 10;
+
+  private volatile AbstractTranslator selectedTranslator;
   private final AbstractTranslator defaultTranslator;
   private final TranslationCacheService cacheService;
+  private final TranslationMetricsService metricsService;
   private final Map<String, AbstractTranslator> translators;
   private final List<TranslationInterceptor> translationInterceptors;
-  private boolean isEnableCache = true;
-  private int intervalTime;
-  private AbstractTranslator fallbackTranslator;
+  private final Map<String, ConcurrencyLimiter> concurrencyLimits;
+  private final Map<String, RateLimiter> rateLimiters;
+  private volatile RetryPolicy retryPolicy;
+  private volatile boolean isEnableCache = true;
+  private volatile int intervalTime;
+  private volatile AbstractTranslator fallbackTranslator;
+  private volatile AbstractTranslator hedgeTranslator;
+  private volatile HedgeBudget hedgeBudget = new HedgeBudget(DEFAULT_MAX_HEDGE_RATIO, MAX_HEDGE_BURST);
 
   private File outputExcelPath;
 
@@ -67,6 +96,20 @@ public final class TranslatorService {
   }
 
   public TranslatorService() {
+    this(TranslationCacheService.getInstance(), TranslationMetricsService.getInstance(), null, null);
+  }
+
+  /**
+   * Create the service outside of the IDE, eg: for a command line run, where the cache, the transport
+   * and the credentials of the IDE aren't available.
+   *
+   * @param transport   the transport of the translators, or null for the one of the IDE.
+   * @param credentials the credentials of the translators, or null for the settings of the IDE.
+   */
+  public TranslatorService(@NotNull TranslationCacheService cacheService,
+                           @NotNull TranslationMetricsService metricsService,
+                           @Nullable HttpTransportService transport,
+                           @Nullable TranslatorCredentials credentials) {
     translators = new LinkedHashMap<>();
 
     GoogleTranslator googleTranslator = new GoogleTranslator();
@@ -92,10 +135,23 @@ public final class TranslatorService {
     YoudaoTranslator youdaoTranslator = new YoudaoTranslator();
     translators.put(youdaoTranslator.getKey(), youdaoTranslator);
 
-    cacheService = TranslationCacheService.getInstance();
+    SelfHostedTranslator selfHostedTranslator = new SelfHostedTranslator();
+    translators.put(selfHostedTranslator.getKey(), selfHostedTranslator);
+
+    for (AbstractTranslator translator : translators.values()) {
+      translator.setTransport(transport);
+      translator.setCredentials(credentials);
+    }
+
+    this.cacheService = cacheService;
+    this.metricsService = metricsService;
 
     translationInterceptors = new ArrayList<>();
     translationInterceptors.add(new EscapeCharactersInterceptor());
+
+    concurrencyLimits = new ConcurrentHashMap<>();
+    rateLimiters = new ConcurrentHashMap<>();
+    retryPolicy = new RetryPolicy();
   }
 
   @NotNull
@@ -123,54 +179,582 @@ public final class TranslatorService {
     return selectedTranslator;
   }
 
+  /**
+   * Enable hedging: a translation the translator hasn't answered within the 95th percentile of its latencies
+   * is sent to the hedge translator as well, the first answer is taken and the other request is cancelled.
+   * Only the translations without blocking are hedged, the blocking ones keep waiting for their translator.
+   *
+   * @param hedgeTranslator the translator slow translations are also sent to, or null to disable hedging.
+   * @param maxHedgeRatio   the share of the translations that may be sent twice, eg: 0.05 for at most 5%
+   *                        extra requests, which bounds the costs of the hedge translator.
+   */
+  public void setHedging(@Nullable AbstractTranslator hedgeTranslator, double maxHedgeRatio) {
+    LOG.info(String.format("setHedging: %s, maxHedgeRatio: %.2f", hedgeTranslator, maxHedgeRatio));
+    this.hedgeBudget = new HedgeBudget(maxHedgeRatio, MAX_HEDGE_BURST);
+    this.hedgeTranslator = hedgeTranslator;
+  }
+
+  @Nullable
+  public AbstractTranslator getHedgeTranslator() {
+    return hedgeTranslator;
+  }
+
   public void doTranslateByAsync(@NotNull Project project, @NotNull Lang fromLang, @NotNull Lang toLang, @NotNull String text, @NotNull Consumer<String> consumer) {
-    ApplicationManager.getApplication().executeOnPooledThread(() -> {
-      final String translatedText = doTranslate(project, fromLang, toLang, text);
+    translateAsync(project, fromLang, toLang, text).whenComplete((translatedText, error) -> {
+      if (error != null) {
+        LOG.warn("doTranslateByAsync failed", RetryPolicy.unwrap(error));
+        return;
+      }
       ApplicationManager.getApplication().invokeLater(() ->
           consumer.accept(translatedText));
     });
   }
 
-  public String doTranslate(@NotNull Project project, @NotNull Lang fromLang, @NotNull Lang toLang, @NotNull String text) {
-    LOG.info(String.format("doTranslate fromLang: %s, toLang: %s, text: %s", fromLang, toLang, text));
+  /**
+   * Translate the text without blocking the calling thread, the request waits for the concurrency and
+   * rate limits of the translator and is retried without holding a thread either.
+   * <p>
+   * Cancelling the returned future gives up the request if it hasn't been sent yet and stops the retries.
+   * A slow request is hedged if {@link #setHedging(AbstractTranslator, double) hedging} is enabled.
+   *
+   * @return the future of the translated text, it completes exceptionally with a {@link TranslationException}.
+   */
+  @NotNull
+  public CompletableFuture<String> translateAsync(@Nullable Project project, @NotNull Lang fromLang, @NotNull Lang toLang, @NotNull String text) {
+    LOG.debug(String.format("translateAsync fromLang: %s, toLang: %s, text: %s", fromLang, toLang, text));
 
+    CacheKey cacheKey = getCacheKey(fromLang, toLang, text);
     if (isEnableCache) {
-      String cacheResult = cacheService.get(getCacheKey(fromLang, toLang, text));
+      String cacheResult = cacheService.get(cacheKey);
       if (!cacheResult.isEmpty()) {
-        LOG.info(String.format("doTranslate cache result: %s", cacheResult));
+        return CompletableFuture.completedFuture(cacheResult);
+      }
+    }
+
+    AbstractTranslator translator;
+    try {
+      translator = getTranslator(fromLang, toLang, text);
+    } catch (TranslationException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+    return requestHedgedAsync(translator, findHedgeTranslator(translator, fromLang, toLang, List.of(text)),
+        fromLang, toLang, text, text.length(),
+        target -> target.translateAsync(project, fromLang, toLang, text), result -> {
+          result = intercept(result);
+          cacheService.put(cacheKey, result);
+          return result;
+        });
+  }
+
+  public String doTranslate(@Nullable Project project, @NotNull Lang fromLang, @NotNull Lang toLang, @NotNull String text) {
+    LOG.debug(String.format("doTranslate fromLang: %s, toLang: %s, text: %s", fromLang, toLang, text));
+
+    CacheKey cacheKey = getCacheKey(fromLang, toLang, text);
+    if (isEnableCache) {
+      String cacheResult = cacheService.get(cacheKey);
+      if (!cacheResult.isEmpty()) {
+        LOG.debug(String.format("doTranslate cache result: %s", cacheResult));
         return cacheResult;
       }
     }
 
+    AbstractTranslator translator = getTranslator(fromLang, toLang, text);
     // the translation result
-    String result;
+    String result = requestTranslation(translator, fromLang, toLang, text, text.length(),
+        () -> translator.doTranslate(project, fromLang, toLang, text));
+
+    LOG.debug(String.format("doTranslate result: %s", result));
+    result = intercept(result);
+    cacheService.put(cacheKey, result);
+    return result;
+  }
+
+  /**
+   * Look up the cached translations of the texts without sending any request.
+   *
+   * @return the cached translations in the same order as the given texts, null for the texts without cached translation.
+   */
+  public List<String> getCachedTranslations(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull List<String> texts) {
+    List<String> results = new ArrayList<>(texts.size());
+    for (String text : texts) {
+      String cacheResult = isEnableCache ? cacheService.get(getCacheKey(fromLang, toLang, text)) : "";
+      results.add(cacheResult.isEmpty() ? null : cacheResult);
+    }
+    return results;
+  }
+
+  /**
+   * Put a translation into the cache without sending any request, eg: a translation corrected by a reviewer,
+   * so later runs use it instead of translating the text again.
+   */
+  public void putCachedTranslation(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull String text, @NotNull String translation) {
+    if (isEnableCache && !translation.isEmpty()) {
+      cacheService.put(getCacheKey(fromLang, toLang, text), translation);
+    }
+  }
+
+  /**
+   * Translate several texts, the texts which are not cached are sent to the translator in batches,
+   * each batch contains at most {@link AbstractTranslator#getMaxBatchSize()} texts and
+   * {@link AbstractTranslator#getMaxBatchBytes()} bytes.
+   *
+   * @return the translated texts, in the same order as the given texts.
+   */
+  public List<String> doTranslateBatch(@Nullable Project project, @NotNull Lang fromLang, @NotNull Lang toLang, @NotNull List<String> texts) {
+    LOG.info(String.format("doTranslateBatch fromLang: %s, toLang: %s, texts: %d", fromLang, toLang, texts.size()));
+
+    String[] results = new String[texts.size()];
+    CacheKey[] cacheKeys = new CacheKey[texts.size()];
+    List<Integer> missIndexes = new ArrayList<>();
+    for (int i = 0; i < texts.size(); i++) {
+      cacheKeys[i] = getCacheKey(fromLang, toLang, texts.get(i));
+      String cacheResult = isEnableCache ? cacheService.get(cacheKeys[i]) : "";
+      if (!cacheResult.isEmpty()) {
+        results[i] = cacheResult;
+      } else {
+        missIndexes.add(i);
+      }
+    }
+    if (missIndexes.isEmpty()) {
+      return Arrays.asList(results);
+    }
+
+    AbstractTranslator translator = getTranslator(fromLang, toLang, texts.get(missIndexes.get(0)));
+    for (List<Integer> batchIndexes : splitBatches(translator, texts, missIndexes)) {
+      List<String> batch = batchIndexes.stream().map(texts::get).collect(Collectors.toList());
+      List<String> batchResults = requestTranslation(translator, fromLang, toLang, batch.size() + " texts",
+          getCharacters(batch), () -> translator.doTranslateBatch(project, fromLang, toLang, batch));
+      putBatchResults(batchIndexes, batchResults, cacheKeys, results);
+    }
+    return Arrays.asList(results);
+  }
+
+  /**
+   * Translate several texts without blocking the calling thread, the batches of the texts which are
+   * not cached are requested at the same time, as far as the limits of the translator allow.
+   * <p>
+   * The returned future fails as soon as a batch fails, the other batches are cancelled then.
+   * Cancelling the returned future cancels all batches. Slow batches are hedged if
+   * {@link #setHedging(AbstractTranslator, double) hedging} is enabled.
+   *
+   * @return the future of the translated texts, in the same order as the given texts.
+   * @see #doTranslateBatch(Project, Lang, Lang, List)
+   * @see #translateAsync(Project, Lang, Lang, String)
+   */
+  @NotNull
+  public CompletableFuture<List<String>> translateBatchAsync(@Nullable Project project, @NotNull Lang fromLang, @NotNull Lang toLang, @NotNull List<String> texts) {
+    LOG.info(String.format("translateBatchAsync fromLang: %s, toLang: %s, texts: %d", fromLang, toLang, texts.size()));
+
+    String[] results = new String[texts.size()];
+    CacheKey[] cacheKeys = new CacheKey[texts.size()];
+    List<Integer> missIndexes = new ArrayList<>();
+    for (int i = 0; i < texts.size(); i++) {
+      cacheKeys[i] = getCacheKey(fromLang, toLang, texts.get(i));
+      String cacheResult = isEnableCache ? cacheService.get(cacheKeys[i]) : "";
+      if (!cacheResult.isEmpty()) {
+        results[i] = cacheResult;
+      } else {
+        missIndexes.add(i);
+      }
+    }
+    if (missIndexes.isEmpty()) {
+      return CompletableFuture.completedFuture(Arrays.asList(results));
+    }
+
+    AbstractTranslator translator;
+    try {
+      translator = getTranslator(fromLang, toLang, texts.get(missIndexes.get(0)));
+    } catch (TranslationException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+
+    CompletableFuture<List<String>> result = new CompletableFuture<>();
+    List<CompletableFuture<List<String>>> batchFutures = new ArrayList<>();
+    for (List<Integer> batchIndexes : splitBatches(translator, texts, missIndexes)) {
+      List<String> batch = batchIndexes.stream().map(texts::get).collect(Collectors.toList());
+      CompletableFuture<List<String>> batchFuture = requestHedgedAsync(translator,
+          findHedgeTranslator(translator, fromLang, toLang, batch), fromLang, toLang,
+          batch.size() + " texts", getCharacters(batch),
+          target -> target.translateBatchAsync(project, fromLang, toLang, batch), batchResults -> {
+            putBatchResults(batchIndexes, batchResults, cacheKeys, results);
+            return batchResults;
+          });
+      batchFuture.whenComplete((batchResults, error) -> {
+        if (error != null) result.completeExceptionally(RetryPolicy.unwrap(error));
+      });
+      batchFutures.add(batchFuture);
+    }
+    CompletableFuture.allOf(batchFutures.toArray(new CompletableFuture[0]))
+        .thenRun(() -> result.complete(Arrays.asList(results)));
+    result.whenComplete((translatedTexts, error) -> {
+      if (error != null) batchFutures.forEach(future -> future.cancel(false));
+    });
+    return result;
+  }
+
+  /**
+   * Split the texts into batches of at most {@link AbstractTranslator#getMaxBatchSize()} texts and
+   * {@link AbstractTranslator#getMaxBatchBytes()} bytes.
+   *
+   * @return the indexes of the texts of each batch.
+   */
+  @NotNull
+  private static List<List<Integer>> splitBatches(@NotNull AbstractTranslator translator,
+                                                  @NotNull List<String> texts,
+                                                  @NotNull List<Integer> indexes) {
+    int maxBatchSize = Math.max(1, translator.getMaxBatchSize());
+    int maxBatchBytes = translator.getMaxBatchBytes();
+
+    List<List<Integer>> batches = new ArrayList<>();
+    List<Integer> batchIndexes = new ArrayList<>();
+    int batchBytes = 0;
+    for (int index : indexes) {
+      int bytes = texts.get(index).getBytes(StandardCharsets.UTF_8).length;
+      if (!batchIndexes.isEmpty() && (batchIndexes.size() >= maxBatchSize || batchBytes + bytes > maxBatchBytes)) {
+        batches.add(batchIndexes);
+        batchIndexes = new ArrayList<>();
+        batchBytes = 0;
+      }
+      batchIndexes.add(index);
+      batchBytes += bytes;
+    }
+    batches.add(batchIndexes);
+    return batches;
+  }
+
+  private static int getCharacters(@NotNull List<String> texts) {
+    return texts.stream().mapToInt(String::length).sum();
+  }
+
+  private void putBatchResults(@NotNull List<Integer> batchIndexes, @NotNull List<String> batchResults,
+                               @NotNull CacheKey[] cacheKeys, @NotNull String[] results) {
+    for (int i = 0; i < batchIndexes.size(); i++) {
+      String result = intercept(batchResults.get(i));
+      cacheService.put(cacheKeys[batchIndexes.get(i)], result);
+      results[batchIndexes.get(i)] = result;
+    }
+  }
+
+  /**
+   * Returns the selected translator, or the fallback translator if the selected
+   * translator doesn't support the languages.
+   */
+  @NotNull
+  private AbstractTranslator getTranslator(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull String text) {
+    AbstractTranslator translator = selectedTranslator;
     // this Lang instance contains the correct TranslationCode
-    Lang toLanguage = selectedTranslator.checkSupportedLanguages(fromLang, toLang, text);
+    Lang toLanguage = translator.checkSupportedLanguages(fromLang, toLang, text);
     // turns out target language is not supported by current translator, fallback to specific translator
     if (toLanguage == null) {
       if (fallbackTranslator == null) {
-        fallbackTranslator = translators.get(selectedTranslator.getFallbackTranslator());
+        fallbackTranslator = translators.get(translator.getFallbackTranslator());
       }
-      toLanguage = fallbackTranslator.checkSupportedLanguages(fromLang, toLang, text);
+      translator = fallbackTranslator;
+      toLanguage = translator.checkSupportedLanguages(fromLang, toLang, text);
       // if it is still null, throw exception
       if (toLanguage == null) {
         throw new TranslationException(fromLang, toLang, text, "is not supported by current translator");
       }
-      result = fallbackTranslator.doTranslate(project, fromLang, toLang, text);
-    } else {
-      result = selectedTranslator.doTranslate(project, fromLang, toLang, text);
     }
+    return translator;
+  }
+
+  /**
+   * Returns the hedge translator if it can stand in for the translator with the texts.
+   *
+   * @return null if hedging is disabled, or the hedge translator doesn't support the languages or
+   * would need more than one request for the texts, which would exceed the budget.
+   */
+  @Nullable
+  private AbstractTranslator findHedgeTranslator(@NotNull AbstractTranslator translator, @NotNull Lang fromLang,
+                                                 @NotNull Lang toLang, @NotNull List<String> texts) {
+    AbstractTranslator hedge = hedgeTranslator;
+    if (hedge == null || hedge == translator || hedge.checkSupportedLanguages(fromLang, toLang, texts.get(0)) == null) {
+      return null;
+    }
+    int bytes = texts.stream().mapToInt(text -> text.getBytes(StandardCharsets.UTF_8).length).sum();
+    if (texts.size() > 1 && (texts.size() > hedge.getMaxBatchSize() || bytes > hedge.getMaxBatchBytes())) {
+      return null;
+    }
+    return hedge;
+  }
 
-    LOG.info(String.format("doTranslate result: %s", result));
+  /**
+   * Returns how long a request of the translator is waited for before it is hedged.
+   *
+   * @return the time in nanoseconds, or -1 if the translator hasn't sent enough requests to tell.
+   */
+  private long getHedgeDelayNanos(@NotNull AbstractTranslator translator) {
+    LatencyHistogram latency = getMetrics(translator).getLatency();
+    if (latency.getCount() < MIN_HEDGE_SAMPLES) {
+      return -1;
+    }
+    return Math.max(1, Math.round(latency.getPercentileMillis(HEDGE_PERCENTILE) * TimeUnit.MILLISECONDS.toNanos(1)));
+  }
+
+  private String intercept(String result) {
     for (TranslationInterceptor interceptor : translationInterceptors) {
       result = interceptor.process(result);
-      LOG.info(String.format("doTranslate interceptor process result: %s", result));
+      LOG.debug(String.format("doTranslate interceptor process result: %s", result));
     }
-    cacheService.put(getCacheKey(fromLang, toLang, text), result);
-    delay(intervalTime);
     return result;
   }
 
+  /**
+   * Send the translation request, blocks while the translator already has
+   * {@link AbstractTranslator#getMaxConcurrentRequests()} requests in progress
+   * or until the request fits the rate limits of the translator.
+   * <p>
+   * Network errors, throttling and server errors are retried by the {@link RetryPolicy},
+   * every attempt goes through the rate limiter again, which slows down when the server throttles.
+   *
+   * @throws TranslationException if the request still fails after all attempts.
+   */
+  private <T> T requestTranslation(@NotNull AbstractTranslator translator, @NotNull Lang fromLang,
+                                   @NotNull Lang toLang, @NotNull String text, int characters,
+                                   @NotNull Supplier<T> request) {
+    ConcurrencyLimiter concurrencyLimiter = getConcurrencyLimiter(translator);
+    TranslatorMetrics metrics = getMetrics(translator);
+    metrics.onQueued();
+    try {
+      concurrencyLimiter.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new TranslationException(fromLang, toLang, text, e);
+    } finally {
+      metrics.onDequeued();
+    }
+    RateLimiter rateLimiter = getRateLimiter(translator);
+    try {
+      return retryPolicy.execute(() -> {
+        rateLimiter.acquire(characters);
+        long startNanos = metrics.onRequestStart(characters);
+        boolean isSuccess = false;
+        try {
+          T result = request.get();
+          isSuccess = true;
+          rateLimiter.onSuccess();
+          return result;
+        } finally {
+          metrics.onRequestEnd(startNanos, isSuccess);
+        }
+      }, getRetryListener(translator, rateLimiter, metrics));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new TranslationException(fromLang, toLang, text, e);
+    } catch (TranslationException e) {
+      metrics.onFailure();
+      throw e;
+    } catch (Exception e) {
+      metrics.onFailure();
+      throw new TranslationException(fromLang, toLang, text, e);
+    } finally {
+      concurrencyLimiter.release();
+    }
+  }
+
+  /**
+   * Send the translation request without blocking: the request waits for a free slot of the
+   * {@link ConcurrencyLimiter} and for the {@link RateLimiter} on the futures, retries are scheduled by the
+   * {@link RetryPolicy}, so a waiting request doesn't hold a thread.
+   *
+   * @see #requestTranslation(AbstractTranslator, Lang, Lang, String, int, Supplier)
+   */
+  @NotNull
+  private <T> CompletableFuture<T> requestTranslationAsync(@NotNull AbstractTranslator translator, @NotNull Lang fromLang,
+                                                           @NotNull Lang toLang, @NotNull String text, int characters,
+                                                           @NotNull Supplier<CompletableFuture<T>> request) {
+    ConcurrencyLimiter concurrencyLimiter = getConcurrencyLimiter(translator);
+    RateLimiter rateLimiter = getRateLimiter(translator);
+    TranslatorMetrics metrics = getMetrics(translator);
+    CompletableFuture<T> result = new CompletableFuture<>();
+    metrics.onQueued();
+    CompletableFuture<Void> permit = concurrencyLimiter.acquireAsync();
+    permit.whenComplete((value, error) -> metrics.onDequeued());
+    // a cancelled request gives up its place in the queue
+    result.whenComplete((value, error) -> permit.cancel(false));
+    permit.thenRun(() -> retryPolicy.executeAsync(() -> {
+      if (result.isDone()) {
+        return CompletableFuture.<T>failedFuture(new CancellationException());
+      }
+      long waitNanos = rateLimiter.reserve(characters);
+      CompletableFuture<Void> delay = waitNanos > 0 ?
+          CompletableFuture.runAsync(() -> {}, CompletableFuture.delayedExecutor(waitNanos, TimeUnit.NANOSECONDS)) :
+          CompletableFuture.completedFuture(null);
+      return delay
+          .thenCompose(ignored -> result.isDone() ? CompletableFuture.<T>failedFuture(new CancellationException()) :
+              sendRequestAsync(request, characters, metrics))
+          .thenApply(value -> {
+            rateLimiter.onSuccess();
+            return value;
+          });
+    }, getRetryListener(translator, rateLimiter, metrics)).whenComplete((value, error) -> {
+      concurrencyLimiter.release();
+      if (error == null) {
+        result.complete(value);
+        return;
+      }
+      Throwable cause = RetryPolicy.unwrap(error);
+      if (!(cause instanceof CancellationException)) {
+        metrics.onFailure();
+      }
+      result.completeExceptionally(cause instanceof TranslationException || cause instanceof CancellationException ?
+          cause : new TranslationException(fromLang, toLang, text, cause));
+    }));
+    return result;
+  }
+
+  /**
+   * Send the translation request like {@link #requestTranslationAsync}, and send it to the hedge translator as
+   * well if the translator hasn't answered within the 95th percentile of its latencies, as far as the
+   * {@link HedgeBudget} allows. The first answer is taken and the other request is cancelled, which gives up
+   * its place in the queue and its retries, the response of a request in flight is discarded.
+   * <p>
+   * The result fails only if both requests failed.
+   *
+   * @param hedge    the hedge translator, or null to send the request to the translator only.
+   * @param request  sends the request to the given translator.
+   * @param onResult handles the first answer, eg: puts it into the cache, the other answer is never handled.
+   */
+  @NotNull
+  private <T> CompletableFuture<T> requestHedgedAsync(@NotNull AbstractTranslator translator, @Nullable AbstractTranslator hedge,
+                                                      @NotNull Lang fromLang, @NotNull Lang toLang, @NotNull String text,
+                                                      int characters, @NotNull Function<AbstractTranslator, CompletableFuture<T>> request,
+                                                      @NotNull Function<T, T> onResult) {
+    long hedgeDelayNanos = hedge != null ? getHedgeDelayNanos(translator) : -1;
+    if (hedgeDelayNanos < 0) {
+      return requestTranslationAsync(translator, fromLang, toLang, text, characters,
+          () -> request.apply(translator).thenApply(onResult));
+    }
+
+    HedgeBudget budget = hedgeBudget;
+    budget.onRequest();
+    TranslatorMetrics metrics = getMetrics(translator);
+    CompletableFuture<T> result = new CompletableFuture<>();
+    AtomicBoolean isAnswered = new AtomicBoolean();
+    AtomicInteger pendingRequests = new AtomicInteger(1);
+    AtomicReference<CompletableFuture<T>> hedgeFuture = new AtomicReference<>();
+
+    // the hedge waits from the time the request is sent, not from the time it is queued
+    CompletableFuture<Void> sent = new CompletableFuture<>();
+    CompletableFuture<T> future = requestTranslationAsync(translator, fromLang, toLang, text, characters, () -> {
+      sent.complete(null);
+      return request.apply(translator);
+    });
+    future.whenComplete((value, error) ->
+        completeHedged(result, isAnswered, pendingRequests, value, error, onResult, () -> {}));
+
+    sent.thenCompose(ignored -> CompletableFuture.runAsync(() -> {},
+            CompletableFuture.delayedExecutor(hedgeDelayNanos, TimeUnit.NANOSECONDS)))
+        .thenRun(() -> {
+          if (result.isDone() || !budget.tryAcquire()) {
+            return;
+          }
+          // the text may be confidential, only its length is logged
+          LOG.info(String.format("hedge %s request to %s after %d ms: %d characters", translator.getKey(),
+              hedge.getKey(), TimeUnit.NANOSECONDS.toMillis(hedgeDelayNanos), text.length()));
+          metrics.onHedge();
+          pendingRequests.incrementAndGet();
+          CompletableFuture<T> hedged = requestTranslationAsync(hedge, fromLang, toLang, text, characters,
+              () -> request.apply(hedge));
+          hedged.whenComplete((value, error) ->
+              completeHedged(result, isAnswered, pendingRequests, value, error, onResult, metrics::onHedgeWin));
+          hedgeFuture.set(hedged);
+          // the translator may have answered in the meantime
+          if (result.isDone()) hedged.cancel(false);
+        });
+
+    result.whenComplete((value, error) -> {
+      sent.cancel(false);
+      future.cancel(false);
+      CompletableFuture<T> hedged = hedgeFuture.get();
+      if (hedged != null) hedged.cancel(false);
+    });
+    return result;
+  }
+
+  /**
+   * Complete the result of a hedged request with the first answer, or with the error once all requests failed.
+   *
+   * @param onFirstAnswer called before the result is completed with the given answer, if it is the first one.
+   */
+  private static <T> void completeHedged(@NotNull CompletableFuture<T> result, @NotNull AtomicBoolean isAnswered,
+                                         @NotNull AtomicInteger pendingRequests, @Nullable T value,
+                                         @Nullable Throwable error, @NotNull Function<T, T> onResult,
+                                         @NotNull Runnable onFirstAnswer) {
+    if (error == null) {
+      if (isAnswered.compareAndSet(false, true)) {
+        onFirstAnswer.run();
+        try {
+          result.complete(onResult.apply(value));
+        } catch (RuntimeException e) {
+          result.completeExceptionally(e);
+        }
+      }
+    } else if (pendingRequests.decrementAndGet() == 0) {
+      result.completeExceptionally(RetryPolicy.unwrap(error));
+    }
+  }
+
+  @NotNull
+  private static <T> CompletableFuture<T> sendRequestAsync(@NotNull Supplier<CompletableFuture<T>> request, int characters,
+                                                           @NotNull TranslatorMetrics metrics) {
+    long startNanos = metrics.onRequestStart(characters);
+    CompletableFuture<T> future;
+    try {
+      future = request.get();
+    } catch (RuntimeException e) {
+      metrics.onRequestEnd(startNanos, false);
+      throw e;
+    }
+    return future.whenComplete((value, error) -> metrics.onRequestEnd(startNanos, error == null));
+  }
+
+  @NotNull
+  private RetryPolicy.Listener getRetryListener(@NotNull AbstractTranslator translator, @NotNull RateLimiter rateLimiter,
+                                                @NotNull TranslatorMetrics metrics) {
+    return (attempt, error, delayMillis) -> {
+      boolean isThrottled = RetryPolicy.isThrottled(error);
+      if (isThrottled) {
+        rateLimiter.onThrottled();
+      }
+      metrics.onRetry(isThrottled);
+      LOG.info(String.format("retry %s request in %d ms (attempt %d): %s",
+          translator.getKey(), delayMillis, attempt, error.getMessage()));
+    };
+  }
+
+  @NotNull
+  private TranslatorMetrics getMetrics(@NotNull AbstractTranslator translator) {
+    return metricsService.getTranslatorMetrics(translator.getKey());
+  }
+
+  @NotNull
+  private ConcurrencyLimiter getConcurrencyLimiter(@NotNull AbstractTranslator translator) {
+    return concurrencyLimits.computeIfAbsent(translator.getKey(),
+        key -> new ConcurrencyLimiter(Math.max(1, translator.getMaxConcurrentRequests())));
+  }
+
+  @NotNull
+  private RateLimiter getRateLimiter(@NotNull AbstractTranslator translator) {
+    return rateLimiters.computeIfAbsent(translator.getKey(), key -> {
+      double requestsPerSecond = getRequestsPerSecond(translator);
+      LOG.info(String.format("create rate limiter of %s: %.2f requests/second, %d characters/minute",
+          key, requestsPerSecond, translator.getCharactersPerMinute()));
+      return new RateLimiter(requestsPerSecond, translator.getCharactersPerMinute());
+    });
+  }
+
+  private double getRequestsPerSecond(@NotNull AbstractTranslator translator) {
+    double requestsPerSecond = translator.getRequestsPerSecond();
+    // the translation interval of the settings can only lower the request rate
+    int interval = intervalTime;
+    if (interval > 0) {
+      requestsPerSecond = Math.min(requestsPerSecond, 1.0 / interval);
+    }
+    return requestsPerSecond;
+  }
+
   public void setEnableCache(boolean isEnableCache) {
     this.isEnableCache = isEnableCache;
   }
@@ -184,7 +768,28 @@ public final class TranslatorService {
   }
 
   public void setTranslationInterval(int intervalTime) {
-    this.intervalTime = intervalTime;
+    if (this.intervalTime != intervalTime) {
+      this.intervalTime = intervalTime;
+      // rebuild the rate limiters with the new interval
+      rateLimiters.clear();
+    }
+  }
+
+  /**
+   * Replace the request limits a translator declares, eg: to load test a server that allows more than that.
+   * The rate limiter is created from the translator again once the translation interval changes.
+   */
+  public void setLimits(@NotNull String translatorKey, @NotNull ConcurrencyLimiter concurrencyLimiter,
+                        @NotNull RateLimiter rateLimiter) {
+    concurrencyLimits.put(translatorKey, concurrencyLimiter);
+    rateLimiters.put(translatorKey, rateLimiter);
+  }
+
+  /**
+   * Set how failed requests are retried, eg: with shorter delays against a local server.
+   */
+  public void setRetryPolicy(@NotNull RetryPolicy retryPolicy) {
+    this.retryPolicy = retryPolicy;
   }
 
   public void setOutputExcelPath(File path) {
@@ -195,17 +800,31 @@ public final class TranslatorService {
     return outputExcelPath;
   }
 
-  private String getCacheKey(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull String text) {
-    return fromLang.getCode() + "_" + toLang.getCode() + "_" + text;
+  /**
+   * Returns the maximum number of texts the selected translator accepts in a single request.
+   */
+  public int getMaxBatchSize() {
+    AbstractTranslator translator = selectedTranslator;
+    return translator != null ? Math.max(1, translator.getMaxBatchSize()) : 1;
   }
 
-  private void delay(int second) {
-    if (second <= 0) return;
-    try {
-      LOG.info(String.format("doTranslate delay time: %d second.", second));
-      Thread.sleep(second * 1000L);
-    } catch (InterruptedException e) {
-      e.printStackTrace();
-    }
+  /**
+   * Returns the maximum total UTF-8 size of the texts the selected translator accepts in a single request.
+   */
+  public int getMaxBatchBytes() {
+    AbstractTranslator translator = selectedTranslator;
+    return translator != null ? translator.getMaxBatchBytes() : Integer.MAX_VALUE;
+  }
+
+  /**
+   * Returns the configured request rate of the selected translator.
+   */
+  public double getRequestsPerSecond() {
+    AbstractTranslator translator = selectedTranslator;
+    return translator != null ? getRequestsPerSecond(translator) : 0;
+  }
+
+  private CacheKey getCacheKey(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull String text) {
+    return CacheKey.of(fromLang, toLang, text);
   }
 }
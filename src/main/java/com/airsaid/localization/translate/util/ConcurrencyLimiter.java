@@ -0,0 +1,114 @@
+/*
+ * Copyright 2021 Airsaid. https://github.com/airsaid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.airsaid.localization.translate.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Limits the number of requests in progress, like a fair {@link java.util.concurrent.Semaphore},
+ * but a permit can also be awaited without blocking a thread.
+ * <p>
+ * Waiters are served in the order they arrived, whether they wait with {@link #acquire()} or
+ * {@link #acquireAsync()}. Every acquired permit must be given back with {@link #release()}.
+ *
+ * @author airsaid
+ */
+public class ConcurrencyLimiter {
+
+  private final Queue<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+  private int permits;
+
+  /**
+   * @param permits the maximum number of requests in progress, at least 1.
+   */
+  public ConcurrencyLimiter(int permits) {
+    if (permits < 1) {
+      throw new IllegalArgumentException("Illegal permits: " + permits);
+    }
+    this.permits = permits;
+  }
+
+  /**
+   * Acquire a permit without blocking.
+   *
+   * @return a future that completes once the permit is acquired. Cancelling it before it
+   * completes gives up the place in the queue, no permit has to be released then.
+   */
+  @NotNull
+  public CompletableFuture<Void> acquireAsync() {
+    synchronized (this) {
+      if (permits > 0 && waiters.isEmpty()) {
+        permits--;
+        return CompletableFuture.completedFuture(null);
+      }
+      CompletableFuture<Void> waiter = new CompletableFuture<>();
+      waiters.add(waiter);
+      return waiter;
+    }
+  }
+
+  /**
+   * Acquire a permit, blocks until one is available.
+   *
+   * @throws InterruptedException if the current thread is interrupted while waiting.
+   */
+  public void acquire() throws InterruptedException {
+    CompletableFuture<Void> waiter = acquireAsync();
+    try {
+      waiter.get();
+    } catch (InterruptedException e) {
+      // the permit may have been handed over in the meantime
+      if (!waiter.cancel(false)) {
+        release();
+      }
+      throw e;
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  /**
+   * Give back a permit, it is handed over to the longest waiting caller.
+   */
+  public void release() {
+    while (true) {
+      CompletableFuture<Void> waiter;
+      synchronized (this) {
+        waiter = waiters.poll();
+        if (waiter == null) {
+          permits++;
+          return;
+        }
+      }
+      // completed outside of the lock, as the waiter continues on this thread;
+      // a cancelled waiter doesn't take the permit, so it goes to the next one
+      if (waiter.complete(null)) {
+        return;
+      }
+    }
+  }
+
+  public synchronized int getAvailablePermits() {
+    return permits;
+  }
+}
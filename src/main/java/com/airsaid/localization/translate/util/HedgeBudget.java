@@ -0,0 +1,67 @@
+/*
+ * Copyright 2021 Airsaid. https://github.com/airsaid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.airsaid.localization.translate.util;
+
+/**
+ * Bounds the extra requests of hedging: every request earns a share of a hedge and a hedge spends
+ * a whole one, so at most the given share of the requests, plus a small burst, is sent twice.
+ *
+ * @author airsaid
+ */
+public class HedgeBudget {
+
+  private final double maxHedgeRatio;
+  private final double maxBurst;
+  private double tokens;
+
+  /**
+   * @param maxHedgeRatio the share of the requests that may be hedged, between 0 and 1.
+   * @param maxBurst      the largest number of hedges that can be sent in a row, eg: after a quiet period.
+   */
+  public HedgeBudget(double maxHedgeRatio, double maxBurst) {
+    if (maxHedgeRatio < 0 || maxHedgeRatio > 1 || maxBurst < 1) {
+      throw new IllegalArgumentException("Invalid budget: " + maxHedgeRatio + ", burst: " + maxBurst);
+    }
+    this.maxHedgeRatio = maxHedgeRatio;
+    this.maxBurst = maxBurst;
+  }
+
+  /**
+   * Called for every request that could be hedged.
+   */
+  public synchronized void onRequest() {
+    tokens = Math.min(maxBurst, tokens + maxHedgeRatio);
+  }
+
+  /**
+   * Take a hedge from the budget.
+   *
+   * @return false if the budget is spent, the request is not hedged then.
+   */
+  public synchronized boolean tryAcquire() {
+    if (tokens < 1) {
+      return false;
+    }
+    tokens -= 1;
+    return true;
+  }
+
+  public double getMaxHedgeRatio() {
+    return maxHedgeRatio;
+  }
+}
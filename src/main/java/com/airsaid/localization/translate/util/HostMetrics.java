@@ -0,0 +1,149 @@
+/*
+ * Copyright 2021 Airsaid. https://github.com/airsaid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.airsaid.localization.translate.util;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.net.ssl.SSLSession;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of the requests sent to a single host, updated from any thread.
+ * <p>
+ * Connections are counted by their TLS sessions: a request on a kept-alive or multiplexed connection
+ * shares the session of an earlier request, a new connection brings a new handshake and session.
+ * Hosts reached over plain HTTP count no connections.
+ *
+ * @author airsaid
+ */
+public final class HostMetrics {
+
+  private final String host;
+  private final AtomicLong requests = new AtomicLong();
+  private final AtomicLong failures = new AtomicLong();
+  private final AtomicLong errorResponses = new AtomicLong();
+  private final AtomicLong http2Responses = new AtomicLong();
+  private final AtomicLong compressedResponses = new AtomicLong();
+  private final AtomicLong connections = new AtomicLong();
+  private final AtomicLong receivedBytes = new AtomicLong();
+  private final AtomicLong decodedBytes = new AtomicLong();
+  private final AtomicLong totalNanos = new AtomicLong();
+  private final Map<SSLSession, Boolean> sessions = Collections.synchronizedMap(new WeakHashMap<>());
+
+  public HostMetrics(@NotNull String host) {
+    this.host = host;
+  }
+
+  /**
+   * Record a response, whatever its status code.
+   *
+   * @param receivedBytes the size of the body as received.
+   * @param decodedBytes  the size of the body after decompression.
+   * @param session       the TLS session of the connection, null for plain HTTP.
+   */
+  public void recordResponse(int statusCode, boolean isHttp2, boolean isCompressed,
+                             long receivedBytes, long decodedBytes, long nanos, @Nullable SSLSession session) {
+    requests.incrementAndGet();
+    if (statusCode >= 400) errorResponses.incrementAndGet();
+    if (isHttp2) http2Responses.incrementAndGet();
+    if (isCompressed) compressedResponses.incrementAndGet();
+    if (session != null && sessions.putIfAbsent(session, Boolean.TRUE) == null) {
+      connections.incrementAndGet();
+    }
+    this.receivedBytes.addAndGet(receivedBytes);
+    this.decodedBytes.addAndGet(decodedBytes);
+    totalNanos.addAndGet(nanos);
+  }
+
+  /**
+   * Record a request that got no response, eg: a timeout or a refused connection.
+   */
+  public void recordFailure(long nanos) {
+    requests.incrementAndGet();
+    failures.incrementAndGet();
+    totalNanos.addAndGet(nanos);
+  }
+
+  @NotNull
+  public String getHost() {
+    return host;
+  }
+
+  public long getRequests() {
+    return requests.get();
+  }
+
+  public long getFailures() {
+    return failures.get();
+  }
+
+  public long getErrorResponses() {
+    return errorResponses.get();
+  }
+
+  public long getHttp2Responses() {
+    return http2Responses.get();
+  }
+
+  public long getCompressedResponses() {
+    return compressedResponses.get();
+  }
+
+  /**
+   * Returns the number of connections that were opened, 0 for plain HTTP hosts.
+   */
+  public long getConnections() {
+    return connections.get();
+  }
+
+  /**
+   * Returns the number of responses that came over a connection opened by an earlier request.
+   */
+  public long getReusedConnections() {
+    long connections = getConnections();
+    return connections == 0 ? 0 : Math.max(0, getRequests() - getFailures() - connections);
+  }
+
+  public long getReceivedBytes() {
+    return receivedBytes.get();
+  }
+
+  public long getDecodedBytes() {
+    return decodedBytes.get();
+  }
+
+  /**
+   * Returns the average time of a request in milliseconds, from sending it to reading the whole body.
+   */
+  public double getAverageMillis() {
+    long requests = getRequests();
+    return requests == 0 ? 0 : totalNanos.get() / 1e6 / requests;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s{requests=%d, failures=%d, errors=%d, connections=%d, reused=%d, http2=%d, "
+            + "compressed=%d, received=%d, decoded=%d, average=%.1fms}",
+        host, getRequests(), getFailures(), getErrorResponses(), getConnections(), getReusedConnections(),
+        getHttp2Responses(), getCompressedResponses(), getReceivedBytes(), getDecodedBytes(), getAverageMillis());
+  }
+}
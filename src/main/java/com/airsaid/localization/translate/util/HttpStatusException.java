@@ -0,0 +1,139 @@
+/*
+ * Copyright 2021 Airsaid. https://github.com/airsaid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.airsaid.localization.translate.util;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.http.HttpResponse;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Signals that the server responded with an error status code.
+ *
+ * @author airsaid
+ */
+public class HttpStatusException extends IOException {
+
+  private static final long serialVersionUID = 1L;
+
+  public static final int SC_TOO_MANY_REQUESTS = 429;
+
+  /** The number of characters of the response body that are kept in the message. */
+  private static final int MAX_BODY_LENGTH = 1000;
+
+  private final int statusCode;
+  private final String url;
+  private final long retryAfterMillis;
+
+  public HttpStatusException(int statusCode, @NotNull String url, long retryAfterMillis) {
+    this(statusCode, url, retryAfterMillis, null);
+  }
+
+  /**
+   * @param body the response body, which usually explains the error; it is truncated in the message.
+   */
+  public HttpStatusException(int statusCode, @NotNull String url, long retryAfterMillis, @Nullable String body) {
+    super(getMessage(statusCode, url, body));
+    this.statusCode = statusCode;
+    this.url = url;
+    this.retryAfterMillis = retryAfterMillis;
+  }
+
+  /**
+   * Throw a {@link HttpStatusException} if the response is an error.
+   *
+   * @param body the decoded response body, or null if it was not read.
+   * @throws HttpStatusException if the status code is 400 or above.
+   */
+  public static void check(@NotNull HttpResponse<?> response, @Nullable String body) throws HttpStatusException {
+    int statusCode = response.statusCode();
+    if (statusCode >= 400) {
+      String retryAfter = response.headers().firstValue("Retry-After").orElse(null);
+      throw new HttpStatusException(statusCode, response.uri().toString(),
+          parseRetryAfter(retryAfter, System.currentTimeMillis()), body);
+    }
+  }
+
+  @NotNull
+  private static String getMessage(int statusCode, @NotNull String url, @Nullable String body) {
+    String message = "Request failed with status code " + statusCode + ": " + url;
+    if (body == null || body.isBlank()) return message;
+    String text = body.strip();
+    if (text.length() > MAX_BODY_LENGTH) {
+      text = text.substring(0, MAX_BODY_LENGTH) + "…";
+    }
+    return message + ", response: " + text;
+  }
+
+  /**
+   * Parse the value of the {@code Retry-After} header, which is either a number of seconds or a HTTP date.
+   *
+   * @param value      the header value.
+   * @param nowMillis  the current time, used to convert a date into a delay.
+   * @return the delay in milliseconds, or -1 if there is no valid value.
+   */
+  public static long parseRetryAfter(@Nullable String value, long nowMillis) {
+    if (value == null || value.isBlank()) return -1;
+    String trimmed = value.trim();
+    try {
+      return Math.max(0, Long.parseLong(trimmed) * 1000);
+    } catch (NumberFormatException ignored) {
+      // not a number of seconds, try the date format
+    }
+    try {
+      long dateMillis = ZonedDateTime.parse(trimmed, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+      return Math.max(0, dateMillis - nowMillis);
+    } catch (DateTimeParseException e) {
+      return -1;
+    }
+  }
+
+  public int getStatusCode() {
+    return statusCode;
+  }
+
+  public String getUrl() {
+    return url;
+  }
+
+  /**
+   * Returns the delay requested by the {@code Retry-After} header in milliseconds, or -1 if there is none.
+   */
+  public long getRetryAfterMillis() {
+    return retryAfterMillis;
+  }
+
+  /**
+   * Returns whether the server is throttling the requests.
+   */
+  public boolean isThrottled() {
+    return statusCode == SC_TOO_MANY_REQUESTS || statusCode == HttpURLConnection.HTTP_UNAVAILABLE;
+  }
+
+  /**
+   * Returns whether the same request may succeed later, which is true for throttling and server errors.
+   */
+  public boolean isRetryable() {
+    return statusCode == SC_TOO_MANY_REQUESTS || statusCode >= 500;
+  }
+}
@@ -19,47 +19,78 @@ package com.airsaid.localization.translate.util;
 
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BiConsumer;
 
 /**
+ * A thread-safe LRU cache.
+ * <p>
+ * The keys are split over segments by their hash, each segment is an access ordered
+ * {@link LinkedHashMap} guarded by its own lock, so lookups, insertions and evictions are O(1)
+ * and threads working on different segments don't contend. Each segment evicts its own least
+ * recently used entry, which makes the eviction order an approximation of the global LRU order.
+ * Small caches use a single segment and are exact. The segments are rebuilt when the capacity
+ * changes their number, entries put by other threads while they are rebuilt may be dropped.
+ *
  * @author airsaid
  */
 public class LRUCache<K, V> {
 
-  private final Map<K, Node<K, V>> caches;
-  private Node<K, V> head;
-  private Node<K, V> tail;
+  private static final int MAX_SEGMENTS = 16;
+  private static final int MIN_SEGMENT_CAPACITY = 32;
+
+  private volatile Segment<K, V>[] segments;
+  private final LongAdder hitCount = new LongAdder();
+  private final LongAdder missCount = new LongAdder();
+  private final LongAdder evictionCount = new LongAdder();
 
-  private int maxCapacity;
+  private volatile int maxCapacity;
 
   public LRUCache(int initialCapacity) {
     maxCapacity = initialCapacity;
     if (initialCapacity <= 0) {
       throw new IllegalArgumentException("Illegal Capacity: " + initialCapacity);
     }
-    caches = new LinkedHashMap<>(initialCapacity);
+    segments = createSegments(initialCapacity);
   }
 
   public void put(K key, V value) {
-    while (isFull()) {
-      removeTailNode();
+    Segment<K, V> segment = segmentFor(key);
+    synchronized (segment) {
+      segment.map.put(key, value);
+      evict(segment);
     }
-    Node<K, V> newNode = new Node<>(key, value);
-    caches.put(key, newNode);
-    moveToHeadNode(newNode);
   }
 
   public V get(K key) {
-    if (caches.containsKey(key)) {
-      Node<K, V> newHead = caches.get(key);
-      moveToHeadNode(newHead);
-      return newHead.value;
+    Segment<K, V> segment = segmentFor(key);
+    V value;
+    synchronized (segment) {
+      value = segment.map.get(key);
+    }
+    if (value != null) {
+      hitCount.increment();
+    } else {
+      missCount.increment();
+    }
+    return value;
+  }
+
+  public V remove(K key) {
+    Segment<K, V> segment = segmentFor(key);
+    synchronized (segment) {
+      return segment.map.remove(key);
     }
-    return null;
   }
 
   public int size() {
-    return caches.size();
+    int size = 0;
+    for (Segment<K, V> segment : segments) {
+      synchronized (segment) {
+        size += segment.map.size();
+      }
+    }
+    return size;
   }
 
   public boolean isFull() {
@@ -70,61 +101,138 @@ public class LRUCache<K, V> {
     return size() <= 0;
   }
 
+  /**
+   * Iterate over the entries of each segment from the least to the most recently used one,
+   * iterating doesn't change the order.
+   */
   public void forEach(BiConsumer<K, V> consumer) {
-    for (Map.Entry<K, Node<K, V>> entry : caches.entrySet()) {
-      K key = entry.getKey();
-      Node<K, V> value = entry.getValue();
-      consumer.accept(key, value.value);
+    for (Segment<K, V> segment : segments) {
+      Map<K, V> snapshot;
+      synchronized (segment) {
+        snapshot = new LinkedHashMap<>(segment.map);
+      }
+      snapshot.forEach(consumer);
     }
   }
 
   public void clear() {
-    caches.clear();
-    head = null;
-    tail = null;
+    for (Segment<K, V> segment : segments) {
+      synchronized (segment) {
+        segment.map.clear();
+      }
+    }
   }
 
-  private void moveToHeadNode(Node<K, V> node) {
-    if (head == null) {
-      head = node;
-      tail = node;
+  public synchronized void setMaxCapacity(int maxCapacity) {
+    if (maxCapacity <= 0) {
+      throw new IllegalArgumentException("Illegal Capacity: " + maxCapacity);
+    }
+    this.maxCapacity = maxCapacity;
+    Segment<K, V>[] oldSegments = segments;
+    if (getSegmentCount(maxCapacity) != oldSegments.length) {
+      // each segment holds at least one entry, so a capacity below the number of segments needs fewer of them
+      segments = createSegments(maxCapacity);
+      for (Segment<K, V> segment : oldSegments) {
+        synchronized (segment) {
+          // the entries are moved from the least to the most recently used one, so the most recent ones are kept,
+          // a value put into the new segments in the meantime is newer and isn't replaced
+          segment.map.forEach((key, value) -> {
+            Segment<K, V> newSegment = segmentFor(key);
+            synchronized (newSegment) {
+              if (newSegment.map.putIfAbsent(key, value) == null) {
+                evict(newSegment);
+              }
+            }
+          });
+          segment.map.clear();
+        }
+      }
       return;
     }
+    for (int i = 0; i < oldSegments.length; i++) {
+      Segment<K, V> segment = oldSegments[i];
+      synchronized (segment) {
+        segment.capacity = getSegmentCapacity(maxCapacity, oldSegments.length, i);
+        evict(segment);
+      }
+    }
+  }
 
-    node.next = head;
-    head.prev = node;
-    head = node;
+  public int getMaxCapacity() {
+    return maxCapacity;
   }
 
-  private void removeTailNode() {
-    if (tail == null) return;
+  /**
+   * Returns the number of {@link #get(Object)} calls that found a value.
+   */
+  public long getHitCount() {
+    return hitCount.sum();
+  }
+
+  /**
+   * Returns the number of {@link #get(Object)} calls that didn't find a value.
+   */
+  public long getMissCount() {
+    return missCount.sum();
+  }
+
+  /**
+   * Returns the number of entries removed to make room for new ones.
+   */
+  public long getEvictionCount() {
+    return evictionCount.sum();
+  }
+
+  private Segment<K, V> segmentFor(K key) {
+    Segment<K, V>[] segments = this.segments;
+    int h = key.hashCode();
+    // spread the higher bits, as the segment is picked by the lower bits
+    h ^= (h >>> 16);
+    return segments[h & (segments.length - 1)];
+  }
 
-    caches.remove(tail.key);
-    Node<K, V> prev = tail.prev;
-    if (prev != null) {
-      prev.next = null;
-      tail.prev = null;
+  /**
+   * Remove the least recently used entries of the segment until it fits its capacity, the caller holds its lock.
+   */
+  private void evict(Segment<K, V> segment) {
+    while (segment.map.size() > segment.capacity) {
+      K eldest = segment.map.keySet().iterator().next();
+      segment.map.remove(eldest);
+      evictionCount.increment();
     }
-    tail = prev;
   }
 
-  public void setMaxCapacity(int maxCapacity) {
-    this.maxCapacity = maxCapacity;
+  private static <K, V> Segment<K, V>[] createSegments(int capacity) {
+    int segmentCount = getSegmentCount(capacity);
+    @SuppressWarnings("unchecked")
+    Segment<K, V>[] segments = (Segment<K, V>[]) new Segment<?, ?>[segmentCount];
+    for (int i = 0; i < segmentCount; i++) {
+      segments[i] = new Segment<>(getSegmentCapacity(capacity, segmentCount, i));
+    }
+    return segments;
   }
 
-  public int getMaxCapacity() {
-    return maxCapacity;
+  /**
+   * Returns the number of segments of a capacity, a power of two, so a segment is picked by the bits of a hash.
+   */
+  private static int getSegmentCount(int capacity) {
+    return Math.max(1, Math.min(MAX_SEGMENTS, Integer.highestOneBit(capacity / MIN_SEGMENT_CAPACITY)));
+  }
+
+  /**
+   * Split the capacity over the segments, so the capacities of the segments add up to the total capacity.
+   */
+  private static int getSegmentCapacity(int capacity, int segmentCount, int segmentIndex) {
+    return Math.max(1, capacity / segmentCount + (segmentIndex < capacity % segmentCount ? 1 : 0));
   }
 
-  private static class Node<K, V> {
-    public K key;
-    public V value;
-    public Node<K, V> prev;
-    public Node<K, V> next;
+  private static class Segment<K, V> {
+    final LinkedHashMap<K, V> map;
+    int capacity;
 
-    public Node(K key, V value) {
-      this.key = key;
-      this.value = value;
+    Segment(int capacity) {
+      this.capacity = capacity;
+      this.map = new LinkedHashMap<>(16, 0.75f, true);
     }
   }
 
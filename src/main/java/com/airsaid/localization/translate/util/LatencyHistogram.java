@@ -0,0 +1,125 @@
+/*
+ * Copyright 2021 Airsaid. https://github.com/airsaid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.airsaid.localization.translate.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of latencies that can be recorded from any thread without locking.
+ * <p>
+ * Latencies are counted in microseconds in log-linear buckets: values below 64 have their own bucket,
+ * every power of two above is split into 32 buckets. A percentile is therefore accurate to about 3%,
+ * while the histogram has a fixed size, no matter how many latencies are recorded.
+ *
+ * @author airsaid
+ */
+public class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  // values below have a bucket each
+  private static final int LINEAR_LIMIT = SUB_BUCKETS << 1;
+  private static final int LINEAR_BITS = SUB_BUCKET_BITS + 1;
+  private static final int BUCKET_COUNT = LINEAR_LIMIT + (Long.SIZE - 1 - LINEAR_BITS) * SUB_BUCKETS;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder totalMicros = new LongAdder();
+  private final AtomicLong maxMicros = new AtomicLong();
+
+  public void record(long nanos) {
+    long micros = Math.max(0, nanos / 1000);
+    buckets.incrementAndGet(getBucketIndex(micros));
+    count.increment();
+    totalMicros.add(micros);
+    maxMicros.accumulateAndGet(micros, Math::max);
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  public double getMeanMillis() {
+    long count = getCount();
+    return count == 0 ? 0 : totalMicros.sum() / 1000.0 / count;
+  }
+
+  public double getMaxMillis() {
+    return maxMicros.get() / 1000.0;
+  }
+
+  /**
+   * Returns the latency below which the given percentage of the recorded latencies fall.
+   *
+   * @param percentile the percentage, between 0 and 100.
+   * @return the latency in milliseconds, 0 if nothing has been recorded.
+   */
+  public double getPercentileMillis(double percentile) {
+    long[] counts = new long[BUCKET_COUNT];
+    long total = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts[i] = buckets.get(i);
+      total += counts[i];
+    }
+    if (total == 0) return 0;
+
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        // the middle of the bucket, but never above the largest latency
+        long lower = getLowerBound(i);
+        long middle = lower + (getBucketWidth(i) - 1) / 2;
+        return Math.min(middle, maxMicros.get()) / 1000.0;
+      }
+    }
+    return getMaxMillis();
+  }
+
+  public void reset() {
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      buckets.set(i, 0);
+    }
+    count.reset();
+    totalMicros.reset();
+    maxMicros.set(0);
+  }
+
+  static int getBucketIndex(long micros) {
+    if (micros < LINEAR_LIMIT) return (int) micros;
+    int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(micros);
+    int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return LINEAR_LIMIT + (exponent - LINEAR_BITS) * SUB_BUCKETS + subBucket;
+  }
+
+  static long getLowerBound(int index) {
+    if (index < LINEAR_LIMIT) return index;
+    int exponent = (index - LINEAR_LIMIT) / SUB_BUCKETS + LINEAR_BITS;
+    int subBucket = (index - LINEAR_LIMIT) % SUB_BUCKETS;
+    return (long) (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+  }
+
+  private static long getBucketWidth(int index) {
+    if (index < LINEAR_LIMIT) return 1;
+    int exponent = (index - LINEAR_LIMIT) / SUB_BUCKETS + LINEAR_BITS;
+    return 1L << (exponent - SUB_BUCKET_BITS);
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2021 Airsaid. https://github.com/airsaid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.airsaid.localization.translate.util;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The 128-bit x64 variant of MurmurHash3.
+ *
+ * @author airsaid
+ */
+public final class MurmurHash3 {
+
+  private static final long C1 = 0x87c37b91114253d5L;
+  private static final long C2 = 0x4cf5ad432745937fL;
+
+  private MurmurHash3() {
+    throw new AssertionError("No com.airsaid.localization.translate.util.MurmurHash3 instances for you!");
+  }
+
+  /**
+   * Hash the bytes.
+   *
+   * @return the two 64-bit halves of the hash.
+   */
+  @NotNull
+  public static long[] hash128(@NotNull byte[] data, long seed) {
+    long h1 = seed;
+    long h2 = seed;
+    int blocks = data.length / 16;
+    for (int i = 0; i < blocks; i++) {
+      long k1 = getLong(data, i * 16);
+      long k2 = getLong(data, i * 16 + 8);
+      h1 ^= mixK1(k1);
+      h1 = Long.rotateLeft(h1, 27) + h2;
+      h1 = h1 * 5 + 0x52dce729;
+      h2 ^= mixK2(k2);
+      h2 = Long.rotateLeft(h2, 31) + h1;
+      h2 = h2 * 5 + 0x38495ab5;
+    }
+    long k1 = 0;
+    long k2 = 0;
+    int offset = blocks * 16;
+    for (int i = data.length - 1; i >= offset; i--) {
+      int shift = ((i - offset) & 7) * 8;
+      if (i - offset >= 8) {
+        k2 |= (data[i] & 0xffL) << shift;
+      } else {
+        k1 |= (data[i] & 0xffL) << shift;
+      }
+    }
+    return finish(h1 ^ mixK1(k1), h2 ^ mixK2(k2), data.length);
+  }
+
+  /**
+   * Hash the UTF-16LE representation of the text, without encoding it into a byte array.
+   *
+   * @return the two 64-bit halves of the hash, equal to {@code hash128(text.getBytes(UTF_16LE), seed)}.
+   */
+  @NotNull
+  public static long[] hash128(@NotNull CharSequence text, long seed) {
+    long h1 = seed;
+    long h2 = seed;
+    int length = text.length();
+    // 8 chars make a 16 bytes block
+    int blocks = length / 8;
+    for (int i = 0; i < blocks; i++) {
+      int index = i * 8;
+      long k1 = getChars(text, index);
+      long k2 = getChars(text, index + 4);
+      h1 ^= mixK1(k1);
+      h1 = Long.rotateLeft(h1, 27) + h2;
+      h1 = h1 * 5 + 0x52dce729;
+      h2 ^= mixK2(k2);
+      h2 = Long.rotateLeft(h2, 31) + h1;
+      h2 = h2 * 5 + 0x38495ab5;
+    }
+    long k1 = 0;
+    long k2 = 0;
+    int offset = blocks * 8;
+    for (int i = offset; i < length; i++) {
+      int shift = ((i - offset) & 3) * 16;
+      if (i - offset >= 4) {
+        k2 |= (long) text.charAt(i) << shift;
+      } else {
+        k1 |= (long) text.charAt(i) << shift;
+      }
+    }
+    return finish(h1 ^ mixK1(k1), h2 ^ mixK2(k2), length * 2);
+  }
+
+  private static long[] finish(long h1, long h2, int length) {
+    h1 ^= length;
+    h2 ^= length;
+    h1 += h2;
+    h2 += h1;
+    h1 = fmix64(h1);
+    h2 = fmix64(h2);
+    h1 += h2;
+    h2 += h1;
+    return new long[]{h1, h2};
+  }
+
+  private static long mixK1(long k1) {
+    if (k1 == 0) return 0;
+    k1 *= C1;
+    k1 = Long.rotateLeft(k1, 31);
+    return k1 * C2;
+  }
+
+  private static long mixK2(long k2) {
+    if (k2 == 0) return 0;
+    k2 *= C2;
+    k2 = Long.rotateLeft(k2, 33);
+    return k2 * C1;
+  }
+
+  private static long fmix64(long k) {
+    k ^= k >>> 33;
+    k *= 0xff51afd7ed558ccdL;
+    k ^= k >>> 33;
+    k *= 0xc4ceb9fe1a85ec53L;
+    k ^= k >>> 33;
+    return k;
+  }
+
+  private static long getLong(byte[] data, int index) {
+    long value = 0;
+    for (int i = 7; i >= 0; i--) {
+      value = (value << 8) | (data[index + i] & 0xffL);
+    }
+    return value;
+  }
+
+  private static long getChars(CharSequence text, int index) {
+    return (long) text.charAt(index)
+        | (long) text.charAt(index + 1) << 16
+        | (long) text.charAt(index + 2) << 32
+        | (long) text.charAt(index + 3) << 48;
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2021 Airsaid. https://github.com/airsaid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.airsaid.localization.translate.util;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Limits the requests sent to a translator by the number of requests per second
+ * and the number of characters per minute.
+ * <p>
+ * Requests that fit the budget go out immediately, the others wait in the order
+ * they arrived until the budget has been refilled.
+ * <p>
+ * The requests per second adapt to the server: the rate is halved whenever the server
+ * throttles a request and grows back linearly with every successful request, up to the
+ * configured rate.
+ *
+ * @author airsaid
+ */
+public class RateLimiter {
+
+  private static final double MIN_REQUESTS_PER_SECOND = 0.05;
+  private static final double DECREASE_FACTOR = 0.5;
+  private static final double INCREASE_FRACTION = 0.05;
+
+  private final TokenBucket requestBucket;
+  @Nullable
+  private final TokenBucket characterBucket;
+  private volatile double maxRequestsPerSecond;
+
+  /**
+   * @param requestsPerSecond   the maximum number of requests per second, must be greater than 0.
+   * @param charactersPerMinute the maximum number of characters per minute, 0 means unlimited.
+   */
+  public RateLimiter(double requestsPerSecond, int charactersPerMinute) {
+    this(requestsPerSecond, charactersPerMinute, System::nanoTime);
+  }
+
+  public RateLimiter(double requestsPerSecond, int charactersPerMinute, LongSupplier nanoClock) {
+    maxRequestsPerSecond = requestsPerSecond;
+    // allow a burst of one second of requests, but at least one request
+    requestBucket = new TokenBucket(requestsPerSecond, Math.max(1, requestsPerSecond), nanoClock);
+    characterBucket = charactersPerMinute > 0 ?
+        new TokenBucket(charactersPerMinute / 60.0, charactersPerMinute, nanoClock) : null;
+  }
+
+  /**
+   * Reserve the budget of a request.
+   *
+   * @param characters the number of characters sent by the request.
+   * @return the time in nanoseconds to wait before the request may be sent.
+   */
+  public long reserve(int characters) {
+    long waitNanos = requestBucket.reserve(1);
+    if (characterBucket != null) {
+      waitNanos = Math.max(waitNanos, characterBucket.reserve(characters));
+    }
+    return waitNanos;
+  }
+
+  /**
+   * Reserve the budget of a request and wait until it may be sent.
+   *
+   * @param characters the number of characters sent by the request.
+   * @throws InterruptedException if the current thread is interrupted while waiting.
+   */
+  public void acquire(int characters) throws InterruptedException {
+    long waitNanos = reserve(characters);
+    if (waitNanos > 0) {
+      TimeUnit.NANOSECONDS.sleep(waitNanos);
+    }
+  }
+
+  public double getRequestsPerSecond() {
+    return requestBucket.getRate();
+  }
+
+  public void setRequestsPerSecond(double requestsPerSecond) {
+    maxRequestsPerSecond = requestsPerSecond;
+    requestBucket.setRate(requestsPerSecond);
+  }
+
+  /**
+   * Called when the server throttled a request, halves the requests per second.
+   */
+  public synchronized void onThrottled() {
+    double rate = requestBucket.getRate() * DECREASE_FACTOR;
+    requestBucket.setRate(Math.max(Math.min(MIN_REQUESTS_PER_SECOND, maxRequestsPerSecond), rate));
+  }
+
+  /**
+   * Called when a request succeeded, raises the requests per second back towards the configured rate.
+   */
+  public synchronized void onSuccess() {
+    double rate = requestBucket.getRate();
+    if (rate < maxRequestsPerSecond) {
+      requestBucket.setRate(Math.min(maxRequestsPerSecond, rate + maxRequestsPerSecond * INCREASE_FRACTION));
+    }
+  }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2021 Airsaid. https://github.com/airsaid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.airsaid.localization.translate.util;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Retries failed requests with jittered exponential backoff.
+ * <p>
+ * Network errors, throttling (429) and server errors (5xx) are retried, a delay requested
+ * by the {@code Retry-After} header is always honoured. Other errors are thrown immediately.
+ *
+ * @author airsaid
+ */
+public class RetryPolicy {
+
+  public static final int DEFAULT_MAX_ATTEMPTS = 5;
+  public static final long DEFAULT_BASE_DELAY_MILLIS = 500;
+  public static final long DEFAULT_MAX_DELAY_MILLIS = 30_000;
+
+  private final int maxAttempts;
+  private final long baseDelayMillis;
+  private final long maxDelayMillis;
+
+  public interface Listener {
+    /**
+     * Called before waiting for the next attempt.
+     *
+     * @param attempt     the number of the failed attempt, starts at 1.
+     * @param error       the error of the failed attempt.
+     * @param delayMillis the time to wait before the next attempt.
+     */
+    void onRetry(int attempt, @NotNull Throwable error, long delayMillis);
+  }
+
+  public RetryPolicy() {
+    this(DEFAULT_MAX_ATTEMPTS, DEFAULT_BASE_DELAY_MILLIS, DEFAULT_MAX_DELAY_MILLIS);
+  }
+
+  public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis) {
+    if (maxAttempts < 1) {
+      throw new IllegalArgumentException("Illegal max attempts: " + maxAttempts);
+    }
+    this.maxAttempts = maxAttempts;
+    this.baseDelayMillis = baseDelayMillis;
+    this.maxDelayMillis = maxDelayMillis;
+  }
+
+  /**
+   * Execute the call until it succeeds, fails with an error that can't be retried or runs out of attempts.
+   *
+   * @param call     the call to execute, invoked once per attempt.
+   * @param listener notified of every retry, may be null.
+   * @return the result of the call.
+   * @throws Exception the error of the last attempt.
+   */
+  public <T> T execute(@NotNull Callable<T> call, @Nullable Listener listener) throws Exception {
+    for (int attempt = 1; ; attempt++) {
+      try {
+        return call.call();
+      } catch (Exception e) {
+        if (attempt >= maxAttempts || !isRetryable(e)) {
+          throw e;
+        }
+        HttpStatusException statusException = findCause(e, HttpStatusException.class);
+        long retryAfterMillis = statusException != null ? statusException.getRetryAfterMillis() : -1;
+        long delayMillis = getDelayMillis(attempt, retryAfterMillis);
+        if (listener != null) {
+          listener.onRetry(attempt, e, delayMillis);
+        }
+        TimeUnit.MILLISECONDS.sleep(delayMillis);
+      }
+    }
+  }
+
+  /**
+   * Execute an asynchronous call until it succeeds, fails with an error that can't be retried or runs out of attempts.
+   * <p>
+   * No thread waits for the next attempt, it is scheduled after the delay. Completing or cancelling the
+   * returned future stops the attempts that haven't started yet.
+   *
+   * @param call     starts an attempt, invoked once per attempt.
+   * @param listener notified of every retry, may be null.
+   * @return the future of the result, it completes exceptionally with the error of the last attempt.
+   */
+  @NotNull
+  public <T> CompletableFuture<T> executeAsync(@NotNull Supplier<CompletableFuture<T>> call, @Nullable Listener listener) {
+    CompletableFuture<T> result = new CompletableFuture<>();
+    attemptAsync(call, listener, 1, result);
+    return result;
+  }
+
+  private <T> void attemptAsync(@NotNull Supplier<CompletableFuture<T>> call, @Nullable Listener listener,
+                                int attempt, @NotNull CompletableFuture<T> result) {
+    if (result.isDone()) return;
+    CompletableFuture<T> future;
+    try {
+      future = call.get();
+    } catch (Exception e) {
+      result.completeExceptionally(e);
+      return;
+    }
+    future.whenComplete((value, error) -> {
+      if (error == null) {
+        result.complete(value);
+        return;
+      }
+      Throwable cause = unwrap(error);
+      if (attempt >= maxAttempts || !isRetryable(cause)) {
+        result.completeExceptionally(cause);
+        return;
+      }
+      HttpStatusException statusException = findCause(cause, HttpStatusException.class);
+      long retryAfterMillis = statusException != null ? statusException.getRetryAfterMillis() : -1;
+      long delayMillis = getDelayMillis(attempt, retryAfterMillis);
+      if (listener != null) {
+        listener.onRetry(attempt, cause, delayMillis);
+      }
+      CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS)
+          .execute(() -> attemptAsync(call, listener, attempt + 1, result));
+    });
+  }
+
+  /**
+   * Returns the error a future completed with, without the {@link CompletionException} wrapping it.
+   */
+  @NotNull
+  public static Throwable unwrap(@NotNull Throwable error) {
+    Throwable cause = error;
+    while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+      cause = cause.getCause();
+    }
+    return cause;
+  }
+
+  /**
+   * Returns the delay before the next attempt: a random value between half and all of the
+   * exponential backoff, but never less than the delay requested by the server.
+   *
+   * @param attempt          the number of the failed attempt, starts at 1.
+   * @param retryAfterMillis the delay requested by the server, or -1.
+   */
+  public long getDelayMillis(int attempt, long retryAfterMillis) {
+    long backoff = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt - 1, 30));
+    long jittered = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+    return Math.max(jittered, retryAfterMillis);
+  }
+
+  public int getMaxAttempts() {
+    return maxAttempts;
+  }
+
+  /**
+   * Returns whether the error is temporary, so the same request may succeed later.
+   */
+  public static boolean isRetryable(@NotNull Throwable error) {
+    HttpStatusException statusException = findCause(error, HttpStatusException.class);
+    if (statusException != null) {
+      return statusException.isRetryable();
+    }
+    return findCause(error, IOException.class) != null;
+  }
+
+  /**
+   * Returns whether the error signals that the server is throttling the requests.
+   */
+  public static boolean isThrottled(@NotNull Throwable error) {
+    HttpStatusException statusException = findCause(error, HttpStatusException.class);
+    return statusException != null && statusException.isThrottled();
+  }
+
+  @Nullable
+  private static <E extends Throwable> E findCause(@NotNull Throwable error, @NotNull Class<E> type) {
+    for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+      if (type.isInstance(cause)) {
+        return type.cast(cause);
+      }
+      if (cause.getCause() == cause) break;
+    }
+    return null;
+  }
+}
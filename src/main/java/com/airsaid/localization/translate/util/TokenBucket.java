@@ -0,0 +1,137 @@
+/*
+ * Copyright 2021 Airsaid. https://github.com/airsaid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.airsaid.localization.translate.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * A token bucket that refills at a fixed rate up to its capacity.
+ * <p>
+ * Permits are reserved rather than polled: a reservation that exceeds the available
+ * tokens puts the bucket into debt and returns how long the caller has to wait, so
+ * callers are served in the order of their reservations and a single request larger
+ * than the capacity still goes through once enough tokens have been refilled.
+ *
+ * @author airsaid
+ */
+public class TokenBucket {
+
+  private final LongSupplier clock;
+  private double capacity;
+  private double tokensPerNano;
+  private double tokens;
+  private long lastRefillTime;
+
+  /**
+   * @param permitsPerSecond the refill rate, must be greater than 0.
+   * @param capacity         the maximum number of tokens, which is the largest burst.
+   */
+  public TokenBucket(double permitsPerSecond, double capacity) {
+    this(permitsPerSecond, capacity, System::nanoTime);
+  }
+
+  public TokenBucket(double permitsPerSecond, double capacity, LongSupplier nanoClock) {
+    if (permitsPerSecond <= 0) {
+      throw new IllegalArgumentException("Illegal rate: " + permitsPerSecond);
+    }
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Illegal capacity: " + capacity);
+    }
+    this.clock = nanoClock;
+    this.tokensPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+    this.capacity = capacity;
+    this.tokens = capacity;
+    this.lastRefillTime = clock.getAsLong();
+  }
+
+  /**
+   * Reserve the permits.
+   *
+   * @param permits the number of permits.
+   * @return the time in nanoseconds to wait before the permits may be used, 0 if they can be used immediately.
+   */
+  public synchronized long reserve(double permits) {
+    refill();
+    tokens -= permits;
+    if (tokens >= 0) {
+      return 0;
+    }
+    return (long) Math.ceil(-tokens / tokensPerNano);
+  }
+
+  /**
+   * Reserve the permits and wait until they may be used.
+   *
+   * @param permits the number of permits.
+   * @throws InterruptedException if the current thread is interrupted while waiting.
+   */
+  public void acquire(double permits) throws InterruptedException {
+    long waitNanos = reserve(permits);
+    if (waitNanos > 0) {
+      TimeUnit.NANOSECONDS.sleep(waitNanos);
+    }
+  }
+
+  /**
+   * Change the refill rate, tokens refilled so far are kept.
+   *
+   * @param permitsPerSecond the new refill rate, must be greater than 0.
+   */
+  public synchronized void setRate(double permitsPerSecond) {
+    if (permitsPerSecond <= 0) {
+      throw new IllegalArgumentException("Illegal rate: " + permitsPerSecond);
+    }
+    refill();
+    tokensPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+  }
+
+  public synchronized double getRate() {
+    return tokensPerNano * TimeUnit.SECONDS.toNanos(1);
+  }
+
+  public synchronized double getCapacity() {
+    return capacity;
+  }
+
+  public synchronized void setCapacity(double capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Illegal capacity: " + capacity);
+    }
+    refill();
+    this.capacity = capacity;
+    tokens = Math.min(tokens, capacity);
+  }
+
+  /**
+   * Returns the number of available tokens, negative if the bucket is in debt.
+   */
+  public synchronized double getAvailableTokens() {
+    refill();
+    return tokens;
+  }
+
+  private void refill() {
+    long now = clock.getAsLong();
+    long elapsed = now - lastRefillTime;
+    if (elapsed > 0) {
+      tokens = Math.min(capacity, tokens + elapsed * tokensPerNano);
+      lastRefillTime = now;
+    }
+  }
+}
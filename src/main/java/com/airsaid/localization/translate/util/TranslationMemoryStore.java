@@ -0,0 +1,552 @@
+/*
+ * Copyright 2021 Airsaid. https://github.com/airsaid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.airsaid.localization.translate.util;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * A persistent key-value store for translations, made of an append-only log and an index.
+ * <p>
+ * Every {@link #put(Key, String)} appends one record to the log, nothing is re-serialised.
+ * The index maps the 128-bit hash of each key to the offset of its latest record and is kept
+ * in memory, so a lookup costs a single positional read of the log. The hash is the one the key
+ * already carries, the store never builds or hashes a key string. The index is saved as a
+ * snapshot when the store is closed; on open the snapshot is loaded and only the part of the
+ * log written after it is replayed. Hash collisions are detected by comparing the language ids
+ * and the text stored in the record, a colliding key simply replaces the other one.
+ * <p>
+ * Overwritten records stay in the log until it is compacted, which happens on close once
+ * more than half of the log is garbage.
+ *
+ * @author airsaid
+ */
+public class TranslationMemoryStore implements Closeable {
+
+  private static final String LOG_FILE_NAME = "translations.log";
+  private static final String INDEX_FILE_NAME = "translations.idx";
+
+  private static final long LOG_MAGIC = 0x414C544D4C4F4702L;   // "ALTMLOG" + version
+  private static final long INDEX_MAGIC = 0x414C544D49445802L; // "ALTMIDX" + version
+  private static final long VERSION_MASK = 0xFFL;
+  private static final int LOG_HEADER_SIZE = 16;
+  private static final int INDEX_HEADER_SIZE = 36;
+  private static final int INDEX_ENTRY_SIZE = 24;
+  private static final int RECORD_HEADER_SIZE = 8;
+  private static final int RECORD_KEY_SIZE = 28;
+  private static final long MIN_COMPACT_SIZE = 1024 * 1024;
+
+  private final Path directory;
+  private final Path logPath;
+  private final Path indexPath;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  private FileChannel log;
+  private long generation;
+  private long logSize;
+  private long liveBytes;
+  private HashIndex index;
+  private boolean closed;
+
+  /**
+   * The key of a translation: the language pair, the source text and their 128-bit hash.
+   */
+  public interface Key {
+    int getFromId();
+
+    int getToId();
+
+    @NotNull
+    String getText();
+
+    long getHash1();
+
+    long getHash2();
+  }
+
+  private TranslationMemoryStore(@NotNull Path directory) {
+    this.directory = directory;
+    this.logPath = directory.resolve(LOG_FILE_NAME);
+    this.indexPath = directory.resolve(INDEX_FILE_NAME);
+  }
+
+  /**
+   * Open the store in the directory, the directory and the files are created if they don't exist.
+   */
+  @NotNull
+  public static TranslationMemoryStore open(@NotNull Path directory) throws IOException {
+    Files.createDirectories(directory);
+    TranslationMemoryStore store = new TranslationMemoryStore(directory);
+    store.load();
+    return store;
+  }
+
+  /**
+   * Returns the value of the key, or null if there is none.
+   */
+  @Nullable
+  public String get(@NotNull Key key) throws IOException {
+    lock.readLock().lock();
+    try {
+      ensureOpen();
+      long offset = index.get(key.getHash1(), key.getHash2());
+      if (offset < 0) return null;
+      Record record = readRecord(offset);
+      return record != null && record.matches(key) ? record.value : null;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Associate the value with the key, the record is appended to the log immediately.
+   */
+  public void put(@NotNull Key key, @NotNull String value) throws IOException {
+    ByteBuffer record = encodeRecord(key, value);
+    lock.writeLock().lock();
+    try {
+      ensureOpen();
+      long offset = logSize;
+      int length = record.remaining();
+      while (record.hasRemaining()) {
+        log.write(record, logSize + (length - record.remaining()));
+      }
+      logSize += length;
+      long previous = index.put(key.getHash1(), key.getHash2(), offset);
+      if (previous >= 0) {
+        liveBytes -= recordLength(previous);
+      }
+      liveBytes += length;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the number of keys in the store.
+   */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return index != null ? index.size() : 0;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Remove all entries.
+   */
+  public void clear() throws IOException {
+    lock.writeLock().lock();
+    try {
+      ensureOpen();
+      log.close();
+      Files.deleteIfExists(indexPath);
+      generation = createLog(logPath);
+      log = FileChannel.open(logPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      logSize = LOG_HEADER_SIZE;
+      liveBytes = 0;
+      index = new HashIndex();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Force the written records to the disk.
+   */
+  public void flush() throws IOException {
+    lock.writeLock().lock();
+    try {
+      ensureOpen();
+      log.force(false);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Save the index snapshot, compact the log if needed and close the files.
+   */
+  @Override
+  public void close() throws IOException {
+    lock.writeLock().lock();
+    try {
+      if (closed) return;
+      closed = true;
+      if (logSize > MIN_COMPACT_SIZE && liveBytes < (logSize - LOG_HEADER_SIZE) / 2) {
+        compact();
+      }
+      log.force(false);
+      saveIndex();
+      log.close();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void load() throws IOException {
+    if (!Files.exists(logPath) || Files.size(logPath) < LOG_HEADER_SIZE) {
+      Files.deleteIfExists(indexPath);
+      createLog(logPath);
+    }
+    log = FileChannel.open(logPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    ByteBuffer header = readFully(0, LOG_HEADER_SIZE);
+    long magic = header != null ? header.getLong() : 0;
+    if (magic != LOG_MAGIC && (magic & ~VERSION_MASK) == (LOG_MAGIC & ~VERSION_MASK)) {
+      // the records of an older version are keyed differently, the memory is started afresh
+      log.close();
+      Files.deleteIfExists(indexPath);
+      createLog(logPath);
+      log = FileChannel.open(logPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      header = readFully(0, LOG_HEADER_SIZE);
+      magic = header != null ? header.getLong() : 0;
+    }
+    if (magic != LOG_MAGIC) {
+      throw new IOException("Not a translation memory log: " + logPath);
+    }
+    generation = header.getLong();
+    logSize = log.size();
+
+    long replayFrom = loadIndex();
+    if (replayFrom < 0) {
+      index = new HashIndex();
+      liveBytes = 0;
+      replayFrom = LOG_HEADER_SIZE;
+    }
+    replay(replayFrom);
+  }
+
+  /**
+   * Load the index snapshot.
+   *
+   * @return the log offset up to which the snapshot is valid, or -1 if there is no valid snapshot.
+   */
+  private long loadIndex() throws IOException {
+    if (!Files.exists(indexPath)) return -1;
+    try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < INDEX_HEADER_SIZE) return -1;
+      ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(size, Integer.MAX_VALUE));
+      while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+        // read the whole snapshot
+      }
+      buffer.flip();
+      if (buffer.getLong() != INDEX_MAGIC || buffer.getLong() != generation) return -1;
+      long indexedLogSize = buffer.getLong();
+      long indexedLiveBytes = buffer.getLong();
+      int count = buffer.getInt();
+      if (indexedLogSize > logSize || buffer.remaining() != (long) count * INDEX_ENTRY_SIZE) return -1;
+      HashIndex map = new HashIndex(count);
+      for (int i = 0; i < count; i++) {
+        map.put(buffer.getLong(), buffer.getLong(), buffer.getLong());
+      }
+      index = map;
+      liveBytes = indexedLiveBytes;
+      return indexedLogSize;
+    }
+  }
+
+  private void saveIndex() throws IOException {
+    HashIndex map = index;
+    ByteBuffer buffer = ByteBuffer.allocate(INDEX_HEADER_SIZE + map.size() * INDEX_ENTRY_SIZE);
+    buffer.putLong(INDEX_MAGIC).putLong(generation).putLong(logSize).putLong(liveBytes).putInt(map.size());
+    map.forEach((hash1, hash2, offset) -> buffer.putLong(hash1).putLong(hash2).putLong(offset));
+    buffer.flip();
+    Path tempPath = directory.resolve(INDEX_FILE_NAME + ".tmp");
+    try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.force(false);
+    }
+    Files.move(tempPath, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Add the records from the offset to the end of the log to the index,
+   * a torn record at the end of the log (e.g. after a crash) is truncated.
+   */
+  private void replay(long offset) throws IOException {
+    while (offset < logSize) {
+      Record record = readRecord(offset);
+      if (record == null) {
+        log.truncate(offset);
+        logSize = offset;
+        break;
+      }
+      long previous = index.put(record.hash1, record.hash2, offset);
+      if (previous >= 0) {
+        liveBytes -= recordLength(previous);
+      }
+      liveBytes += record.length;
+      offset += record.length;
+    }
+  }
+
+  /**
+   * Rewrite the live records into a new log, with a new generation.
+   */
+  private void compact() throws IOException {
+    Path tempPath = directory.resolve(LOG_FILE_NAME + ".tmp");
+    long newGeneration = createLog(tempPath);
+    HashIndex newIndex = new HashIndex(index.size());
+    long[] newSize = {LOG_HEADER_SIZE};
+    try (FileChannel out = FileChannel.open(tempPath, StandardOpenOption.WRITE)) {
+      IOException[] error = new IOException[1];
+      index.forEach((hash1, hash2, offset) -> {
+        if (error[0] != null) return;
+        try {
+          int length = recordLength(offset);
+          ByteBuffer buffer = readFully(offset, length);
+          if (buffer == null) return;
+          newIndex.put(hash1, hash2, newSize[0]);
+          while (buffer.hasRemaining()) {
+            newSize[0] += out.write(buffer, newSize[0]);
+          }
+        } catch (IOException e) {
+          error[0] = e;
+        }
+      });
+      if (error[0] != null) throw error[0];
+      out.force(false);
+    }
+    log.close();
+    Files.move(tempPath, logPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    log = FileChannel.open(logPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    generation = newGeneration;
+    index = newIndex;
+    logSize = newSize[0];
+    liveBytes = logSize - LOG_HEADER_SIZE;
+  }
+
+  private static long createLog(@NotNull Path path) throws IOException {
+    long generation = ThreadLocalRandom.current().nextLong();
+    ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_SIZE).putLong(LOG_MAGIC).putLong(generation);
+    header.flip();
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      while (header.hasRemaining()) {
+        channel.write(header);
+      }
+    }
+    return generation;
+  }
+
+  /**
+   * Record layout: payload length (int), CRC32 of the payload (int),
+   * payload: hash of the key (2 longs), from and to language ids (2 ints), text length (int), UTF-8 text,
+   * UTF-8 value. The hash is stored, so the index is rebuilt from the log without hashing again.
+   */
+  @NotNull
+  private static ByteBuffer encodeRecord(@NotNull Key key, @NotNull String value) {
+    byte[] textBytes = key.getText().getBytes(StandardCharsets.UTF_8);
+    byte[] valueBytes = value.getBytes(StandardCharsets.UTF_8);
+    int payloadLength = RECORD_KEY_SIZE + textBytes.length + valueBytes.length;
+    ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_SIZE + payloadLength);
+    buffer.putInt(payloadLength).putInt(0)
+        .putLong(key.getHash1()).putLong(key.getHash2()).putInt(key.getFromId()).putInt(key.getToId())
+        .putInt(textBytes.length).put(textBytes).put(valueBytes);
+    CRC32 crc = new CRC32();
+    crc.update(buffer.array(), RECORD_HEADER_SIZE, payloadLength);
+    buffer.putInt(4, (int) crc.getValue());
+    buffer.flip();
+    return buffer;
+  }
+
+  /**
+   * Read the record at the offset.
+   *
+   * @return the record, or null if it is incomplete or corrupted.
+   */
+  @Nullable
+  private Record readRecord(long offset) throws IOException {
+    ByteBuffer header = readFully(offset, RECORD_HEADER_SIZE);
+    if (header == null) return null;
+    int payloadLength = header.getInt();
+    int checksum = header.getInt();
+    if (payloadLength < RECORD_KEY_SIZE || offset + RECORD_HEADER_SIZE + payloadLength > logSize) return null;
+    ByteBuffer payload = readFully(offset + RECORD_HEADER_SIZE, payloadLength);
+    if (payload == null) return null;
+    CRC32 crc = new CRC32();
+    crc.update(payload.array(), 0, payloadLength);
+    if ((int) crc.getValue() != checksum) return null;
+    long hash1 = payload.getLong();
+    long hash2 = payload.getLong();
+    int fromId = payload.getInt();
+    int toId = payload.getInt();
+    int textLength = payload.getInt();
+    if (textLength < 0 || textLength > payloadLength - RECORD_KEY_SIZE) return null;
+    String text = new String(payload.array(), RECORD_KEY_SIZE, textLength, StandardCharsets.UTF_8);
+    int valueOffset = RECORD_KEY_SIZE + textLength;
+    String value = new String(payload.array(), valueOffset, payloadLength - valueOffset, StandardCharsets.UTF_8);
+    return new Record(hash1, hash2, fromId, toId, text, value, RECORD_HEADER_SIZE + payloadLength);
+  }
+
+  private int recordLength(long offset) throws IOException {
+    ByteBuffer header = readFully(offset, 4);
+    return header != null ? RECORD_HEADER_SIZE + header.getInt() : 0;
+  }
+
+  @Nullable
+  private ByteBuffer readFully(long position, int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining()) {
+      int read = log.read(buffer, position + buffer.position());
+      if (read < 0) return null;
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  private void ensureOpen() throws IOException {
+    if (closed) {
+      throw new IOException("Translation memory is closed: " + directory);
+    }
+  }
+
+  private static class Record {
+    final long hash1;
+    final long hash2;
+    final int fromId;
+    final int toId;
+    final String text;
+    final String value;
+    final int length;
+
+    Record(long hash1, long hash2, int fromId, int toId, String text, String value, int length) {
+      this.hash1 = hash1;
+      this.hash2 = hash2;
+      this.fromId = fromId;
+      this.toId = toId;
+      this.text = text;
+      this.value = value;
+      this.length = length;
+    }
+
+    boolean matches(@NotNull Key key) {
+      return fromId == key.getFromId() && toId == key.getToId() && text.equals(key.getText());
+    }
+  }
+
+  /**
+   * An open addressing hash map from a 128-bit hash to a log offset, which takes 24 bytes per entry.
+   */
+  private static class HashIndex {
+    // the offsets of records are never 0, which is within the header of the log
+    private static final long EMPTY = 0;
+
+    private long[] hashes1;
+    private long[] hashes2;
+    private long[] offsets;
+    private int size;
+
+    HashIndex() {
+      this(16);
+    }
+
+    HashIndex(int expectedSize) {
+      int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+      hashes1 = new long[capacity];
+      hashes2 = new long[capacity];
+      offsets = new long[capacity];
+    }
+
+    long get(long hash1, long hash2) {
+      int mask = offsets.length - 1;
+      for (int i = mix(hash1) & mask; ; i = (i + 1) & mask) {
+        if (offsets[i] == EMPTY) return -1;
+        if (hashes1[i] == hash1 && hashes2[i] == hash2) return offsets[i];
+      }
+    }
+
+    /**
+     * @return the previous offset, or -1 if there was none.
+     */
+    long put(long hash1, long hash2, long offset) {
+      int mask = offsets.length - 1;
+      int i = mix(hash1) & mask;
+      for (; offsets[i] != EMPTY; i = (i + 1) & mask) {
+        if (hashes1[i] == hash1 && hashes2[i] == hash2) {
+          long previous = offsets[i];
+          offsets[i] = offset;
+          return previous;
+        }
+      }
+      hashes1[i] = hash1;
+      hashes2[i] = hash2;
+      offsets[i] = offset;
+      if (++size * 2 > offsets.length) {
+        resize();
+      }
+      return -1;
+    }
+
+    int size() {
+      return size;
+    }
+
+    void forEach(@NotNull EntryConsumer consumer) {
+      for (int i = 0; i < offsets.length; i++) {
+        if (offsets[i] != EMPTY) {
+          consumer.accept(hashes1[i], hashes2[i], offsets[i]);
+        }
+      }
+    }
+
+    private void resize() {
+      long[] oldHashes1 = hashes1;
+      long[] oldHashes2 = hashes2;
+      long[] oldOffsets = offsets;
+      hashes1 = new long[oldOffsets.length * 2];
+      hashes2 = new long[oldOffsets.length * 2];
+      offsets = new long[oldOffsets.length * 2];
+      size = 0;
+      for (int i = 0; i < oldOffsets.length; i++) {
+        if (oldOffsets[i] != EMPTY) {
+          put(oldHashes1[i], oldHashes2[i], oldOffsets[i]);
+        }
+      }
+    }
+
+    private static int mix(long hash) {
+      // the hash is already well distributed
+      return (int) (hash ^ (hash >>> 32));
+    }
+  }
+
+  private interface EntryConsumer {
+    void accept(long hash1, long hash2, long offset);
+  }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2021 Airsaid. https://github.com/airsaid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.airsaid.localization.ui;
+
+import com.airsaid.localization.translate.services.HttpTransportService;
+import com.airsaid.localization.translate.services.TranslationCacheService;
+import com.airsaid.localization.translate.services.TranslationMetricsService;
+import com.airsaid.localization.translate.services.TranslatorMetrics;
+import com.airsaid.localization.translate.util.HostMetrics;
+import com.airsaid.localization.translate.util.LatencyHistogram;
+import com.airsaid.localization.utils.NotificationUtil;
+import com.intellij.icons.AllIcons;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.actionSystem.ActionManager;
+import com.intellij.openapi.actionSystem.ActionToolbar;
+import com.intellij.openapi.actionSystem.DefaultActionGroup;
+import com.intellij.openapi.fileChooser.FileChooserFactory;
+import com.intellij.openapi.fileChooser.FileSaverDescriptor;
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.project.DumbAwareAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.SimpleToolWindowPanel;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileWrapper;
+import com.intellij.openapi.wm.ToolWindow;
+import com.intellij.openapi.wm.ToolWindowFactory;
+import com.intellij.ui.components.JBLabel;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.content.Content;
+import com.intellij.ui.content.ContentFactory;
+import com.intellij.ui.table.JBTable;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Shows the metrics of {@link TranslationMetricsService}: the requests of each translator,
+ * the translation cache and the HTTP connections, refreshed every second while the tool window is open.
+ *
+ * @author airsaid
+ */
+public class TranslationMetricsToolWindowFactory implements ToolWindowFactory, DumbAware {
+
+  private static final int REFRESH_INTERVAL_MILLIS = 1000;
+
+  private static final String[] TRANSLATOR_COLUMNS = {"Translator", "Requests", "Failed requests", "Retries",
+      "Throttled", "Failures", "Characters", "Hedges", "Hedge wins", "p50 (ms)", "p95 (ms)", "p99 (ms)", "Max (ms)", "In flight", "Queued"};
+  private static final String[] HOST_COLUMNS = {"Host", "Requests", "Failures", "Error responses", "Connections",
+      "Reused", "HTTP/2", "Compressed", "Received bytes", "Decoded bytes", "Average (ms)"};
+
+  @Override
+  public void createToolWindowContent(@NotNull Project project, @NotNull ToolWindow toolWindow) {
+    MetricsPanel panel = new MetricsPanel(project);
+    Content content = ContentFactory.SERVICE.getInstance().createContent(panel, "", false);
+    content.setDisposer(panel);
+    toolWindow.getContentManager().addContent(content);
+  }
+
+  private static class MetricsPanel extends SimpleToolWindowPanel implements Disposable {
+
+    private final Project project;
+    private final DefaultTableModel translatorModel = new ReadOnlyTableModel(TRANSLATOR_COLUMNS);
+    private final DefaultTableModel hostModel = new ReadOnlyTableModel(HOST_COLUMNS);
+    private final JBLabel cacheLabel = new JBLabel();
+    private final JBLabel sinceLabel = new JBLabel();
+    private final Timer timer;
+
+    MetricsPanel(@NotNull Project project) {
+      super(true, true);
+      this.project = project;
+
+      DefaultActionGroup group = new DefaultActionGroup();
+      group.add(DumbAwareAction.create("Refresh", AllIcons.Actions.Refresh, e -> refresh()));
+      group.add(DumbAwareAction.create("Reset", AllIcons.Actions.GC, e -> {
+        TranslationMetricsService.getInstance().reset();
+        refresh();
+      }));
+      group.add(DumbAwareAction.create("Export JSON...", AllIcons.ToolbarDecorator.Export, e -> exportJson()));
+      ActionToolbar toolbar = ActionManager.getInstance().createActionToolbar("TranslationMetrics", group, true);
+      toolbar.setTargetComponent(this);
+      setToolbar(toolbar.getComponent());
+
+      JPanel labels = new JPanel(new GridLayout(2, 1));
+      labels.add(sinceLabel);
+      labels.add(cacheLabel);
+
+      JBTable translatorTable = new JBTable(translatorModel);
+      JBTable hostTable = new JBTable(hostModel);
+      JSplitPane tables = new JSplitPane(JSplitPane.VERTICAL_SPLIT,
+          new JBScrollPane(translatorTable), new JBScrollPane(hostTable));
+      tables.setResizeWeight(0.6);
+
+      JPanel contentPanel = new JPanel(new BorderLayout());
+      contentPanel.add(labels, BorderLayout.NORTH);
+      contentPanel.add(tables, BorderLayout.CENTER);
+      setContent(contentPanel);
+
+      refresh();
+      timer = new Timer(REFRESH_INTERVAL_MILLIS, e -> {
+        if (isShowing()) refresh();
+      });
+      timer.start();
+    }
+
+    private void refresh() {
+      TranslationMetricsService metricsService = TranslationMetricsService.getInstance();
+      sinceLabel.setText("Since " + metricsService.getStartTime());
+
+      TranslationCacheService cache = TranslationCacheService.getInstance();
+      cacheLabel.setText(String.format("Cache: %d memory hits, %d disk hits, %d misses (%.1f%% hit rate), "
+              + "%d evictions, %d / %d in memory", cache.getMemoryHitCount(), cache.getStoreHitCount(),
+          cache.getMissCount(), cache.getHitRate() * 100, cache.getEvictionCount(), cache.getSize(), cache.getMaxSize()));
+
+      translatorModel.setRowCount(0);
+      for (TranslatorMetrics metrics : metricsService.getAllTranslatorMetrics().values()) {
+        LatencyHistogram latency = metrics.getLatency();
+        translatorModel.addRow(new Object[]{metrics.getTranslatorKey(), metrics.getRequests(),
+            metrics.getFailedRequests(), metrics.getRetries(), metrics.getThrottledRetries(), metrics.getFailures(),
+            metrics.getCharacters(), metrics.getHedges(), metrics.getHedgeWins(),
+            formatMillis(latency.getPercentileMillis(50)), formatMillis(latency.getPercentileMillis(95)),
+            formatMillis(latency.getPercentileMillis(99)), formatMillis(latency.getMaxMillis()),
+            metrics.getInFlight(), metrics.getQueued()});
+      }
+
+      hostModel.setRowCount(0);
+      for (Map.Entry<String, HostMetrics> entry : HttpTransportService.getInstance().getMetrics().entrySet()) {
+        HostMetrics metrics = entry.getValue();
+        hostModel.addRow(new Object[]{entry.getKey(), metrics.getRequests(), metrics.getFailures(),
+            metrics.getErrorResponses(), metrics.getConnections(), metrics.getReusedConnections(),
+            metrics.getHttp2Responses(), metrics.getCompressedResponses(), metrics.getReceivedBytes(),
+            metrics.getDecodedBytes(), formatMillis(metrics.getAverageMillis())});
+      }
+    }
+
+    private void exportJson() {
+      FileSaverDescriptor descriptor = new FileSaverDescriptor("Export Translation Metrics",
+          "Save the translation metrics as a JSON file", "json");
+      VirtualFileWrapper wrapper = FileChooserFactory.getInstance().createSaveFileDialog(descriptor, project)
+          .save((VirtualFile) null, "translation-metrics.json");
+      if (wrapper == null) return;
+      try {
+        TranslationMetricsService.getInstance().writeJson(wrapper.getFile().toPath());
+        NotificationUtil.notifyInfo(project, "Exported the translation metrics to " + wrapper.getFile());
+      } catch (IOException e) {
+        NotificationUtil.notifyError(project, "Failed to export the translation metrics: " + e.getMessage());
+      }
+    }
+
+    @NotNull
+    private static String formatMillis(double millis) {
+      return String.format("%.1f", millis);
+    }
+
+    @Override
+    public void dispose() {
+      timer.stop();
+    }
+  }
+
+  private static class ReadOnlyTableModel extends DefaultTableModel {
+    ReadOnlyTableModel(String[] columns) {
+      super(columns, 0);
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2021 Airsaid. https://github.com/airsaid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.airsaid.localization.utils;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A streaming reader of CSV files as saved by spreadsheet applications (RFC 4180): quoted fields may
+ * contain separators, line breaks and quotes, which are doubled. Only one row is held in memory at a time.
+ *
+ * @author airsaid
+ */
+public class CsvReader implements Closeable {
+
+  private static final int NONE = -2;
+
+  private final Reader reader;
+  private final char separator;
+  private int pushback = NONE;
+  private int lineNumber = 1;
+  private boolean isStarted;
+
+  /**
+   * @param reader    the reader of the CSV text, it should be buffered.
+   * @param separator the field separator, eg: a comma, or a semicolon in locales that use the comma as decimal point.
+   */
+  public CsvReader(@NotNull Reader reader, char separator) {
+    this.reader = reader;
+    this.separator = separator;
+  }
+
+  /**
+   * Returns the fields of the next row, or null at the end of the input.
+   *
+   * @throws IOException if a quoted field isn't closed.
+   */
+  @Nullable
+  public List<String> readRow() throws IOException {
+    int c = read();
+    if (!isStarted) {
+      isStarted = true;
+      // skip the byte order mark that spreadsheet applications put in front of UTF-8 files
+      if (c == '\uFEFF') c = read();
+    }
+    if (c == -1) return null;
+
+    List<String> row = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    boolean isQuoted = false;
+    int startLineNumber = lineNumber;
+    while (true) {
+      if (isQuoted) {
+        if (c == -1) {
+          throw new IOException("Unterminated quoted field at line " + startLineNumber);
+        }
+        if (c == '"') {
+          c = read();
+          if (c != '"') {
+            // the closing quote, the character after it is read as an unquoted one
+            isQuoted = false;
+            continue;
+          }
+        } else if (c == '\n') {
+          lineNumber++;
+        }
+        field.append((char) c);
+      } else if (c == '"' && field.length() == 0) {
+        isQuoted = true;
+      } else if (c == separator) {
+        row.add(field.toString());
+        field.setLength(0);
+      } else if (c == '\r' || c == '\n' || c == -1) {
+        if (c == '\r') {
+          int next = read();
+          if (next != '\n') pushback = next;
+        }
+        if (c != -1) lineNumber++;
+        row.add(field.toString());
+        return row;
+      } else {
+        field.append((char) c);
+      }
+      c = read();
+    }
+  }
+
+  /**
+   * Returns the line number of the next row, starting at 1.
+   */
+  public int getLineNumber() {
+    return lineNumber;
+  }
+
+  private int read() throws IOException {
+    if (pushback != NONE) {
+      int c = pushback;
+      pushback = NONE;
+      return c;
+    }
+    return reader.read();
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader.close();
+  }
+}
@@ -1,104 +1,136 @@
 package com.airsaid.localization.utils;
 
 import com.airsaid.localization.translate.lang.Lang;
-import com.intellij.openapi.application.ApplicationManager;
-import com.intellij.openapi.util.Computable;
-import com.intellij.openapi.util.Pair;
-import com.intellij.psi.PsiElement;
-import com.intellij.psi.xml.XmlTag;
+import com.airsaid.localization.values.ValuesEntry;
+import com.airsaid.localization.values.ValuesNode;
 import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.xssf.usermodel.XSSFSheet;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.WorkbookUtil;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 
+/**
+ * Exports the default strings and their translations to a spreadsheet, one sheet per values file,
+ * one row per string and one column per language.
+ * <p>
+ * The workbook is written with a streaming row window: a sheet is written in a single pass once all
+ * languages of its values file are translated, and rows that left the window are flushed to a temporary
+ * file, so the memory footprint doesn't grow with the number of rows and columns. Every item of plurals
+ * and string arrays gets its own row, named by {@link #getItemName(String, ValuesEntry.Item, int)}.
+ */
 public class ExportExcelOperator {
 
-  private final XSSFWorkbook workbook;
-  private final XSSFSheet sheet;
+  // number of rows kept in memory, older rows are flushed to disk
+  private static final int ROW_ACCESS_WINDOW = 100;
+
+  private final SXSSFWorkbook workbook;
 
   public ExportExcelOperator() {
-    workbook = new XSSFWorkbook();
-    sheet = workbook.createSheet();
-    Row languagesNameRow = sheet.createRow(0);
-    languagesNameRow.createCell(0).setCellValue("Translate Output");
-    languagesNameRow.createCell(1).setCellValue("Default");
+    workbook = new SXSSFWorkbook(ROW_ACCESS_WINDOW);
+    workbook.setCompressTempFiles(true);
   }
 
-  public XSSFWorkbook getWorkbook() {
-    return workbook;
-  }
+  /**
+   * Write the sheet of a values file, every translated values file gets its own sheet.
+   *
+   * @param title            the title of the sheet, eg: the path of the values file.
+   * @param originalValues   the entries of the default values file.
+   * @param translatedValues the translated values by language, in the order of the columns.
+   */
+  public void writeSheet(@NotNull String title,
+                         @NotNull List<ValuesEntry> originalValues,
+                         @NotNull Map<Lang, List<ValuesNode>> translatedValues) {
+    // sheet names are limited to 31 characters, the number keeps them unique
+    String sheetName = WorkbookUtil.createSafeSheetName((workbook.getNumberOfSheets() + 1) + " " + title);
+    Sheet sheet = workbook.createSheet(sheetName);
 
-  public XSSFSheet getSheet() {
-    return sheet;
-  }
+    // fill the header row with target language codes, and index each translated snapshot once
+    Row headerRow = sheet.createRow(0);
+    headerRow.createCell(0).setCellValue(title);
+    headerRow.createCell(1).setCellValue("Default");
+    List<Map<String, ValuesEntry>> columns = new ArrayList<>(translatedValues.size());
+    for (Map.Entry<Lang, List<ValuesNode>> languageValues : translatedValues.entrySet()) {
+      headerRow.createCell(columns.size() + 2).setCellValue(languageValues.getKey().getCode());
+      Map<String, ValuesEntry> entries = new HashMap<>();
+      for (ValuesNode node : languageValues.getValue()) {
+        if (node instanceof ValuesEntry) {
+          ValuesEntry entry = (ValuesEntry) node;
+          entries.put(entry.getName(), entry);
+        }
+      }
+      columns.add(entries);
+    }
 
-  public void fillDefaultStrings(@NotNull List<PsiElement> values) {
+    // started with first row of data, rows are only ever appended
     int rowCount = 1;
-    for (PsiElement element : values) {
-      if (element instanceof XmlTag) {
-        XmlTag tag = (XmlTag) element;
-        Pair<String, String> pair = ApplicationManager.getApplication().runReadAction((Computable<Pair<String, String>>) () ->
-            Pair.create(tag.getAttributeValue("name"), tag.getValue().getText())
-        );
+    for (ValuesEntry entry : originalValues) {
+      List<ValuesEntry.Item> items = entry.getItems();
+      if (items.isEmpty()) {
+        Row row = createRow(sheet, rowCount++, entry.getName(), entry.getValueText());
+        for (int i = 0; i < columns.size(); i++) {
+          ValuesEntry translatedEntry = columns.get(i).get(entry.getName());
+          if (translatedEntry != null) {
+            row.createCell(i + 2).setCellValue(translatedEntry.getValueText());
+          }
+        }
+        continue;
+      }
 
-        Row row = sheet.createRow(rowCount);
-        rowCount++;
-        row.createCell(0).setCellValue(pair.first);
-        row.createCell(1).setCellValue(pair.second);
+      for (int index = 0; index < items.size(); index++) {
+        ValuesEntry.Item item = items.get(index);
+        Row row = createRow(sheet, rowCount++, getItemName(entry.getName(), item, index), item.getValueText());
+        for (int i = 0; i < columns.size(); i++) {
+          ValuesEntry.Item translatedItem = findItem(columns.get(i).get(entry.getName()), item, index);
+          if (translatedItem != null) {
+            row.createCell(i + 2).setCellValue(translatedItem.getValueText());
+          }
+        }
       }
     }
   }
 
-  // TODO: 7/5/22 figure out how to export plurals data
-  public void writeLanguageColumn(int column, @NotNull List<PsiElement> originalValues, @NotNull List<PsiElement> translatedValues, @NotNull Lang toLang) {
-    Map<String, PsiElement> translatedValuesMap = translatedValues.stream().collect(Collectors.toMap(
-        psiElement -> {
-          if (psiElement instanceof XmlTag) {
-            XmlTag tag = (XmlTag) psiElement;
-            return ApplicationManager.getApplication().runReadAction((Computable<String>) () ->
-                tag.getAttributeValue("name"));
-          } else {
-            return UUID.randomUUID().toString();
-          }
-        },
-        Function.identity()
-    ));
+  /**
+   * Returns the name of the row of an item: "name:quantity" for plurals and "name[index]" for string arrays.
+   */
+  @NotNull
+  public static String getItemName(@NotNull String name, @NotNull ValuesEntry.Item item, int index) {
+    return item.getQuantity() != null ? name + ":" + item.getQuantity() : name + "[" + index + "]";
+  }
 
-    // fill the header row with target language code
-    Row headerRow = sheet.getRow(0);
-    headerRow.createCell(column).setCellValue(toLang.getCode());
+  private static Row createRow(@NotNull Sheet sheet, int rowNumber, @NotNull String name, @NotNull String value) {
+    Row row = sheet.createRow(rowNumber);
+    row.createCell(0).setCellValue(name);
+    row.createCell(1).setCellValue(value);
+    return row;
+  }
 
-    // started with first row of data
-    int rowCount = 1;
-    for (PsiElement element : originalValues) {
-      if (element instanceof XmlTag) {
-        XmlTag tag = (XmlTag) element;
-        String name = ApplicationManager.getApplication().runReadAction((Computable<String>) () -> tag.getAttributeValue("name"));
-        if (translatedValuesMap.containsKey(name)) {
-          // skip the header row
-          Row currentRow = sheet.getRow(rowCount);
-          // find the translated element from map
-          PsiElement translatedElement = translatedValuesMap.get(name);
-          if (translatedElement instanceof XmlTag) {
-            XmlTag translatedTag = (XmlTag) translatedElement;
-            String value = ApplicationManager.getApplication().runReadAction(
-                (Computable<String>) () -> translatedTag.getValue().getText());
-            currentRow.createCell(column).setCellValue(value);
-          }
-        }
-        // encounter with untranslatable strings, row number is still increase
-        rowCount++;
+  /**
+   * Find the translated item of a default item: plurals match by quantity, as languages
+   * have different quantities, and string arrays match by index.
+   */
+  @Nullable
+  private static ValuesEntry.Item findItem(@Nullable ValuesEntry translatedEntry, @NotNull ValuesEntry.Item item, int index) {
+    if (translatedEntry == null) return null;
+    List<ValuesEntry.Item> translatedItems = translatedEntry.getItems();
+    if (item.getQuantity() == null) {
+      return index < translatedItems.size() ? translatedItems.get(index) : null;
+    }
+    for (ValuesEntry.Item translatedItem : translatedItems) {
+      if (item.getQuantity().equals(translatedItem.getQuantity())) {
+        return translatedItem;
       }
     }
+    return null;
   }
 
   // TODO: 7/6/22 deal with return value
@@ -112,12 +144,16 @@ public class ExportExcelOperator {
       }
       boolean isCreated = file.createNewFile();
       if (isCreated) {
-        FileOutputStream outputStream = new FileOutputStream(file);
-        workbook.write(outputStream);
+        try (OutputStream outputStream = new FileOutputStream(file)) {
+          workbook.write(outputStream);
+        }
       }
       workbook.close();
     } catch (IOException e) {
       e.printStackTrace();
+    } finally {
+      // delete the temporary files of the flushed rows
+      workbook.dispose();
     }
   }
 }
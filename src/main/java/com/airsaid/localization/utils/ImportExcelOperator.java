@@ -0,0 +1,172 @@
+/*
+ * Copyright 2021 Airsaid. https://github.com/airsaid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.airsaid.localization.utils;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.jetbrains.annotations.NotNull;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads spreadsheets in the layout of {@link ExportExcelOperator} back, eg: after reviewers corrected
+ * the translations: xlsx files with the SAX based event API of POI and CSV files with {@link CsvReader}.
+ * <p>
+ * Rows are handed over one at a time and never kept, so the memory doesn't grow with the size of the sheet.
+ *
+ * @author airsaid
+ */
+public class ImportExcelOperator {
+
+  private static final String EXTENSION_CSV = "csv";
+  private static final String EXTENSION_XLSX = "xlsx";
+
+  /**
+   * Receives the rows of the sheets, in order.
+   */
+  public interface RowHandler {
+    void startSheet(@NotNull String sheetName);
+
+    /**
+     * @param rowNumber the number of the row, starting at 0 for the header row.
+     * @param cells     the values of the cells by column, empty cells are null or empty.
+     */
+    void row(int rowNumber, @NotNull List<String> cells);
+
+    void endSheet();
+  }
+
+  private ImportExcelOperator() {
+  }
+
+  public static boolean isSupportedFile(@NotNull String fileName) {
+    String name = fileName.toLowerCase();
+    return name.endsWith("." + EXTENSION_CSV) || name.endsWith("." + EXTENSION_XLSX);
+  }
+
+  /**
+   * Read a xlsx or CSV file, a CSV file is a single sheet named after the file.
+   */
+  public static void read(@NotNull File file, @NotNull RowHandler handler) throws IOException {
+    if (file.getName().toLowerCase().endsWith("." + EXTENSION_CSV)) {
+      readCsv(file, handler);
+    } else {
+      readXlsx(file, handler);
+    }
+  }
+
+  private static void readCsv(@NotNull File file, @NotNull RowHandler handler) throws IOException {
+    try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+      char separator = detectSeparator(reader);
+      CsvReader csvReader = new CsvReader(reader, separator);
+      handler.startSheet(file.getName());
+      int rowNumber = 0;
+      List<String> row;
+      while ((row = csvReader.readRow()) != null) {
+        handler.row(rowNumber++, row);
+      }
+      handler.endSheet();
+    }
+  }
+
+  /**
+   * Spreadsheet applications save CSV files with a semicolon in locales that use the comma as decimal point,
+   * the header row tells which one it is.
+   */
+  private static char detectSeparator(@NotNull BufferedReader reader) throws IOException {
+    int limit = 8192;
+    reader.mark(limit);
+    int commas = 0;
+    int semicolons = 0;
+    int c;
+    for (int i = 0; i < limit && (c = reader.read()) != -1 && c != '\n'; i++) {
+      if (c == ',') commas++;
+      else if (c == ';') semicolons++;
+    }
+    reader.reset();
+    return semicolons > commas ? ';' : ',';
+  }
+
+  private static void readXlsx(@NotNull File file, @NotNull RowHandler handler) throws IOException {
+    try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ)) {
+      ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+      XSSFReader reader = new XSSFReader(pkg);
+      StylesTable styles = reader.getStylesTable();
+      XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+      while (sheets.hasNext()) {
+        try (InputStream is = sheets.next()) {
+          handler.startSheet(sheets.getSheetName());
+          XMLReader parser = XMLHelper.newXMLReader();
+          parser.setContentHandler(new XSSFSheetXMLHandler(styles, strings, new SheetContents(handler), false));
+          parser.parse(new InputSource(is));
+          handler.endSheet();
+        }
+      }
+    } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+      throw new IOException("Failed to read " + file.getName() + ": " + e.getMessage(), e);
+    }
+  }
+
+  private static class SheetContents implements XSSFSheetXMLHandler.SheetContentsHandler {
+    private final RowHandler handler;
+    private final List<String> cells = new ArrayList<>();
+
+    SheetContents(RowHandler handler) {
+      this.handler = handler;
+    }
+
+    @Override
+    public void startRow(int rowNum) {
+      cells.clear();
+    }
+
+    @Override
+    public void endRow(int rowNum) {
+      handler.row(rowNum, cells);
+    }
+
+    @Override
+    public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+      // the reference is left out by some writers, then the cell follows the previous one
+      int column = cellReference != null ? new CellReference(cellReference).getCol() : cells.size();
+      while (cells.size() < column) {
+        cells.add(null);
+      }
+      cells.add(formattedValue);
+    }
+  }
+}
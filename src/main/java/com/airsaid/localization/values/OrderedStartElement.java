@@ -0,0 +1,213 @@
+/*
+ * Copyright 2021 Airsaid. https://github.com/airsaid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.airsaid.localization.values;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.namespace.QName;
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.Characters;
+import javax.xml.stream.events.EndElement;
+import javax.xml.stream.events.Namespace;
+import javax.xml.stream.events.StartElement;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A start element that returns its attributes in document order, the events of the JDK
+ * keep them in a hash map, which would reorder the attributes of every written tag.
+ * It also keeps what the events don't, so the tag is written back as it was read: whether the tag was empty,
+ * eg: {@code <string name="empty"/>}, the position of the namespace declarations among the attributes
+ * and the quote of each value.
+ *
+ * @author airsaid
+ */
+final class OrderedStartElement implements StartElement {
+
+  private final StartElement delegate;
+  // the attributes and namespace declarations in document order
+  private final List<Attribute> declarations;
+  private final List<Attribute> attributes;
+  // the quote of each declaration, in the same order
+  private final String quotes;
+  private final boolean isEmpty;
+
+  OrderedStartElement(@NotNull StartElement delegate, @NotNull List<Attribute> declarations,
+                      @NotNull String quotes, boolean isEmpty) {
+    if (quotes.length() != declarations.size()) {
+      throw new IllegalArgumentException("Expected " + declarations.size() + " quotes, but was " + quotes.length());
+    }
+    this.delegate = delegate;
+    this.declarations = declarations;
+    this.quotes = quotes;
+    this.isEmpty = isEmpty;
+    attributes = new ArrayList<>(declarations.size());
+    for (Attribute declaration : declarations) {
+      if (!(declaration instanceof Namespace)) {
+        attributes.add(declaration);
+      }
+    }
+  }
+
+  /**
+   * Returns true if the element was read from an empty tag, it is written back as one while it has no content.
+   */
+  boolean isEmpty() {
+    return isEmpty;
+  }
+
+  @NotNull
+  OrderedStartElement asEmpty() {
+    return new OrderedStartElement(delegate, declarations, quotes, true);
+  }
+
+  /**
+   * Returns the attributes and namespace declarations, which are {@link Namespace} instances, in document order.
+   */
+  @NotNull
+  List<Attribute> getDeclarations() {
+    return declarations;
+  }
+
+  /**
+   * Returns the quote of the value of the declaration at the index in {@link #getDeclarations()}.
+   */
+  char getQuote(int index) {
+    return quotes.charAt(index);
+  }
+
+  @Override
+  public QName getName() {
+    return delegate.getName();
+  }
+
+  @Override
+  public Iterator<Attribute> getAttributes() {
+    return attributes.iterator();
+  }
+
+  @Override
+  public Iterator<Namespace> getNamespaces() {
+    return delegate.getNamespaces();
+  }
+
+  @Override
+  public Attribute getAttributeByName(QName name) {
+    return delegate.getAttributeByName(name);
+  }
+
+  @Override
+  public NamespaceContext getNamespaceContext() {
+    return delegate.getNamespaceContext();
+  }
+
+  @Override
+  public String getNamespaceURI(String prefix) {
+    return delegate.getNamespaceURI(prefix);
+  }
+
+  @Override
+  public int getEventType() {
+    return delegate.getEventType();
+  }
+
+  @Override
+  public Location getLocation() {
+    return delegate.getLocation();
+  }
+
+  @Override
+  public boolean isStartElement() {
+    return true;
+  }
+
+  @Override
+  public boolean isAttribute() {
+    return false;
+  }
+
+  @Override
+  public boolean isNamespace() {
+    return false;
+  }
+
+  @Override
+  public boolean isEndElement() {
+    return false;
+  }
+
+  @Override
+  public boolean isEntityReference() {
+    return false;
+  }
+
+  @Override
+  public boolean isProcessingInstruction() {
+    return false;
+  }
+
+  @Override
+  public boolean isCharacters() {
+    return false;
+  }
+
+  @Override
+  public boolean isStartDocument() {
+    return false;
+  }
+
+  @Override
+  public boolean isEndDocument() {
+    return false;
+  }
+
+  @Override
+  public StartElement asStartElement() {
+    return this;
+  }
+
+  @Override
+  public EndElement asEndElement() {
+    return delegate.asEndElement();
+  }
+
+  @Override
+  public Characters asCharacters() {
+    return delegate.asCharacters();
+  }
+
+  @Override
+  public QName getSchemaType() {
+    return delegate.getSchemaType();
+  }
+
+  @Override
+  public void writeAsEncodedUnicode(Writer writer) throws XMLStreamException {
+    delegate.writeAsEncodedUnicode(writer);
+  }
+
+  @Override
+  public String toString() {
+    return delegate.toString();
+  }
+}
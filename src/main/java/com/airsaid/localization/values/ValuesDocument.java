@@ -0,0 +1,165 @@
+/*
+ * Copyright 2021 Airsaid. https://github.com/airsaid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.airsaid.localization.values;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.xml.stream.events.XMLEvent;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A values file read by {@link ValuesXmlReader}: the prolog up to the {@code <resources>} tag,
+ * the nodes inside it and the epilog from the end tag on.
+ * <p>
+ * The texts of the events always break lines with '\n', as the parser normalizes the line breaks,
+ * the line separator of the file is kept apart and written back by {@link ValuesXmlWriter}.
+ *
+ * @author airsaid
+ */
+public final class ValuesDocument {
+
+  private final List<XMLEvent> prolog;
+  private final List<ValuesNode> nodes;
+  private final List<XMLEvent> epilog;
+  private final String lineSeparator;
+
+  ValuesDocument(@NotNull List<XMLEvent> prolog, @NotNull List<ValuesNode> nodes, @NotNull List<XMLEvent> epilog,
+                 @NotNull String lineSeparator) {
+    this.prolog = Collections.unmodifiableList(prolog);
+    this.nodes = Collections.unmodifiableList(nodes);
+    this.epilog = Collections.unmodifiableList(epilog);
+    this.lineSeparator = lineSeparator;
+  }
+
+  @NotNull
+  List<XMLEvent> getProlog() {
+    return prolog;
+  }
+
+  @NotNull
+  List<XMLEvent> getEpilog() {
+    return epilog;
+  }
+
+  /**
+   * Returns the line separator of the file, eg: "\r\n" for a file saved on Windows.
+   */
+  @NotNull
+  String getLineSeparator() {
+    return lineSeparator;
+  }
+
+  /**
+   * Returns the nodes inside the {@code <resources>} tag: entries, comments and whitespace.
+   */
+  @NotNull
+  public List<ValuesNode> getNodes() {
+    return nodes;
+  }
+
+  /**
+   * Returns the entries of the document, in document order.
+   */
+  @NotNull
+  public List<ValuesEntry> getEntries() {
+    List<ValuesEntry> entries = new ArrayList<>();
+    for (ValuesNode node : nodes) {
+      if (node instanceof ValuesEntry) {
+        entries.add((ValuesEntry) node);
+      }
+    }
+    return entries;
+  }
+
+  /**
+   * Returns the entry with the name, or null if there is none.
+   */
+  @Nullable
+  public ValuesEntry getEntry(@NotNull String name) {
+    for (ValuesNode node : nodes) {
+      if (node instanceof ValuesEntry && name.equals(((ValuesEntry) node).getName())) {
+        return (ValuesEntry) node;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns a document with the same prolog and epilog, but different nodes.
+   * Used to write a target language file in the layout of the default values file.
+   */
+  @NotNull
+  public ValuesDocument withNodes(@NotNull List<? extends ValuesNode> nodes) {
+    return new ValuesDocument(prolog, new ArrayList<>(nodes), epilog, lineSeparator);
+  }
+
+  /**
+   * Returns a copy of the document with the entries of the same names replaced, the other entries
+   * are appended after the last entry, each on a line of its own with the indentation of that entry.
+   */
+  @NotNull
+  public ValuesDocument withEntries(@NotNull Collection<ValuesEntry> entries) {
+    Map<String, ValuesEntry> replacements = new LinkedHashMap<>();
+    for (ValuesEntry entry : entries) {
+      replacements.put(entry.getName(), entry);
+    }
+    List<ValuesNode> newNodes = new ArrayList<>(nodes.size() + replacements.size() * 2);
+    int lastEntryIndex = -1;
+    for (ValuesNode node : nodes) {
+      if (node instanceof ValuesEntry) {
+        ValuesEntry replacement = replacements.remove(((ValuesEntry) node).getName());
+        newNodes.add(replacement != null ? replacement : node);
+        lastEntryIndex = newNodes.size() - 1;
+      } else {
+        newNodes.add(node);
+      }
+    }
+    if (!replacements.isEmpty()) {
+      String indentation = getIndentation(newNodes, lastEntryIndex);
+      List<ValuesNode> appendedNodes = new ArrayList<>(replacements.size() * 2);
+      for (ValuesEntry entry : replacements.values()) {
+        appendedNodes.add(new ValuesNode(Collections.singletonList(
+            ValuesXmlReader.EVENT_FACTORY.createCharacters(indentation))));
+        appendedNodes.add(entry);
+      }
+      newNodes.addAll(lastEntryIndex + 1, appendedNodes);
+    }
+    return new ValuesDocument(prolog, newNodes, epilog, lineSeparator);
+  }
+
+  /**
+   * Returns the line break and indentation in front of the entry, or the default one.
+   */
+  @NotNull
+  private static String getIndentation(@NotNull List<ValuesNode> nodes, int entryIndex) {
+    if (entryIndex > 0) {
+      String text = nodes.get(entryIndex - 1).getText();
+      int lineStart = text.lastIndexOf('\n');
+      if (lineStart >= 0 && text.substring(lineStart).isBlank()) {
+        return text.substring(lineStart);
+      }
+    }
+    return "\n    ";
+  }
+}
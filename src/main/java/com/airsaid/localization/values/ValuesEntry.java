@@ -0,0 +1,365 @@
+/*
+ * Copyright 2021 Airsaid. https://github.com/airsaid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.airsaid.localization.values;
+
+import com.airsaid.localization.utils.TextUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.Characters;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A named resource of a values file, eg: {@code <string>}, {@code <plurals>} or {@code <string-array>}.
+ * <p>
+ * Entries are immutable snapshots without any reference to PSI, so they are read, translated
+ * and written without taking the read lock of the IDE.
+ * <p>
+ * The texts of an entry are the non-blank texts that have to be translated: the content of a string,
+ * or the content of the items of plurals and string arrays. Texts inside {@code <xliff:g>} placeholders
+ * are never translated.
+ *
+ * @author airsaid
+ */
+public final class ValuesEntry extends ValuesNode {
+
+  public static final String TAG_STRING = "string";
+  public static final String TAG_PLURALS = "plurals";
+  public static final String TAG_STRING_ARRAY = "string-array";
+
+  private static final String TAG_ITEM = "item";
+  private static final QName ATTRIBUTE_QUANTITY = new QName("quantity");
+  private static final String XLIFF_NAMESPACE = "urn:oasis:names:tc:xliff:document:1.2";
+  private static final String TOOLS_NAMESPACE = "http://schemas.android.com/tools";
+  private static final QName ATTRIBUTE_NAME = new QName("name");
+  private static final QName ATTRIBUTE_TRANSLATABLE = new QName("translatable");
+
+  public enum Type {
+    STRING, PLURALS, STRING_ARRAY,
+    /**
+     * Any other resource, eg: {@code <color>} or {@code <dimen>}, which has no texts to translate.
+     */
+    OTHER
+  }
+
+  private final String tagName;
+  private final Type type;
+  private final String name;
+  private final boolean translatable;
+  private final int[] textIndexes;
+
+  ValuesEntry(@NotNull List<XMLEvent> events) {
+    super(events);
+    StartElement startElement = events.get(0).asStartElement();
+    tagName = startElement.getName().getLocalPart();
+    type = getType(tagName);
+    name = getAttributeValue(startElement, ATTRIBUTE_NAME);
+    String translatableStr = getAttributeValue(startElement, ATTRIBUTE_TRANSLATABLE);
+    translatable = Boolean.parseBoolean(translatableStr == null ? "true" : translatableStr);
+    textIndexes = findTextIndexes(events, type);
+  }
+
+  private ValuesEntry(@NotNull List<XMLEvent> events, @NotNull ValuesEntry entry) {
+    super(events);
+    tagName = entry.tagName;
+    type = entry.type;
+    name = entry.name;
+    translatable = entry.translatable;
+    textIndexes = entry.textIndexes;
+  }
+
+  /**
+   * Returns the tag name, eg: string or plurals.
+   */
+  @NotNull
+  public String getTagName() {
+    return tagName;
+  }
+
+  @NotNull
+  public Type getType() {
+    return type;
+  }
+
+  /**
+   * Returns the value of the name attribute.
+   */
+  @NotNull
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Returns whether the entry needs to be translated, that is unless it is marked {@code translatable="false"}.
+   */
+  public boolean isTranslatable() {
+    return translatable;
+  }
+
+  /**
+   * Returns the texts that have to be translated, in document order.
+   */
+  @NotNull
+  public List<String> getTexts() {
+    List<XMLEvent> events = getEvents();
+    List<String> texts = new ArrayList<>(textIndexes.length);
+    for (int index : textIndexes) {
+      texts.add(events.get(index).asCharacters().getData());
+    }
+    return texts;
+  }
+
+  /**
+   * Returns the items of plurals and string arrays in document order, empty for other entries.
+   */
+  @NotNull
+  public List<Item> getItems() {
+    if (type != Type.PLURALS && type != Type.STRING_ARRAY) {
+      return Collections.emptyList();
+    }
+    List<XMLEvent> events = getEvents();
+    List<Item> items = new ArrayList<>();
+    int depth = 0;
+    int itemStart = -1;
+    for (int i = 1; i < events.size() - 1; i++) {
+      XMLEvent event = events.get(i);
+      if (event.isStartElement()) {
+        if (++depth == 1 && TAG_ITEM.equals(event.asStartElement().getName().getLocalPart())) {
+          itemStart = i;
+        }
+      } else if (event.isEndElement()) {
+        if (depth-- == 1 && itemStart >= 0) {
+          items.add(createItem(events, itemStart, i));
+          itemStart = -1;
+        }
+      }
+    }
+    return items;
+  }
+
+  /**
+   * Returns the quantities of the items of plurals, eg: one or other, in document order.
+   */
+  @NotNull
+  public List<String> getQuantities() {
+    List<String> quantities = new ArrayList<>();
+    for (Item item : getItems()) {
+      if (item.getQuantity() != null) {
+        quantities.add(item.getQuantity());
+      }
+    }
+    return quantities;
+  }
+
+  /**
+   * Returns a copy of the entry with its texts replaced.
+   *
+   * @param texts the new texts, in the order of {@link #getTexts()}.
+   */
+  @NotNull
+  public ValuesEntry withTexts(@NotNull List<String> texts) {
+    if (texts.size() != textIndexes.length) {
+      throw new IllegalArgumentException("Expected " + textIndexes.length + " texts, but was " + texts.size());
+    }
+    XMLEventFactory factory = ValuesXmlReader.EVENT_FACTORY;
+    List<XMLEvent> events = new ArrayList<>(getEvents());
+    for (int i = 0; i < textIndexes.length; i++) {
+      Characters characters = events.get(textIndexes[i]).asCharacters();
+      String text = texts.get(i);
+      events.set(textIndexes[i], characters.isCData() ? factory.createCData(text) : factory.createCharacters(text));
+    }
+    return new ValuesEntry(events, this);
+  }
+
+  /**
+   * Returns a copy of the entry with its content replaced, eg: by a translation corrected in a spreadsheet.
+   *
+   * @param valueText the XML text of the new content, in the form of {@link #getValueText()}.
+   * @throws IllegalArgumentException if the text isn't well-formed XML content.
+   */
+  @NotNull
+  public ValuesEntry withValueText(@NotNull String valueText) {
+    return withContent(1, getEvents().size() - 1, valueText);
+  }
+
+  /**
+   * Returns a copy of the entry with the content of an item of plurals or a string array replaced.
+   *
+   * @param index     the index of the item in {@link #getItems()}.
+   * @param valueText the XML text of the new content, in the form of {@link Item#getValueText()}.
+   * @throws IllegalArgumentException if the text isn't well-formed XML content.
+   */
+  @NotNull
+  public ValuesEntry withItemValueText(int index, @NotNull String valueText) {
+    Item item = getItems().get(index);
+    return withContent(item.startIndex + 1, item.endIndex, valueText);
+  }
+
+  private ValuesEntry withContent(int fromIndex, int toIndex, @NotNull String valueText) {
+    List<XMLEvent> events = getEvents();
+    List<XMLEvent> newEvents = new ArrayList<>(events.subList(0, fromIndex));
+    newEvents.addAll(parseContent(valueText));
+    newEvents.addAll(events.subList(toIndex, events.size()));
+    return new ValuesEntry(newEvents);
+  }
+
+  @NotNull
+  private static List<XMLEvent> parseContent(@NotNull String valueText) {
+    // the prefixes of placeholders and tools attributes are declared on <resources>
+    String text = "<resources xmlns:xliff=\"" + XLIFF_NAMESPACE + "\" xmlns:tools=\"" + TOOLS_NAMESPACE + "\">"
+        + "<string name=\"content\">" + valueText + "</string></resources>";
+    List<ValuesEntry> entries;
+    try {
+      entries = ValuesXmlReader.read(text).getEntries();
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Malformed value: " + e.getMessage(), e);
+    }
+    // the content must not close the tag of the entry and open another one
+    if (entries.size() != 1) {
+      throw new IllegalArgumentException("Malformed value: " + valueText);
+    }
+    List<XMLEvent> events = entries.get(0).getEvents();
+    return events.subList(1, events.size() - 1);
+  }
+
+  /**
+   * Returns the XML text of the content of the entry, without its own tags.
+   */
+  @NotNull
+  public String getValueText() {
+    List<XMLEvent> events = getEvents();
+    return ValuesXmlWriter.toString(events, 1, Math.max(1, events.size() - 1));
+  }
+
+  @Nullable
+  static String getAttributeValue(@NotNull StartElement startElement, @NotNull QName name) {
+    Attribute attribute = startElement.getAttributeByName(name);
+    return attribute != null ? attribute.getValue() : null;
+  }
+
+  private Item createItem(@NotNull List<XMLEvent> events, int startIndex, int endIndex) {
+    String quantity = getAttributeValue(events.get(startIndex).asStartElement(), ATTRIBUTE_QUANTITY);
+    List<String> texts = new ArrayList<>();
+    for (int index : textIndexes) {
+      if (index > startIndex && index < endIndex) {
+        texts.add(events.get(index).asCharacters().getData());
+      }
+    }
+    return new Item(quantity, texts, ValuesXmlWriter.toString(events, startIndex + 1, endIndex), startIndex, endIndex);
+  }
+
+  @NotNull
+  private static Type getType(@NotNull String tagName) {
+    switch (tagName) {
+      case TAG_STRING:
+        return Type.STRING;
+      case TAG_PLURALS:
+        return Type.PLURALS;
+      case TAG_STRING_ARRAY:
+        return Type.STRING_ARRAY;
+      default:
+        return Type.OTHER;
+    }
+  }
+
+  private static int[] findTextIndexes(@NotNull List<XMLEvent> events, @NotNull Type type) {
+    if (type == Type.OTHER) {
+      return new int[0];
+    }
+    boolean isString = type == Type.STRING;
+
+    List<Integer> indexes = new ArrayList<>();
+    // depth below the entry tag, texts of plurals and arrays are inside their items
+    int depth = 0;
+    int textDepth = isString ? 0 : Integer.MAX_VALUE;
+    int placeholderDepth = Integer.MAX_VALUE;
+    for (int i = 1; i < events.size() - 1; i++) {
+      XMLEvent event = events.get(i);
+      if (event.isStartElement()) {
+        depth++;
+        QName elementName = event.asStartElement().getName();
+        if (!isString && depth == 1 && TAG_ITEM.equals(elementName.getLocalPart())) {
+          textDepth = depth;
+        }
+        if (placeholderDepth == Integer.MAX_VALUE && XLIFF_NAMESPACE.equals(elementName.getNamespaceURI())) {
+          placeholderDepth = depth;
+        }
+      } else if (event.isEndElement()) {
+        if (depth == placeholderDepth) placeholderDepth = Integer.MAX_VALUE;
+        if (!isString && depth == textDepth) textDepth = Integer.MAX_VALUE;
+        depth--;
+      } else if (event.isCharacters() && depth >= textDepth && depth < placeholderDepth
+          && !TextUtil.isEmptyOrSpacesLineBreak(event.asCharacters().getData())) {
+        indexes.add(i);
+      }
+    }
+    return indexes.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  /**
+   * An item of plurals or a string array.
+   */
+  public static final class Item {
+    private final String quantity;
+    private final List<String> texts;
+    private final String valueText;
+    // the indexes of the start and end tags of the item in the events of the entry
+    private final int startIndex;
+    private final int endIndex;
+
+    Item(@Nullable String quantity, @NotNull List<String> texts, @NotNull String valueText, int startIndex, int endIndex) {
+      this.quantity = quantity;
+      this.texts = Collections.unmodifiableList(texts);
+      this.valueText = valueText;
+      this.startIndex = startIndex;
+      this.endIndex = endIndex;
+    }
+
+    /**
+     * Returns the quantity of an item of plurals, null for the items of string arrays.
+     */
+    @Nullable
+    public String getQuantity() {
+      return quantity;
+    }
+
+    /**
+     * Returns the texts of the item that have to be translated.
+     */
+    @NotNull
+    public List<String> getTexts() {
+      return texts;
+    }
+
+    /**
+     * Returns the XML text of the content of the item.
+     */
+    @NotNull
+    public String getValueText() {
+      return valueText;
+    }
+  }
+}
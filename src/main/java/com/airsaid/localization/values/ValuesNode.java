@@ -0,0 +1,59 @@
+/*
+ * Copyright 2021 Airsaid. https://github.com/airsaid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.airsaid.localization.values;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.xml.stream.events.XMLEvent;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A part of a values file read by {@link ValuesXmlReader}, kept as the XML events it was made of,
+ * so comments, whitespace and CDATA sections are written back as they were read.
+ * <p>
+ * Nodes are immutable and can be shared between threads and between documents.
+ *
+ * @author airsaid
+ */
+public class ValuesNode {
+
+  private final List<XMLEvent> events;
+
+  ValuesNode(@NotNull List<XMLEvent> events) {
+    this.events = Collections.unmodifiableList(events);
+  }
+
+  @NotNull
+  public List<XMLEvent> getEvents() {
+    return events;
+  }
+
+  /**
+   * Returns the XML text of the node.
+   */
+  @NotNull
+  public String getText() {
+    return ValuesXmlWriter.toString(events, 0, events.size());
+  }
+
+  @Override
+  public String toString() {
+    return getText();
+  }
+}
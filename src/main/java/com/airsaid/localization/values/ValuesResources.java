@@ -0,0 +1,134 @@
+/*
+ * Copyright 2021 Airsaid. https://github.com/airsaid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.airsaid.localization.values;
+
+import com.airsaid.localization.translate.lang.Lang;
+import com.airsaid.localization.translate.lang.Languages;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Locates the values files of the resource directories on disk, eg: {@code res/values-fr/strings.xml},
+ * without the VFS of the IDE.
+ *
+ * @author airsaid
+ */
+public final class ValuesResources {
+
+  public static final String NAME_DEFAULT_VALUES = "values";
+  public static final List<String> VALUE_FILE_NAMES = List.of("strings.xml", "plurals.xml", "arrays.xml");
+
+  private static final String NAME_BUILD_DIRECTORY = "build";
+
+  private ValuesResources() {
+  }
+
+  /**
+   * Returns the values file of the language in the resource directory, it may not exist yet.
+   */
+  @NotNull
+  public static File getValueFile(@NotNull File resourceDir, @NotNull Lang lang, @NotNull String fileName) {
+    return new File(new File(resourceDir, getValuesDirectoryName(lang)), fileName);
+  }
+
+  @NotNull
+  public static String getValuesDirectoryName(@NotNull Lang lang) {
+    return NAME_DEFAULT_VALUES.concat("-").concat(lang.getCode());
+  }
+
+  /**
+   * Returns the language of a values directory, eg: {@code values-zh-rCN}.
+   *
+   * @return the language, or null if it isn't the directory of a known language.
+   */
+  @Nullable
+  public static Lang getLang(@NotNull String directoryName) {
+    if (!directoryName.startsWith(NAME_DEFAULT_VALUES.concat("-"))) return null;
+
+    // split dir name to three parts: values; language code; region code
+    String[] destructDirName = directoryName.split("-");
+    String langCode = destructDirName[1];
+    // if it has region, set it
+    if (destructDirName.length > 2) {
+      return Languages.getLang(langCode.concat("-").concat(destructDirName[2]));
+    }
+    return Languages.getLang(langCode);
+  }
+
+  /**
+   * Returns the languages that have a values directory in the resource directory, sorted by directory name.
+   */
+  @NotNull
+  public static List<Lang> getExistsLanguages(@NotNull File resourceDir) {
+    List<Lang> languages = new ArrayList<>();
+    String[] directoryNames = resourceDir.list();
+    if (directoryNames == null) return languages;
+
+    Arrays.sort(directoryNames);
+    for (String directoryName : directoryNames) {
+      Lang lang = getLang(directoryName);
+      if (lang != null && !languages.contains(lang) && new File(resourceDir, directoryName).isDirectory()) {
+        languages.add(lang);
+      }
+    }
+    return languages;
+  }
+
+  /**
+   * Find the default values files of every resource directory below the root, that is the strings.xml,
+   * plurals.xml and arrays.xml files of all modules and flavours. Hidden and build directories are skipped.
+   *
+   * @return the values files, sorted by path.
+   */
+  @NotNull
+  public static List<File> findDefaultValueFiles(@NotNull Path root) throws IOException {
+    List<File> valueFiles = new ArrayList<>();
+    Files.walkFileTree(root, new SimpleFileVisitor<>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+        String name = dir.getFileName() != null ? dir.getFileName().toString() : "";
+        if (!dir.equals(root) && (name.startsWith(".") || NAME_BUILD_DIRECTORY.equals(name))) {
+          return FileVisitResult.SKIP_SUBTREE;
+        }
+        if (NAME_DEFAULT_VALUES.equals(name)) {
+          for (String fileName : VALUE_FILE_NAMES) {
+            Path valueFile = dir.resolve(fileName);
+            if (Files.isRegularFile(valueFile)) {
+              valueFiles.add(valueFile.toFile());
+            }
+          }
+          return FileVisitResult.SKIP_SUBTREE;
+        }
+        return FileVisitResult.CONTINUE;
+      }
+    });
+    valueFiles.sort(null);
+    return valueFiles;
+  }
+}
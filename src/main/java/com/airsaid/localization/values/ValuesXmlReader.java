@@ -0,0 +1,394 @@
+/*
+ * Copyright 2021 Airsaid. https://github.com/airsaid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.airsaid.localization.values;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.Namespace;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming reader of values files, built on StAX instead of PSI, so large files are read
+ * without building a syntax tree and without holding the read lock of the IDE.
+ * <p>
+ * Comments, whitespace, CDATA sections and empty tags are kept, so the file is written back unchanged
+ * apart from the translated texts, except that entity references are written as the characters
+ * they stand for. The stream reader doesn't report the whitespace outside the root tag, the line separator,
+ * the quotes and the order of the attributes, nor whether the file has an XML declaration, so they are
+ * taken from the text of the file, which is read into memory first.
+ *
+ * @author airsaid
+ */
+public final class ValuesXmlReader {
+
+  static final XMLEventFactory EVENT_FACTORY = XMLEventFactory.newDefaultFactory();
+
+  private static final String PROPERTY_REPORT_CDATA = "http://java.sun.com/xml/stream/properties/report-cdata-event";
+  private static final QName ATTRIBUTE_NAME = new QName("name");
+  private static final String BYTE_ORDER_MARK = "\uFEFF";
+
+  private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+
+  private ValuesXmlReader() {
+  }
+
+  @NotNull
+  public static ValuesDocument read(@NotNull Path path) throws IOException {
+    try (InputStream is = new BufferedInputStream(Files.newInputStream(path))) {
+      return read(is);
+    }
+  }
+
+  @NotNull
+  public static ValuesDocument read(@NotNull InputStream is) throws IOException {
+    byte[] bytes = is.readAllBytes();
+    String encoding;
+    try {
+      // let the parser detect the encoding, from the byte order mark or the declaration
+      XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(new ByteArrayInputStream(bytes));
+      encoding = reader.getEncoding();
+      reader.close();
+    } catch (XMLStreamException e) {
+      throw new IOException("Invalid values file: " + e.getMessage(), e);
+    }
+    String text = new String(bytes, encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8);
+    return read(text.startsWith(BYTE_ORDER_MARK) ? text.substring(1) : text);
+  }
+
+  /**
+   * Read the values from the text of a file, eg: a snapshot of the text of an open editor.
+   */
+  @NotNull
+  public static ValuesDocument read(@NotNull CharSequence text) throws IOException {
+    String string = text.toString();
+    try {
+      XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(new StringReader(string));
+      try {
+        return read(new EventStream(reader, string, getLineSeparator(string)));
+      } finally {
+        reader.close();
+      }
+    } catch (XMLStreamException e) {
+      throw new IOException("Invalid values file: " + e.getMessage(), e);
+    }
+  }
+
+  private static ValuesDocument read(@NotNull EventStream stream) throws XMLStreamException {
+    List<XMLEvent> prolog = new ArrayList<>();
+    List<ValuesNode> nodes = new ArrayList<>();
+    List<XMLEvent> epilog = new ArrayList<>();
+
+    // the events of the node that is being read, either an element or what lies between elements
+    List<XMLEvent> events = new ArrayList<>();
+    boolean isInRoot = false;
+    boolean isRootClosed = false;
+    int depth = 0;
+    for (XMLEvent event = stream.next(); event != null; event = stream.next()) {
+      if (isRootClosed || !isInRoot) {
+        // only whitespace may lie outside the root tag, it is taken from the text instead
+        if (event.isCharacters()) continue;
+        List<XMLEvent> target = isRootClosed ? epilog : prolog;
+        // the parser reports the start of the document even if there is no declaration
+        if (!event.isStartDocument() || stream.hasDeclaration) {
+          target.add(event);
+        }
+        if (event.isStartElement()) {
+          isInRoot = true;
+        } else {
+          addSpace(target, stream.readSpace());
+        }
+      } else if (event.isStartElement()) {
+        if (depth == 0 && !events.isEmpty()) {
+          nodes.add(new ValuesNode(events));
+          events = new ArrayList<>();
+        }
+        events.add(event);
+        depth++;
+      } else if (event.isEndElement()) {
+        if (depth == 0) {
+          // end of the root tag
+          if (!events.isEmpty()) {
+            nodes.add(new ValuesNode(events));
+            events = new ArrayList<>();
+          }
+          epilog.add(event);
+          addSpace(epilog, stream.readSpace());
+          isRootClosed = true;
+          continue;
+        }
+        events.add(event);
+        if (--depth == 0) {
+          boolean isEntry = ValuesEntry.getAttributeValue(events.get(0).asStartElement(), ATTRIBUTE_NAME) != null;
+          nodes.add(isEntry ? new ValuesEntry(events) : new ValuesNode(events));
+          events = new ArrayList<>();
+        }
+      } else {
+        events.add(event);
+      }
+    }
+    if (!events.isEmpty()) {
+      nodes.add(new ValuesNode(events));
+    }
+    return new ValuesDocument(prolog, nodes, epilog, stream.lineSeparator);
+  }
+
+  /**
+   * Returns the line separator of the first line of the text, or "\n" if there is a single line.
+   */
+  @NotNull
+  private static String getLineSeparator(@NotNull String text) {
+    int index = text.indexOf('\n');
+    if (index > 0 && text.charAt(index - 1) == '\r') return "\r\n";
+    if (index < 0 && text.indexOf('\r') >= 0) return "\r";
+    return "\n";
+  }
+
+  private static void addSpace(@NotNull List<XMLEvent> events, @NotNull String space) {
+    if (!space.isEmpty()) {
+      events.add(EVENT_FACTORY.createCharacters(space));
+    }
+  }
+
+  @NotNull
+  private static XMLEvent createEvent(@NotNull XMLStreamReader reader) throws XMLStreamException {
+    switch (reader.getEventType()) {
+      case XMLStreamConstants.START_DOCUMENT:
+        return reader.standaloneSet()
+            ? EVENT_FACTORY.createStartDocument(reader.getCharacterEncodingScheme(), reader.getVersion(), reader.isStandalone())
+            : EVENT_FACTORY.createStartDocument(reader.getCharacterEncodingScheme(), reader.getVersion());
+      case XMLStreamConstants.END_ELEMENT:
+        return EVENT_FACTORY.createEndElement(reader.getName(), null);
+      case XMLStreamConstants.CDATA:
+        return EVENT_FACTORY.createCData(reader.getText());
+      case XMLStreamConstants.COMMENT:
+        return EVENT_FACTORY.createComment(reader.getText());
+      case XMLStreamConstants.PROCESSING_INSTRUCTION:
+        return EVENT_FACTORY.createProcessingInstruction(reader.getPITarget(), reader.getPIData());
+      case XMLStreamConstants.DTD:
+        return EVENT_FACTORY.createDTD(reader.getText());
+      case XMLStreamConstants.END_DOCUMENT:
+        return EVENT_FACTORY.createEndDocument();
+      default:
+        throw new XMLStreamException("Unexpected event: " + reader.getEventType(), reader.getLocation());
+    }
+  }
+
+  /**
+   * Create the start element at the position of the reader.
+   *
+   * @param tag the text of the start tag, which tells the order and the quotes of the attributes.
+   */
+  @NotNull
+  private static OrderedStartElement createStartElement(@NotNull XMLStreamReader reader, @NotNull String tag) {
+    List<Namespace> namespaces = new ArrayList<>(reader.getNamespaceCount());
+    for (int i = 0; i < reader.getNamespaceCount(); i++) {
+      String prefix = reader.getNamespacePrefix(i);
+      String uri = reader.getNamespaceURI(i);
+      namespaces.add(prefix == null ? EVENT_FACTORY.createNamespace(uri) : EVENT_FACTORY.createNamespace(prefix, uri));
+    }
+    List<Attribute> attributes = new ArrayList<>(reader.getAttributeCount());
+    for (int i = 0; i < reader.getAttributeCount(); i++) {
+      attributes.add(EVENT_FACTORY.createAttribute(reader.getAttributeName(i), reader.getAttributeValue(i)));
+    }
+    StartElement startElement = EVENT_FACTORY.createStartElement(reader.getName(), attributes.iterator(),
+        namespaces.iterator());
+
+    // the declarations the tag doesn't tell about go last, with double quotes
+    Map<String, Character> quotes = readQuotes(tag);
+    List<String> names = new ArrayList<>(quotes.keySet());
+    List<Attribute> declarations = new ArrayList<>(namespaces.size() + attributes.size());
+    declarations.addAll(namespaces);
+    declarations.addAll(attributes);
+    declarations.sort(Comparator.comparingInt(declaration -> {
+      int index = names.indexOf(getQualifiedName(declaration));
+      return index >= 0 ? index : names.size();
+    }));
+    StringBuilder declarationQuotes = new StringBuilder(declarations.size());
+    for (Attribute declaration : declarations) {
+      declarationQuotes.append(quotes.getOrDefault(getQualifiedName(declaration), '"'));
+    }
+    return new OrderedStartElement(startElement, declarations, declarationQuotes.toString(), false);
+  }
+
+  /**
+   * Returns the quotes of the attributes of a start tag by their qualified names, in the order of the tag.
+   */
+  @NotNull
+  private static Map<String, Character> readQuotes(@NotNull String tag) {
+    Map<String, Character> quotes = new LinkedHashMap<>();
+    // skip the tag name
+    int index = 1;
+    while (index < tag.length() && !Character.isWhitespace(tag.charAt(index)) && tag.charAt(index) != '/'
+        && tag.charAt(index) != '>') {
+      index++;
+    }
+    while (true) {
+      int equalsIndex = tag.indexOf('=', index);
+      if (equalsIndex < 0) break;
+      String name = tag.substring(index, equalsIndex).strip();
+      index = equalsIndex + 1;
+      while (index < tag.length() && Character.isWhitespace(tag.charAt(index))) {
+        index++;
+      }
+      if (index >= tag.length()) break;
+      char quote = tag.charAt(index);
+      // values never contain their own quote, it is written as a reference
+      int endIndex = tag.indexOf(quote, index + 1);
+      if ((quote != '"' && quote != '\'') || endIndex < 0) break;
+      quotes.put(name, quote);
+      index = endIndex + 1;
+    }
+    return quotes;
+  }
+
+  @NotNull
+  private static String getQualifiedName(@NotNull Attribute declaration) {
+    if (declaration instanceof Namespace) {
+      String prefix = ((Namespace) declaration).getPrefix();
+      return prefix == null || prefix.isEmpty() ? "xmlns" : "xmlns:" + prefix;
+    }
+    QName name = declaration.getName();
+    return name.getPrefix().isEmpty() ? name.getLocalPart() : name.getPrefix() + ":" + name.getLocalPart();
+  }
+
+  private static boolean isText(int eventType) {
+    return eventType == XMLStreamConstants.CHARACTERS || eventType == XMLStreamConstants.SPACE;
+  }
+
+  private static XMLInputFactory createInputFactory() {
+    XMLInputFactory factory = XMLInputFactory.newDefaultFactory();
+    factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+    factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    if (factory.isPropertySupported(PROPERTY_REPORT_CDATA)) {
+      factory.setProperty(PROPERTY_REPORT_CDATA, true);
+    }
+    return factory;
+  }
+
+  /**
+   * The events of a stream reader, adjacent texts are merged into one event,
+   * so an entity reference never splits a text in two.
+   */
+  private static final class EventStream {
+    private final XMLStreamReader reader;
+    private final String text;
+    final String lineSeparator;
+    // whether the text starts with an XML declaration, known once the start of the document is read
+    boolean hasDeclaration;
+    // the offset in the text of the end of the last event, or a little past it
+    private int offset;
+    private boolean isEnd;
+
+    EventStream(@NotNull XMLStreamReader reader, @NotNull String text, @NotNull String lineSeparator) {
+      this.reader = reader;
+      this.text = text;
+      this.lineSeparator = lineSeparator;
+    }
+
+    /**
+     * Returns the event at the position of the reader and moves past it, or null after the end of the document.
+     */
+    @Nullable
+    XMLEvent next() throws XMLStreamException {
+      if (isEnd) return null;
+      int eventType = reader.getEventType();
+      if (isText(eventType)) {
+        StringBuilder builder = new StringBuilder();
+        while (isText(reader.getEventType())) {
+          builder.append(reader.getText());
+          reader.next();
+        }
+        return EVENT_FACTORY.createCharacters(builder.toString());
+      }
+      offset = reader.getLocation().getCharacterOffset();
+      XMLEvent event = eventType == XMLStreamConstants.START_ELEMENT
+          ? createStartElement(reader, readStartTag()) : createEvent(reader);
+      if (eventType == XMLStreamConstants.START_DOCUMENT) {
+        // the version is only known from a declaration
+        hasDeclaration = reader.getVersion() != null;
+      }
+      if (eventType == XMLStreamConstants.END_DOCUMENT) {
+        isEnd = true;
+        return event;
+      }
+      reader.next();
+      // the start and end events of an empty tag both end where the tag does
+      if (eventType == XMLStreamConstants.START_ELEMENT && reader.getEventType() == XMLStreamConstants.END_ELEMENT
+          && reader.getLocation().getCharacterOffset() == offset) {
+        return ((OrderedStartElement) event).asEmpty();
+      }
+      return event;
+    }
+
+    /**
+     * Returns the text of the start tag at the position of the reader, or an empty text if it can't be found.
+     */
+    @NotNull
+    private String readStartTag() {
+      if (offset <= 0) return "";
+      // the reader may have looked ahead past the '>' of the tag, attribute values never contain '<'
+      int end = text.lastIndexOf('>', Math.min(offset, text.length()) - 1);
+      int start = end >= 0 ? text.lastIndexOf('<', end) : -1;
+      return start >= 0 ? text.substring(start, end + 1) : "";
+    }
+
+    /**
+     * Returns the whitespace that follows the last event in the text, with its line breaks as '\n',
+     * like the parser reports the texts inside the root tag.
+     */
+    @NotNull
+    String readSpace() {
+      if (offset < 0) return "";
+      // the reader may have looked ahead, but the markup outside the root tag always ends with '>'
+      int start = Math.min(offset, text.length());
+      while (start > 0 && text.charAt(start - 1) != '>') {
+        start--;
+      }
+      int end = start;
+      while (end < text.length() && Character.isWhitespace(text.charAt(end))) {
+        end++;
+      }
+      return text.substring(start, end).replace("\r\n", "\n").replace('\r', '\n');
+    }
+  }
+}
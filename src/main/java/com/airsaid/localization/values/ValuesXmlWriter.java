@@ -0,0 +1,260 @@
+/*
+ * Copyright 2021 Airsaid. https://github.com/airsaid
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.airsaid.localization.values;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.Characters;
+import javax.xml.stream.events.Comment;
+import javax.xml.stream.events.DTD;
+import javax.xml.stream.events.Namespace;
+import javax.xml.stream.events.ProcessingInstruction;
+import javax.xml.stream.events.StartDocument;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Streaming writer of values files read by {@link ValuesXmlReader}, it writes the events one by one
+ * as XML text. The writers of the JDK can't write an empty tag, a single quoted attribute or a namespace
+ * declaration after an attribute, and they don't know the line separator of the file, so the markup is
+ * written here instead.
+ *
+ * @author airsaid
+ */
+public final class ValuesXmlWriter {
+
+  private ValuesXmlWriter() {
+  }
+
+  /**
+   * Write the document to the file, the file is replaced at once, so it is never left half written.
+   */
+  public static void write(@NotNull ValuesDocument document, @NotNull Path path) throws IOException {
+    Path parent = path.toAbsolutePath().getParent();
+    Files.createDirectories(parent);
+    Path tempPath = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+    try {
+      try (OutputStream os = Files.newOutputStream(tempPath)) {
+        write(document, os);
+      }
+      Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tempPath);
+    }
+  }
+
+  public static void write(@NotNull ValuesDocument document, @NotNull OutputStream os) throws IOException {
+    Writer writer = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8));
+    // the events of the whole document, so an empty root tag is followed by its end event
+    List<XMLEvent> events = new ArrayList<>(document.getProlog());
+    for (ValuesNode node : document.getNodes()) {
+      events.addAll(node.getEvents());
+    }
+    events.addAll(document.getEpilog());
+    String lineSeparator = document.getLineSeparator();
+    for (int i = 0; i < events.size(); i++) {
+      i = write(writer, events, i, events.size(), lineSeparator);
+    }
+    writer.flush();
+  }
+
+  /**
+   * Returns the XML text of the events from the start index, inclusive, to the end index, exclusive.
+   */
+  @NotNull
+  static String toString(@NotNull List<XMLEvent> events, int fromIndex, int toIndex) {
+    StringWriter writer = new StringWriter();
+    try {
+      for (int i = fromIndex; i < toIndex; i++) {
+        i = write(writer, events, i, toIndex, "\n");
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return writer.toString();
+  }
+
+  /**
+   * Write the event at the index, an empty tag is written at once with the end event that follows it.
+   *
+   * @param lineSeparator the line separator that replaces the '\n' of the texts.
+   * @return the index of the last event written.
+   */
+  private static int write(@NotNull Writer writer, @NotNull List<XMLEvent> events, int index, int toIndex,
+                           @NotNull String lineSeparator) throws IOException {
+    XMLEvent event = events.get(index);
+    switch (event.getEventType()) {
+      case XMLStreamConstants.START_DOCUMENT: {
+        // the file is always written in UTF-8
+        StartDocument startDocument = (StartDocument) event;
+        String version = startDocument.getVersion();
+        writer.write("<?xml version=\"" + (version != null ? version : "1.0") + "\" encoding=\"utf-8\"");
+        if (startDocument.standaloneSet()) {
+          writer.write(" standalone=\"" + (startDocument.isStandalone() ? "yes" : "no") + "\"");
+        }
+        writer.write("?>");
+        break;
+      }
+      case XMLStreamConstants.START_ELEMENT: {
+        StartElement startElement = event.asStartElement();
+        writer.write('<');
+        writer.write(getQualifiedName(startElement.getName()));
+        if (startElement instanceof OrderedStartElement) {
+          OrderedStartElement orderedElement = (OrderedStartElement) startElement;
+          List<Attribute> declarations = orderedElement.getDeclarations();
+          for (int i = 0; i < declarations.size(); i++) {
+            writeDeclaration(writer, declarations.get(i), orderedElement.getQuote(i));
+          }
+        } else {
+          for (Iterator<Namespace> it = startElement.getNamespaces(); it.hasNext(); ) {
+            writeDeclaration(writer, it.next(), '"');
+          }
+          for (Iterator<Attribute> it = startElement.getAttributes(); it.hasNext(); ) {
+            writeDeclaration(writer, it.next(), '"');
+          }
+        }
+        boolean isEmpty = startElement instanceof OrderedStartElement && ((OrderedStartElement) startElement).isEmpty()
+            && index + 1 < toIndex && events.get(index + 1).isEndElement();
+        writer.write(isEmpty ? "/>" : ">");
+        return isEmpty ? index + 1 : index;
+      }
+      case XMLStreamConstants.END_ELEMENT:
+        writer.write("</" + getQualifiedName(event.asEndElement().getName()) + ">");
+        break;
+      case XMLStreamConstants.CHARACTERS:
+      case XMLStreamConstants.SPACE:
+      case XMLStreamConstants.CDATA: {
+        Characters characters = event.asCharacters();
+        if (characters.isCData()) {
+          // a CDATA section can't contain its own end, it is split in two around it
+          writer.write("<![CDATA[");
+          writeText(writer, characters.getData().replace("]]>", "]]]]><![CDATA[>"), lineSeparator);
+          writer.write("]]>");
+        } else {
+          writeEscaped(writer, characters.getData(), (char) 0, lineSeparator);
+        }
+        break;
+      }
+      case XMLStreamConstants.COMMENT:
+        writer.write("<!--");
+        writeText(writer, ((Comment) event).getText(), lineSeparator);
+        writer.write("-->");
+        break;
+      case XMLStreamConstants.PROCESSING_INSTRUCTION: {
+        ProcessingInstruction instruction = (ProcessingInstruction) event;
+        String data = instruction.getData();
+        writer.write("<?" + instruction.getTarget());
+        if (data != null && !data.isEmpty()) {
+          writer.write(' ');
+          writeText(writer, data, lineSeparator);
+        }
+        writer.write("?>");
+        break;
+      }
+      case XMLStreamConstants.DTD:
+        writeText(writer, ((DTD) event).getDocumentTypeDeclaration(), lineSeparator);
+        break;
+      case XMLStreamConstants.END_DOCUMENT:
+        break;
+      default:
+        throw new IOException("Unexpected event: " + event.getEventType());
+    }
+    return index;
+  }
+
+  private static void writeDeclaration(@NotNull Writer writer, @NotNull Attribute declaration,
+                                       char quote) throws IOException {
+    writer.write(' ');
+    if (declaration instanceof Namespace) {
+      String prefix = ((Namespace) declaration).getPrefix();
+      writer.write(prefix == null || prefix.isEmpty() ? "xmlns" : "xmlns:" + prefix);
+    } else {
+      writer.write(getQualifiedName(declaration.getName()));
+    }
+    writer.write('=');
+    writer.write(quote);
+    writeEscaped(writer, declaration.getValue(), quote, "\n");
+    writer.write(quote);
+  }
+
+  @NotNull
+  private static String getQualifiedName(@NotNull QName name) {
+    String prefix = name.getPrefix();
+    return prefix == null || prefix.isEmpty() ? name.getLocalPart() : prefix + ":" + name.getLocalPart();
+  }
+
+  /**
+   * Write the text with its line breaks replaced by the line separator.
+   */
+  private static void writeText(@NotNull Writer writer, @NotNull String text,
+                                @NotNull String lineSeparator) throws IOException {
+    writer.write("\n".equals(lineSeparator) ? text : text.replace("\n", lineSeparator));
+  }
+
+  /**
+   * Write the text with the markup characters escaped.
+   *
+   * @param quote the quote of an attribute value, whose line breaks are escaped as well, or 0 for content.
+   */
+  private static void writeEscaped(@NotNull Writer writer, @NotNull String text, char quote,
+                                   @NotNull String lineSeparator) throws IOException {
+    int start = 0;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      String replacement;
+      if (c == '&') {
+        replacement = "&amp;";
+      } else if (c == '<') {
+        replacement = "&lt;";
+      } else if (c == '>') {
+        replacement = "&gt;";
+      } else if (c == '\r') {
+        replacement = "&#13;";
+      } else if (c == '\n') {
+        replacement = quote != 0 ? "&#10;" : lineSeparator;
+      } else if (c == '\t' && quote != 0) {
+        replacement = "&#9;";
+      } else if (c == quote) {
+        replacement = quote == '"' ? "&quot;" : "&apos;";
+      } else {
+        continue;
+      }
+      writer.write(text, start, i - start);
+      writer.write(replacement);
+      start = i + 1;
+    }
+    writer.write(text, start, text.length() - start);
+  }
+}
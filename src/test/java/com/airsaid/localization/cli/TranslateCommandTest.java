@@ -0,0 +1,144 @@
+package com.airsaid.localization.cli;
+
+import com.airsaid.localization.translate.StubTranslationServer;
+import com.airsaid.localization.translate.impl.googleapi.GoogleApiTranslator;
+import com.airsaid.localization.translate.lang.Lang;
+import com.airsaid.localization.translate.services.HttpTransportService;
+import com.airsaid.localization.translate.services.TranslationCacheService;
+import com.airsaid.localization.translate.services.TranslationMetricsService;
+import com.airsaid.localization.translate.services.TranslatorService;
+import com.airsaid.localization.values.ValuesDocument;
+import com.airsaid.localization.values.ValuesXmlReader;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author airsaid
+ */
+class TranslateCommandTest {
+
+  private static final String STRINGS = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<resources>\n"
+      + "    <string name=\"app_name\" translatable=\"false\">Demo</string>\n"
+      + "    <string name=\"hello\">Hello</string>\n"
+      + "    <string name=\"bye\">Goodbye</string>\n"
+      + "</resources>\n";
+
+  private final Map<String, String> environment = Map.of(EnvironmentCredentials.getAppKeyVariable("GoogleApi"), "stub-key");
+
+  @TempDir
+  Path tempDirectory;
+  private StubTranslationServer server;
+  private Path root;
+  private Path cacheDirectory;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    server = new StubTranslationServer(new StubTranslationServer.Config().setLatency(1, 5));
+    server.start();
+    root = Files.createDirectory(tempDirectory.resolve("repository"));
+    cacheDirectory = Files.createDirectory(tempDirectory.resolve("cache"));
+    writeStrings(root.resolve("app/src/main/res"));
+    writeStrings(root.resolve("library/src/main/res"));
+    // generated resources are never translated
+    writeStrings(root.resolve("app/build/generated/res"));
+  }
+
+  @AfterEach
+  void tearDown() {
+    server.close();
+  }
+
+  private static void writeStrings(@NotNull Path resourceDir) throws IOException {
+    Files.createDirectories(resourceDir.resolve("values"));
+    Files.writeString(resourceDir.resolve("values/strings.xml"), STRINGS, StandardCharsets.UTF_8);
+    Files.createDirectories(resourceDir.resolve("values-fr"));
+    Files.createDirectories(resourceDir.resolve("values-de"));
+  }
+
+  @Test
+  void testTranslateRepository() throws IOException {
+    assertEquals(TranslateCommand.EXIT_OK, run("--root=" + root, "--translator=GoogleApi"));
+
+    for (String module : List.of("app", "library")) {
+      for (String locale : List.of("fr", "de")) {
+        ValuesDocument translated = ValuesXmlReader.read(root.resolve(module + "/src/main/res/values-" + locale + "/strings.xml"));
+        assertEquals(StubTranslationServer.translate("Hello", locale), translated.getEntry("hello").getTexts().get(0));
+        assertEquals(StubTranslationServer.translate("Goodbye", locale), translated.getEntry("bye").getTexts().get(0));
+        assertNull(translated.getEntry("app_name"));
+      }
+    }
+    assertFalse(Files.exists(root.resolve("app/build/generated/res/values-fr/strings.xml")));
+    // identical texts of both modules are translated once per language
+    assertEquals(2 * 2, server.getTextCount());
+
+    // a later run on another agent finds every translation in the cache directory
+    long requestCount = server.getRequestCount();
+    assertEquals(TranslateCommand.EXIT_OK, run("--root=" + root, "--translator=GoogleApi", "--overwrite"));
+    assertEquals(requestCount, server.getRequestCount());
+  }
+
+  @Test
+  void testShards() throws IOException {
+    assertEquals(TranslateCommand.EXIT_OK, run("--root=" + root, "--translator=GoogleApi", "--languages=fr", "--shard=1/2"));
+    assertEquals(TranslateCommand.EXIT_OK, run("--root=" + root, "--translator=GoogleApi", "--languages=fr", "--shard=2/2"));
+    assertTrue(Files.exists(root.resolve("app/src/main/res/values-fr/strings.xml")));
+    assertTrue(Files.exists(root.resolve("library/src/main/res/values-fr/strings.xml")));
+    assertFalse(Files.exists(root.resolve("app/src/main/res/values-de/strings.xml")));
+  }
+
+  @Test
+  void testMissingCredentials() {
+    TranslateCommand command = new TranslateCommand(TranslateCommand.Options.parse(new String[]{"--translator=DeepL"}),
+        new EnvironmentCredentials(environment), new PrintStream(new ByteArrayOutputStream()), new PrintStream(new ByteArrayOutputStream()));
+    assertEquals(TranslateCommand.EXIT_USAGE, command.run());
+    assertEquals("ANDROID_LOCALIZE_DEEPL_APP_KEY", EnvironmentCredentials.getAppKeyVariable("DeepL"));
+    assertThrows(IllegalArgumentException.class, () -> TranslateCommand.Options.parse(new String[]{"--shard=3/2"}));
+  }
+
+  /**
+   * Run the command with a cache of its own in the cache directory, the translator sends its requests to the stub server.
+   */
+  private int run(@NotNull String... args) {
+    TranslateCommand.Options options = TranslateCommand.Options.parse(args);
+    TranslationCacheService cacheService = new TranslationCacheService(cacheDirectory.resolve("translationMemory"));
+    HttpTransportService transport = new HttpTransportService(null, null);
+    EnvironmentCredentials credentials = new EnvironmentCredentials(environment);
+    TranslatorService translatorService = new TranslatorService(cacheService,
+        new TranslationMetricsService(cacheService, transport), transport, credentials);
+    GoogleApiTranslator translator = new GoogleApiTranslator() {
+      @Override
+      public @NotNull String getRequestUrl(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull String text) {
+        return server.redirect(super.getRequestUrl(fromLang, toLang, text));
+      }
+
+      @Override
+      public @NotNull String getRequestUrl(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull List<String> texts) {
+        return server.redirect(super.getRequestUrl(fromLang, toLang, texts));
+      }
+    };
+    translator.setTransport(transport);
+    translator.setCredentials(credentials);
+    translatorService.getTranslators().put(translator.getKey(), translator);
+    try {
+      options.cacheDirectory = cacheDirectory;
+      PrintStream output = new PrintStream(new ByteArrayOutputStream());
+      return new TranslateCommand(options, credentials, output, output).run(translatorService);
+    } finally {
+      cacheService.dispose();
+    }
+  }
+}
@@ -0,0 +1,47 @@
+package com.airsaid.localization.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author airsaid
+ */
+class TranslationManifestTest {
+
+  @Test
+  void testChangedKeys(@TempDir Path dir) throws IOException {
+    Path path = dir.resolve("manifest.json");
+    TranslationManifest manifest = TranslationManifest.load(path);
+    String hello = TranslationManifest.hash("<string name=\"hello\">Hello</string>");
+    String bye = TranslationManifest.hash("<string name=\"bye\">Bye</string>");
+    // nothing is recorded yet, so nothing is changed
+    assertTrue(manifest.getChangedKeys("fr", Map.of("hello", hello, "bye", bye)).isEmpty());
+
+    manifest.update("fr", "hello", hello);
+    manifest.update("fr", "bye", bye);
+    manifest.save();
+
+    TranslationManifest reloaded = TranslationManifest.load(path);
+    String newHello = TranslationManifest.hash("<string name=\"hello\">Hello!</string>");
+    assertEquals(Set.of("hello"), reloaded.getChangedKeys("fr", Map.of("hello", newHello, "bye", bye)));
+    // other locales are independent
+    assertTrue(reloaded.getChangedKeys("de", Map.of("hello", newHello, "bye", bye)).isEmpty());
+  }
+
+  @Test
+  void testInvalidate(@TempDir Path dir) throws IOException {
+    TranslationManifest manifest = TranslationManifest.load(dir.resolve("manifest.json"));
+    String hello = TranslationManifest.hash("Hello");
+    manifest.invalidate("fr", "hello");
+    assertEquals(Set.of("hello"), manifest.getChangedKeys("fr", Map.of("hello", hello)));
+    manifest.update("fr", "hello", hello);
+    assertTrue(manifest.getChangedKeys("fr", Map.of("hello", hello)).isEmpty());
+  }
+}
@@ -0,0 +1,47 @@
+package com.airsaid.localization.task;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author airsaid
+ */
+class TextDeduplicatorTest {
+
+  @Test
+  void testGroupByNormalizedText() {
+    TextDeduplicator<String> deduplicator = new TextDeduplicator<>();
+    assertTrue(deduplicator.add("OK", "app/ok"));
+    assertTrue(deduplicator.add("Cancel", "app/cancel"));
+    assertFalse(deduplicator.add(" OK\n", "lib/ok"));
+    // decomposed "é" is the same text as the composed one
+    assertTrue(deduplicator.add("Café", "app/cafe"));
+    assertFalse(deduplicator.add("Café", "lib/cafe"));
+    // the case is kept
+    assertTrue(deduplicator.add("ok", "app/ok_lower"));
+
+    List<TextDeduplicator.Unit<String>> units = deduplicator.getUnits();
+    assertEquals(4, units.size());
+    assertEquals(6, deduplicator.getTextCount());
+    assertEquals(2, deduplicator.getDuplicateCount());
+    assertEquals("OK", units.get(0).getText());
+    assertEquals(List.of("app/ok", "lib/ok"), units.get(0).getTargets());
+    assertEquals(1, units.get(0).getDuplicateCount());
+  }
+
+  @Test
+  void testFanOutKeepsWhitespace() {
+    TextDeduplicator<String> deduplicator = new TextDeduplicator<>();
+    deduplicator.add("Retry", "a");
+    deduplicator.add("  Retry ", "b");
+    Map<String, String> translations = new HashMap<>();
+    deduplicator.getUnits().get(0).fanOut("Réessayer", translations::put);
+    assertEquals("Réessayer", translations.get("a"));
+    assertEquals("  Réessayer ", translations.get("b"));
+  }
+}
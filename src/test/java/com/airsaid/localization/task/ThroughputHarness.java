@@ -0,0 +1,423 @@
+package com.airsaid.localization.task;
+
+import com.airsaid.localization.services.AndroidValuesService;
+import com.airsaid.localization.translate.AbstractTranslator;
+import com.airsaid.localization.translate.StubTranslationServer;
+import com.airsaid.localization.translate.TranslatorCredentials;
+import com.airsaid.localization.translate.impl.baidu.BaiduTranslator;
+import com.airsaid.localization.translate.impl.deepl.DeeplTranslator;
+import com.airsaid.localization.translate.impl.google.GoogleTranslator;
+import com.airsaid.localization.translate.impl.googleapi.GoogleApiTranslator;
+import com.airsaid.localization.translate.impl.microsoft.MicrosoftTranslator;
+import com.airsaid.localization.translate.impl.youdao.YoudaoTranslator;
+import com.airsaid.localization.translate.lang.Lang;
+import com.airsaid.localization.translate.lang.Languages;
+import com.airsaid.localization.translate.services.HttpTransportService;
+import com.airsaid.localization.translate.services.TranslationCacheService;
+import com.airsaid.localization.translate.services.TranslationMetricsService;
+import com.airsaid.localization.translate.services.TranslatorMetrics;
+import com.airsaid.localization.translate.services.TranslatorService;
+import com.airsaid.localization.translate.util.ConcurrencyLimiter;
+import com.airsaid.localization.translate.util.LatencyHistogram;
+import com.airsaid.localization.translate.util.RateLimiter;
+import com.airsaid.localization.translate.util.RetryPolicy;
+import com.airsaid.localization.values.ValuesEntry;
+import com.airsaid.localization.values.ValuesXmlReader;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Runs the translation pipeline of {@link TranslateTask} at scale against a {@link StubTranslationServer},
+ * without burning real quota, and reports the throughput, the request latencies and the peak heap.
+ * <p>
+ * A synthetic strings.xml with the given number of keys is translated into the given number of locales by a
+ * {@link TranslationEngine}, on a {@link TranslatorService} created outside of the IDE like the one of the
+ * command line, so the requests go through the same batching, limits, retries and writing as in the IDE.
+ * The real translator builds the requests and parses the responses, only its URL points to the stub server.
+ * <p>
+ * Run with {@code ./gradlew throughputHarness -PharnessArgs="--keys=100000 --locales=100"}, see {@link Options}.
+ *
+ * @author airsaid
+ */
+public class ThroughputHarness {
+
+  private static final String[] WORDS = {"the", "account", "settings", "could", "not", "be", "saved", "please",
+      "try", "again", "later", "your", "download", "has", "finished", "open", "file", "share", "with", "friends",
+      "delete", "this", "message", "permanently", "network", "connection", "is", "unavailable", "sign", "in"};
+  // texts that show up all over an app, they are translated once per locale
+  private static final String[] COMMON_TEXTS = {"OK", "Cancel", "Retry", "Settings", "Done", "Delete", "Share"};
+  private static final long HEAP_SAMPLE_MILLIS = 10;
+  // the stub server doesn't check the credentials
+  private static final TranslatorCredentials STUB_CREDENTIALS = new TranslatorCredentials() {
+    @Override
+    public @NotNull String getAppId(@NotNull String translatorKey) {
+      return "stub-id";
+    }
+
+    @Override
+    public @NotNull String getAppKey(@NotNull String translatorKey) {
+      return "stub-key";
+    }
+  };
+
+  private final Options options;
+
+  /**
+   * The options of a run, parsed from {@code --name=value} arguments.
+   */
+  public static class Options {
+    String translator = GoogleTranslator.KEY;
+    int keys = 1000;
+    int locales = 10;
+    double medianLatencyMillis = 50;
+    double p99LatencyMillis = 250;
+    double errorRate = 0;
+    long throttleEveryMillis = 0;
+    long throttleForMillis = 0;
+    int retryAfterSeconds = -1;
+    // <= 0 keeps the limits of the translator
+    double requestsPerSecond = 0;
+    int maxConcurrentRequests = 0;
+    int charactersPerMinute = -1;
+    long retryBaseDelayMillis = RetryPolicy.DEFAULT_BASE_DELAY_MILLIS;
+    @Nullable
+    Path directory;
+
+    @NotNull
+    static Options parse(@NotNull String[] args) {
+      Options options = new Options();
+      for (String arg : args) {
+        int index = arg.indexOf('=');
+        if (!arg.startsWith("--") || index < 0) {
+          throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+        }
+        String name = arg.substring(2, index);
+        String value = arg.substring(index + 1);
+        switch (name) {
+          case "translator": options.translator = value; break;
+          case "keys": options.keys = Integer.parseInt(value); break;
+          case "locales": options.locales = Integer.parseInt(value); break;
+          case "latency": options.medianLatencyMillis = Double.parseDouble(value); break;
+          case "p99-latency": options.p99LatencyMillis = Double.parseDouble(value); break;
+          case "error-rate": options.errorRate = Double.parseDouble(value); break;
+          case "throttle-every": options.throttleEveryMillis = Long.parseLong(value); break;
+          case "throttle-for": options.throttleForMillis = Long.parseLong(value); break;
+          case "retry-after": options.retryAfterSeconds = Integer.parseInt(value); break;
+          case "requests-per-second": options.requestsPerSecond = Double.parseDouble(value); break;
+          case "max-concurrent-requests": options.maxConcurrentRequests = Integer.parseInt(value); break;
+          case "characters-per-minute": options.charactersPerMinute = Integer.parseInt(value); break;
+          case "retry-base-delay": options.retryBaseDelayMillis = Long.parseLong(value); break;
+          case "dir": options.directory = Paths.get(value); break;
+          default: throw new IllegalArgumentException("Unknown option: " + name);
+        }
+      }
+      return options;
+    }
+  }
+
+  /**
+   * The outcome of a run.
+   */
+  public static class Report {
+    String translator;
+    int keys;
+    int locales;
+    int distinctTexts;
+    long strings;
+    long failedStrings;
+    long elapsedNanos;
+    long requests;
+    long retries;
+    long throttledRetries;
+    long peakHeapBytes;
+    Path directory;
+    LatencyHistogram latency = new LatencyHistogram();
+    StubTranslationServer server;
+
+    public double getStringsPerSecond() {
+      return elapsedNanos == 0 ? 0 : strings / (elapsedNanos / 1e9);
+    }
+
+    @Override
+    public String toString() {
+      return String.format("translator: %s, keys: %d, locales: %d, distinct texts: %d%n", translator, keys, locales, distinctTexts)
+          + String.format("strings: %d in %.2f s, %.1f strings/s, failed strings: %d%n",
+          strings, elapsedNanos / 1e9, getStringsPerSecond(), failedStrings)
+          + String.format("requests: %d, retries: %d (throttled %d), server errors: %d, server throttled: %d%n",
+          requests, retries, throttledRetries, server.getErrorCount(), server.getThrottledCount())
+          + String.format("latency ms: p50 %.1f, p95 %.1f, p99 %.1f, max %.1f%n", latency.getPercentileMillis(50),
+          latency.getPercentileMillis(95), latency.getPercentileMillis(99), latency.getMaxMillis())
+          + String.format("peak heap: %.1f MB%n", peakHeapBytes / (1024.0 * 1024.0))
+          + "values files: " + directory.resolve("res");
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    System.out.println(new ThroughputHarness(Options.parse(args)).run());
+  }
+
+  public ThroughputHarness(@NotNull Options options) {
+    this.options = options;
+  }
+
+  @NotNull
+  public Report run() throws IOException {
+    Path directory = options.directory != null ? options.directory : Files.createTempDirectory("throughput");
+    File resourceDir = directory.resolve("res").toFile();
+    Path sourceFile = writeSourceFile(resourceDir, options.keys);
+
+    StubTranslationServer.Config config = new StubTranslationServer.Config()
+        .setLatency(options.medianLatencyMillis, options.p99LatencyMillis)
+        .setErrorRate(options.errorRate)
+        .setThrottleBursts(options.throttleEveryMillis, options.throttleForMillis, options.retryAfterSeconds);
+    Report report = new Report();
+    report.keys = options.keys;
+    report.directory = directory;
+    // the translation memory is kept in the directory of the run, next to the values files
+    TranslationCacheService cacheService = new TranslationCacheService(directory.resolve("translationMemory"));
+    try (StubTranslationServer server = new StubTranslationServer(config);
+         HeapSampler heapSampler = new HeapSampler()) {
+      server.start();
+      report.server = server;
+      TranslationMetricsService metricsService = new TranslationMetricsService(cacheService, null);
+      TranslatorService translatorService = createTranslatorService(cacheService, metricsService, server);
+      AbstractTranslator translator = translatorService.getSelectedTranslator();
+      List<Lang> locales = getLocales(translator, options.locales);
+      report.translator = translator.getKey();
+      report.locales = locales.size();
+
+      TranslationEngine engine = new TranslationEngine(translatorService);
+      engine.addSource(sourceFile.toFile(), null);
+      engine.setLanguages(locales);
+      long startNanos = System.nanoTime();
+      TranslationEngine.Result result = engine.run(new TranslationEngine.Callback() {
+      });
+      report.elapsedNanos = System.nanoTime() - startNanos;
+      report.peakHeapBytes = heapSampler.getPeakBytes();
+
+      long entries = ValuesXmlReader.read(sourceFile).getEntries().stream().filter(ValuesEntry::isTranslatable).count();
+      report.strings = entries * locales.size();
+      report.failedStrings = result.getFailedCount();
+      // every locale has the same texts to translate
+      report.distinctTexts = locales.isEmpty() ? 0 : result.getPlan().getPendingTextCount() / locales.size();
+      TranslatorMetrics metrics = metricsService.getTranslatorMetrics(translator.getKey());
+      report.requests = metrics.getRequests();
+      report.retries = metrics.getRetries();
+      report.throttledRetries = metrics.getThrottledRetries();
+      report.latency = metrics.getLatency();
+    } finally {
+      cacheService.dispose();
+    }
+    return report;
+  }
+
+  /**
+   * Returns a translator service outside of the IDE, its selected translator sends its requests to the server,
+   * with the limits and the retry delays of the options.
+   */
+  @NotNull
+  private TranslatorService createTranslatorService(@NotNull TranslationCacheService cacheService,
+                                                    @NotNull TranslationMetricsService metricsService,
+                                                    @NotNull StubTranslationServer server) {
+    HttpTransportService transport = new HttpTransportService(null, null);
+    TranslatorService translatorService = new TranslatorService(cacheService, metricsService, transport, STUB_CREDENTIALS);
+    AbstractTranslator translator = createTranslator(options.translator, server);
+    translator.setTransport(transport);
+    translator.setCredentials(STUB_CREDENTIALS);
+    translatorService.getTranslators().put(translator.getKey(), translator);
+    translatorService.setSelectedTranslator(translator);
+
+    translatorService.setLimits(translator.getKey(), new ConcurrencyLimiter(options.maxConcurrentRequests > 0 ?
+            options.maxConcurrentRequests : Math.max(1, translator.getMaxConcurrentRequests())),
+        new RateLimiter(options.requestsPerSecond > 0 ? options.requestsPerSecond : translator.getRequestsPerSecond(),
+            options.charactersPerMinute >= 0 ? options.charactersPerMinute : translator.getCharactersPerMinute()));
+    translatorService.setRetryPolicy(new RetryPolicy(RetryPolicy.DEFAULT_MAX_ATTEMPTS, options.retryBaseDelayMillis,
+        RetryPolicy.DEFAULT_MAX_DELAY_MILLIS));
+    return translatorService;
+  }
+
+  /**
+   * Returns the translator with the given key, its requests are sent to the server.
+   */
+  @NotNull
+  static AbstractTranslator createTranslator(@NotNull String key, @NotNull StubTranslationServer server) {
+    List<AbstractTranslator> translators = List.of(new GoogleTranslator() {
+      @Override
+      public @NotNull String getRequestUrl(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull String text) {
+        return server.redirect(super.getRequestUrl(fromLang, toLang, text));
+      }
+
+      @Override
+      public @NotNull String getRequestUrl(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull List<String> texts) {
+        return server.redirect(super.getRequestUrl(fromLang, toLang, texts));
+      }
+    }, new GoogleApiTranslator() {
+      @Override
+      public @NotNull String getRequestUrl(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull String text) {
+        return server.redirect(super.getRequestUrl(fromLang, toLang, text));
+      }
+
+      @Override
+      public @NotNull String getRequestUrl(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull List<String> texts) {
+        return server.redirect(super.getRequestUrl(fromLang, toLang, texts));
+      }
+    }, new DeeplTranslator() {
+      @Override
+      public @NotNull String getRequestUrl(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull String text) {
+        return server.redirect(super.getRequestUrl(fromLang, toLang, text));
+      }
+
+      @Override
+      public @NotNull String getRequestUrl(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull List<String> texts) {
+        return server.redirect(super.getRequestUrl(fromLang, toLang, texts));
+      }
+    }, new MicrosoftTranslator() {
+      @Override
+      public @NotNull String getRequestUrl(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull String text) {
+        return server.redirect(super.getRequestUrl(fromLang, toLang, text));
+      }
+
+      @Override
+      public @NotNull String getRequestUrl(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull List<String> texts) {
+        return server.redirect(super.getRequestUrl(fromLang, toLang, texts));
+      }
+    }, new BaiduTranslator() {
+      @Override
+      public @NotNull String getRequestUrl(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull String text) {
+        return server.redirect(super.getRequestUrl(fromLang, toLang, text));
+      }
+
+      @Override
+      public @NotNull String getRequestUrl(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull List<String> texts) {
+        return server.redirect(super.getRequestUrl(fromLang, toLang, texts));
+      }
+    }, new YoudaoTranslator() {
+      @Override
+      public @NotNull String getRequestUrl(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull String text) {
+        return server.redirect(super.getRequestUrl(fromLang, toLang, text));
+      }
+
+      @Override
+      public @NotNull String getRequestUrl(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull List<String> texts) {
+        return server.redirect(super.getRequestUrl(fromLang, toLang, texts));
+      }
+    });
+    for (AbstractTranslator translator : translators) {
+      if (translator.getKey().equalsIgnoreCase(key)) return translator;
+    }
+    throw new IllegalArgumentException("Unknown translator: " + key + ", expected one of "
+        + translators.stream().map(AbstractTranslator::getKey).collect(Collectors.joining(", ")));
+  }
+
+  /**
+   * Returns the first locales the translator supports, at most as many as it supports.
+   */
+  @NotNull
+  private static List<Lang> getLocales(@NotNull AbstractTranslator translator, int count) {
+    return translator.getSupportedLanguages().stream()
+        .filter(lang -> !lang.equals(Languages.ENGLISH) && !lang.equals(Languages.AUTO))
+        .limit(count)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Write a default values file: mostly strings of a few words to a sentence, some shared texts,
+   * plurals, string arrays and strings that aren't translatable.
+   */
+  @NotNull
+  private static Path writeSourceFile(@NotNull File resourceDir, int keys) throws IOException {
+    Random random = new Random(42);
+    StringBuilder builder = new StringBuilder("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<resources>\n");
+    for (int i = 0; i < keys; i++) {
+      if (i % 20 == 7) {
+        builder.append("    <plurals name=\"plural_").append(i).append("\">\n")
+            .append("        <item quantity=\"one\">%d ").append(sentence(random, 3)).append("</item>\n")
+            .append("        <item quantity=\"other\">%d ").append(sentence(random, 3)).append("</item>\n")
+            .append("    </plurals>\n");
+      } else if (i % 50 == 13) {
+        builder.append("    <string-array name=\"array_").append(i).append("\">\n");
+        for (int j = 0; j < 3; j++) {
+          builder.append("        <item>").append(sentence(random, 2)).append("</item>\n");
+        }
+        builder.append("    </string-array>\n");
+      } else if (i % 100 == 29) {
+        builder.append("    <string name=\"constant_").append(i).append("\" translatable=\"false\">ID-").append(i)
+            .append("</string>\n");
+      } else {
+        String text = random.nextInt(10) == 0 ? COMMON_TEXTS[random.nextInt(COMMON_TEXTS.length)] :
+            sentence(random, 1 + random.nextInt(16));
+        builder.append("    <string name=\"string_").append(i).append("\">").append(text).append("</string>\n");
+      }
+    }
+    builder.append("</resources>\n");
+    Path file = resourceDir.toPath().resolve("values").resolve(AndroidValuesService.NAME_STRINGS_FILE);
+    Files.createDirectories(file.getParent());
+    Files.writeString(file, builder, StandardCharsets.UTF_8);
+    return file;
+  }
+
+  @NotNull
+  private static String sentence(@NotNull Random random, int words) {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < words; i++) {
+      if (i > 0) builder.append(' ');
+      builder.append(WORDS[random.nextInt(WORDS.length)]);
+    }
+    builder.setCharAt(0, Character.toUpperCase(builder.charAt(0)));
+    return builder.toString();
+  }
+
+  /**
+   * Samples the used heap on a background thread and keeps the highest value.
+   */
+  private static class HeapSampler implements AutoCloseable {
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final AtomicLong peakBytes = new AtomicLong();
+    private final Thread thread;
+    private volatile boolean isRunning = true;
+
+    HeapSampler() {
+      thread = new Thread(() -> {
+        while (isRunning) {
+          sample();
+          try {
+            Thread.sleep(HEAP_SAMPLE_MILLIS);
+          } catch (InterruptedException e) {
+            return;
+          }
+        }
+      }, "HeapSampler");
+      thread.setDaemon(true);
+      thread.start();
+    }
+
+    private void sample() {
+      long used = memory.getHeapMemoryUsage().getUsed();
+      peakBytes.accumulateAndGet(used, Math::max);
+    }
+
+    long getPeakBytes() {
+      sample();
+      return peakBytes.get();
+    }
+
+    @Override
+    public void close() {
+      isRunning = false;
+      thread.interrupt();
+    }
+  }
+}
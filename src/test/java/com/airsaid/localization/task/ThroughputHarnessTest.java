@@ -0,0 +1,50 @@
+package com.airsaid.localization.task;
+
+import com.airsaid.localization.translate.StubTranslationServer;
+import com.airsaid.localization.values.ValuesDocument;
+import com.airsaid.localization.values.ValuesXmlReader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs a small harness per translator, so the stub server keeps answering in the formats the translators parse.
+ *
+ * @author airsaid
+ */
+class ThroughputHarnessTest {
+
+  @Test
+  void testAllTranslators(@TempDir Path root) throws Exception {
+    for (String translator : List.of("Google", "GoogleApi", "DeepL", "Microsoft", "Baidu", "Youdao")) {
+      Path directory = root.resolve(translator);
+      ThroughputHarness.Report report = new ThroughputHarness(ThroughputHarness.Options.parse(new String[]{
+          "--translator=" + translator, "--keys=200", "--locales=2", "--latency=1", "--p99-latency=5",
+          "--error-rate=0.05", "--throttle-every=200", "--throttle-for=20", "--retry-base-delay=5",
+          "--requests-per-second=10000", "--max-concurrent-requests=8", "--characters-per-minute=0",
+          "--dir=" + directory})).run();
+
+      assertEquals(2, report.locales, translator);
+      assertEquals(0, report.failedStrings, translator);
+      assertEquals(198L * 2, report.strings, translator);
+      assertTrue(report.distinctTexts < 200 + 10 * 2 + 4 * 3, translator);
+
+      ValuesDocument source = ValuesXmlReader.read(directory.resolve("res/values/strings.xml"));
+      String text = source.getEntry("string_0").getTexts().get(0);
+      try (var files = Files.list(directory.resolve("res"))) {
+        for (Path valuesDir : (Iterable<Path>) files.filter(dir -> !dir.endsWith("values"))::iterator) {
+          String locale = valuesDir.getFileName().toString().substring("values-".length());
+          ValuesDocument translated = ValuesXmlReader.read(valuesDir.resolve("strings.xml"));
+          assertTrue(translated.getEntry("string_0").getTexts().get(0).endsWith(text), translator + " " + locale);
+          assertTrue(translated.getEntry("string_0").getTexts().get(0).startsWith("["), translator + " " + locale);
+          assertNull(translated.getEntry("constant_29"), translator);
+        }
+      }
+    }
+  }
+}
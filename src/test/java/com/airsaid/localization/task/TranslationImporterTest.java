@@ -0,0 +1,188 @@
+package com.airsaid.localization.task;
+
+import com.airsaid.localization.services.AndroidValuesService;
+import com.airsaid.localization.translate.lang.Languages;
+import com.airsaid.localization.translate.services.TranslationCacheService;
+import com.airsaid.localization.translate.services.TranslationMetricsService;
+import com.airsaid.localization.translate.services.TranslatorService;
+import com.airsaid.localization.utils.ExportExcelOperator;
+import com.airsaid.localization.values.ValuesDocument;
+import com.airsaid.localization.values.ValuesEntry;
+import com.airsaid.localization.values.ValuesXmlReader;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author airsaid
+ */
+class TranslationImporterTest {
+
+  private static final String STRINGS = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<resources>\n"
+      + "    <string name=\"hello\">Hello</string>\n"
+      + "    <string name=\"bye\">Goodbye</string>\n"
+      + "    <string name=\"retry\">Retry</string>\n"
+      + "    <plurals name=\"songs\">\n"
+      + "        <item quantity=\"one\">%d song</item>\n"
+      + "        <item quantity=\"other\">%d songs</item>\n"
+      + "    </plurals>\n"
+      + "    <string-array name=\"planets\">\n"
+      + "        <item>Mercury</item>\n"
+      + "        <item>Venus</item>\n"
+      + "    </string-array>\n"
+      + "</resources>\n";
+
+  private static final String STRINGS_FR = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<resources>\n"
+      + "    <string name=\"hello\">Salut</string>\n"
+      + "    <string name=\"bye\">Au revoir</string>\n"
+      + "    <plurals name=\"songs\">\n"
+      + "        <item quantity=\"one\">%d chanson</item>\n"
+      + "        <item quantity=\"other\">%d chanson</item>\n"
+      + "    </plurals>\n"
+      + "</resources>\n";
+
+  @TempDir
+  Path root;
+  private TranslationCacheService cacheService;
+  private TranslatorService translatorService;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    Files.createDirectories(root.resolve("res/values"));
+    Files.createDirectories(root.resolve("res/values-fr"));
+    Files.writeString(root.resolve("res/values/strings.xml"), STRINGS, StandardCharsets.UTF_8);
+    Files.writeString(root.resolve("res/values-fr/strings.xml"), STRINGS_FR, StandardCharsets.UTF_8);
+    cacheService = new TranslationCacheService(root.resolve("translationMemory"));
+    TranslationMetricsService metricsService = new TranslationMetricsService(cacheService, null);
+    translatorService = new TranslatorService(cacheService, metricsService, null, null);
+  }
+
+  @AfterEach
+  void tearDown() {
+    cacheService.dispose();
+  }
+
+  @Test
+  void testRowNames() throws IOException {
+    ValuesDocument document = ValuesXmlReader.read((CharSequence) STRINGS);
+    for (String name : List.of("songs", "planets")) {
+      ValuesEntry entry = document.getEntry(name);
+      List<ValuesEntry.Item> items = entry.getItems();
+      for (int i = 0; i < items.size(); i++) {
+        TranslationImporter.RowName rowName = TranslationImporter.RowName.parse(
+            ExportExcelOperator.getItemName(entry.getName(), items.get(i), i));
+        assertNotNull(rowName);
+        assertEquals(name, rowName.name);
+        assertTrue(rowName.isItem());
+        assertEquals(i, rowName.findItem(entry));
+      }
+    }
+    assertEquals("songs:other", TranslationImporter.RowName.parse("songs:other").toString());
+    assertEquals(-1, TranslationImporter.RowName.parse("songs:few").findItem(document.getEntry("songs")));
+    assertEquals(-1, TranslationImporter.RowName.parse("planets[2]").findItem(document.getEntry("planets")));
+    // the index of an array never matches the quantity of plurals
+    assertEquals(-1, TranslationImporter.RowName.parse("songs[0]").findItem(document.getEntry("songs")));
+    assertFalse(TranslationImporter.RowName.parse(" hello ").isItem());
+    assertEquals("hello", TranslationImporter.RowName.parse(" hello ").name);
+    assertNull(TranslationImporter.RowName.parse("  "));
+  }
+
+  @Test
+  void testImport() throws IOException {
+    List<String> warnings = new ArrayList<>();
+    List<Path> writtenFiles = new ArrayList<>();
+    TranslationImporter importer = importCsv("res/values/strings.xml,Default,fr,de\n"
+        + "hello,Hello,Bonjour,Hallo\n"
+        // the default text changed since the export, the translation is outdated
+        + "bye,Bye,Salut,Tschüss\n"
+        + "retry,Retry,Réessayer,\n"
+        + "songs:other,%d songs,%d chansons,\n"
+        + "planets[0],Mercury,Mercure,\n"
+        + "unknown,Unknown,Inconnu,\n", new TranslationImporter.Callback() {
+      @Override
+      public void onWritten(@NotNull File valueFile) {
+        writtenFiles.add(valueFile.toPath());
+      }
+
+      @Override
+      public void onWarning(@NotNull String message) {
+        warnings.add(message);
+      }
+    });
+
+    ValuesDocument translated = ValuesXmlReader.read(root.resolve("res/values-fr/strings.xml"));
+    assertEquals(List.of("Bonjour"), translated.getEntry("hello").getTexts());
+    assertEquals(List.of("Au revoir"), translated.getEntry("bye").getTexts());
+    assertEquals(List.of("%d chanson", "%d chansons"), translated.getEntry("songs").getTexts());
+    // the array is missing from the target file, items are never created from a sheet
+    assertNull(translated.getEntry("planets"));
+    // a string missing from the target file is appended after the last entry
+    assertEquals(List.of("Réessayer"), translated.getEntry("retry").getTexts());
+    assertTrue(Files.readString(root.resolve("res/values-fr/strings.xml"))
+        .endsWith("    </plurals>\n    <string name=\"retry\">Réessayer</string>\n</resources>\n"));
+
+    assertEquals(3, importer.getUpdatedCount());
+    // bye, planets[0] and unknown, the values-de column has no file and is skipped
+    assertEquals(3, importer.getSkippedCount());
+    assertEquals(1, importer.getFileCount());
+    assertEquals(List.of(root.resolve("res/values-fr/strings.xml")), writtenFiles);
+    assertTrue(warnings.isEmpty(), warnings.toString());
+  }
+
+  @Test
+  void testCorrectionsAreCached() throws IOException {
+    importCsv("res/values/strings.xml,Default,fr\n"
+        + "hello,Hello,Bonjour\n"
+        + "bye,Bye,Salut\n"
+        + "songs:other,%d songs,%d chansons\n", new TranslationImporter.Callback() {
+    });
+
+    assertEquals(List.of("Bonjour"),
+        translatorService.getCachedTranslations(Languages.ENGLISH, Languages.FRENCH, List.of("Hello")));
+    // the texts of an item are cached like the text of a string
+    assertEquals(List.of("%d chansons"),
+        translatorService.getCachedTranslations(Languages.ENGLISH, Languages.FRENCH, List.of("%d songs")));
+    // a skipped row is not a correction
+    assertEquals(Collections.singletonList(null),
+        translatorService.getCachedTranslations(Languages.ENGLISH, Languages.FRENCH, List.of("Goodbye")));
+  }
+
+  @Test
+  void testMissingValuesFile() throws IOException {
+    List<String> warnings = new ArrayList<>();
+    TranslationImporter importer = importCsv("res/values-missing/strings.xml,Default,fr\nhello,Hello,Bonjour\n",
+        new TranslationImporter.Callback() {
+          @Override
+          public void onWarning(@NotNull String message) {
+            warnings.add(message);
+          }
+        });
+    assertEquals(1, warnings.size());
+    assertEquals(0, importer.getFileCount());
+    assertEquals(STRINGS_FR, Files.readString(root.resolve("res/values-fr/strings.xml")));
+  }
+
+  @NotNull
+  private TranslationImporter importCsv(@NotNull String csv, @NotNull TranslationImporter.Callback callback)
+      throws IOException {
+    Path file = root.resolve("translations.csv");
+    Files.writeString(file, csv, StandardCharsets.UTF_8);
+    TranslationImporter importer =
+        new TranslationImporter(new AndroidValuesService(), translatorService, root.toFile());
+    importer.importFile(file.toFile(), callback);
+    return importer;
+  }
+}
@@ -0,0 +1,61 @@
+package com.airsaid.localization.task;
+
+import com.airsaid.localization.translate.lang.Lang;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author airsaid
+ */
+class TranslationPlanTest {
+
+  private static final Lang FRENCH = new Lang(1, "fr", "Français", "French");
+  private static final Lang GERMAN = new Lang(2, "de", "Deutsch", "German");
+
+  @Test
+  void testEmptyPlan() {
+    TranslationPlan plan = new TranslationPlan(50, 5000, 5);
+    TranslationPlan.LanguagePlan french = plan.getLanguagePlan(FRENCH);
+    french.addKept();
+    french.addCached();
+    assertTrue(plan.isEmpty());
+    assertEquals(0, plan.getEstimatedRequests());
+    assertEquals(1, plan.getKeptCount());
+    assertEquals(1, plan.getCachedCount());
+  }
+
+  @Test
+  void testEstimatedRequests() {
+    TranslationPlan plan = new TranslationPlan(50, 5000, 2);
+    TranslationPlan.LanguagePlan french = plan.getLanguagePlan(FRENCH);
+    for (int i = 0; i < 120; i++) {
+      french.addPending(1, 10, 10);
+    }
+    // limited by the texts per request
+    assertEquals(3, plan.getEstimatedRequests());
+
+    TranslationPlan.LanguagePlan german = plan.getLanguagePlan(GERMAN);
+    german.addPending(2, 12000, 12000);
+    // limited by the bytes per request, and languages never share a request
+    assertEquals(6, plan.getEstimatedRequests());
+    assertEquals(3, plan.getEstimatedSeconds());
+    assertEquals(121, plan.getPendingCount());
+    assertEquals(13200, plan.getPendingCharacters());
+  }
+
+  @Test
+  void testSavedRequests() {
+    TranslationPlan plan = new TranslationPlan(10, 5000, 1);
+    TranslationPlan.LanguagePlan french = plan.getLanguagePlan(FRENCH);
+    for (int i = 0; i < 10; i++) {
+      french.addPending(1, 10, 10);
+    }
+    french.addDuplicates(25, 250);
+    assertEquals(1, plan.getEstimatedRequests());
+    assertEquals(25, plan.getDuplicateCount());
+    // 35 texts would have taken 4 requests
+    assertEquals(3, plan.getSavedRequests());
+    assertTrue(plan.getSummary().contains("saving about 3 requests"));
+  }
+}
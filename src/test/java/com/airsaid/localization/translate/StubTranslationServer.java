@@ -0,0 +1,494 @@
+package com.airsaid.localization.translate;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A local HTTP server that answers in the response formats of Google, Google (API), DeepL, Microsoft,
+ * Baidu, Youdao, LibreTranslate and OpenAI compatible chat completions, so the translators can be run
+ * at scale without real quota.
+ * <p>
+ * The requests of a translator are sent to {@link #redirect(String)}, which keeps their path and query,
+ * the path tells the server which format to answer in. A text is translated into {@link #translate(String, String)}.
+ * <p>
+ * Responses are delayed by a log-normal latency, a share of them fails with 503 and the server can
+ * answer every request with 429 in periodic bursts, see {@link Config}. Delayed responses are written
+ * by a scheduler, so slow responses don't hold a server thread.
+ *
+ * @author airsaid
+ */
+public class StubTranslationServer implements Closeable {
+
+  // the 99th percentile of the standard normal distribution
+  private static final double Z_99 = 2.3263;
+
+  private final Config config;
+  private final Random random;
+  private final HttpServer server;
+  private final ExecutorService executor = Executors.newFixedThreadPool(4);
+  private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+  private final LongAdder requestCount = new LongAdder();
+  private final LongAdder textCount = new LongAdder();
+  private final LongAdder errorCount = new LongAdder();
+  private final LongAdder throttledCount = new LongAdder();
+  private long startMillis;
+
+  /**
+   * The behaviour of the server, all times are in milliseconds.
+   */
+  public static class Config {
+    private double medianLatencyMillis;
+    private double p99LatencyMillis;
+    private double errorRate;
+    private long throttleEveryMillis;
+    private long throttleForMillis;
+    private int retryAfterSeconds = -1;
+    private long seed = 42;
+
+    /**
+     * Delay the responses by a log-normal latency with the given median and 99th percentile.
+     */
+    public Config setLatency(double medianMillis, double p99Millis) {
+      this.medianLatencyMillis = medianMillis;
+      this.p99LatencyMillis = Math.max(medianMillis, p99Millis);
+      return this;
+    }
+
+    /**
+     * Fail the given share of requests, between 0 and 1, with 503.
+     */
+    public Config setErrorRate(double errorRate) {
+      this.errorRate = errorRate;
+      return this;
+    }
+
+    /**
+     * Answer all requests with 429 for the given time, every given time, eg: 1000 every 10000.
+     *
+     * @param retryAfterSeconds the value of the Retry-After header, or -1 to leave it out.
+     */
+    public Config setThrottleBursts(long everyMillis, long forMillis, int retryAfterSeconds) {
+      this.throttleEveryMillis = everyMillis;
+      this.throttleForMillis = forMillis;
+      this.retryAfterSeconds = retryAfterSeconds;
+      return this;
+    }
+
+    public Config setSeed(long seed) {
+      this.seed = seed;
+      return this;
+    }
+
+    @Override
+    public String toString() {
+      return "Config{" +
+          "medianLatencyMillis=" + medianLatencyMillis +
+          ", p99LatencyMillis=" + p99LatencyMillis +
+          ", errorRate=" + errorRate +
+          ", throttleEveryMillis=" + throttleEveryMillis +
+          ", throttleForMillis=" + throttleForMillis +
+          ", retryAfterSeconds=" + retryAfterSeconds +
+          '}';
+    }
+  }
+
+  public StubTranslationServer(@NotNull Config config) throws IOException {
+    this.config = config;
+    this.random = new Random(config.seed);
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+    server.createContext("/", this::handle);
+    server.setExecutor(executor);
+  }
+
+  public void start() {
+    startMillis = System.currentTimeMillis();
+    server.start();
+  }
+
+  @NotNull
+  public String getBaseUrl() {
+    return "http://127.0.0.1:" + server.getAddress().getPort();
+  }
+
+  /**
+   * Returns the url of the server that stands in for the given url of a translator.
+   */
+  @NotNull
+  public String redirect(@NotNull String url) {
+    URI uri = URI.create(url);
+    return getBaseUrl() + uri.getRawPath() + (uri.getRawQuery() != null ? "?" + uri.getRawQuery() : "");
+  }
+
+  /**
+   * Returns the translation the server answers for a text.
+   */
+  @NotNull
+  public static String translate(@NotNull String text, @NotNull String toLanguage) {
+    return "[" + toLanguage + "] " + text;
+  }
+
+  public long getRequestCount() {
+    return requestCount.sum();
+  }
+
+  /**
+   * Returns the number of texts that were translated, the texts of failed requests are not counted.
+   */
+  public long getTextCount() {
+    return textCount.sum();
+  }
+
+  public long getErrorCount() {
+    return errorCount.sum();
+  }
+
+  public long getThrottledCount() {
+    return throttledCount.sum();
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    scheduler.shutdownNow();
+    executor.shutdownNow();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    byte[] body = exchange.getRequestBody().readAllBytes();
+    requestCount.increment();
+    long delayMillis = nextLatencyMillis();
+
+    if (isThrottling()) {
+      throttledCount.increment();
+      if (config.retryAfterSeconds >= 0) {
+        exchange.getResponseHeaders().set("Retry-After", String.valueOf(config.retryAfterSeconds));
+      }
+      respondLater(exchange, 429, new byte[0], delayMillis);
+      return;
+    }
+    if (nextDouble() < config.errorRate) {
+      errorCount.increment();
+      respondLater(exchange, 503, new byte[0], delayMillis);
+      return;
+    }
+
+    JsonElement response;
+    try {
+      URI uri = exchange.getRequestURI();
+      Map<String, List<String>> params = parseForm(uri.getRawQuery());
+      String bodyText = new String(body, StandardCharsets.UTF_8);
+      if (bodyText.startsWith("{")) {
+        JsonObject jsonBody = JsonParser.parseString(bodyText).getAsJsonObject();
+        if (uri.getPath().endsWith("/chat/completions")) {
+          respondChatCompletion(exchange, jsonBody, delayMillis);
+          return;
+        }
+        response = "/translate".equals(uri.getPath()) ? libreTranslate(jsonBody) : null;
+      } else if (bodyText.startsWith("[")) {
+        response = respond(uri.getPath(), params, JsonParser.parseString(bodyText).getAsJsonArray());
+      } else {
+        params.putAll(parseForm(bodyText));
+        response = respond(uri.getPath(), params, null);
+      }
+    } catch (RuntimeException e) {
+      respondLater(exchange, 400, String.valueOf(e.getMessage()).getBytes(StandardCharsets.UTF_8), delayMillis);
+      return;
+    }
+    if (response == null) {
+      respondLater(exchange, 404, new byte[0], delayMillis);
+      return;
+    }
+    exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+    respondLater(exchange, 200, response.toString().getBytes(StandardCharsets.UTF_8), delayMillis);
+  }
+
+  /**
+   * Build the response of a translator, which is told by the path of the request.
+   *
+   * @param jsonBody the body of a request that sends the texts as json, eg: Microsoft.
+   * @return the response, or null if no translator has the path.
+   */
+  @Nullable
+  private JsonElement respond(@NotNull String path, @NotNull Map<String, List<String>> params,
+                              @Nullable JsonArray jsonBody) {
+    switch (path) {
+      case "/translate_a/single":
+        return google(getParam(params, "tl"), getParams(params, "q"));
+      case "/language/translate/v2":
+        return googleApi(getParam(params, "target"), getParams(params, "q"));
+      case "/v2/translate":
+        return deepl(getParam(params, "target_lang"), getParams(params, "text"));
+      case "/translate":
+        return microsoft(getParam(params, "to"), Objects.requireNonNull(jsonBody, "json body"));
+      case "/api/trans/vip/translate":
+        return baidu(getParam(params, "from"), getParam(params, "to"), getParam(params, "q"));
+      case "/api":
+        return youdao(getParam(params, "to"), getParams(params, "q"), false);
+      case "/v2/api":
+        return youdao(getParam(params, "to"), getParams(params, "q"), true);
+      default:
+        return null;
+    }
+  }
+
+  private JsonObject google(String to, List<String> texts) {
+    JsonArray sentences = new JsonArray();
+    for (String text : texts) {
+      JsonObject sentence = new JsonObject();
+      sentence.addProperty("trans", translateText(text, to));
+      sentence.addProperty("orig", text);
+      sentence.addProperty("backend", 10);
+      sentences.add(sentence);
+    }
+    JsonObject response = new JsonObject();
+    response.add("sentences", sentences);
+    response.addProperty("src", "en");
+    return response;
+  }
+
+  private JsonObject googleApi(String to, List<String> texts) {
+    JsonArray translations = new JsonArray();
+    for (String text : texts) {
+      JsonObject translation = new JsonObject();
+      translation.addProperty("translatedText", translateText(text, to));
+      translation.addProperty("detectedSourceLanguage", "en");
+      translations.add(translation);
+    }
+    JsonObject data = new JsonObject();
+    data.add("translations", translations);
+    JsonObject response = new JsonObject();
+    response.add("data", data);
+    return response;
+  }
+
+  private JsonObject deepl(String to, List<String> texts) {
+    JsonArray translations = new JsonArray();
+    for (String text : texts) {
+      JsonObject translation = new JsonObject();
+      translation.addProperty("detected_source_language", "EN");
+      translation.addProperty("text", translateText(text, to));
+      translations.add(translation);
+    }
+    JsonObject response = new JsonObject();
+    response.add("translations", translations);
+    return response;
+  }
+
+  private JsonArray microsoft(String to, JsonArray texts) {
+    JsonArray response = new JsonArray();
+    for (JsonElement item : texts) {
+      JsonObject translation = new JsonObject();
+      translation.addProperty("text", translateText(item.getAsJsonObject().get("Text").getAsString(), to));
+      translation.addProperty("to", to);
+      JsonArray translations = new JsonArray();
+      translations.add(translation);
+      JsonObject result = new JsonObject();
+      result.add("translations", translations);
+      response.add(result);
+    }
+    return response;
+  }
+
+  /**
+   * Baidu takes the texts of a batch as lines of a single text.
+   */
+  private JsonObject baidu(String from, String to, String text) {
+    JsonArray contents = new JsonArray();
+    for (String line : text.split("\n", -1)) {
+      JsonObject content = new JsonObject();
+      content.addProperty("src", line);
+      content.addProperty("dst", translateText(line, to));
+      contents.add(content);
+    }
+    JsonObject response = new JsonObject();
+    response.addProperty("from", from);
+    response.addProperty("to", to);
+    response.add("trans_result", contents);
+    return response;
+  }
+
+  private JsonObject youdao(String to, List<String> texts, boolean isBatch) {
+    JsonObject response = new JsonObject();
+    response.addProperty("errorCode", "0");
+    response.addProperty("requestId", UUID.randomUUID().toString());
+    if (isBatch) {
+      JsonArray translateResults = new JsonArray();
+      for (String text : texts) {
+        JsonObject result = new JsonObject();
+        result.addProperty("query", text);
+        result.addProperty("translation", translateText(text, to));
+        translateResults.add(result);
+      }
+      response.add("translateResults", translateResults);
+    } else {
+      JsonArray translation = new JsonArray();
+      translation.add(translateText(texts.get(0), to));
+      response.add("translation", translation);
+    }
+    return response;
+  }
+
+  /**
+   * LibreTranslate takes the texts of a batch as an array.
+   */
+  private JsonObject libreTranslate(JsonObject request) {
+    String to = request.get("target").getAsString();
+    JsonElement q = request.get("q");
+    JsonObject response = new JsonObject();
+    if (q.isJsonArray()) {
+      JsonArray translatedText = new JsonArray();
+      for (JsonElement text : q.getAsJsonArray()) {
+        translatedText.add(translateText(text.getAsString(), to));
+      }
+      response.add("translatedText", translatedText);
+    } else {
+      response.addProperty("translatedText", translateText(q.getAsString(), to));
+    }
+    return response;
+  }
+
+  /**
+   * Chat completions answer the json array of the translations, streamed as server-sent
+   * events of a few characters each if the request asks for it.
+   */
+  private void respondChatCompletion(HttpExchange exchange, JsonObject request, long delayMillis) {
+    JsonArray messages = request.getAsJsonArray("messages");
+    JsonObject content = JsonParser.parseString(messages.get(messages.size() - 1).getAsJsonObject()
+        .get("content").getAsString()).getAsJsonObject();
+    String to = content.get("target").getAsString();
+    JsonArray translations = new JsonArray();
+    for (JsonElement text : content.getAsJsonArray("texts")) {
+      translations.add(translateText(text.getAsString(), to));
+    }
+    String answer = translations.toString();
+
+    StringBuilder response = new StringBuilder();
+    boolean isStream = request.has("stream") && request.get("stream").getAsBoolean();
+    if (isStream) {
+      for (int start = 0; start < answer.length(); start += 8) {
+        JsonObject delta = new JsonObject();
+        delta.addProperty("content", answer.substring(start, Math.min(answer.length(), start + 8)));
+        response.append("data: ").append(newChoices("delta", delta)).append("\n\n");
+      }
+      response.append("data: [DONE]\n\n");
+      exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=UTF-8");
+    } else {
+      JsonObject message = new JsonObject();
+      message.addProperty("role", "assistant");
+      message.addProperty("content", answer);
+      response.append(newChoices("message", message));
+      exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+    }
+    respondLater(exchange, 200, response.toString().getBytes(StandardCharsets.UTF_8), delayMillis);
+  }
+
+  private static JsonObject newChoices(String name, JsonObject value) {
+    JsonObject choice = new JsonObject();
+    choice.addProperty("index", 0);
+    choice.add(name, value);
+    JsonArray choices = new JsonArray();
+    choices.add(choice);
+    JsonObject completion = new JsonObject();
+    completion.add("choices", choices);
+    return completion;
+  }
+
+  private String translateText(String text, String to) {
+    textCount.increment();
+    return translate(text, to);
+  }
+
+  private boolean isThrottling() {
+    if (config.throttleEveryMillis <= 0 || config.throttleForMillis <= 0) return false;
+    long elapsedMillis = System.currentTimeMillis() - startMillis;
+    // the first burst starts after a full period, so every run begins with a clean window
+    return elapsedMillis >= config.throttleEveryMillis
+        && elapsedMillis % config.throttleEveryMillis < config.throttleForMillis;
+  }
+
+  private long nextLatencyMillis() {
+    if (config.medianLatencyMillis <= 0) return 0;
+    double sigma = Math.log(config.p99LatencyMillis / config.medianLatencyMillis) / Z_99;
+    double gaussian;
+    synchronized (random) {
+      gaussian = random.nextGaussian();
+    }
+    return Math.round(config.medianLatencyMillis * Math.exp(sigma * gaussian));
+  }
+
+  private double nextDouble() {
+    synchronized (random) {
+      return random.nextDouble();
+    }
+  }
+
+  private void respondLater(HttpExchange exchange, int statusCode, byte[] body, long delayMillis) {
+    if (delayMillis <= 0) {
+      respond(exchange, statusCode, body);
+    } else {
+      scheduler.schedule(() -> respond(exchange, statusCode, body), delayMillis, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private static void respond(HttpExchange exchange, int statusCode, byte[] body) {
+    try {
+      exchange.sendResponseHeaders(statusCode, body.length == 0 ? -1 : body.length);
+      try (OutputStream os = exchange.getResponseBody()) {
+        os.write(body);
+      }
+    } catch (IOException e) {
+      // the client gave up on the request
+      exchange.close();
+    }
+  }
+
+  @NotNull
+  private static Map<String, List<String>> parseForm(@Nullable String form) {
+    Map<String, List<String>> params = new LinkedHashMap<>();
+    if (form == null || form.isEmpty()) return params;
+    for (String pair : form.split("&")) {
+      if (pair.isEmpty()) continue;
+      int index = pair.indexOf('=');
+      String key = URLDecoder.decode(index >= 0 ? pair.substring(0, index) : pair, StandardCharsets.UTF_8);
+      String value = index >= 0 ? URLDecoder.decode(pair.substring(index + 1), StandardCharsets.UTF_8) : "";
+      params.computeIfAbsent(key, k -> new ArrayList<>()).add(value);
+    }
+    return params;
+  }
+
+  @NotNull
+  private static String getParam(@NotNull Map<String, List<String>> params, @NotNull String key) {
+    List<String> values = getParams(params, key);
+    return values.get(0);
+  }
+
+  @NotNull
+  private static List<String> getParams(@NotNull Map<String, List<String>> params, @NotNull String key) {
+    List<String> values = params.get(key);
+    if (values == null || values.isEmpty()) {
+      throw new IllegalArgumentException("Missing parameter: " + key);
+    }
+    return values;
+  }
+}
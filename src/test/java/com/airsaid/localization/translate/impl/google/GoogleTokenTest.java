@@ -1,9 +1,12 @@
 package com.airsaid.localization.translate.impl.google;
 
+import com.airsaid.localization.translate.services.HttpTransportService;
 import com.intellij.openapi.util.Pair;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.function.Supplier;
+
 /**
  * @author airsaid
  */
@@ -19,4 +22,68 @@ public class GoogleTokenTest {
     Assertions.assertEquals("671407.809414", GoogleToken.getToken("Google translate", tkk));
   }
 
-}
\ No newline at end of file
+  @Test
+  public void getTokenOfMultiByteText() {
+    // two, three and four byte characters, and a surrogate without its pair
+    Assertions.assertEquals("586922.955331", GoogleToken.getToken("Übersetzen", 419689L, 747063055L));
+    Assertions.assertEquals("434800.50457", GoogleToken.getToken("你好，世界", 419689L, 747063055L));
+    Assertions.assertEquals("871309.759389", GoogleToken.getToken("Smile 😀!", 450000L, 3293161072L));
+    Assertions.assertEquals("670689.845361", GoogleToken.getToken("lone \uD800 surrogate", 450000L, 3293161072L));
+    Assertions.assertEquals("547097.951497", GoogleToken.getToken("", 450000L, 3293161072L));
+  }
+
+  /**
+   * The expected tokens are the output of the {@code GetToken} function of getGoogleToken.js in the test resources,
+   * run with node, the TKKs other than its built-in one were passed in place of {@code b} and {@code b1}.
+   */
+  @Test
+  public void getTokenMatchesScript() {
+    String[] texts = {"Translate", "Google translate", "Hello, %1$s!", "Übersetzen", "你好，世界", "Smile 😀!",
+        "lone \uD800 surrogate", "", "a".repeat(500)};
+    String[] webAppTokens = {"791911.663827", "70174.468586", "540727.947267", "761675.895807", "414672.26532",
+        "19305.425757", "651602.1033510", "557215.963819", "258323.378215"};
+    String[] negativeKeyTokens = {"152344.298696", "688510.810158", "178535.287927", "513353.67737", "321661.144813",
+        "375251.222211", "45631.421871", "187847.262167", "195891.270563"};
+    for (int i = 0; i < texts.length; i++) {
+      Assertions.assertEquals(webAppTokens[i], GoogleToken.getToken(texts[i], 406644L, 3293161072L), texts[i]);
+      Assertions.assertEquals(negativeKeyTokens[i], GoogleToken.getToken(texts[i], 450000L, -1234567890L), texts[i]);
+    }
+  }
+
+  @Test
+  public void getDefaultTKK() {
+    long now = System.currentTimeMillis();
+    long hour = now / (60 * 60 * 1000);
+    GoogleToken.setTKK(hour, 747063055L);
+    GoogleToken.TKK tkk = GoogleToken.getDefaultTKK(now);
+    Assertions.assertEquals(hour, tkk.hour);
+    Assertions.assertEquals(747063055L, tkk.key);
+    Assertions.assertEquals(GoogleToken.getToken("Translate", hour, 747063055L), GoogleToken.getToken("Translate"));
+  }
+
+  @Test
+  public void getDefaultTKKOfStaleHour() {
+    // Google serves a TKK whose hour is long past, it is used until the next fetch succeeds
+    long now = System.currentTimeMillis();
+    GoogleToken.setTKK(406644L, 3293161072L, now);
+    Supplier<HttpTransportService> offline = () -> {
+      throw new IllegalStateException("offline");
+    };
+    GoogleToken.TKK tkk = GoogleToken.getDefaultTKK(now + 30 * 60 * 1000, offline);
+    Assertions.assertEquals(406644L, tkk.hour);
+    Assertions.assertEquals(3293161072L, tkk.key);
+    // no refresh was due, a failed one would have moved the refresh time
+    Assertions.assertEquals(now + 60 * 60 * 1000, tkk.refreshAtMillis);
+
+    // the refresh is due, but fails
+    long later = now + 2 * 60 * 60 * 1000;
+    tkk = GoogleToken.getDefaultTKK(later, offline);
+    Assertions.assertEquals(406644L, tkk.hour);
+    Assertions.assertEquals(3293161072L, tkk.key);
+    // the failed refresh is retried in a minute
+    tkk = GoogleToken.getDefaultTKK(later, offline);
+    Assertions.assertEquals(3293161072L, tkk.key);
+    Assertions.assertTrue(tkk.refreshAtMillis < now + 60 * 60 * 1000);
+  }
+
+}
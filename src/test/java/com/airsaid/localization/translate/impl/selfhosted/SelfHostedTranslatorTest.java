@@ -0,0 +1,115 @@
+package com.airsaid.localization.translate.impl.selfhosted;
+
+import com.airsaid.localization.translate.StubTranslationServer;
+import com.airsaid.localization.translate.TranslatorCredentials;
+import com.airsaid.localization.translate.lang.Languages;
+import com.airsaid.localization.translate.services.HttpTransportService;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author airsaid
+ */
+class SelfHostedTranslatorTest {
+
+  private static final List<String> TEXTS = List.of("Hello", "Goodbye", "Hello %1$s, you have %2$d messages");
+
+  private StubTranslationServer server;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    server = new StubTranslationServer(new StubTranslationServer.Config());
+    server.start();
+  }
+
+  @AfterEach
+  void tearDown() {
+    server.close();
+  }
+
+  @NotNull
+  private static SelfHostedTranslator newTranslator(@NotNull String serverUrl) {
+    SelfHostedTranslator translator = new SelfHostedTranslator();
+    translator.setTransport(new HttpTransportService(null, null));
+    translator.setCredentials(new TranslatorCredentials() {
+      @Override
+      public @Nullable String getAppId(@NotNull String translatorKey) {
+        return serverUrl;
+      }
+
+      @Override
+      public @Nullable String getAppKey(@NotNull String translatorKey) {
+        return null;
+      }
+    });
+    return translator;
+  }
+
+  @Test
+  void testLibreTranslateBatch() throws Exception {
+    SelfHostedTranslator translator = newTranslator(server.getBaseUrl());
+
+    List<String> results = translator.translateBatchAsync(null, Languages.ENGLISH, Languages.FRENCH, TEXTS)
+        .get(10, TimeUnit.SECONDS);
+    for (int i = 0; i < TEXTS.size(); i++) {
+      assertEquals(StubTranslationServer.translate(TEXTS.get(i), "fr"), results.get(i));
+    }
+    assertEquals(1, server.getRequestCount());
+
+    assertEquals(StubTranslationServer.translate("Hello", "zh-Hans"),
+        translator.doTranslate(null, Languages.ENGLISH, Languages.CHINESE_SIMPLIFIED, "Hello"));
+  }
+
+  @Test
+  void testLibreTranslateRequestUrl() {
+    assertEquals("http://host:5000/translate",
+        newTranslator("http://host:5000").getRequestUrl(Languages.ENGLISH, Languages.FRENCH, "Hello"));
+    assertEquals("http://host:5000/libre/translate",
+        newTranslator("http://host:5000/libre/").getRequestUrl(Languages.ENGLISH, Languages.FRENCH, "Hello"));
+    assertEquals("http://host:5000/translate",
+        newTranslator("http://host:5000/translate").getRequestUrl(Languages.ENGLISH, Languages.FRENCH, "Hello"));
+    assertEquals("http://host:5000/translate?x=1",
+        newTranslator("http://host:5000?x=1").getRequestUrl(Languages.ENGLISH, Languages.FRENCH, "Hello"));
+    SelfHostedTranslator translator = newTranslator("https://user@host/libre/?x=1&y=a%20b");
+    assertEquals("https://user@host/libre/translate?x=1&y=a%20b",
+        translator.getRequestUrl(Languages.ENGLISH, Languages.FRENCH, "Hello"));
+  }
+
+  @Test
+  void testChatCompletionsStreamed() throws Exception {
+    SelfHostedTranslator translator = newTranslator(server.getBaseUrl() + "/v1/chat/completions?model=stub");
+    assertNotNull(translator.newBatchResultStreamParser(Languages.ENGLISH, Languages.GERMAN, TEXTS));
+
+    List<String> results = translator.translateBatchAsync(null, Languages.ENGLISH, Languages.GERMAN, TEXTS)
+        .get(10, TimeUnit.SECONDS);
+    assertEquals(translator.doTranslateBatch(null, Languages.ENGLISH, Languages.GERMAN, TEXTS), results);
+    for (int i = 0; i < TEXTS.size(); i++) {
+      assertEquals(StubTranslationServer.translate(TEXTS.get(i), "de"), results.get(i));
+    }
+    assertEquals(2, server.getRequestCount());
+
+    // a single text is answered without streaming
+    assertEquals(StubTranslationServer.translate("Hello", "de"),
+        translator.translateAsync(null, Languages.ENGLISH, Languages.GERMAN, "Hello").get(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void testStreamedBodyIsCounted() throws Exception {
+    HttpTransportService transport = new HttpTransportService(null, null);
+    SelfHostedTranslator translator = newTranslator(server.getBaseUrl() + "/v1/chat/completions");
+    translator.setTransport(transport);
+
+    translator.translateBatchAsync(null, Languages.ENGLISH, Languages.ITALIAN, TEXTS).get(10, TimeUnit.SECONDS);
+    assertEquals(1, transport.getMetrics().get(server.getBaseUrl()).getRequests());
+    assertTrue(transport.getMetrics().get(server.getBaseUrl()).getDecodedBytes() > 0);
+  }
+}
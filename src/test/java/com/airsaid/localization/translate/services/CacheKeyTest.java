@@ -0,0 +1,37 @@
+package com.airsaid.localization.translate.services;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author airsaid
+ */
+class CacheKeyTest {
+
+  @Test
+  void testEquals() {
+    CacheKey key = new CacheKey(1, 2, "Hello");
+    assertEquals(key, new CacheKey(1, 2, new String("Hello")));
+    assertEquals(key.hashCode(), new CacheKey(1, 2, "Hello").hashCode());
+    assertNotEquals(key, new CacheKey(2, 1, "Hello"));
+    assertNotEquals(key, new CacheKey(1, 2, "Hello!"));
+  }
+
+  @Test
+  void testNoSeparatorCollision() {
+    // with concatenated keys "a" + "_" + "b_c" and "a_b" + "_" + "c" are the same key
+    assertNotEquals(new CacheKey(1, 12, "3"), new CacheKey(11, 2, "3"));
+  }
+
+  @Test
+  void testHashOfLanguagePair() {
+    // the store is indexed by the hash alone, the same text of two pairs must not share it
+    CacheKey key = new CacheKey(1, 2, "Hello");
+    CacheKey swapped = new CacheKey(2, 1, "Hello");
+    assertNotEquals(key.getHash1(), swapped.getHash1());
+    assertNotEquals(key.getHash1(), new CacheKey(1, 3, "Hello").getHash1());
+    assertEquals(key.getHash2(), swapped.getHash2());
+    assertEquals(key.getHash1(), new CacheKey(1, 2, "Hello").getHash1());
+  }
+}
@@ -0,0 +1,132 @@
+package com.airsaid.localization.translate.services;
+
+import com.airsaid.localization.translate.util.HostMetrics;
+import com.airsaid.localization.translate.util.HttpStatusException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author airsaid
+ */
+class HttpTransportServiceTest {
+
+  private static final String ERROR = "{\"error\": \"invalid key\"}";
+
+  private HttpServer server;
+  private String baseUrl;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext("/port", exchange ->
+        respond(exchange, 200, String.valueOf(exchange.getRemoteAddress().getPort()).getBytes(StandardCharsets.UTF_8)));
+    server.createContext("/gzip", exchange -> {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+        gzip.write("Bonjour le monde".getBytes(StandardCharsets.ISO_8859_1));
+      }
+      exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+      exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=ISO-8859-1");
+      respond(exchange, 200, bytes.toByteArray());
+    });
+    server.createContext("/throttled", exchange -> {
+      exchange.getResponseHeaders().set("Retry-After", "3");
+      respond(exchange, 429, new byte[0]);
+    });
+    server.createContext("/forbidden", exchange -> {
+      String body = ERROR + " ".repeat(2000) + "end";
+      respond(exchange, 403, body.getBytes(StandardCharsets.UTF_8));
+    });
+    server.start();
+    baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+  }
+
+  @AfterEach
+  void tearDown() {
+    server.stop(0);
+  }
+
+  private static void respond(HttpExchange exchange, int statusCode, byte[] body) throws IOException {
+    exchange.sendResponseHeaders(statusCode, body.length == 0 ? -1 : body.length);
+    try (OutputStream os = exchange.getResponseBody()) {
+      os.write(body);
+    }
+  }
+
+  @Test
+  void testKeepAlive() throws IOException {
+    HttpTransportService transport = new HttpTransportService(null, null);
+    String firstPort = transport.execute(transport.newRequest(baseUrl + "/port").GET());
+    for (int i = 0; i < 5; i++) {
+      assertEquals(firstPort, transport.execute(transport.newRequest(baseUrl + "/port").GET()));
+    }
+  }
+
+  @Test
+  void testExecuteAsync() throws Exception {
+    HttpTransportService transport = new HttpTransportService(null, null);
+    List<CompletableFuture<String>> futures = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      futures.add(transport.executeAsync(transport.newRequest(baseUrl + "/gzip").GET()));
+    }
+    for (CompletableFuture<String> future : futures) {
+      assertEquals("Bonjour le monde", future.get(10, TimeUnit.SECONDS));
+    }
+
+    ExecutionException e = assertThrows(ExecutionException.class,
+        () -> transport.executeAsync(transport.newRequest(baseUrl + "/throttled").GET()).get(10, TimeUnit.SECONDS));
+    assertTrue(e.getCause() instanceof HttpStatusException);
+    assertEquals(11, transport.getMetrics().get(baseUrl).getRequests());
+  }
+
+  @Test
+  void testGzipAndMetrics() throws IOException {
+    HttpTransportService transport = new HttpTransportService(null, null);
+    assertEquals("Bonjour le monde", transport.execute(transport.newRequest(baseUrl + "/gzip").GET()));
+
+    HttpStatusException e = assertThrows(HttpStatusException.class,
+        () -> transport.execute(transport.newRequest(baseUrl + "/throttled").GET()));
+    assertTrue(e.isThrottled());
+    assertEquals(3000, e.getRetryAfterMillis());
+
+    HostMetrics metrics = transport.getMetrics().get(baseUrl);
+    assertNotNull(metrics);
+    assertEquals(2, metrics.getRequests());
+    assertEquals(1, metrics.getErrorResponses());
+    assertEquals(1, metrics.getCompressedResponses());
+    assertEquals(16, metrics.getDecodedBytes());
+  }
+
+  @Test
+  void testErrorBodyInMessage() throws Exception {
+    HttpTransportService transport = new HttpTransportService(null, null);
+    HttpStatusException e = assertThrows(HttpStatusException.class,
+        () -> transport.execute(transport.newRequest(baseUrl + "/forbidden").GET()));
+    // the body is truncated in the message
+    assertEquals("Request failed with status code 403: " + baseUrl + "/forbidden, response: " + ERROR
+        + " ".repeat(1000 - ERROR.length()) + "…", e.getMessage());
+
+    ExecutionException streamError = assertThrows(ExecutionException.class,
+        () -> transport.executeStreamAsync(transport.newRequest(baseUrl + "/forbidden").GET(), line -> {
+        }).get(10, TimeUnit.SECONDS));
+    assertTrue(streamError.getCause().getMessage().contains(ERROR));
+  }
+}
@@ -0,0 +1,128 @@
+package com.airsaid.localization.translate.services;
+
+import com.airsaid.localization.translate.StubTranslationServer;
+import com.airsaid.localization.translate.TranslatorCredentials;
+import com.airsaid.localization.translate.impl.googleapi.GoogleApiTranslator;
+import com.airsaid.localization.translate.impl.selfhosted.SelfHostedTranslator;
+import com.airsaid.localization.translate.lang.Lang;
+import com.airsaid.localization.translate.lang.Languages;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author airsaid
+ */
+class TranslatorServiceHedgingTest {
+
+  @TempDir
+  Path cacheDirectory;
+  private final StubTranslationServer.Config slowConfig = new StubTranslationServer.Config().setLatency(1, 1);
+  private StubTranslationServer slowServer;
+  private StubTranslationServer fastServer;
+  private TranslationCacheService cacheService;
+  private TranslationMetricsService metricsService;
+  private TranslatorService translatorService;
+  private GoogleApiTranslator translator;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    slowServer = new StubTranslationServer(slowConfig);
+    slowServer.start();
+    fastServer = new StubTranslationServer(new StubTranslationServer.Config());
+    fastServer.start();
+
+    HttpTransportService transport = new HttpTransportService(null, null);
+    TranslatorCredentials credentials = new TranslatorCredentials() {
+      @Override
+      public @Nullable String getAppId(@NotNull String translatorKey) {
+        return fastServer.getBaseUrl();
+      }
+
+      @Override
+      public @Nullable String getAppKey(@NotNull String translatorKey) {
+        return "stub-key";
+      }
+    };
+    cacheService = new TranslationCacheService(cacheDirectory);
+    metricsService = new TranslationMetricsService(cacheService, transport);
+    translatorService = new TranslatorService(cacheService, metricsService, transport, credentials);
+    translatorService.setEnableCache(false);
+
+    translator = new GoogleApiTranslator() {
+      @Override
+      public @NotNull String getRequestUrl(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull String text) {
+        return slowServer.redirect(super.getRequestUrl(fromLang, toLang, text));
+      }
+
+      @Override
+      public @NotNull String getRequestUrl(@NotNull Lang fromLang, @NotNull Lang toLang, @NotNull List<String> texts) {
+        return slowServer.redirect(super.getRequestUrl(fromLang, toLang, texts));
+      }
+    };
+    translator.setTransport(transport);
+    translator.setCredentials(credentials);
+    translatorService.getTranslators().put(translator.getKey(), translator);
+    translatorService.setSelectedTranslator(translator);
+  }
+
+  @AfterEach
+  void tearDown() {
+    slowServer.close();
+    fastServer.close();
+    cacheService.dispose();
+  }
+
+  @Test
+  void testSlowRequestIsHedged() throws Exception {
+    translatorService.setHedging(translatorService.getTranslators().get(SelfHostedTranslator.KEY), 1);
+    // the latencies of the translator are learnt before anything is hedged
+    for (int i = 0; i < 25; i++) {
+      assertEquals(StubTranslationServer.translate("Hello " + i, "fr"),
+          translatorService.translateAsync(null, Languages.ENGLISH, Languages.FRENCH, "Hello " + i).get(10, TimeUnit.SECONDS));
+    }
+    TranslatorMetrics metrics = metricsService.getTranslatorMetrics(translator.getKey());
+    // a request of the warm up may have been hedged already
+    long hedges = metrics.getHedges();
+    long hedgeWins = metrics.getHedgeWins();
+
+    slowConfig.setLatency(3000, 3000);
+    long fastRequests = fastServer.getRequestCount();
+    assertEquals(StubTranslationServer.translate("Goodbye", "fr"),
+        translatorService.translateAsync(null, Languages.ENGLISH, Languages.FRENCH, "Goodbye").get(10, TimeUnit.SECONDS));
+    assertEquals(hedges + 1, metrics.getHedges());
+    assertEquals(hedgeWins + 1, metrics.getHedgeWins());
+    assertEquals(fastRequests + 1, fastServer.getRequestCount());
+
+    List<String> texts = List.of("One", "Two", "Three");
+    List<String> results = translatorService.translateBatchAsync(null, Languages.ENGLISH, Languages.GERMAN, texts)
+        .get(10, TimeUnit.SECONDS);
+    for (int i = 0; i < texts.size(); i++) {
+      assertEquals(StubTranslationServer.translate(texts.get(i), "de"), results.get(i));
+    }
+    assertEquals(hedgeWins + 2, metrics.getHedgeWins());
+  }
+
+  @Test
+  void testNoBudget() throws Exception {
+    translatorService.setHedging(translatorService.getTranslators().get(SelfHostedTranslator.KEY), 0);
+    for (int i = 0; i < 25; i++) {
+      translatorService.translateAsync(null, Languages.ENGLISH, Languages.FRENCH, "Hello " + i).get(10, TimeUnit.SECONDS);
+    }
+    slowConfig.setLatency(300, 300);
+    assertEquals(StubTranslationServer.translate("Goodbye", "fr"),
+        translatorService.translateAsync(null, Languages.ENGLISH, Languages.FRENCH, "Goodbye").get(10, TimeUnit.SECONDS));
+    assertEquals(0, metricsService.getTranslatorMetrics(translator.getKey()).getHedges());
+    assertEquals(0, fastServer.getRequestCount());
+  }
+}
@@ -0,0 +1,45 @@
+package com.airsaid.localization.translate.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author airsaid
+ */
+class ConcurrencyLimiterTest {
+
+  @Test
+  void testWaitersAreServedInOrder() throws InterruptedException {
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter(1);
+    limiter.acquire();
+    CompletableFuture<Void> first = limiter.acquireAsync();
+    CompletableFuture<Void> second = limiter.acquireAsync();
+    assertFalse(first.isDone());
+
+    limiter.release();
+    assertTrue(first.isDone());
+    assertFalse(second.isDone());
+
+    limiter.release();
+    assertTrue(second.isDone());
+    limiter.release();
+    assertEquals(1, limiter.getAvailablePermits());
+  }
+
+  @Test
+  void testCancelledWaiterIsSkipped() {
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter(1);
+    assertTrue(limiter.acquireAsync().isDone());
+    CompletableFuture<Void> cancelled = limiter.acquireAsync();
+    CompletableFuture<Void> waiting = limiter.acquireAsync();
+    cancelled.cancel(false);
+
+    limiter.release();
+    assertTrue(waiting.isDone() && !waiting.isCompletedExceptionally());
+    limiter.release();
+    assertEquals(1, limiter.getAvailablePermits());
+  }
+}
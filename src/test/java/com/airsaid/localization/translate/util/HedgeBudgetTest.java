@@ -0,0 +1,42 @@
+package com.airsaid.localization.translate.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author airsaid
+ */
+class HedgeBudgetTest {
+
+  @Test
+  void testRatio() {
+    HedgeBudget budget = new HedgeBudget(0.1, 2);
+    int hedges = 0;
+    for (int i = 0; i < 1000; i++) {
+      budget.onRequest();
+      if (budget.tryAcquire()) hedges++;
+    }
+    // floating point sums may earn the last hedge one request late
+    assertTrue(hedges >= 99 && hedges <= 100, "hedges: " + hedges);
+  }
+
+  @Test
+  void testBurst() {
+    HedgeBudget budget = new HedgeBudget(0.5, 2);
+    for (int i = 0; i < 100; i++) {
+      budget.onRequest();
+    }
+    // quiet periods don't save up more than the burst
+    assertTrue(budget.tryAcquire());
+    assertTrue(budget.tryAcquire());
+    assertFalse(budget.tryAcquire());
+  }
+
+  @Test
+  void testNoBudget() {
+    HedgeBudget budget = new HedgeBudget(0, 1);
+    budget.onRequest();
+    assertFalse(budget.tryAcquire());
+  }
+}
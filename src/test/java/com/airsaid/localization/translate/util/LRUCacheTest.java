@@ -39,4 +39,94 @@ class LRUCacheTest {
     lruCache.put("key5", "value5");
     assertNull(lruCache.get("key2"));
   }
-}
\ No newline at end of file
+
+  @Test
+  void testGetMovesToHead() {
+    LRUCache<String, String> lruCache = new LRUCache<>(3);
+    lruCache.put("key1", "value1");
+    lruCache.put("key2", "value2");
+    lruCache.put("key3", "value3");
+    lruCache.get("key1");
+    lruCache.put("key4", "value4");
+    assertNull(lruCache.get("key2"));
+    assertEquals("value1", lruCache.get("key1"));
+    assertEquals(3, lruCache.size());
+  }
+
+  @Test
+  void testPutExistingKey() {
+    LRUCache<String, String> lruCache = new LRUCache<>(2);
+    lruCache.put("key1", "value1");
+    lruCache.put("key1", "value2");
+    lruCache.put("key2", "value3");
+    assertEquals(2, lruCache.size());
+    assertEquals("value2", lruCache.get("key1"));
+    assertEquals(0, lruCache.getEvictionCount());
+  }
+
+  @Test
+  void testCounters() {
+    LRUCache<String, String> lruCache = new LRUCache<>(1);
+    lruCache.put("key1", "value1");
+    lruCache.get("key1");
+    lruCache.get("key2");
+    lruCache.put("key2", "value2");
+    assertEquals(1, lruCache.getHitCount());
+    assertEquals(1, lruCache.getMissCount());
+    assertEquals(1, lruCache.getEvictionCount());
+  }
+
+  @Test
+  void testSetMaxCapacity() {
+    LRUCache<Integer, Integer> lruCache = new LRUCache<>(1000);
+    for (int i = 0; i < 1000; i++) {
+      lruCache.put(i, i);
+    }
+    lruCache.setMaxCapacity(100);
+    assertTrue(lruCache.size() <= 100);
+  }
+
+  @Test
+  void testSetMaxCapacityBelowSegmentCount() {
+    LRUCache<Integer, Integer> lruCache = new LRUCache<>(500);
+    for (int i = 0; i < 500; i++) {
+      lruCache.put(i, i);
+    }
+    lruCache.setMaxCapacity(1);
+    assertEquals(1, lruCache.size());
+    lruCache.put(1000, 1000);
+    assertEquals(1, lruCache.size());
+    assertEquals(Integer.valueOf(1000), lruCache.get(1000));
+
+    // growing again spreads the entries over the segments, the kept entry isn't lost
+    lruCache.setMaxCapacity(500);
+    assertEquals(Integer.valueOf(1000), lruCache.get(1000));
+    for (int i = 0; i < 1000; i++) {
+      lruCache.put(i, i);
+    }
+    assertTrue(lruCache.size() > 1 && lruCache.size() <= 500, "size " + lruCache.size());
+  }
+
+  @Test
+  void testConcurrentAccess() throws InterruptedException {
+    LRUCache<Integer, Integer> lruCache = new LRUCache<>(500);
+    Thread[] threads = new Thread[8];
+    for (int t = 0; t < threads.length; t++) {
+      int seed = t;
+      threads[t] = new Thread(() -> {
+        for (int i = 0; i < 20000; i++) {
+          int key = (i * 31 + seed) % 2000;
+          if (lruCache.get(key) == null) {
+            lruCache.put(key, key);
+          }
+        }
+      });
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertTrue(lruCache.size() <= 500, "size " + lruCache.size());
+    assertEquals(8 * 20000, lruCache.getHitCount() + lruCache.getMissCount());
+  }
+}
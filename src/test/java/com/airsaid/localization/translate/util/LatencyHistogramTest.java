@@ -0,0 +1,43 @@
+package com.airsaid.localization.translate.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author airsaid
+ */
+class LatencyHistogramTest {
+
+  @Test
+  void testPercentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertEquals(0, histogram.getPercentileMillis(50));
+    // 1 to 1000 ms
+    for (int i = 1; i <= 1000; i++) {
+      histogram.record(TimeUnit.MILLISECONDS.toNanos(i));
+    }
+    assertEquals(1000, histogram.getCount());
+    assertEquals(500.5, histogram.getMeanMillis(), 0.001);
+    assertEquals(1000, histogram.getMaxMillis(), 0.001);
+    assertEquals(500, histogram.getPercentileMillis(50), 500 * 0.03);
+    assertEquals(950, histogram.getPercentileMillis(95), 950 * 0.03);
+    assertEquals(990, histogram.getPercentileMillis(99), 990 * 0.03);
+    assertEquals(1000, histogram.getPercentileMillis(100), 1000 * 0.03);
+
+    histogram.reset();
+    assertEquals(0, histogram.getCount());
+  }
+
+  @Test
+  void testBuckets() {
+    for (long micros : new long[]{0, 63, 64, 65, 1000, 123_456_789, Long.MAX_VALUE}) {
+      int index = LatencyHistogram.getBucketIndex(micros);
+      assertTrue(LatencyHistogram.getLowerBound(index) <= micros, "lower bound of " + micros);
+      // the last bucket has no upper neighbour
+      assertTrue(micros == Long.MAX_VALUE || LatencyHistogram.getLowerBound(index + 1) > micros, "upper bound of " + micros);
+    }
+  }
+}
@@ -0,0 +1,45 @@
+package com.airsaid.localization.translate.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author airsaid
+ */
+class MurmurHash3Test {
+
+  @Test
+  void testKnownValues() {
+    // same as Guava Hashing.murmur3_128()
+    assertEquals("029bbd41b3a7d8cb191dae486a901e5b", toHex(MurmurHash3.hash128("hello".getBytes(StandardCharsets.UTF_8), 0)));
+    assertEquals("6c1b07bc7bbc4be347939ac4a93c437a", toHex(MurmurHash3.hash128(
+        "The quick brown fox jumps over the lazy dog".getBytes(StandardCharsets.UTF_8), 0)));
+  }
+
+  @Test
+  void testCharsEqualUtf16Bytes() {
+    String[] texts = {"", "Hello", "Hello, world! 你好", "x".repeat(37), "a".repeat(8), "b".repeat(12)};
+    for (String text : texts) {
+      long[] expected = MurmurHash3.hash128(text.getBytes(StandardCharsets.UTF_16LE), 0);
+      long[] actual = MurmurHash3.hash128(text, 0);
+      assertEquals(expected[0], actual[0]);
+      assertEquals(expected[1], actual[1]);
+    }
+    long[] hello = MurmurHash3.hash128("Hello", 0);
+    assertEquals(-1652284148621789686L, hello[0]);
+    assertEquals(7658842196581580015L, hello[1]);
+  }
+
+  private static String toHex(long[] hash) {
+    StringBuilder builder = new StringBuilder();
+    for (long half : hash) {
+      for (int i = 0; i < 8; i++) {
+        builder.append(String.format("%02x", (half >>> (i * 8)) & 0xff));
+      }
+    }
+    return builder.toString();
+  }
+}
@@ -0,0 +1,40 @@
+package com.airsaid.localization.translate.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author airsaid
+ */
+class RateLimiterTest {
+
+  private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  @Test
+  void testCharactersPerMinute() {
+    AtomicLong clock = new AtomicLong();
+    RateLimiter rateLimiter = new RateLimiter(10, 600, clock::get);
+    assertEquals(0, rateLimiter.reserve(600));
+    // the requests per second still allow it, but the characters per minute don't
+    assertEquals(10 * SECOND, rateLimiter.reserve(100));
+  }
+
+  @Test
+  void testAdaptsToThrottling() {
+    AtomicLong clock = new AtomicLong();
+    RateLimiter rateLimiter = new RateLimiter(10, 0, clock::get);
+    rateLimiter.onThrottled();
+    assertEquals(5, rateLimiter.getRequestsPerSecond(), 0.0001);
+    rateLimiter.onThrottled();
+    assertEquals(2.5, rateLimiter.getRequestsPerSecond(), 0.0001);
+    // every success adds 5% of the configured rate, but never exceeds it
+    rateLimiter.onSuccess();
+    assertEquals(3, rateLimiter.getRequestsPerSecond(), 0.0001);
+    for (int i = 0; i < 100; i++) rateLimiter.onSuccess();
+    assertEquals(10, rateLimiter.getRequestsPerSecond(), 0.0001);
+  }
+}
@@ -0,0 +1,172 @@
+package com.airsaid.localization.translate.util;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author airsaid
+ */
+class RetryPolicyTest {
+
+  @Test
+  void testRetryThrottledRequest() throws Exception {
+    AtomicInteger requests = new AtomicInteger();
+    HttpServer server = startServer(exchange -> {
+      if (requests.incrementAndGet() <= 2) {
+        exchange.getResponseHeaders().add("Retry-After", "0");
+        return 429;
+      }
+      return 200;
+    });
+    try {
+      RetryPolicy policy = new RetryPolicy(5, 1, 10);
+      List<Long> delays = new ArrayList<>();
+      AtomicInteger throttled = new AtomicInteger();
+      String result = policy.execute(() -> request(server), (attempt, error, delayMillis) -> {
+        delays.add(delayMillis);
+        if (RetryPolicy.isThrottled(error)) throttled.incrementAndGet();
+      });
+      assertEquals("ok", result);
+      assertEquals(3, requests.get());
+      assertEquals(2, delays.size());
+      assertEquals(2, throttled.get());
+    } finally {
+      server.stop(0);
+    }
+  }
+
+  @Test
+  void testRetryServerError() throws Exception {
+    AtomicInteger requests = new AtomicInteger();
+    HttpServer server = startServer(exchange -> requests.incrementAndGet() == 1 ? 503 : 200);
+    try {
+      assertEquals("ok", new RetryPolicy(3, 1, 10).execute(() -> request(server), null));
+      assertEquals(2, requests.get());
+    } finally {
+      server.stop(0);
+    }
+  }
+
+  @Test
+  void testClientErrorIsNotRetried() throws Exception {
+    AtomicInteger requests = new AtomicInteger();
+    HttpServer server = startServer(exchange -> {
+      requests.incrementAndGet();
+      return 403;
+    });
+    try {
+      HttpStatusException e = assertThrows(HttpStatusException.class,
+          () -> new RetryPolicy(5, 1, 10).execute(() -> request(server), null));
+      assertEquals(403, e.getStatusCode());
+      assertEquals(1, requests.get());
+    } finally {
+      server.stop(0);
+    }
+  }
+
+  @Test
+  void testGiveUpAfterMaxAttempts() throws Exception {
+    AtomicInteger requests = new AtomicInteger();
+    HttpServer server = startServer(exchange -> {
+      requests.incrementAndGet();
+      return 500;
+    });
+    try {
+      assertThrows(HttpStatusException.class, () -> new RetryPolicy(3, 1, 10).execute(() -> request(server), null));
+      assertEquals(3, requests.get());
+    } finally {
+      server.stop(0);
+    }
+  }
+
+  @Test
+  void testRetryAsync() throws Exception {
+    AtomicInteger attempts = new AtomicInteger();
+    RetryPolicy policy = new RetryPolicy(5, 1, 10);
+    CompletableFuture<String> result = policy.executeAsync(() -> attempts.incrementAndGet() <= 2 ?
+        CompletableFuture.failedFuture(new HttpStatusException(503, "http://localhost", -1)) :
+        CompletableFuture.completedFuture("ok"), null);
+    assertEquals("ok", result.get(5, TimeUnit.SECONDS));
+    assertEquals(3, attempts.get());
+
+    // a client error completes the future with the error itself
+    CompletableFuture<String> failed = policy.executeAsync(() ->
+        CompletableFuture.failedFuture(new HttpStatusException(403, "http://localhost", -1)), null);
+    ExecutionException e = assertThrows(ExecutionException.class, () -> failed.get(5, TimeUnit.SECONDS));
+    assertEquals(403, ((HttpStatusException) e.getCause()).getStatusCode());
+  }
+
+  @Test
+  void testDelay() {
+    RetryPolicy policy = new RetryPolicy(10, 100, 1000);
+    for (int i = 0; i < 100; i++) {
+      long first = policy.getDelayMillis(1, -1);
+      assertTrue(first >= 50 && first <= 100, "delay " + first);
+      long capped = policy.getDelayMillis(8, -1);
+      assertTrue(capped >= 500 && capped <= 1000, "delay " + capped);
+    }
+    // the delay requested by the server wins over a shorter backoff
+    assertEquals(5000, policy.getDelayMillis(1, 5000));
+  }
+
+  @Test
+  void testParseRetryAfter() {
+    assertEquals(120_000, HttpStatusException.parseRetryAfter("120", 0));
+    assertEquals(-1, HttpStatusException.parseRetryAfter(null, 0));
+    assertEquals(-1, HttpStatusException.parseRetryAfter("soon", 0));
+    // Wed, 21 Oct 2015 07:28:00 GMT
+    long date = 1445412480000L;
+    assertEquals(30_000, HttpStatusException.parseRetryAfter("Wed, 21 Oct 2015 07:28:00 GMT", date - 30_000));
+  }
+
+  private interface Handler {
+    int handle(com.sun.net.httpserver.HttpExchange exchange);
+  }
+
+  private static HttpServer startServer(Handler handler) throws IOException {
+    HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/", exchange -> {
+      int statusCode = handler.handle(exchange);
+      byte[] body = (statusCode == 200 ? "ok" : "error").getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(statusCode, body.length);
+      try (OutputStream os = exchange.getResponseBody()) {
+        os.write(body);
+      }
+    });
+    server.start();
+    return server;
+  }
+
+  private static String request(HttpServer server) throws IOException {
+    URL url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/translate");
+    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+    try {
+      int statusCode = connection.getResponseCode();
+      if (statusCode >= 400) {
+        long retryAfterMillis = HttpStatusException.parseRetryAfter(connection.getHeaderField("Retry-After"), 0);
+        throw new HttpStatusException(statusCode, url.toString(), retryAfterMillis);
+      }
+      try (InputStream is = connection.getInputStream()) {
+        return new String(is.readAllBytes(), StandardCharsets.UTF_8);
+      }
+    } finally {
+      connection.disconnect();
+    }
+  }
+}
@@ -0,0 +1,64 @@
+package com.airsaid.localization.translate.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author airsaid
+ */
+class TokenBucketTest {
+
+  private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  @Test
+  void testBurst() {
+    AtomicLong clock = new AtomicLong();
+    TokenBucket bucket = new TokenBucket(2, 2, clock::get);
+    assertEquals(0, bucket.reserve(1));
+    assertEquals(0, bucket.reserve(1));
+    // the third request has to wait for a token to be refilled
+    assertEquals(SECOND / 2, bucket.reserve(1));
+  }
+
+  @Test
+  void testQueue() {
+    AtomicLong clock = new AtomicLong();
+    TokenBucket bucket = new TokenBucket(1, 1, clock::get);
+    assertEquals(0, bucket.reserve(1));
+    // waiting requests are served in the order of their reservations
+    assertEquals(SECOND, bucket.reserve(1));
+    assertEquals(2 * SECOND, bucket.reserve(1));
+    clock.set(3 * SECOND);
+    assertEquals(0, bucket.reserve(1));
+  }
+
+  @Test
+  void testRefillUpToCapacity() {
+    AtomicLong clock = new AtomicLong();
+    TokenBucket bucket = new TokenBucket(10, 5, clock::get);
+    bucket.reserve(5);
+    clock.set(10 * SECOND);
+    assertEquals(5, bucket.getAvailableTokens(), 0.0001);
+  }
+
+  @Test
+  void testLargerThanCapacity() {
+    AtomicLong clock = new AtomicLong();
+    TokenBucket bucket = new TokenBucket(100, 100, clock::get);
+    // a request larger than the capacity still goes through after waiting
+    assertEquals(SECOND, bucket.reserve(200));
+  }
+
+  @Test
+  void testSetRate() {
+    AtomicLong clock = new AtomicLong();
+    TokenBucket bucket = new TokenBucket(1, 1, clock::get);
+    bucket.reserve(1);
+    bucket.setRate(4);
+    assertEquals(SECOND / 4, bucket.reserve(1));
+  }
+}
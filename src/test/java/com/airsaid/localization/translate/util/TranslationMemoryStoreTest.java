@@ -0,0 +1,191 @@
+package com.airsaid.localization.translate.util;
+
+import com.airsaid.localization.translate.services.CacheKey;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author airsaid
+ */
+class TranslationMemoryStoreTest {
+
+  @Test
+  void testPutAndGet(@TempDir Path dir) throws IOException {
+    try (TranslationMemoryStore store = TranslationMemoryStore.open(dir)) {
+      assertNull(store.get(new CacheKey(1, 2, "Hello")));
+      store.put(new CacheKey(1, 2, "Hello"), "你好");
+      store.put(new CacheKey(1, 3, "Hello"), "こんにちは");
+      assertEquals("你好", store.get(new CacheKey(1, 2, "Hello")));
+      assertEquals("こんにちは", store.get(new CacheKey(1, 3, "Hello")));
+      assertNull(store.get(new CacheKey(2, 1, "Hello")));
+      store.put(new CacheKey(1, 2, "Hello"), "您好");
+      assertEquals("您好", store.get(new CacheKey(1, 2, "Hello")));
+      assertEquals(2, store.size());
+    }
+  }
+
+  @Test
+  void testReopenWithIndexSnapshot(@TempDir Path dir) throws IOException {
+    try (TranslationMemoryStore store = TranslationMemoryStore.open(dir)) {
+      for (int i = 0; i < 1000; i++) {
+        store.put(key("key" + i), "value" + i);
+      }
+    }
+    try (TranslationMemoryStore store = TranslationMemoryStore.open(dir)) {
+      assertEquals(1000, store.size());
+      assertEquals("value0", store.get(key("key0")));
+      assertEquals("value999", store.get(key("key999")));
+    }
+  }
+
+  @Test
+  void testReplayLogWithoutSnapshot(@TempDir Path dir) throws IOException {
+    TranslationMemoryStore store = TranslationMemoryStore.open(dir);
+    store.put(key("key"), "value");
+    store.close();
+    // records written after the snapshot are replayed from the log
+    store = TranslationMemoryStore.open(dir);
+    store.put(key("other"), "value2");
+    store.flush();
+    // simulate a crash: the store is not closed, so the snapshot is stale
+    try (TranslationMemoryStore reopened = TranslationMemoryStore.open(dir)) {
+      assertEquals("value", reopened.get(key("key")));
+      assertEquals("value2", reopened.get(key("other")));
+    }
+    store.close();
+  }
+
+  @Test
+  void testTornRecordIsTruncated(@TempDir Path dir) throws IOException {
+    try (TranslationMemoryStore store = TranslationMemoryStore.open(dir)) {
+      store.put(key("key"), "value");
+    }
+    Files.delete(dir.resolve("translations.idx"));
+    Path log = dir.resolve("translations.log");
+    long size = Files.size(log);
+    try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+      // half written record
+      channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 100, 1, 2}), size);
+    }
+    try (TranslationMemoryStore store = TranslationMemoryStore.open(dir)) {
+      assertEquals("value", store.get(key("key")));
+      assertEquals(size, Files.size(log));
+      store.put(key("next"), "value2");
+      assertEquals("value2", store.get(key("next")));
+    }
+  }
+
+  @Test
+  void testCompact(@TempDir Path dir) throws IOException {
+    String value = "x".repeat(1024);
+    try (TranslationMemoryStore store = TranslationMemoryStore.open(dir)) {
+      for (int i = 0; i < 3000; i++) {
+        store.put(key("key" + (i % 10)), value + i);
+      }
+    }
+    // only the 10 live records are left
+    assertTrue(Files.size(dir.resolve("translations.log")) < 20 * 1024);
+    try (TranslationMemoryStore store = TranslationMemoryStore.open(dir)) {
+      assertEquals(10, store.size());
+      assertEquals(value + 2999, store.get(key("key9")));
+      assertEquals(value + 2990, store.get(key("key0")));
+    }
+  }
+
+  @Test
+  void testClear(@TempDir Path dir) throws IOException {
+    try (TranslationMemoryStore store = TranslationMemoryStore.open(dir)) {
+      store.put(key("key"), "value");
+      store.clear();
+      assertNull(store.get(key("key")));
+      store.put(key("key"), "value2");
+    }
+    try (TranslationMemoryStore store = TranslationMemoryStore.open(dir)) {
+      assertEquals("value2", store.get(key("key")));
+      assertEquals(1, store.size());
+    }
+  }
+
+  @Test
+  void testHashCollision(@TempDir Path dir) throws IOException {
+    CacheKey key = key("Hello");
+    TranslationMemoryStore.Key colliding = new CollidingKey(key, "Goodbye");
+    try (TranslationMemoryStore store = TranslationMemoryStore.open(dir)) {
+      store.put(key, "你好");
+      // the text in the record does not match, the colliding key is not found
+      assertNull(store.get(colliding));
+      store.put(colliding, "再见");
+      assertEquals("再见", store.get(colliding));
+      assertNull(store.get(key));
+      assertEquals(1, store.size());
+    }
+  }
+
+  @Test
+  void testLogOfOlderVersionIsDiscarded(@TempDir Path dir) throws IOException {
+    try (TranslationMemoryStore store = TranslationMemoryStore.open(dir)) {
+      store.put(key("key"), "value");
+    }
+    Path log = dir.resolve("translations.log");
+    try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.allocate(8).putLong(0, 0x414C544D4C4F4701L), 0);
+    }
+    try (TranslationMemoryStore store = TranslationMemoryStore.open(dir)) {
+      assertEquals(0, store.size());
+      assertNull(store.get(key("key")));
+      store.put(key("key"), "value2");
+      assertEquals("value2", store.get(key("key")));
+    }
+  }
+
+  @NotNull
+  private static CacheKey key(@NotNull String text) {
+    return new CacheKey(1, 2, text);
+  }
+
+  private static class CollidingKey implements TranslationMemoryStore.Key {
+    private final TranslationMemoryStore.Key key;
+    private final String text;
+
+    CollidingKey(@NotNull TranslationMemoryStore.Key key, @NotNull String text) {
+      this.key = key;
+      this.text = text;
+    }
+
+    @Override
+    public int getFromId() {
+      return key.getFromId();
+    }
+
+    @Override
+    public int getToId() {
+      return key.getToId();
+    }
+
+    @NotNull
+    @Override
+    public String getText() {
+      return text;
+    }
+
+    @Override
+    public long getHash1() {
+      return key.getHash1();
+    }
+
+    @Override
+    public long getHash2() {
+      return key.getHash2();
+    }
+  }
+}
@@ -0,0 +1,39 @@
+package com.airsaid.localization.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author airsaid
+ */
+class CsvReaderTest {
+
+  @Test
+  void testReadRows() throws IOException {
+    String csv = "\uFEFFapp/src/main/res/values/strings.xml,Default,fr\r\n"
+        + "hello,\"Hello, world\",\"Bonjour, \"\"monde\"\"\"\r\n"
+        + "multi_line,\"One\nTwo\",\n"
+        + "songs:other,%d songs,%d chansons";
+    try (CsvReader reader = new CsvReader(new StringReader(csv), ',')) {
+      assertEquals(List.of("app/src/main/res/values/strings.xml", "Default", "fr"), reader.readRow());
+      assertEquals(List.of("hello", "Hello, world", "Bonjour, \"monde\""), reader.readRow());
+      assertEquals(List.of("multi_line", "One\nTwo", ""), reader.readRow());
+      assertEquals(5, reader.getLineNumber());
+      assertEquals(List.of("songs:other", "%d songs", "%d chansons"), reader.readRow());
+      assertNull(reader.readRow());
+    }
+  }
+
+  @Test
+  void testSemicolonAndUnterminatedQuote() throws IOException {
+    try (CsvReader reader = new CsvReader(new StringReader("a;\"b;c\"\nd;\"e"), ';')) {
+      assertEquals(List.of("a", "b;c"), reader.readRow());
+      assertThrows(IOException.class, reader::readRow);
+    }
+  }
+}
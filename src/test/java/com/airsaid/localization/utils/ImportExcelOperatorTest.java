@@ -0,0 +1,119 @@
+package com.airsaid.localization.utils;
+
+import com.airsaid.localization.translate.lang.Lang;
+import com.airsaid.localization.translate.lang.Languages;
+import com.airsaid.localization.values.ValuesDocument;
+import com.airsaid.localization.values.ValuesNode;
+import com.airsaid.localization.values.ValuesXmlReader;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author airsaid
+ */
+class ImportExcelOperatorTest {
+
+  private static final String STRINGS = "<resources>\n"
+      + "    <string name=\"hello\">Hello</string>\n"
+      + "    <plurals name=\"songs\">\n"
+      + "        <item quantity=\"one\">%d song</item>\n"
+      + "        <item quantity=\"other\">%d songs</item>\n"
+      + "    </plurals>\n"
+      + "    <string-array name=\"planets\">\n"
+      + "        <item>Mercury</item>\n"
+      + "    </string-array>\n"
+      + "</resources>\n";
+
+  private static final String STRINGS_FR = "<resources>\n"
+      + "    <string name=\"hello\">Bonjour</string>\n"
+      + "    <plurals name=\"songs\">\n"
+      + "        <item quantity=\"other\">%d chansons</item>\n"
+      + "    </plurals>\n"
+      + "</resources>\n";
+
+  @Test
+  void testReadExportedXlsx(@TempDir Path directory) throws IOException {
+    ValuesDocument original = ValuesXmlReader.read((CharSequence) STRINGS);
+    Map<Lang, List<ValuesNode>> translatedValues = new LinkedHashMap<>();
+    translatedValues.put(Languages.FRENCH, ValuesXmlReader.read((CharSequence) STRINGS_FR).getNodes());
+    ExportExcelOperator exporter = new ExportExcelOperator();
+    exporter.writeSheet("res/values/strings.xml", original.getEntries(), translatedValues);
+    exporter.saveToDisk(directory.toFile());
+    File[] files = directory.toFile().listFiles((dir, name) -> name.endsWith(".xlsx"));
+    assertNotNull(files);
+    assertEquals(1, files.length);
+
+    List<String> sheetNames = new ArrayList<>();
+    List<List<String>> rows = new ArrayList<>();
+    ImportExcelOperator.read(files[0], new ImportExcelOperator.RowHandler() {
+      @Override
+      public void startSheet(@NotNull String sheetName) {
+        sheetNames.add(sheetName);
+      }
+
+      @Override
+      public void row(int rowNumber, @NotNull List<String> cells) {
+        assertEquals(rows.size(), rowNumber);
+        List<String> values = new ArrayList<>(cells);
+        // empty cells are null or empty, compare them as empty
+        values.replaceAll(value -> value == null ? "" : value);
+        while (values.size() < 3) values.add("");
+        rows.add(values);
+      }
+
+      @Override
+      public void endSheet() {
+      }
+    });
+
+    assertEquals(List.of("1 res values strings.xml"), sheetNames);
+    assertEquals(List.of(
+        List.of("res/values/strings.xml", "Default", "fr"),
+        List.of("hello", "Hello", "Bonjour"),
+        List.of("songs:one", "%d song", ""),
+        List.of("songs:other", "%d songs", "%d chansons"),
+        List.of("planets[0]", "Mercury", "")
+    ), rows);
+  }
+
+  @Test
+  void testReadCsv(@TempDir Path directory) throws IOException {
+    Path file = directory.resolve("import.csv");
+    Files.writeString(file, "res/values/strings.xml;Default;fr\nhello;Hello;Bonjour\n", StandardCharsets.UTF_8);
+    List<List<String>> rows = new ArrayList<>();
+    List<String> sheetNames = new ArrayList<>();
+    ImportExcelOperator.read(file.toFile(), new ImportExcelOperator.RowHandler() {
+      @Override
+      public void startSheet(@NotNull String sheetName) {
+        sheetNames.add(sheetName);
+      }
+
+      @Override
+      public void row(int rowNumber, @NotNull List<String> cells) {
+        rows.add(cells);
+      }
+
+      @Override
+      public void endSheet() {
+      }
+    });
+    assertEquals(1, sheetNames.size());
+    assertEquals(List.of(
+        List.of("res/values/strings.xml", "Default", "fr"),
+        List.of("hello", "Hello", "Bonjour")
+    ), rows);
+  }
+}
@@ -0,0 +1,183 @@
+package com.airsaid.localization.values;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author airsaid
+ */
+class ValuesXmlReaderTest {
+
+  private static final String VALUES = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n" +
+      "<resources xmlns:xliff=\"urn:oasis:names:tc:xliff:document:1.2\">\n" +
+      "    <!-- Greetings -->\n" +
+      "    <string name=\"app_name\" translatable=\"false\">Demo</string>\n" +
+      "    <string name=\"hello\">Hello &amp; welcome, <xliff:g id=\"name\">%s</xliff:g>!</string>\n" +
+      "    <string name=\"html\"><![CDATA[<b>Bold</b> text]]></string>\n" +
+      "\n" +
+      "    <plurals name=\"songs\">\n" +
+      "        <item quantity=\"one\">%d song</item>\n" +
+      "        <item quantity=\"other\">%d songs</item>\n" +
+      "    </plurals>\n" +
+      "    <string-array name=\"planets\">\n" +
+      "        <item>Mercury</item>\n" +
+      "    </string-array>\n" +
+      "</resources>\n";
+
+  @Test
+  void testRoundTrip() throws IOException {
+    assertEquals(VALUES, write(read(VALUES)));
+  }
+
+  @Test
+  void testRoundTripOfPrologAndEmptyTags() throws IOException {
+    String values = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n" +
+        "<!-- top -->\n" +
+        "<resources>\n" +
+        "    <string name=\"d\"/>\n" +
+        "    <string name=\"e\"></string>\n" +
+        "    <string-array name=\"planets\"><item/></string-array>\n" +
+        "</resources>\n" +
+        "\n" +
+        "<!-- bottom -->";
+    byte[] bytes = values.getBytes(StandardCharsets.UTF_8);
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    ValuesXmlWriter.write(ValuesXmlReader.read(new ByteArrayInputStream(bytes)), os);
+    assertArrayEquals(bytes, os.toByteArray());
+    assertEquals(values, write(ValuesXmlReader.read((CharSequence) values)));
+
+    // a tag that gets content is no longer empty
+    ValuesDocument document = read(values);
+    ValuesEntry d = document.getEntry("d").withValueText("Dé");
+    assertEquals("<string name=\"d\">Dé</string>", d.getText());
+    assertEquals("", document.getEntry("planets").getItems().get(0).getValueText());
+  }
+
+  @Test
+  void testRoundTripOfLineSeparators() throws IOException {
+    String values = VALUES.replace("\n", "\r\n");
+    assertRoundTrip(values);
+    // the texts use '\n', the appended entries get the line separator of the file
+    ValuesDocument document = read(values);
+    assertTrue(document.getNodes().get(0).getText().startsWith("\n    <!-- Greetings -->\n"));
+    String written = write(document.withEntries(List.of(read(
+        "<resources>\n    <string name=\"retry\">Réessayer</string>\n</resources>").getEntry("retry"))));
+    assertTrue(written.endsWith(
+        "    </string-array>\r\n    <string name=\"retry\">Réessayer</string>\r\n</resources>\r\n"));
+    assertFalse(written.replace("\r\n", "").contains("\n"));
+  }
+
+  @Test
+  void testRoundTripWithoutDeclaration() throws IOException {
+    assertRoundTrip("<resources>\n    <string name=\"a\">A</string>\n</resources>\n");
+    assertRoundTrip("\n<!-- top -->\n<resources>\n    <string name=\"a\">A</string>\n</resources>");
+    assertRoundTrip("<resources/>\n");
+    assertRoundTrip("<?xml version=\"1.0\" encoding=\"utf-8\"?>\r\n\r\n<resources/>");
+  }
+
+  @Test
+  void testRoundTripOfAttributes() throws IOException {
+    String values = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n"
+        + "<resources xmlns:tools='http://schemas.android.com/tools' tools:ignore=\"MissingTranslation\" "
+        + "xmlns:xliff=\"urn:oasis:names:tc:xliff:document:1.2\">\n"
+        + "    <string name='hello' translatable=\"true\">"
+        + "Hello <xliff:g id='name' example=\"Bob's\">%s</xliff:g></string>\n"
+        + "    <string tools:ignore='Typos' name=\"quote\" description='Say \"hi\" &amp; &apos;bye&apos;'>"
+        + "Hi</string>\n"
+        + "</resources>\n";
+    assertRoundTrip(values);
+    ValuesDocument document = read(values);
+    assertEquals(List.of("Hello "), document.getEntry("hello").getTexts());
+    // a translated entry keeps the quotes and the order of its attributes
+    assertEquals("<string tools:ignore='Typos' name=\"quote\" description='Say \"hi\" &amp; &apos;bye&apos;'>"
+        + "Salut</string>", document.getEntry("quote").withTexts(List.of("Salut")).getText());
+  }
+
+  @Test
+  void testEntries() throws IOException {
+    ValuesDocument document = read(VALUES);
+    List<ValuesEntry> entries = document.getEntries();
+    assertEquals(5, entries.size());
+    assertFalse(entries.get(0).isTranslatable());
+    // the placeholder isn't translated
+    assertEquals(List.of("Hello & welcome, ", "!"), entries.get(1).getTexts());
+    assertEquals(List.of("<b>Bold</b> text"), entries.get(2).getTexts());
+    assertEquals(ValuesEntry.TAG_PLURALS, entries.get(3).getTagName());
+    assertEquals(List.of("%d song", "%d songs"), entries.get(3).getTexts());
+    assertEquals(List.of("Mercury"), document.getEntry("planets").getTexts());
+  }
+
+  @Test
+  void testWithTexts() throws IOException {
+    ValuesDocument document = read(VALUES);
+    ValuesEntry hello = document.getEntry("hello");
+    ValuesEntry translated = hello.withTexts(List.of("Bonjour & bienvenue, ", " !"));
+    assertEquals("<string name=\"hello\">Bonjour &amp; bienvenue, <xliff:g id=\"name\">%s</xliff:g> !</string>",
+        translated.getText());
+    ValuesEntry html = document.getEntry("html").withTexts(List.of("<b>Gras</b>"));
+    assertEquals("<![CDATA[<b>Gras</b>]]>", html.getValueText());
+    // the original entry is unchanged
+    assertEquals(List.of("Hello & welcome, ", "!"), hello.getTexts());
+    assertThrows(IllegalArgumentException.class, () -> hello.withTexts(List.of("Bonjour")));
+  }
+
+  @Test
+  void testWithValueText() throws IOException {
+    ValuesDocument document = read(VALUES);
+    ValuesEntry hello = document.getEntry("hello")
+        .withValueText("Salut &amp; bienvenue, <xliff:g id=\"name\">%s</xliff:g> !");
+    assertEquals(List.of("Salut & bienvenue, ", " !"), hello.getTexts());
+    ValuesEntry songs = document.getEntry("songs").withItemValueText(1, "%d chansons");
+    assertEquals(List.of("%d song", "%d chansons"), songs.getTexts());
+    assertEquals("other", songs.getItems().get(1).getQuantity());
+    assertThrows(IllegalArgumentException.class, () -> hello.withValueText("<b>Salut"));
+    assertThrows(IllegalArgumentException.class, () -> hello.withValueText("a</string><string name=\"b\">b"));
+
+    ValuesEntry added = document.getEntry("app_name").withValueText("Démo");
+    String written = write(document.withEntries(List.of(songs, read(
+        "<resources>\n    <string name=\"retry\">Réessayer</string>\n</resources>").getEntry("retry"))));
+    assertTrue(written.contains("<item quantity=\"other\">%d chansons</item>"));
+    assertTrue(written.endsWith("    </string-array>\n    <string name=\"retry\">Réessayer</string>\n</resources>\n"));
+    assertEquals("Démo", added.getValueText());
+  }
+
+  @Test
+  void testItems() throws IOException {
+    ValuesDocument document = ValuesXmlReader.read((CharSequence) VALUES);
+    ValuesEntry songs = document.getEntry("songs");
+    assertEquals(ValuesEntry.Type.PLURALS, songs.getType());
+    assertEquals(List.of("one", "other"), songs.getQuantities());
+    List<ValuesEntry.Item> items = songs.getItems();
+    assertEquals(List.of("%d songs"), items.get(1).getTexts());
+    ValuesEntry planets = document.getEntry("planets");
+    assertEquals(ValuesEntry.Type.STRING_ARRAY, planets.getType());
+    assertNull(planets.getItems().get(0).getQuantity());
+    assertEquals("Mercury", planets.getItems().get(0).getValueText());
+    assertTrue(document.getEntry("hello").getItems().isEmpty());
+  }
+
+  private static void assertRoundTrip(String values) throws IOException {
+    byte[] bytes = values.getBytes(StandardCharsets.UTF_8);
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    ValuesXmlWriter.write(ValuesXmlReader.read(new ByteArrayInputStream(bytes)), os);
+    assertEquals(values, os.toString(StandardCharsets.UTF_8));
+    assertArrayEquals(bytes, os.toByteArray());
+  }
+
+  private static ValuesDocument read(String xml) throws IOException {
+    return ValuesXmlReader.read(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  private static String write(ValuesDocument document) throws IOException {
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    ValuesXmlWriter.write(document, os);
+    return os.toString(StandardCharsets.UTF_8);
+  }
+}